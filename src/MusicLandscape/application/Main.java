@@ -1,10 +1,14 @@
 package MusicLandscape.application;
 
+import MusicLandscape.container.Aggregate;
+import MusicLandscape.container.Estimate;
 import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.container.TrackSample;
 import MusicLandscape.entities.Track;
 import MusicLandscape.util.MyFormatter;
 import MusicLandscape.util.MyMatcher;
 import MusicLandscape.util.comparators.*;
+import MusicLandscape.util.formatters.AggregateFormatter;
 import MusicLandscape.util.formatters.CSVTrackFormatter;
 import MusicLandscape.util.formatters.LongTrackFormatter;
 import MusicLandscape.util.formatters.ShortTrackFormatter;
@@ -52,6 +56,11 @@ public class Main {
         formatters.add(new XMLTrackFormatter());
     }
 
+    /**
+     * the number of tracks per page when displaying large selections.
+     */
+    private static final int PAGE_SIZE = 20;
+
     private static final String WELCOME_TEXT = "Welcome to the FinalTrackDataBase";
     private static final String GOOD_BYE_TEXT = "Thank you for using FinalTrackDataBase";
 
@@ -92,21 +101,40 @@ public class Main {
             System.out.print( "\t" + "no records stored.\n");
             return;
         }
-        if (db.selection().length == 0) {
+        List<Track> selection = db.selectionView();
+        if (selection.isEmpty()) {
             System.out.print("\t" + "selection empty.\n");
             return;
         }
 
         System.out.println('\n' + theFormat.header());
         System.out.println( theFormat.topSeparator());
-        for (Track tt : db.selection())
+        for (Track tt : selection)
             System.out.println(theFormat.format(tt));
         System.out.println();
 
-        System.out.printf("\t" + "%d out of %d records selected\n", db.selection().length,
+        System.out.printf("\t" + "%d out of %d records selected\n", selection.size(),
                 db.size());
     }
 
+    /**
+     * Displays one page of the selection of a container.
+     * Only the tracks of the page are retrieved and formatted.
+     *
+     * @param db   the container
+     * @param page the number of the page, starting at 0
+     */
+    public void display(MyTrackContainer db, int page) {
+        System.out.println('\n' + theFormat.header());
+        System.out.println(theFormat.topSeparator());
+        for (Track tt : db.page(PAGE_SIZE, page))
+            System.out.println(theFormat.format(tt));
+        System.out.println();
+
+        System.out.printf("\t" + "page %d of %d, %d out of %d records selected\n", page + 1, db.pages(PAGE_SIZE),
+                db.selectionView().size(), db.size());
+    }
+
     public static void main(String[] args) {
         new Main().go();
     }
@@ -121,11 +149,41 @@ public class Main {
         public void display_selection() {
             System.out.printf("\t" + "displaying selection:\n");
 
-            Main.this.display(db);
+            int pages = Main.this.db.pages(PAGE_SIZE);
+            if (pages <= 1) {
+                Main.this.display(db);
+                return;
+            }
+            // large selections are shown page by page
+            Scanner sc = new Scanner(System.in);
+            int page = 0;
+            while (true) {
+                Main.this.display(db, page);
+                System.out.print("\t" + "n: next page, p: previous page, number: go to page, empty: back to menu: ");
+                String input = sc.nextLine().trim();
+                if ("".equals(input)) {
+                    return;
+                } else if ("n".equals(input)) {
+                    page = Math.min(page + 1, pages - 1);
+                } else if ("p".equals(input)) {
+                    page = Math.max(page - 1, 0);
+                } else {
+                    try {
+                        int number = Integer.parseInt(input);
+                        if (number < 1 || number > pages) {
+                            throw new NumberFormatException();
+                        }
+                        page = number - 1;
+                    } catch (NumberFormatException e) {
+                        System.out.println("\t" + "You need to enter n, p or a page number between 1 and " + pages + ".");
+                    }
+                }
+            }
         }
 
         public void menu_edit() {
-            if (Main.this.db.selection().length == 0) {
+            List<Track> selection = Main.this.db.selectionView();
+            if (selection.isEmpty()) {
                 System.out.println("\t" + "Please Select tracks, Selection is empty.");
                 return;
             }
@@ -133,27 +191,31 @@ public class Main {
             int i = 0;
             System.out.println("\t" + theFormat.header());
             System.out.println("\t" + theFormat.topSeparator());
-            for (Track tt : db.selection())
+            for (Track tt : selection)
                 System.out.println("\t" + (i++) + ": " + theFormat.format(tt));
             System.out.println();
             System.out.print("\t" + "select track to edit: ");
             int input;
             try {
                 input = Integer.parseInt(sc.nextLine());
-                if (input < Main.this.db.selection().length) {
-                    System.out.println("\t" + Main.this.db.selection()[input] + " selected.");
+                if (input >= 0 && input < selection.size()) {
+                    System.out.println("\t" + selection.get(input) + " selected.");
                 } else {
                     System.out.println("\t Invalid number. Try again.");
+                    return;
                 }
             } catch (NumberFormatException e) {
-                System.out.println("\t" + "You need to enter a number between 0 and " + Main.this.db.selection().length + ".");
+                System.out.println("\t" + "You need to enter a number between 0 and " + selection.size() + ".");
                 return;
             }
-            Main.this.db.selection()[input].scan();
+            Track track = new Track(selection.get(input));
+            if (track.scan() && !Main.this.db.update(input, track)) {
+                System.out.println("\t" + "Track not updated, an equal track exists already.");
+            }
         }
 
         public void menu_filter() {
-            if (Main.this.db.selection().length == 0) {
+            if (Main.this.db.selectionView().isEmpty()) {
                 System.out.println("\t Selection is empty. Please select first by resetting.");
                 return;
             }
@@ -220,12 +282,7 @@ public class Main {
                 String file_name = sc.nextLine();
                 if (!"".equals(file_name)) {
                     MyWriter<Track> my_writer = new MyWriter<>(new FileWriter(file_name), new CSVTrackFormatter());
-                    int counter = 0;
-                    for (Track track : Main.this.db.selection()) {
-                        if (my_writer.put(track)) {
-                            counter++;
-                        }
-                    }
+                    int counter = my_writer.putAll(Main.this.db.selectionView());
                     System.out.println("\t" + counter + " track/s written.");
                     my_writer.close();
                 }
@@ -244,7 +301,7 @@ public class Main {
                 String file_name = sc.nextLine();
                 if (!"".equals(file_name)) {
                     MyXMLWriter xml_writer = new MyXMLWriter(new FileWriter(file_name), Main.this.theFormat);
-                    int nrTracks = xml_writer.saveToXML(Main.this.db.selection());
+                    int nrTracks = xml_writer.saveToXML(Main.this.db.selectionView());
                     xml_writer.createDTDFile();
 
                     System.out.println("\t" + nrTracks + " track/s written.");
@@ -357,6 +414,155 @@ public class Main {
         }
     }
 
+    public void menu_undo() {
+        if (Main.this.db.undo()) {
+            System.out.println("\t" + "Previous selection restored (" + Main.this.db.selectionView().size()
+                    + " record/s selected).");
+        } else {
+            System.out.println("\t" + "Nothing to undo.");
+        }
+    }
+
+    public void menu_redo() {
+        if (Main.this.db.redo()) {
+            System.out.println("\t" + "Undone selection restored (" + Main.this.db.selectionView().size()
+                    + " record/s selected).");
+        } else {
+            System.out.println("\t" + "Nothing to redo.");
+        }
+    }
+
+    public void menu_save_named_selection() {
+        Scanner sc = new Scanner(System.in);
+        System.out.print("\t" + "Enter name: ");
+        String name = sc.nextLine().trim();
+        if ("".equals(name)) {
+            System.out.println("\t You need to enter a name.");
+            return;
+        }
+        Main.this.db.saveSelection(name);
+        System.out.println("\t" + "Selection saved as " + name + ".");
+    }
+
+    public void menu_restore_named_selection() {
+        if (Main.this.db.savedSelections().isEmpty()) {
+            System.out.println("\t" + "No selection saved yet.");
+            return;
+        }
+        for (String name : Main.this.db.savedSelections()) {
+            System.out.println("\t" + name);
+        }
+        Scanner sc = new Scanner(System.in);
+        System.out.print("\t" + "Enter name: ");
+        String name = sc.nextLine().trim();
+        if (Main.this.db.restoreSelection(name)) {
+            System.out.println("\t" + "Selection " + name + " restored (" + Main.this.db.selectionView().size()
+                    + " record/s selected).");
+        } else {
+            System.out.println("\t" + "No selection saved as " + name + ".");
+        }
+    }
+
+    public void menu_write_named_selections() {
+        Scanner sc = new Scanner(System.in);
+        System.out.print("\t" + "Enter target file name: ");
+        String file_name = sc.nextLine();
+        if ("".equals(file_name)) {
+            System.out.println("\t You need to enter a filename.");
+            return;
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file_name))) {
+            Main.this.db.writeSavedSelections(out);
+            System.out.println("\t" + Main.this.db.savedSelections().size() + " selection/s written.");
+        } catch (IOException e) {
+            System.out.println("\t" + e.getMessage());
+        }
+    }
+
+    public void menu_read_named_selections() {
+        Scanner sc = new Scanner(System.in);
+        System.out.print("\t" + "Enter target file name: ");
+        String file_name = sc.nextLine();
+        if ("".equals(file_name)) {
+            System.out.println("\t You need to enter a filename.");
+            return;
+        }
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file_name))) {
+            System.out.println("\t" + Main.this.db.readSavedSelections(in) + " selection/s read.");
+        } catch (FileNotFoundException e) {
+            System.out.println(String.format("\t" + "Error: cannot open file (%s).", file_name));
+        } catch (IOException e) {
+            System.out.println("\t" + e.getMessage());
+        }
+    }
+
+    public void menu_aggregate() {
+        Scanner sc = new Scanner(System.in);
+        MyTrackContainer.GroupBy[] criteria = MyTrackContainer.GroupBy.values();
+        for (int i = 0; i < criteria.length; i++) {
+            System.out.println("\t" + i + ": by " + criteria[i].toString().toLowerCase());
+        }
+        System.out.print("\t" + "select grouping: ");
+        try {
+            int input = Integer.parseInt(sc.nextLine());
+            if (input < 0 || input >= criteria.length) {
+                System.out.println("\t" + "Invalid choice of grouping.");
+                System.out.println("\t" + "You are back in Main Menu.");
+                return;
+            }
+            AggregateFormatter format = new AggregateFormatter();
+            System.out.println('\n' + format.header());
+            System.out.println(format.topSeparator());
+            for (Aggregate aggregate : Main.this.db.aggregate(criteria[input]))
+                System.out.println(format.format(aggregate));
+            System.out.println();
+        } catch (NumberFormatException e) {
+            System.out.println("\t" + "You need to enter a number between 0 and " + criteria.length + ".");
+        }
+    }
+
+    public void menu_estimate() {
+        if (Main.this.db.selectionView().isEmpty()) {
+            System.out.println("\t" + "The selection is empty.");
+            return;
+        }
+        for (MyTrackContainer.GroupBy by : MyTrackContainer.GroupBy.values()) {
+            System.out.println("\t" + by.toString().toLowerCase() + "s: " + Main.this.db.distinct(by, 0.01));
+        }
+        System.out.println("\t" + "durations: " + Main.this.db.durationQuantiles(0.01));
+    }
+
+    public void menu_sample() {
+        if (Main.this.db.selectionView().isEmpty()) {
+            System.out.println("\t" + "The selection is empty.");
+            return;
+        }
+        Scanner sc = new Scanner(System.in);
+        MyTrackContainer.GroupBy[] criteria = MyTrackContainer.GroupBy.values();
+        for (int i = 0; i < criteria.length; i++) {
+            System.out.println("\t" + i + ": by " + criteria[i].toString().toLowerCase());
+        }
+        System.out.print("\t" + "select grouping: ");
+        try {
+            int input = Integer.parseInt(sc.nextLine());
+            if (input < 0 || input >= criteria.length) {
+                System.out.println("\t" + "Invalid choice of grouping.");
+                System.out.println("\t" + "You are back in Main Menu.");
+                return;
+            }
+            TrackSample sample = Main.this.db.sample(criteria[input], 100, System.nanoTime());
+            System.out.println("\t" + sample.size() + " of " + sample.population() + " tracks sampled.");
+            Map<String, Estimate> counts = sample.countBy(criteria[input]);
+            Map<String, Estimate> durations = sample.totalDurationBy(criteria[input]);
+            for (String group : counts.keySet()) {
+                System.out.println("\t" + group + ": " + counts.get(group) + " tracks, total duration "
+                        + durations.get(group));
+            }
+        } catch (NumberFormatException e) {
+            System.out.println("\t" + "You need to enter a number between 0 and " + criteria.length + ".");
+        }
+    }
+
     public void menu_select_formatting() {
         Scanner sc = new Scanner(System.in);
         for (int i = 0; i < Main.this.formatters.size(); i++) {
@@ -479,6 +685,69 @@ public class Main {
                 }
                 // end of MenuItem id=13
             },
+            new Main.MenuItem("aggregate selection") {
+                @Override
+                void execute() {
+                    menu_aggregate();
+                }
+                // end of MenuItem id=14
+            },
+            new Main.MenuItem("undo filter/sort/reset") {
+                @Override
+                void execute() {
+                    menu_undo();
+                }
+                // end of MenuItem id=15
+            },
+            new Main.MenuItem("redo filter/sort/reset") {
+                @Override
+                void execute() {
+                    menu_redo();
+                }
+                // end of MenuItem id=16
+            },
+            new Main.MenuItem("save selection under a name") {
+                @Override
+                void execute() {
+                    menu_save_named_selection();
+                }
+                // end of MenuItem id=17
+            },
+            new Main.MenuItem("restore named selection") {
+                @Override
+                void execute() {
+                    menu_restore_named_selection();
+                }
+                // end of MenuItem id=18
+            },
+            new Main.MenuItem("write named selections to file") {
+                @Override
+                void execute() {
+                    menu_write_named_selections();
+                }
+                // end of MenuItem id=19
+            },
+            new Main.MenuItem("read named selections from file") {
+                @Override
+                void execute() {
+                    menu_read_named_selections();
+                }
+                // end of MenuItem id=20
+            },
+            new Main.MenuItem("estimate distinct counts and duration quantiles") {
+                @Override
+                void execute() {
+                    menu_estimate();
+                }
+                // end of MenuItem id=21
+            },
+            new Main.MenuItem("estimate group sizes and durations from a sample") {
+                @Override
+                void execute() {
+                    menu_sample();
+                }
+                // end of MenuItem id=22
+            },
 
     };// end of array Main.MenuItem[] menu;
 
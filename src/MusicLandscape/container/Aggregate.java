@@ -0,0 +1,105 @@
+package MusicLandscape.container;
+
+/**
+ * The durations of a group of tracks, summarized: how many tracks the group holds and their total, shortest,
+ * longest and average duration. Groups are formed by a MyTrackContainer.GroupBy criterion, see
+ * MyTrackContainer.aggregate().
+ */
+public class Aggregate {
+
+    /**
+     * the value the tracks of the group share, e.g. the performer name or the year.
+     */
+    private final String group;
+
+    /**
+     * the number of tracks.
+     */
+    private final int count;
+
+    /**
+     * the total duration of the tracks, in seconds.
+     */
+    private final long sum;
+
+    /**
+     * the shortest duration, in seconds.
+     */
+    private final int min;
+
+    /**
+     * the longest duration, in seconds.
+     */
+    private final int max;
+
+    /**
+     * Creates an aggregate.
+     *
+     * @param group the value the tracks of the group share
+     * @param count the number of tracks, at least 1
+     * @param sum   the total duration of the tracks
+     * @param min   the shortest duration
+     * @param max   the longest duration
+     */
+    public Aggregate(String group, int count, long sum, int min, int max) {
+        this.group = group;
+        this.count = count;
+        this.sum = sum;
+        this.min = min;
+        this.max = max;
+    }
+
+    /**
+     * @return the value the tracks of the group share, e.g. the performer name or the year
+     */
+    public String getGroup() {
+        return this.group;
+    }
+
+    /**
+     * @return the number of tracks in the group
+     */
+    public int getCount() {
+        return this.count;
+    }
+
+    /**
+     * @return the total duration of the tracks in the group, in seconds
+     */
+    public long getSum() {
+        return this.sum;
+    }
+
+    /**
+     * @return the shortest duration in the group, in seconds
+     */
+    public int getMin() {
+        return this.min;
+    }
+
+    /**
+     * @return the longest duration in the group, in seconds
+     */
+    public int getMax() {
+        return this.max;
+    }
+
+    /**
+     * @return the average duration in the group, in seconds
+     */
+    public double getAverage() {
+        return (double) this.sum / this.count;
+    }
+
+    /**
+     * The string representation of an aggregate is
+     * "group: count tracks, total sum s, min min s, max max s, avg average s" (without quotes).
+     *
+     * @return the string representation
+     */
+    @Override
+    public String toString() {
+        return String.format("%s: %d tracks, total %d s, min %d s, max %d s, avg %.1f s",
+                this.group, this.count, this.sum, this.min, this.max, this.getAverage());
+    }
+}
@@ -0,0 +1,332 @@
+package MusicLandscape.container;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Accumulates the durations of tracks per group, in a single pass over the tracks.
+ * Every group is given a dense id when its first track is seen: names through a StringDictionary, years through an
+ * IntDictionary. The running count, sum, minimum and maximum of each group are then kept in primitive arrays indexed
+ * by that id, so accumulating a track neither boxes nor allocates.
+ * <p>
+ * Aggregations of disjoint sets of tracks can be merged, which is how large selections are aggregated in parallel.
+ * <p>
+ * Tracks can also be removed again, which keeps an aggregation of all tracks of a store up to date as the store
+ * changes. Count and sum are simply reduced. A group losing the track holding its minimum or maximum is marked stale
+ * instead; refresh() then recomputes the minimum and maximum of all stale groups in one pass over the store.
+ * Buried tracks, which are still stored, are skipped by that pass.
+ */
+class Aggregation {
+
+    /**
+     * the store holding the tracks.
+     */
+    private final TrackStore store;
+
+    /**
+     * the grouping criterion.
+     */
+    private final MyTrackContainer.GroupBy by;
+
+    /**
+     * the group names by id, when grouping by writer or performer.
+     */
+    private final StringDictionary names;
+
+    /**
+     * the group years by id, when grouping by year.
+     */
+    private final IntDictionary years;
+
+    /**
+     * the number of tracks of each group, by group id.
+     */
+    private int[] counts;
+
+    /**
+     * the total duration of each group, by group id.
+     */
+    private long[] sums;
+
+    /**
+     * the shortest duration of each group, by group id.
+     */
+    private int[] mins;
+
+    /**
+     * the longest duration of each group, by group id.
+     */
+    private int[] maxs;
+
+    /**
+     * whether the minimum and maximum of a group are no longer known, by group id.
+     */
+    private boolean[] stale;
+
+    /**
+     * whether any group is stale.
+     */
+    private boolean anyStale;
+
+    /**
+     * Creates an empty aggregation.
+     *
+     * @param store the store holding the tracks
+     * @param by    the grouping criterion
+     */
+    Aggregation(TrackStore store, MyTrackContainer.GroupBy by) {
+        this.store = store;
+        this.by = by;
+        this.names = by == MyTrackContainer.GroupBy.YEAR ? null : new StringDictionary();
+        this.years = by == MyTrackContainer.GroupBy.YEAR ? new IntDictionary() : null;
+        this.counts = new int[16];
+        this.sums = new long[16];
+        this.mins = new int[16];
+        this.maxs = new int[16];
+        this.stale = new boolean[16];
+    }
+
+    /**
+     * Aggregates a set of tracks, in parallel if there are many of them.
+     *
+     * @param store     the store holding the tracks
+     * @param by        the grouping criterion
+     * @param members   the ordinals of the tracks to aggregate
+     * @param threshold the number of tracks from which on the tracks are aggregated on several threads
+     * @return the aggregation
+     */
+    static Aggregation of(TrackStore store, MyTrackContainer.GroupBy by, TrackBitmap members, int threshold) {
+        if (members.cardinality() >= threshold) {
+            return ForkJoinPool.commonPool().invoke(new AggregateTask(store, by, members, 0, members.wordCount()));
+        }
+        Aggregation aggregation = new Aggregation(store, by);
+        aggregation.addAll(members, 0, members.wordCount());
+        return aggregation;
+    }
+
+    /**
+     * Adds a track to its group.
+     *
+     * @param ordinal the ordinal of the track
+     */
+    void add(int ordinal) {
+        int duration = this.store.duration(ordinal);
+        this.accumulate(this.groupOf(ordinal), 1, duration, duration, duration);
+    }
+
+    /**
+     * Removes a track from its group. The track must have been added and must still be stored.
+     *
+     * @param ordinal the ordinal of the track
+     */
+    void remove(int ordinal) {
+        int group = this.groupOf(ordinal);
+        int duration = this.store.duration(ordinal);
+        this.counts[group]--;
+        this.sums[group] -= duration;
+        if (this.counts[group] > 0 && (duration == this.mins[group] || duration == this.maxs[group])) {
+            this.stale[group] = true;
+            this.anyStale = true;
+        }
+    }
+
+    /**
+     * Recomputes the minimum and maximum of the stale groups, if there are any, from all tracks of the store.
+     * This aggregation must cover exactly the tracks of the store which are not buried.
+     *
+     * @param buried the buried ordinals of the store
+     */
+    void refresh(TrackBitmap buried) {
+        if (!this.anyStale) {
+            return;
+        }
+        boolean[] seen = new boolean[this.stale.length];
+        for (int ordinal = 0; ordinal < this.store.size(); ordinal++) {
+            if (buried.get(ordinal)) {
+                continue;
+            }
+            int group = this.groupOf(ordinal);
+            if (!this.stale[group]) {
+                continue;
+            }
+            int duration = this.store.duration(ordinal);
+            if (!seen[group]) {
+                seen[group] = true;
+                this.mins[group] = duration;
+                this.maxs[group] = duration;
+            } else {
+                this.mins[group] = Math.min(this.mins[group], duration);
+                this.maxs[group] = Math.max(this.maxs[group], duration);
+            }
+        }
+        Arrays.fill(this.stale, false);
+        this.anyStale = false;
+    }
+
+    /**
+     * Adds the tracks of a range of words of a bitmap.
+     *
+     * @param members the ordinals of the tracks
+     * @param from    the first word (inclusive)
+     * @param to      the last word (exclusive)
+     */
+    void addAll(TrackBitmap members, int from, int to) {
+        int end = to << 6;
+        for (int o = members.nextSetBit(from << 6); o >= 0 && o < end; o = members.nextSetBit(o + 1)) {
+            this.add(o);
+        }
+    }
+
+    /**
+     * Adds the groups of another aggregation of the same criterion, which covers other tracks than this one.
+     *
+     * @param other the aggregation to merge
+     */
+    void merge(Aggregation other) {
+        for (int g = 0; g < other.groups(); g++) {
+            int group = this.names != null ? this.names.encode(other.names.decode(g))
+                    : this.years.encode(other.years.decode(g));
+            this.accumulate(group, other.counts[g], other.sums[g], other.mins[g], other.maxs[g]);
+        }
+    }
+
+    /**
+     * Gets the aggregates of all groups, ordered by group: names alphabetically, years ascending.
+     *
+     * @return the aggregates
+     */
+    List<Aggregate> result() {
+        int[] order = new int[this.groups()];
+        for (int g = 0; g < order.length; g++) {
+            order[g] = g;
+        }
+        Comparator<String> byName = Comparator.nullsFirst(Comparator.naturalOrder());
+        OrdinalSort.sort(order, order.length, this.names != null
+                ? (a, b) -> byName.compare(this.names.decode(a), this.names.decode(b))
+                : (a, b) -> Integer.compare(this.years.decode(a), this.years.decode(b)));
+        List<Aggregate> result = new ArrayList<Aggregate>(order.length);
+        for (int g : order) {
+            if (this.counts[g] == 0) {
+                // all tracks of the group have been removed
+                continue;
+            }
+            result.add(new Aggregate(this.label(g), this.counts[g], this.sums[g], this.mins[g], this.maxs[g]));
+        }
+        return result;
+    }
+
+    /**
+     * Gets the id of the group of a track, creating the group if it is new.
+     *
+     * @param ordinal the ordinal of the track
+     * @return the group id
+     */
+    private int groupOf(int ordinal) {
+        switch (this.by) {
+            case WRITER:
+                return this.names.encode(this.store.writer(ordinal));
+            case PERFORMER:
+                return this.names.encode(this.store.performer(ordinal));
+            default:
+                return this.years.encode(this.store.year(ordinal));
+        }
+    }
+
+    /**
+     * @return the number of groups
+     */
+    private int groups() {
+        return this.names != null ? this.names.size() : this.years.size();
+    }
+
+    /**
+     * @param group the group id
+     * @return the group as shown in an Aggregate, unnamed artists being shown as "unknown" like Artist.toString() does
+     */
+    private String label(int group) {
+        if (this.names == null) {
+            return Integer.toString(this.years.decode(group));
+        }
+        String name = this.names.decode(group);
+        return name == null ? "unknown" : name;
+    }
+
+    /**
+     * Adds partial results to a group, creating the group if it is new.
+     */
+    private void accumulate(int group, int count, long sum, int min, int max) {
+        if (group == this.counts.length) {
+            int length = this.counts.length * 2;
+            this.counts = Arrays.copyOf(this.counts, length);
+            this.sums = Arrays.copyOf(this.sums, length);
+            this.mins = Arrays.copyOf(this.mins, length);
+            this.maxs = Arrays.copyOf(this.maxs, length);
+            this.stale = Arrays.copyOf(this.stale, length);
+        }
+        if (this.counts[group] == 0) {
+            this.mins[group] = min;
+            this.maxs[group] = max;
+            this.stale[group] = false;
+        } else {
+            this.mins[group] = Math.min(this.mins[group], min);
+            this.maxs[group] = Math.max(this.maxs[group], max);
+        }
+        this.counts[group] += count;
+        this.sums[group] += sum;
+    }
+
+    /**
+     * Aggregates a range of words of a bitmap, splitting it in halves until the chunks are small enough and merging
+     * the partial aggregations of the halves.
+     */
+    private static class AggregateTask extends RecursiveTask<Aggregation> {
+
+        /**
+         * tasks are never serialized, but RecursiveTask is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the number of words (64 ordinals each) below which a chunk is not split further.
+         */
+        private static final int CHUNK_WORDS = 256;
+
+        private final TrackStore store;
+
+        private final MyTrackContainer.GroupBy by;
+
+        private final TrackBitmap members;
+
+        private final int from;
+
+        private final int to;
+
+        AggregateTask(TrackStore store, MyTrackContainer.GroupBy by, TrackBitmap members, int from, int to) {
+            this.store = store;
+            this.by = by;
+            this.members = members;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Aggregation compute() {
+            if (this.to - this.from <= CHUNK_WORDS) {
+                Aggregation aggregation = new Aggregation(this.store, this.by);
+                aggregation.addAll(this.members, this.from, this.to);
+                return aggregation;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            AggregateTask left = new AggregateTask(this.store, this.by, this.members, this.from, mid);
+            left.fork();
+            Aggregation right = new AggregateTask(this.store, this.by, this.members, mid, this.to).compute();
+            Aggregation aggregation = left.join();
+            aggregation.merge(right);
+            return aggregation;
+        }
+    }
+}
@@ -0,0 +1,315 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.ArtistRegistry;
+import MusicLandscape.entities.Track;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Stores tracks column by column instead of as track objects.
+ * Durations and years are kept in primitive arrays, titles and artist names are dictionary-encoded so that every
+ * distinct string is held only once, along with its folded key. A stored track costs 18 bytes of column data plus its
+ * share of the dictionaries, compared to three objects and their headers and references for a track object.
+ * <p>
+ * Track objects are only created by get(). They are copies; modifying them does not modify the content of the store.
+ */
+class ColumnarTrackStore extends TrackStore {
+
+    /**
+     * the duration of each track, indexed by ordinal.
+     */
+    private int[] durations;
+
+    /**
+     * the year of each track, indexed by ordinal. Valid years (1900-2999) as well as the default 0 fit into a short.
+     */
+    private short[] years;
+
+    /**
+     * the title id of each track, indexed by ordinal.
+     */
+    private int[] titleIds;
+
+    /**
+     * the writer name id of each track, indexed by ordinal.
+     */
+    private int[] writerIds;
+
+    /**
+     * the performer name id of each track, indexed by ordinal.
+     */
+    private int[] performerIds;
+
+    /**
+     * finds the ordinal of a stored track equal to a given track.
+     */
+    private TrackHashIndex identities;
+
+    /**
+     * the dictionary of titles.
+     */
+    private StringDictionary titles;
+
+    /**
+     * the dictionary of artist names, shared by writers and performers.
+     */
+    private StringDictionary artists;
+
+    /**
+     * the folded keys of the titles, by title id.
+     */
+    private FoldedKeys titleKeys;
+
+    /**
+     * the folded keys of the artist names, by name id.
+     */
+    private FoldedKeys artistKeys;
+
+    /**
+     * the number of stored tracks.
+     */
+    private int count;
+
+    /**
+     * Creates an empty store.
+     */
+    ColumnarTrackStore() {
+        this.durations = new int[16];
+        this.years = new short[16];
+        this.titleIds = new int[16];
+        this.writerIds = new int[16];
+        this.performerIds = new int[16];
+        this.identities = new TrackHashIndex();
+        this.titles = new StringDictionary();
+        this.artists = new StringDictionary();
+        this.titleKeys = new FoldedKeys();
+        this.artistKeys = new FoldedKeys();
+    }
+
+    /**
+     * Creates a copy of a store.
+     *
+     * @param other the store to copy
+     */
+    private ColumnarTrackStore(ColumnarTrackStore other) {
+        super(other);
+        this.durations = other.durations.clone();
+        this.years = other.years.clone();
+        this.titleIds = other.titleIds.clone();
+        this.writerIds = other.writerIds.clone();
+        this.performerIds = other.performerIds.clone();
+        this.identities = new TrackHashIndex(other.identities);
+        this.titles = new StringDictionary(other.titles);
+        this.artists = new StringDictionary(other.artists);
+        this.titleKeys = new FoldedKeys(other.titleKeys);
+        this.artistKeys = new FoldedKeys(other.artistKeys);
+        this.count = other.count;
+    }
+
+    /**
+     * Creates a view of a store, sharing its columns and dictionaries.
+     *
+     * @param other the store to view
+     * @param view  distinguishes this constructor from the copy constructor
+     */
+    private ColumnarTrackStore(ColumnarTrackStore other, boolean view) {
+        super(other);
+        this.durations = other.durations;
+        this.years = other.years;
+        this.titleIds = other.titleIds;
+        this.writerIds = other.writerIds;
+        this.performerIds = other.performerIds;
+        this.identities = other.identities.view();
+        this.titles = other.titles.view();
+        this.artists = other.artists.view();
+        this.titleKeys = other.titleKeys.view();
+        this.artistKeys = other.artistKeys.view();
+        this.count = other.count;
+    }
+
+    @Override
+    TrackStore copy() {
+        return new ColumnarTrackStore(this);
+    }
+
+    @Override
+    TrackStore view() {
+        return new ColumnarTrackStore(this, true);
+    }
+
+    @Override
+    int append(Track t) {
+        if (this.ordinalOf(t) >= 0) {
+            return -1;
+        }
+        if (this.count == this.durations.length) {
+            this.grow();
+        }
+        int ordinal = this.count++;
+        this.write(ordinal, t);
+        this.identities.add(ordinal, t.hashCode());
+        return ordinal;
+    }
+
+    @Override
+    boolean set(int ordinal, Track t) {
+        int holder = this.ordinalOf(t);
+        if (holder >= 0 && holder != ordinal) {
+            return false;
+        }
+        this.identities.remove(ordinal);
+        this.write(ordinal, t);
+        this.identities.add(ordinal, t.hashCode());
+        return true;
+    }
+
+    @Override
+    int ordinalOf(Track t) {
+        return this.identities.find(t, this::holds);
+    }
+
+    @Override
+    int hash(int ordinal) {
+        return this.identities.hash(ordinal);
+    }
+
+    @Override
+    Track get(int ordinal) {
+        // a default track has year 0, which setYear would refuse; starting from it keeps that value intact
+        Track track = new Track();
+        track.setTitle(this.title(ordinal));
+        track.setWriter(ArtistRegistry.of(this.writer(ordinal)));
+        track.setPerformer(ArtistRegistry.of(this.performer(ordinal)));
+        track.setDuration(this.durations[ordinal]);
+        track.setYear(this.years[ordinal]);
+        return track;
+    }
+
+    @Override
+    int duration(int ordinal) {
+        return this.durations[ordinal];
+    }
+
+    @Override
+    int year(int ordinal) {
+        return this.years[ordinal];
+    }
+
+    @Override
+    String title(int ordinal) {
+        return this.titles.decode(this.titleIds[ordinal]);
+    }
+
+    @Override
+    String writer(int ordinal) {
+        return this.artists.decode(this.writerIds[ordinal]);
+    }
+
+    @Override
+    String performer(int ordinal) {
+        return this.artists.decode(this.performerIds[ordinal]);
+    }
+
+    @Override
+    String titleKey(int ordinal) {
+        return this.titleKeys.get(this.titleIds[ordinal]);
+    }
+
+    @Override
+    String writerKey(int ordinal) {
+        return this.artistKeys.get(this.writerIds[ordinal]);
+    }
+
+    @Override
+    String performerKey(int ordinal) {
+        return this.artistKeys.get(this.performerIds[ordinal]);
+    }
+
+    @Override
+    void bury(int ordinal) {
+        this.identities.bury(ordinal);
+    }
+
+    @Override
+    void assign(TrackStore other) {
+        ColumnarTrackStore compacted = (ColumnarTrackStore) other;
+        this.durations = compacted.durations;
+        this.years = compacted.years;
+        this.titleIds = compacted.titleIds;
+        this.writerIds = compacted.writerIds;
+        this.performerIds = compacted.performerIds;
+        this.identities = compacted.identities;
+        this.titles = compacted.titles;
+        this.artists = compacted.artists;
+        this.titleKeys = compacted.titleKeys;
+        this.artistKeys = compacted.artistKeys;
+        this.count = compacted.count;
+    }
+
+    @Override
+    void compact(TrackBitmap dead) {
+        int kept = 0;
+        this.identities.compact(dead, this.count);
+        for (int ordinal = 0; ordinal < this.count; ordinal++) {
+            if (dead.get(ordinal)) {
+                continue;
+            }
+            this.durations[kept] = this.durations[ordinal];
+            this.years[kept] = this.years[ordinal];
+            this.titleIds[kept] = this.titleIds[ordinal];
+            this.writerIds[kept] = this.writerIds[ordinal];
+            this.performerIds[kept] = this.performerIds[ordinal];
+            kept++;
+        }
+        this.count = kept;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Tells whether the stored track with a certain ordinal equals a track, comparing the columns directly.
+     *
+     * @param ordinal the ordinal of the stored track
+     * @param t       the track
+     * @return whether the stored track has the values of t
+     */
+    private boolean holds(int ordinal, Track t) {
+        return this.durations[ordinal] == t.getDuration() && this.years[ordinal] == t.getYear()
+                && this.title(ordinal).equals(t.getTitle())
+                && Objects.equals(this.writer(ordinal), t.getWriter().getName())
+                && Objects.equals(this.performer(ordinal), t.getPerformer().getName());
+    }
+
+    /**
+     * Writes the values of a track into the columns.
+     *
+     * @param ordinal the ordinal to write to
+     * @param t       the track
+     */
+    private void write(int ordinal, Track t) {
+        this.durations[ordinal] = t.getDuration();
+        this.years[ordinal] = (short) t.getYear();
+        this.titleIds[ordinal] = this.titles.encode(t.getTitle());
+        this.writerIds[ordinal] = this.artists.encode(t.getWriter().getName());
+        this.performerIds[ordinal] = this.artists.encode(t.getPerformer().getName());
+        this.titleKeys.note(this.titleIds[ordinal], t.getTitle());
+        this.artistKeys.note(this.writerIds[ordinal], t.getWriter().getName());
+        this.artistKeys.note(this.performerIds[ordinal], t.getPerformer().getName());
+    }
+
+    /**
+     * Doubles the capacity of all columns.
+     */
+    private void grow() {
+        int capacity = this.durations.length * 2;
+        this.durations = Arrays.copyOf(this.durations, capacity);
+        this.years = Arrays.copyOf(this.years, capacity);
+        this.titleIds = Arrays.copyOf(this.titleIds, capacity);
+        this.writerIds = Arrays.copyOf(this.writerIds, capacity);
+        this.performerIds = Arrays.copyOf(this.performerIds, capacity);
+    }
+}
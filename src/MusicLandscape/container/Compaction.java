@@ -0,0 +1,75 @@
+package MusicLandscape.container;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Removes the buried tracks of a store in the background.
+ * A copy of the store is compacted on the common fork/join pool: the tracks are copied, renumbered and indexed by
+ * identity anew, while the store itself stays in place. Until the compaction is installed the store may be read by any
+ * number of threads, but must not be modified. Installing lets the store adopt the compacted copy, which is a matter
+ * of swapping a few references.
+ */
+class Compaction {
+
+    /**
+     * the default fraction of buried tracks among all stored tracks from which on a container compacts its store.
+     */
+    static final double DEFAULT_THRESHOLD = 0.25;
+
+    /**
+     * the store being compacted.
+     */
+    private final TrackStore store;
+
+    /**
+     * the ordinals removed by the compaction.
+     */
+    private final TrackBitmap dead;
+
+    /**
+     * the new ordinal of every ordinal of the store, -1 for removed tracks; set by the task.
+     */
+    private int[] remap;
+
+    /**
+     * compacts the copy.
+     */
+    private final ForkJoinTask<TrackStore> task;
+
+    /**
+     * Starts compacting a store.
+     *
+     * @param store the store
+     * @param dead  the ordinals to remove, including all buried ones; the bitmap is copied
+     */
+    Compaction(TrackStore store, TrackBitmap dead) {
+        this.store = store;
+        this.dead = new TrackBitmap(dead);
+        this.task = ForkJoinPool.commonPool().submit(() -> {
+            TrackStore copy = store.copy();
+            this.remap = this.dead.remap(copy.size());
+            copy.remove(this.dead);
+            return copy;
+        });
+    }
+
+    /**
+     * @return whether the compacted copy is ready, so that install() does not wait
+     */
+    boolean isDone() {
+        return this.task.isDone();
+    }
+
+    /**
+     * Lets the store adopt the compacted copy, waiting for it if necessary.
+     * Anything referring to ordinals of the store must be carried over with the returned remap.
+     *
+     * @return the new ordinal of every ordinal of the store before compaction, -1 for removed tracks
+     */
+    int[] install() {
+        TrackStore compacted = this.task.join();
+        this.store.adopt(compacted);
+        return this.remap;
+    }
+}
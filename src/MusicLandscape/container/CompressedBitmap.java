@@ -0,0 +1,222 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+
+/**
+ * An immutable set of ordinals, compressed the way Roaring bitmaps are.
+ * The ordinals are split into chunks of 65536 by their upper bits, and every chunk holding ordinals is stored in the
+ * smallest of three forms: a sorted array of the lower 16 bits of its ordinals, a list of the runs of consecutive
+ * ordinals it holds, or a plain bitmap of 1024 words. Empty chunks take no space at all. A selection of a few thousand
+ * out of millions of tracks thus takes a few kilobytes instead of one bit per stored track, and so do the selection
+ * of all tracks and a selection of a range of ordinals.
+ * <p>
+ * Compressed bitmaps are meant for keeping selections around (see Selection.State). They are built from and expanded
+ * back into TrackBitmaps, which the container works on.
+ */
+final class CompressedBitmap {
+
+    /**
+     * the number of words of a chunk.
+     */
+    private static final int CHUNK_WORDS = 1024;
+
+    /**
+     * the number of ordinals of a chunk.
+     */
+    private static final int CHUNK_SIZE = CHUNK_WORDS * 64;
+
+    /**
+     * the form of a chunk stored as the sorted lower 16 bits of its ordinals.
+     */
+    private static final byte ARRAY = 0;
+
+    /**
+     * the form of a chunk stored as the first and the last lower 16 bits of each of its runs.
+     */
+    private static final byte RUNS = 1;
+
+    /**
+     * the form of a chunk stored as its words.
+     */
+    private static final byte BITS = 2;
+
+    /**
+     * the chunk number (ordinal / CHUNK_SIZE) of every stored chunk, ascending.
+     */
+    private final int[] keys;
+
+    /**
+     * the form of every stored chunk.
+     */
+    private final byte[] kinds;
+
+    /**
+     * the content of every stored chunk: char[] for ARRAY and RUNS chunks, long[] for BITS chunks.
+     */
+    private final Object[] chunks;
+
+    private CompressedBitmap(int[] keys, byte[] kinds, Object[] chunks) {
+        this.keys = keys;
+        this.kinds = kinds;
+        this.chunks = chunks;
+    }
+
+    /**
+     * Compresses a bitmap.
+     *
+     * @param bitmap the bitmap, which is not modified
+     * @return the compressed bitmap holding the same ordinals
+     */
+    static CompressedBitmap of(TrackBitmap bitmap) {
+        int count = (bitmap.wordCount() + CHUNK_WORDS - 1) / CHUNK_WORDS;
+        int[] keys = new int[count];
+        byte[] kinds = new byte[count];
+        Object[] chunks = new Object[count];
+        int stored = 0;
+        long[] words = new long[CHUNK_WORDS];
+        for (int key = 0; key < count; key++) {
+            int from = key * CHUNK_WORDS;
+            int cardinality = 0;
+            int runs = 0;
+            long carry = 0;
+            for (int i = 0; i < CHUNK_WORDS; i++) {
+                long word = from + i < bitmap.wordCount() ? bitmap.word(from + i) : 0;
+                words[i] = word;
+                cardinality += Long.bitCount(word);
+                // the ordinals which are contained while their predecessor is not start a run
+                runs += Long.bitCount(word & ~(word << 1 | carry));
+                carry = word >>> 63;
+            }
+            if (cardinality == 0) {
+                continue;
+            }
+            keys[stored] = key;
+            // an array takes 2 bytes per ordinal, runs take 4 bytes per run, bits 8 bytes per word
+            if (4 * runs <= 2 * cardinality && 4 * runs < 8 * CHUNK_WORDS) {
+                kinds[stored] = RUNS;
+                chunks[stored] = runs(words, runs);
+            } else if (2 * cardinality < 8 * CHUNK_WORDS) {
+                kinds[stored] = ARRAY;
+                chunks[stored] = array(words, cardinality);
+            } else {
+                kinds[stored] = BITS;
+                chunks[stored] = words.clone();
+            }
+            stored++;
+        }
+        return new CompressedBitmap(Arrays.copyOf(keys, stored), Arrays.copyOf(kinds, stored),
+                Arrays.copyOf(chunks, stored));
+    }
+
+    /**
+     * Expands this bitmap.
+     *
+     * @return a new bitmap holding the ordinals of this bitmap
+     */
+    TrackBitmap toBitmap() {
+        int count = this.keys.length;
+        long[] words = new long[count == 0 ? 1 : (this.keys[count - 1] + 1) * CHUNK_WORDS];
+        for (int c = 0; c < count; c++) {
+            int base = this.keys[c] * CHUNK_WORDS;
+            if (this.kinds[c] == BITS) {
+                System.arraycopy((long[]) this.chunks[c], 0, words, base, CHUNK_WORDS);
+            } else if (this.kinds[c] == ARRAY) {
+                for (char low : (char[]) this.chunks[c]) {
+                    words[base + (low >>> 6)] |= 1L << low;
+                }
+            } else {
+                char[] runs = (char[]) this.chunks[c];
+                for (int r = 0; r < runs.length; r += 2) {
+                    setRange(words, base * 64 + runs[r], base * 64 + runs[r + 1] + 1);
+                }
+            }
+        }
+        return new TrackBitmap(words);
+    }
+
+    /**
+     * @return the approximate number of bytes this bitmap occupies
+     */
+    long bytes() {
+        long bytes = 48 + 24L * this.keys.length;
+        for (int c = 0; c < this.keys.length; c++) {
+            bytes += this.kinds[c] == BITS ? 8L * CHUNK_WORDS : 2L * ((char[]) this.chunks[c]).length;
+        }
+        return bytes;
+    }
+
+    /**
+     * @param words       the words of a chunk
+     * @param cardinality the number of ordinals the chunk holds
+     * @return the sorted lower 16 bits of the ordinals of the chunk
+     */
+    private static char[] array(long[] words, int cardinality) {
+        char[] array = new char[cardinality];
+        int n = 0;
+        for (int i = 0; i < CHUNK_WORDS; i++) {
+            for (long word = words[i]; word != 0; word &= word - 1) {
+                array[n++] = (char) (i * 64 + Long.numberOfTrailingZeros(word));
+            }
+        }
+        return array;
+    }
+
+    /**
+     * @param words the words of a chunk
+     * @param count the number of runs the chunk holds
+     * @return the first and the last lower 16 bits of every run of the chunk
+     */
+    private static char[] runs(long[] words, int count) {
+        char[] runs = new char[2 * count];
+        int n = 0;
+        for (int start = next(words, 0, false); start < CHUNK_SIZE; ) {
+            int end = next(words, start, true);
+            runs[n++] = (char) start;
+            runs[n++] = (char) (end - 1);
+            start = next(words, end, false);
+        }
+        return runs;
+    }
+
+    /**
+     * Finds the next position of a chunk which holds, or does not hold, an ordinal.
+     *
+     * @param words the words of the chunk
+     * @param from  the position to start at
+     * @param clear true to find a position not holding an ordinal, false to find one holding an ordinal
+     * @return the position, CHUNK_SIZE if there is none
+     */
+    private static int next(long[] words, int from, boolean clear) {
+        if (from >= CHUNK_SIZE) {
+            return CHUNK_SIZE;
+        }
+        int i = from >>> 6;
+        long word = (clear ? ~words[i] : words[i]) & (-1L << from);
+        while (word == 0) {
+            if (++i == CHUNK_WORDS) {
+                return CHUNK_SIZE;
+            }
+            word = clear ? ~words[i] : words[i];
+        }
+        return i * 64 + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Sets the bits from one ordinal to another.
+     *
+     * @param words the words to modify
+     * @param from  the first ordinal
+     * @param to    the ordinal after the last one, greater than from
+     */
+    private static void setRange(long[] words, int from, int to) {
+        int first = from >>> 6;
+        int last = (to - 1) >>> 6;
+        if (first == last) {
+            words[first] |= (-1L << from) & (-1L >>> -to);
+            return;
+        }
+        words[first] |= -1L << from;
+        Arrays.fill(words, first + 1, last, -1L);
+        words[last] |= -1L >>> -to;
+    }
+}
@@ -0,0 +1,457 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+
+import java.util.Collections;
+import java.util.Comparator;
+
+/**
+ * A set of unique tracks shared by several threads, each working on its own selection through a session.
+ * <p>
+ * The tracks are held as an immutable snapshot. Writers (add, addAll and the remove and update of a session) modify
+ * the tracks and publish a new snapshot of them as the current snapshot; writers are serialized among each other, but
+ * never block readers. A session works on the snapshot it last saw and moves on to the latest snapshot at the start
+ * of each operation, so every operation of a session sees one consistent set of tracks, no matter what other threads
+ * do meanwhile. Reading needs no lock at all, hence any number of sessions can filter and sort at the same time.
+ * <p>
+ * Writers never change the values of a track in place. Added tracks are appended to the storage, and a snapshot is a
+ * view of the storage limited to the tracks appended before it was published (see TrackStore.view()), so adding a
+ * track takes time independent of the number of tracks held. Removed tracks are only marked as removed, and an
+ * update marks the old values as removed and appends the new ones. Once more than a quarter of the stored tracks are
+ * removed ones, a copy of the storage without them is made and published, which renumbers the tracks; that copy
+ * costs time in the number of tracks, but only once every so many removals and updates. Indexes built for a snapshot
+ * are taken over by the next snapshot until the tracks are renumbered.
+ * <p>
+ * The container stores copies of the tracks added and hands out copies, so no track object is ever shared between
+ * threads.
+ */
+public class ConcurrentTrackContainer {
+
+    /**
+     * A state of the tracks of a container. A snapshot is never modified once published.
+     */
+    private static final class Snapshot {
+
+        /**
+         * the tracks.
+         */
+        final TrackStore store;
+
+        /**
+         * the indexes over the tracks, built on demand.
+         */
+        final TrackIndexes indexes;
+
+        /**
+         * evaluates filters against the tracks.
+         */
+        final QueryPlanner planner;
+
+        /**
+         * the ordinals of the removed tracks, which the store still holds.
+         */
+        final TrackBitmap removed;
+
+        /**
+         * the number of tracks, removed ones not counted.
+         */
+        final int size;
+
+        /**
+         * the snapshot published after this one, null as long as this is the current snapshot.
+         */
+        volatile Successor next;
+
+        Snapshot(TrackStore store, TrackIndexes indexes, TrackBitmap removed, int size) {
+            this.store = store;
+            this.indexes = indexes;
+            this.planner = new QueryPlanner(store, indexes);
+            this.removed = removed;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Links a snapshot to the one published after it.
+     */
+    private static final class Successor {
+
+        /**
+         * the later snapshot.
+         */
+        final Snapshot snapshot;
+
+        /**
+         * the new ordinal of every ordinal of the earlier snapshot, -1 for removed tracks; null if the ordinals of the
+         * earlier snapshot have not changed.
+         */
+        final int[] remap;
+
+        /**
+         * the ordinals of the tracks removed since the earlier snapshot, null if none.
+         */
+        final TrackBitmap removed;
+
+        /**
+         * the ordinal of the track updated since the earlier snapshot, -1 if none.
+         */
+        final int updated;
+
+        /**
+         * the ordinal the new values of the updated track were appended under.
+         */
+        final int replacement;
+
+        Successor(Snapshot snapshot, int[] remap, TrackBitmap removed, int updated, int replacement) {
+            this.snapshot = snapshot;
+            this.remap = remap;
+            this.removed = removed;
+            this.updated = updated;
+            this.replacement = replacement;
+        }
+    }
+
+    /**
+     * Serializes writers.
+     */
+    private final Object writeLock;
+
+    /**
+     * The latest snapshot of the tracks.
+     */
+    private volatile Snapshot current;
+
+    /**
+     * The storage the snapshots are views of. Only used holding the write lock.
+     */
+    private TrackStore tracks;
+
+    /**
+     * The ordinals of the removed tracks still held by the storage. Only used holding the write lock.
+     */
+    private final TrackBitmap removed;
+
+    /**
+     * The number of removed tracks still held by the storage. Only used holding the write lock.
+     */
+    private int removedCount;
+
+    /**
+     * Creates an empty container storing its tracks as objects.
+     */
+    public ConcurrentTrackContainer() {
+        this(MyTrackContainer.StorageMode.OBJECT);
+    }
+
+    /**
+     * Creates an empty container with a specific storage mode.
+     *
+     * @param mode - the way in which the container stores its tracks.
+     */
+    public ConcurrentTrackContainer(MyTrackContainer.StorageMode mode) {
+        this.writeLock = new Object();
+        this.tracks = TrackStore.create(mode);
+        this.removed = new TrackBitmap();
+        TrackStore store = this.tracks.view();
+        this.current = new Snapshot(store, new TrackIndexes(store), new TrackBitmap(), 0);
+    }
+
+    /**
+     * Add a single track.
+     * Tracks already added cannot be added again. Null tracks cannot be added either.
+     * The track is not selected in any session.
+     *
+     * @param t - the track to add
+     * @return whether the argument could be added
+     */
+    public boolean add(Track t) {
+        return this.addAll(new Track[]{t}) == 1;
+    }
+
+    /**
+     * Bulk operation to add tracks.
+     * All tracks of the argument are added to this container at once: sessions see either none or all of them.
+     * Does not accept null tracks. The tracks are not selected in any session.
+     *
+     * @param t - the tracks to add
+     * @return the number of tracks added
+     */
+    public int addAll(Track[] t) {
+        if (t == null) {
+            return 0;
+        }
+        synchronized (this.writeLock) {
+            int counter = 0;
+            for (Track track : t) {
+                if (track != null && this.tracks.append(new Track(track)) >= 0) {
+                    counter++;
+                }
+            }
+            if (counter > 0) {
+                this.publish(null, null, -1, -1);
+            }
+            return counter;
+        }
+    }
+
+    /**
+     * The number of tracks currently held by this container.
+     *
+     * @return the number of tracks
+     */
+    public int size() {
+        return this.current.size;
+    }
+
+    /**
+     * Opens a session on this container.
+     * Initially all tracks are selected in the session.
+     *
+     * @return the new session
+     */
+    public Session openSession() {
+        return new Session();
+    }
+
+    /**
+     * Publishes a view of the storage as the new current snapshot.
+     * Must be called holding the write lock.
+     *
+     * @param remap       the new ordinal of every ordinal of the current snapshot, null if ordinals have not changed
+     * @param removed     the ordinals of the tracks removed since the current snapshot, null if none
+     * @param updated     the ordinal of the track updated since the current snapshot, -1 if none
+     * @param replacement the ordinal the new values of the updated track were appended under
+     */
+    private void publish(int[] remap, TrackBitmap removed, int updated, int replacement) {
+        Snapshot base = this.current;
+        TrackStore store = this.tracks.view();
+        // the snapshot needs a bitmap of its own only if tracks were removed or renumbered
+        boolean appended = remap == null && removed == null && updated < 0;
+        Snapshot next = new Snapshot(store, new TrackIndexes(store, base.indexes),
+                appended ? base.removed : new TrackBitmap(this.removed), store.size() - this.removedCount);
+        base.next = new Successor(next, remap, removed, updated, replacement);
+        this.current = next;
+    }
+
+    /**
+     * Removes the removed tracks from the storage once they make up more than a quarter of it, publishing the
+     * compacted storage. Must be called holding the write lock.
+     */
+    private void compactIfNeeded() {
+        if (this.removedCount <= Compaction.DEFAULT_THRESHOLD * this.tracks.size()) {
+            return;
+        }
+        // the snapshots still read the storage, so it is compacted as a copy
+        TrackStore compacted = this.tracks.copy();
+        int[] remap = this.removed.remap(compacted.size());
+        compacted.remove(this.removed);
+        this.tracks = compacted;
+        this.removed.clear();
+        this.removedCount = 0;
+        this.publish(remap, null, -1, -1);
+    }
+
+    /**
+     * A selection of the tracks of a container, private to one user of the container.
+     * The selection is filtered, sorted and retrieved just like the selection of a MyTrackContainer. Tracks added to
+     * the container by anyone are not selected; tracks removed by anyone drop out of the selection.
+     * <p>
+     * A session is meant to be used by one thread at a time. Different sessions may be used by different threads.
+     * A session keeps the snapshot it last saw from being garbage collected, so sessions no longer used should be
+     * dropped.
+     */
+    public final class Session {
+
+        /**
+         * the snapshot the selection refers to.
+         */
+        private Snapshot snapshot;
+
+        /**
+         * the selected tracks.
+         */
+        private Selection selection;
+
+        /**
+         * Creates a session on the current snapshot, selecting all tracks.
+         */
+        private Session() {
+            this.snapshot = ConcurrentTrackContainer.this.current;
+            this.selection = new Selection(this.snapshot.store);
+            this.selectAll();
+        }
+
+        /**
+         * Sorts the selection of this session.
+         *
+         * @param theComp - the comparator defining the sorting order
+         * @param asc     - the sorting scheme. true stands for ascending, false for descending.
+         * @see MyTrackContainer#sort(Comparator, boolean)
+         */
+        public void sort(Comparator<Track> theComp, boolean asc) {
+            this.advance();
+            this.selection.order(theComp, asc);
+        }
+
+        /**
+         * Gets the first tracks of the selection of this session in a given order, without sorting the selection.
+         * The tracks are copies.
+         *
+         * @param theComp - the comparator defining the sorting order
+         * @param asc     - the sorting scheme. true stands for ascending, false for descending.
+         * @param k       - the number of tracks to get, not negative.
+         * @return the first k tracks in the given order, fewer if less tracks are selected.
+         * @see MyTrackContainer#top(Comparator, boolean, int)
+         */
+        public Track[] top(Comparator<Track> theComp, boolean asc, int k) {
+            if (k < 0) {
+                throw new IllegalArgumentException("expected non-negative k");
+            }
+            this.advance();
+            Track[] tracks = this.selection.top(asc ? theComp : Collections.reverseOrder(theComp), k);
+            for (int i = 0; i < tracks.length; i++) {
+                tracks[i] = this.export(tracks[i]);
+            }
+            return tracks;
+        }
+
+        /**
+         * Filters the selection of this session.
+         *
+         * @param matcher - the filter defining which of the tracks of the selection to keep.
+         * @return the number of elements removed from the selection during this operation.
+         * @see MyTrackContainer#filter(MyMatcher)
+         */
+        public int filter(MyMatcher<Track> matcher) {
+            this.advance();
+            return this.snapshot.planner.filter(this.selection, matcher);
+        }
+
+        /**
+         * Resets the selection, thereby selecting ALL tracks currently in the container.
+         */
+        public void reset() {
+            this.advance();
+            this.selectAll();
+        }
+
+        /**
+         * Gets the selected tracks, in their current order.
+         * The tracks are copies; modifying them modifies neither the container nor other sessions.
+         *
+         * @return the selected tracks.
+         */
+        public Track[] selection() {
+            this.advance();
+            Track[] tracks = new Track[this.selection.size()];
+            int i = 0;
+            for (Track track : this.selection) {
+                tracks[i++] = this.export(track);
+            }
+            return tracks;
+        }
+
+        /**
+         * Removes the tracks selected in this session from the container.
+         * Other sessions lose the removed tracks from their selections. Afterwards all remaining tracks are selected
+         * in this session.
+         * <p>
+         * The tracks are only marked as removed, which takes time in the number of removed tracks; see the class
+         * description for when they are removed from storage.
+         *
+         * @return the number of removed tracks
+         */
+        public int remove() {
+            ConcurrentTrackContainer container = ConcurrentTrackContainer.this;
+            synchronized (container.writeLock) {
+                this.advance();
+                int counter = this.selection.size();
+                if (counter > 0) {
+                    TrackBitmap dead = new TrackBitmap(this.selection.members());
+                    for (int o = dead.nextSetBit(0); o >= 0; o = dead.nextSetBit(o + 1)) {
+                        container.tracks.bury(o);
+                    }
+                    container.removed.or(dead);
+                    container.removedCount += counter;
+                    container.publish(null, dead, -1, -1);
+                    container.compactIfNeeded();
+                }
+                this.reset();
+                return counter;
+            }
+        }
+
+        /**
+         * Updates a selected track, for all sessions.
+         * The track keeps its place in sorted selections, but moves to the end of the order in which tracks were
+         * added: the new values are appended, and the old ones are marked as removed.
+         *
+         * @param index - the position of the track in the selection
+         * @param t     - the track holding the new values
+         * @return whether the track was updated
+         * @see MyTrackContainer#update(int, Track)
+         */
+        public boolean update(int index, Track t) {
+            ConcurrentTrackContainer container = ConcurrentTrackContainer.this;
+            synchronized (container.writeLock) {
+                this.advance();
+                if (t == null || index < 0 || index >= this.selection.size()) {
+                    return false;
+                }
+                int ordinal = this.selection.ordinalAt(index);
+                Track track = new Track(t);
+                int holder = container.tracks.ordinalOf(track);
+                if (holder >= 0 && holder != ordinal) {
+                    return false;
+                }
+                container.tracks.bury(ordinal);
+                int replacement = container.tracks.append(track);
+                container.removed.set(ordinal);
+                container.removedCount++;
+                container.publish(null, null, ordinal, replacement);
+                container.compactIfNeeded();
+                this.advance();
+                return true;
+            }
+        }
+
+        /**
+         * Makes sure a track obtained from the store is not shared with the store.
+         *
+         * @param track the track
+         * @return the track itself if the store materializes copies anyway, a copy otherwise
+         */
+        private Track export(Track track) {
+            return this.snapshot.store instanceof ObjectTrackStore ? new Track(track) : track;
+        }
+
+        /**
+         * Selects all tracks of the snapshot which have not been removed, in ordinal order.
+         */
+        private void selectAll() {
+            this.selection.selectAll();
+            if (this.snapshot.size < this.snapshot.store.size()) {
+                this.selection.discard(this.snapshot.removed);
+            }
+        }
+
+        /**
+         * Moves this session on to the latest snapshot, carrying the selection over.
+         */
+        private void advance() {
+            Successor successor = this.snapshot.next;
+            while (successor != null) {
+                this.selection = new Selection(successor.snapshot.store, this.selection, successor.remap);
+                if (successor.removed != null) {
+                    this.selection.discard(successor.removed);
+                }
+                if (successor.updated >= 0) {
+                    this.selection.replace(successor.updated, successor.replacement);
+                }
+                this.snapshot = successor.snapshot;
+                successor = this.snapshot.next;
+            }
+        }
+    }
+}
@@ -0,0 +1,204 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+
+/**
+ * Estimates the number of distinct values in a stream of values, using the HyperLogLog algorithm.
+ * Every value is hashed to 64 bits. The first bits choose one of 2^precision registers, which keeps the longest run of
+ * leading zeros seen in the remaining bits; the harmonic mean of the registers estimates the number of distinct
+ * values. The sketch needs one byte per register, however many values are added, and adding the same value again
+ * never changes it.
+ * <p>
+ * The relative standard error of the estimate is 1.04 / sqrt(2^precision). Sketches of the same precision can be
+ * merged, so that values can be added to separate sketches, e.g. on several threads, and the sketches be combined
+ * into the sketch of all values.
+ */
+public class DistinctSketch {
+
+    /**
+     * the smallest supported precision.
+     */
+    private static final int MIN_PRECISION = 4;
+
+    /**
+     * the largest supported precision.
+     */
+    private static final int MAX_PRECISION = 18;
+
+    /**
+     * the number of bits choosing the register.
+     */
+    private final int precision;
+
+    /**
+     * the longest run of leading zeros plus one seen for each register, 0 for registers no value has hit.
+     */
+    private final byte[] registers;
+
+    /**
+     * Creates an empty sketch with a given error.
+     *
+     * @param error the relative standard error the estimate should have at most, between 0 and 1. The smallest
+     *              error supported is about 0.2%, the largest about 26%.
+     */
+    public DistinctSketch(double error) {
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("expected error between 0 and 1");
+        }
+        // m registers give an error of 1.04 / sqrt(m)
+        double registers = (1.04 / error) * (1.04 / error);
+        int precision = MIN_PRECISION;
+        while (precision < MAX_PRECISION && (1 << precision) < registers) {
+            precision++;
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Creates a copy of a sketch.
+     *
+     * @param other the sketch to copy
+     */
+    public DistinctSketch(DistinctSketch other) {
+        this.precision = other.precision;
+        this.registers = other.registers.clone();
+    }
+
+    /**
+     * Adds a string. Null is a value of its own.
+     *
+     * @param value the string
+     */
+    public void add(String value) {
+        this.addHash(hash(value));
+    }
+
+    /**
+     * Adds an int.
+     *
+     * @param value the int
+     */
+    public void add(int value) {
+        this.addHash(mix(value + 0x9E3779B97F4A7C15L));
+    }
+
+    /**
+     * Adds the values added to another sketch to this sketch. The other sketch is not modified.
+     *
+     * @param other the sketch to merge, of the same precision as this sketch
+     */
+    public void merge(DistinctSketch other) {
+        if (other.precision != this.precision) {
+            throw new IllegalArgumentException("expected sketch of the same precision");
+        }
+        for (int i = 0; i < this.registers.length; i++) {
+            this.registers[i] = (byte) Math.max(this.registers[i], other.registers[i]);
+        }
+    }
+
+    /**
+     * Estimates the number of distinct values added.
+     * Small numbers, up to a few times the number of registers, are counted by the fraction of registers still
+     * empty (linear counting), which is more accurate there.
+     *
+     * @return the estimate
+     */
+    public long estimate() {
+        int m = this.registers.length;
+        double sum = 0;
+        int empty = 0;
+        for (byte register : this.registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                empty++;
+            }
+        }
+        double alpha = m == 16 ? 0.673 : m == 32 ? 0.697 : m == 64 ? 0.709 : 0.7213 / (1 + 1.079 / m);
+        double estimate = alpha * m * m / sum;
+        if (estimate <= 2.5 * m && empty > 0) {
+            estimate = m * Math.log((double) m / empty);
+        }
+        return Math.round(estimate);
+    }
+
+    /**
+     * @return the relative standard error of the estimate, 1.04 / sqrt(number of registers)
+     */
+    public double error() {
+        return 1.04 / Math.sqrt(this.registers.length);
+    }
+
+    /**
+     * @return the number of bits choosing the register, the sketch having 2^precision registers
+     */
+    public int precision() {
+        return this.precision;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DistinctSketch)) {
+            return false;
+        }
+        return Arrays.equals(this.registers, ((DistinctSketch) o).registers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.registers);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d distinct (\u00b1%.1f%%)", this.estimate(), 100 * this.error());
+    }
+
+    /**
+     * Records the hash of a value in its register.
+     *
+     * @param hash the 64 bit hash of the value
+     */
+    private void addHash(long hash) {
+        int register = (int) (hash >>> (64 - this.precision));
+        // the remaining bits, with a stop bit so that the run of zeros is at most 64 - precision long
+        long rest = (hash << this.precision) | (1L << (this.precision - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(rest) + 1);
+        if (rank > this.registers[register]) {
+            this.registers[register] = rank;
+        }
+    }
+
+    /**
+     * Hashes a string to 64 bits, the same on every run and in every sketch.
+     *
+     * @param value the string, may be null
+     * @return the hash
+     */
+    private static long hash(String value) {
+        if (value == null) {
+            return mix(0x6E756C6CL);
+        }
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < value.length(); i++) {
+            h = (h ^ value.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h ^ value.length());
+    }
+
+    /**
+     * Spreads the bits of a value over all 64 bits (the finalizer of MurmurHash3).
+     *
+     * @param value the value
+     * @return the mixed value
+     */
+    private static long mix(long value) {
+        long h = value;
+        h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+        h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return h ^ (h >>> 33);
+    }
+}
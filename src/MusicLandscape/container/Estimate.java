@@ -0,0 +1,67 @@
+package MusicLandscape.container;
+
+/**
+ * An estimated value together with its standard error, as computed from a sample of tracks (see TrackSample).
+ * The true value lies within value() plus or minus 1.96 standard errors with about 95% confidence.
+ */
+public class Estimate {
+
+    /**
+     * the number of standard errors on either side of the value covering 95% of a normal distribution.
+     */
+    private static final double Z_95 = 1.96;
+
+    /**
+     * the estimated value.
+     */
+    private final double value;
+
+    /**
+     * the standard error of the value.
+     */
+    private final double standardError;
+
+    /**
+     * Creates an estimate.
+     *
+     * @param value         the estimated value
+     * @param standardError the standard error of the value, 0 if the value is exact
+     */
+    public Estimate(double value, double standardError) {
+        this.value = value;
+        this.standardError = standardError;
+    }
+
+    /**
+     * @return the estimated value, NaN if nothing could be estimated (e.g. the average of no tracks)
+     */
+    public double value() {
+        return this.value;
+    }
+
+    /**
+     * @return the standard error of the value, 0 if the value is exact
+     */
+    public double standardError() {
+        return this.standardError;
+    }
+
+    /**
+     * @return the lower bound of the 95% confidence interval
+     */
+    public double lower() {
+        return this.value - Z_95 * this.standardError;
+    }
+
+    /**
+     * @return the upper bound of the 95% confidence interval
+     */
+    public double upper() {
+        return this.value + Z_95 * this.standardError;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%.1f \u00b1 %.1f", this.value, Z_95 * this.standardError);
+    }
+}
@@ -0,0 +1,77 @@
+package MusicLandscape.container;
+
+import MusicLandscape.util.Folding;
+
+import java.util.Arrays;
+
+/**
+ * The folded keys (see Folding) of the strings of a StringDictionary or an OffHeapStringArena, by string id.
+ * The key of every string is computed once, when the string is first stored, so that case- and accent-insensitive
+ * filters compare against ready keys without folding or allocating anything per track.
+ */
+class FoldedKeys {
+
+    /**
+     * the key of every string, by id; null for null strings and ids not noted yet.
+     */
+    private String[] keys;
+
+    /**
+     * Creates an empty set of keys.
+     */
+    FoldedKeys() {
+        this.keys = new String[16];
+    }
+
+    /**
+     * Creates a copy of a set of keys. The keys themselves are shared, they are immutable.
+     *
+     * @param other the keys to copy
+     */
+    FoldedKeys(FoldedKeys other) {
+        this.keys = other.keys.clone();
+    }
+
+    /**
+     * Creates a view of a set of keys.
+     *
+     * @param keys the keys, shared
+     */
+    private FoldedKeys(String[] keys) {
+        this.keys = keys;
+    }
+
+    /**
+     * Creates a read-only view of the keys noted so far, for a view of a store (see TrackStore.view()).
+     * The view shares the keys with this set, which noting keys of new strings leaves untouched. Only get() may be
+     * called on the view.
+     *
+     * @return the view
+     */
+    FoldedKeys view() {
+        return new FoldedKeys(this.keys);
+    }
+
+    /**
+     * Makes sure the key of a stored string is known, computing it if the string is new.
+     *
+     * @param id     the id of the string
+     * @param string the string, may be null
+     */
+    void note(int id, String string) {
+        if (id >= this.keys.length) {
+            this.keys = Arrays.copyOf(this.keys, Math.max(id + 1, this.keys.length * 2));
+        }
+        if (this.keys[id] == null && string != null) {
+            this.keys[id] = Folding.fold(string);
+        }
+    }
+
+    /**
+     * @param id the id of a noted string
+     * @return the key of the string, null if the string is null
+     */
+    String get(int id) {
+        return this.keys[id];
+    }
+}
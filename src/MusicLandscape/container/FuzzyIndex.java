@@ -0,0 +1,341 @@
+package MusicLandscape.container;
+
+import MusicLandscape.util.matcher.FuzzyMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A trigram index answering "which tracks have a string field within a given edit distance of a pattern".
+ * The distinct values of the field, folded as FuzzyMatcher compares them, are split into trigrams, the substrings of
+ * three characters of the value padded with a boundary character at either end. Every trigram maps to the sorted
+ * list of the values containing it, and every value to the sorted list of the ordinals holding it.
+ * <p>
+ * An edit changes at most three trigrams, so a value within distance k of the pattern contains all but at most 3k of
+ * the distinct trigrams of the pattern, and its length differs by at most k. A lookup counts, for the values in the
+ * posting lists of the pattern's trigrams only, how many trigrams they share with the pattern, and computes the
+ * distance for the values passing both filters. Only patterns too short for the trigram filter (fewer than 3k+1
+ * distinct trigrams) are compared with every distinct value.
+ * <p>
+ * The same postings tell which values may contain a literal text, such as the text a regular expression requires
+ * (see RegexMatcher): a value containing it contains all of its trigrams.
+ */
+class FuzzyIndex extends StoreIndex {
+
+    /**
+     * the character padding values at the start.
+     */
+    private static final char START = '\u0002';
+
+    /**
+     * the character padding values at the end.
+     */
+    private static final char END = '\u0003';
+
+    /**
+     * the indexed field.
+     */
+    private final PrefixIndex.Field field;
+
+    /**
+     * the distinct folded values of the field.
+     */
+    private String[] values;
+
+    /**
+     * the ordinals holding each value, sorted ascending.
+     */
+    private int[][] ordinals;
+
+    /**
+     * the ids of the values containing each trigram, sorted ascending.
+     */
+    private Map<String, int[]> postings;
+
+    /**
+     * Creates an index over a field of a store. The index is built on first use.
+     *
+     * @param store the store holding the tracks
+     * @param field the field to index
+     */
+    FuzzyIndex(TrackStore store, PrefixIndex.Field field) {
+        super(store);
+        this.field = field;
+        this.values = new String[0];
+        this.ordinals = new int[0][];
+        this.postings = new HashMap<String, int[]>();
+    }
+
+    /**
+     * Finds the tracks whose field is within the distance of a matcher from its pattern.
+     *
+     * @param matcher the matcher, with a pattern
+     * @return the ordinals of all matching tracks
+     */
+    TrackBitmap lookup(FuzzyMatcher matcher) {
+        this.ensureCurrent();
+        TrackBitmap matches = new TrackBitmap();
+        String pattern = FuzzyMatcher.fold(matcher.getPattern());
+        for (int id : this.candidates(pattern, matcher.getDistance())) {
+            if (FuzzyMatcher.distance(pattern, this.values[id], matcher.getDistance()) <= matcher.getDistance()) {
+                for (int ordinal : this.ordinals[id]) {
+                    matches.set(ordinal);
+                }
+            }
+        }
+        int size = this.store.size();
+        for (int ordinal = this.indexed; ordinal < size; ordinal++) {
+            if (matcher.matches(this.field.of(ordinal))) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimates the number of tracks whose field is within the distance of a matcher from its pattern, without
+     * computing any distance. The tracks holding values which pass the trigram and length filters are counted, the
+     * unindexed tail is extrapolated.
+     *
+     * @param matcher the matcher, with a pattern
+     * @return the estimated number of matching tracks, an upper bound for the indexed tracks
+     */
+    int count(FuzzyMatcher matcher) {
+        this.ensureCurrent();
+        int count = 0;
+        for (int id : this.candidates(FuzzyMatcher.fold(matcher.getPattern()), matcher.getDistance())) {
+            count += this.ordinals[id].length;
+        }
+        return this.extrapolate(count);
+    }
+
+    /**
+     * Finds the tracks whose field may contain every one of a list of literal texts, for a RegexMatcher to verify.
+     * Folding keeps runs of ASCII characters together, so the folded value of a field containing a literal contains
+     * the folded ASCII runs of the literal, and all their trigrams. The tracks holding values which contain these
+     * runs are returned, along with all unindexed tracks.
+     *
+     * @param literals the texts, with at least one ASCII run of three characters (see canNarrow)
+     * @return the ordinals of the candidate tracks, a superset of the tracks containing the literals
+     */
+    TrackBitmap containing(List<String> literals) {
+        this.ensureCurrent();
+        TrackBitmap candidates = new TrackBitmap();
+        for (int id : this.containingValues(literals)) {
+            for (int ordinal : this.ordinals[id]) {
+                candidates.set(ordinal);
+            }
+        }
+        int size = this.store.size();
+        for (int ordinal = this.indexed; ordinal < size; ordinal++) {
+            candidates.set(ordinal);
+        }
+        return candidates;
+    }
+
+    /**
+     * Estimates the number of tracks whose field contains every one of a list of literal texts.
+     *
+     * @param literals the texts, with at least one ASCII run of three characters (see canNarrow)
+     * @return the estimated number of tracks, an upper bound for the indexed tracks
+     */
+    int countContaining(List<String> literals) {
+        this.ensureCurrent();
+        int count = 0;
+        for (int id : this.containingValues(literals)) {
+            count += this.ordinals[id].length;
+        }
+        return this.extrapolate(count);
+    }
+
+    /**
+     * Tells whether containing() can narrow the tracks for a list of literal texts.
+     *
+     * @param literals the texts
+     * @return whether any of the texts has a run of at least three ASCII characters
+     */
+    static boolean canNarrow(List<String> literals) {
+        return !asciiRuns(literals).isEmpty();
+    }
+
+    @Override
+    protected void build(int size) {
+        Map<String, Integer> ids = new HashMap<String, Integer>();
+        List<String> distinct = new ArrayList<String>();
+        List<int[]> holders = new ArrayList<int[]>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            String value = this.field.of(ordinal);
+            if (value == null) {
+                continue;
+            }
+            value = FuzzyMatcher.fold(value);
+            Integer id = ids.get(value);
+            if (id == null) {
+                id = distinct.size();
+                ids.put(value, id);
+                distinct.add(value);
+                holders.add(new int[]{0, 0, 0, 0});
+            }
+            // the first element holds the number of ordinals
+            int[] list = holders.get(id);
+            if (list[0] + 1 == list.length) {
+                list = Arrays.copyOf(list, list.length * 2);
+                holders.set(id, list);
+            }
+            list[++list[0]] = ordinal;
+        }
+        String[] values = distinct.toArray(new String[0]);
+        int[][] ordinals = new int[values.length][];
+        Map<String, int[]> lists = new HashMap<String, int[]>();
+        for (int id = 0; id < values.length; id++) {
+            int[] list = holders.get(id);
+            ordinals[id] = Arrays.copyOfRange(list, 1, list[0] + 1);
+            for (String gram : trigrams(values[id])) {
+                int[] posting = lists.get(gram);
+                if (posting == null) {
+                    posting = new int[]{0, 0, 0, 0};
+                } else if (posting[0] + 1 == posting.length) {
+                    posting = Arrays.copyOf(posting, posting.length * 2);
+                }
+                posting[++posting[0]] = id;
+                lists.put(gram, posting);
+            }
+        }
+        for (Map.Entry<String, int[]> e : lists.entrySet()) {
+            e.setValue(Arrays.copyOfRange(e.getValue(), 1, e.getValue()[0] + 1));
+        }
+        this.values = values;
+        this.ordinals = ordinals;
+        this.postings = lists;
+    }
+
+    @Override
+    protected void inheritContent(StoreIndex previous) {
+        // the arrays and the map are replaced, never modified, by a build, so they can be shared
+        FuzzyIndex index = (FuzzyIndex) previous;
+        this.values = index.values;
+        this.ordinals = index.ordinals;
+        this.postings = index.postings;
+    }
+
+    /**
+     * Finds the values which may be within a distance of a pattern, by the trigram and length filters.
+     *
+     * @param pattern  the folded pattern
+     * @param distance the maximum distance
+     * @return the ids of the candidate values
+     */
+    private int[] candidates(String pattern, int distance) {
+        String[] grams = trigrams(pattern);
+        int threshold = grams.length - 3 * distance;
+        int[] candidates = new int[this.values.length];
+        int n = 0;
+        if (threshold <= 0) {
+            // any value may be close enough, only the length tells
+            for (int id = 0; id < this.values.length; id++) {
+                if (Math.abs(this.values[id].length() - pattern.length()) <= distance) {
+                    candidates[n++] = id;
+                }
+            }
+            return Arrays.copyOf(candidates, n);
+        }
+        int[] shared = new int[this.values.length];
+        for (String gram : grams) {
+            int[] posting = this.postings.get(gram);
+            if (posting == null) {
+                continue;
+            }
+            for (int id : posting) {
+                if (++shared[id] == threshold
+                        && Math.abs(this.values[id].length() - pattern.length()) <= distance) {
+                    candidates[n++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    /**
+     * Finds the values which contain the folded ASCII runs of a list of literal texts.
+     *
+     * @param literals the texts
+     * @return the ids of the values
+     */
+    private int[] containingValues(List<String> literals) {
+        List<String> runs = asciiRuns(literals);
+        Set<String> required = new HashSet<String>();
+        for (String run : runs) {
+            for (int i = 0; i + 3 <= run.length(); i++) {
+                required.add(run.substring(i, i + 3));
+            }
+        }
+        // a value holds all required trigrams if it is in the posting list of each
+        int[] shared = new int[this.values.length];
+        int[] candidates = new int[this.values.length];
+        int n = 0;
+        for (String gram : required) {
+            int[] posting = this.postings.get(gram);
+            if (posting == null) {
+                return new int[0];
+            }
+            for (int id : posting) {
+                if (++shared[id] == required.size() && contains(this.values[id], runs)) {
+                    candidates[n++] = id;
+                }
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    /**
+     * @param value a folded value
+     * @param runs  folded texts
+     * @return whether the value contains every text
+     */
+    private static boolean contains(String value, List<String> runs) {
+        for (String run : runs) {
+            if (!value.contains(run)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param literals texts
+     * @return the folded runs of at least three ASCII characters of the texts
+     */
+    private static List<String> asciiRuns(List<String> literals) {
+        List<String> runs = new ArrayList<String>();
+        for (String literal : literals) {
+            int start = 0;
+            for (int i = 0; i <= literal.length(); i++) {
+                if (i == literal.length() || literal.charAt(i) >= 0x80) {
+                    if (i - start >= 3) {
+                        runs.add(FuzzyMatcher.fold(literal.substring(start, i)));
+                    }
+                    start = i + 1;
+                }
+            }
+        }
+        return runs;
+    }
+
+    /**
+     * @param value a folded value
+     * @return the distinct trigrams of the value padded at either end
+     */
+    private static String[] trigrams(String value) {
+        String padded = START + value + END;
+        Set<String> grams = new HashSet<String>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            grams.add(padded.substring(i, i + 3));
+        }
+        return grams.toArray(new String[0]);
+    }
+}
@@ -0,0 +1,112 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+
+/**
+ * Encodes int values as dense integer ids and decodes them back, the int counterpart of StringDictionary.
+ * Every distinct value is stored exactly once, its id being the order in which it was first encoded. Lookups go
+ * through an open-addressing hash table of ids, so no boxed keys are created.
+ */
+class IntDictionary {
+
+    /**
+     * marks an empty slot of the table.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * the values of this dictionary, indexed by id.
+     */
+    private int[] values;
+
+    /**
+     * open-addressing hash table holding ids, EMPTY marks an empty slot. Its length is always a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the number of values in this dictionary.
+     */
+    private int count;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    IntDictionary() {
+        this.values = new int[16];
+        this.table = new int[32];
+        Arrays.fill(this.table, EMPTY);
+    }
+
+    /**
+     * Gets the id of a value, adding the value to this dictionary if it is not yet contained.
+     *
+     * @param value the value to encode
+     * @return the id of the value
+     */
+    int encode(int value) {
+        int mask = this.table.length - 1;
+        int slot = hash(value) & mask;
+        while (this.table[slot] != EMPTY) {
+            if (this.values[this.table[slot]] == value) {
+                return this.table[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (this.count == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.count * 2);
+        }
+        int id = this.count++;
+        this.values[id] = value;
+        this.table[slot] = id;
+        if (this.count * 2 > this.table.length) {
+            this.rehash(this.table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the value with a certain id.
+     *
+     * @param id the id of the value, must have been returned by encode()
+     * @return the value
+     */
+    int decode(int id) {
+        return this.values[id];
+    }
+
+    /**
+     * The number of distinct values in this dictionary.
+     *
+     * @return the number of values
+     */
+    int size() {
+        return this.count;
+    }
+
+    /**
+     * Rebuilds the hash table with a new length.
+     *
+     * @param length the new table length, a power of two
+     */
+    private void rehash(int length) {
+        this.table = new int[length];
+        Arrays.fill(this.table, EMPTY);
+        int mask = length - 1;
+        for (int id = 0; id < this.count; id++) {
+            int slot = hash(this.values[id]) & mask;
+            while (this.table[slot] != EMPTY) {
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = id;
+        }
+    }
+
+    /**
+     * Spreads a value so that linear probing does not cluster on the low bits.
+     */
+    private static int hash(int value) {
+        int h = value * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
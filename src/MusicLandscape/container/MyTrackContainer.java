@@ -2,16 +2,25 @@ package MusicLandscape.container;
 
 import MusicLandscape.entities.Track;
 import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.FuzzyMatcher;
 
-import java.util.ArrayList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collections;
-import java.util.Iterator;
-import java.util.TreeSet;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
 /**
  * Represents a set of tracks and a (possibly empty) subset of those tracks which are selected.
  * This class is a container for unique tracks. It does not accept null tracks, nor can a track which is already contained be added again.
+ * Two tracks are the same if they are equal, i.e. agree in all their values (see Track.equals); whether a track is
+ * contained is decided in constant time through a hash index.
  * Additionally, it supports the notion of selection, meaning that some tracks can be selected. The selection is a
  * subset of all tracks currently held by the container. The selection may at times be empty, and it may at other times contain all tracks.
  * The container provides methods to filter, sort, and retrieve the selection.
@@ -22,30 +31,152 @@ import java.util.TreeSet;
  * (possibly repeatedly) filter the selection with a matcher. The filter is applied to the current selection!
  * if desired, sort the selection.
  * remove selected tracks from container OR retrieve the selection as an array of tracks.
+ * <p>
+ * How tracks are stored is decided by the storage mode of the container, see StorageMode. The mode does not change
+ * the behaviour of any of the methods of this class.
+ * <p>
+ * Removed tracks are only marked as removed at first, which takes time in the number of removed tracks. They are
+ * physically removed from storage by a compaction, which runs in the background once removed tracks make up more than
+ * the compaction threshold of all stored tracks. Filtering, sorting and retrieving the selection go on meanwhile;
+ * adding, removing and updating tracks wait for the compaction to finish.
  */
 public class MyTrackContainer {
 
+    /**
+     * The ways in which a container can store its tracks.
+     */
+    public enum StorageMode {
+        /**
+         * Tracks are stored as the track objects that are added. The selection returns these very objects, so
+         * modifying a selected track modifies the track held by the container.
+         */
+        OBJECT,
+        /**
+         * Tracks are stored column by column: duration and year in primitive arrays, titles and artist names as
+         * dictionary-encoded ids. This needs several times less memory per track than OBJECT, and filtering by
+         * duration or year only touches the respective column. Track objects are created when the selection is
+         * retrieved; they are copies, modifying them does not modify the container.
+         */
+        COLUMNAR,
+        /**
+         * Tracks are stored outside the Java heap: every track is a fixed-width record of 20 bytes in direct memory,
+         * titles and artist names are kept once each in an off-heap string arena. The garbage collector sees almost
+         * nothing of the tracks, which keeps pauses short for very large containers. Filters and sorts on durations,
+         * years, titles and artist names read the records directly. Track objects are created when the selection is
+         * retrieved; they are copies, modifying them does not modify the container.
+         */
+        OFF_HEAP
+    }
+
+    /**
+     * The criteria by which aggregate() can group tracks.
+     */
+    public enum GroupBy {
+        /**
+         * Tracks are grouped by the name of their performer.
+         */
+        PERFORMER,
+        /**
+         * Tracks are grouped by the name of their writer.
+         */
+        WRITER,
+        /**
+         * Tracks are grouped by year.
+         */
+        YEAR
+    }
+
     /**
      * The selected tracks in this container.
      * Initially empty.
      */
-    private java.util.List<Track> selection;
+    private Selection selection;
+
+    /**
+     * Read-only view of the selection, handed out by selectionView().
+     */
+    private List<Track> selectionView;
 
     /**
      * The tracks in this container.
      * Initially empty.
      */
-    private java.util.Set<Track> tracks;
+    private TrackStore tracks;
+
+    /**
+     * The indexes over the tracks in this container.
+     * Built on demand by the first filter that can use them.
+     */
+    private TrackIndexes indexes;
+
+    /**
+     * Decides how filters are evaluated, using the indexes where it pays off.
+     */
+    private QueryPlanner planner;
+
+    /**
+     * The materialized aggregations of all tracks in this container, by grouping criterion.
+     * Kept up to date by every modification of the tracks.
+     */
+    private Map<GroupBy, Aggregation> materialized;
+
+    /**
+     * The previous states of the selection, for undo and redo.
+     */
+    private SelectionHistory history;
+
+    /**
+     * The selections saved under a name.
+     */
+    private SavedSelections saved;
+
+    /**
+     * The removed tracks which are still stored, until the next compaction.
+     */
+    private TrackBitmap buried;
+
+    /**
+     * The number of removed tracks which are still stored.
+     */
+    private int buriedCount;
+
+    /**
+     * The fraction of removed tracks among all stored tracks from which on the storage is compacted.
+     */
+    private double compactionThreshold;
+
+    /**
+     * The compaction in progress, null if there is none.
+     */
+    private Compaction compaction;
 
     /**
      * Creates a default MyTrackContainer.
-     * A default container has no tracks and an empty selection.
+     * A default container has no tracks and an empty selection. It stores its tracks as objects.
      */
     public MyTrackContainer() {
-        // create empty selection list
-        this.selection = new ArrayList<Track>();
+        this(StorageMode.OBJECT);
+    }
+
+    /**
+     * Creates an empty MyTrackContainer with a specific storage mode.
+     * The container has no tracks and an empty selection.
+     *
+     * @param mode - the way in which the container stores its tracks.
+     */
+    public MyTrackContainer(StorageMode mode) {
         // create empty set of tracks
-        this.tracks = new TreeSet<Track>();
+        this.tracks = TrackStore.create(mode);
+        // create empty selection
+        this.selection = new Selection(this.tracks);
+        this.selectionView = Collections.unmodifiableList(this.selection);
+        this.indexes = new TrackIndexes(this.tracks);
+        this.planner = new QueryPlanner(this.tracks, this.indexes);
+        this.materialized = new EnumMap<GroupBy, Aggregation>(GroupBy.class);
+        this.history = new SelectionHistory();
+        this.saved = new SavedSelections(this.tracks);
+        this.buried = new TrackBitmap();
+        this.compactionThreshold = Compaction.DEFAULT_THRESHOLD;
     }
 
     /**
@@ -59,10 +190,7 @@ public class MyTrackContainer {
         this();
         // TODO maybe adding a null iterable guard with a ternary operator or an utility method (public static)
         for (Track track : t) {
-            if (t != null) {
-                this.tracks.add(track);
-                this.selection.add(track);
-            }
+            this.addSelected(track);
         }
     }
 
@@ -75,10 +203,7 @@ public class MyTrackContainer {
     public MyTrackContainer(Track[] t) {
         this();
         for (Track track : t) {
-            if (t != null) {
-                this.tracks.add(track);
-                this.selection.add(track);
-            }
+            this.addSelected(track);
         }
     }
 
@@ -86,20 +211,66 @@ public class MyTrackContainer {
      * Sorts the selection of tracks of this container.
      * The currently selected tracks are sorted in the sense defined by the first argument.
      * The second argument controls the scheme (ascending/descending order).
+     * The sort is stable in both schemes: tracks which compare equal keep their order. Sorting by DurationComparator
+     * or YearComparator uses a counting or radix sort on the respective values, which takes linear time.
      *
      * @param theComp - the comparator defining the sorting order
      * @param asc     - the sorting scheme. true stands for ascending (from smallest to highest element) false for descending.
      */
     public void sort(java.util.Comparator<Track> theComp, boolean asc) {
-        // hint: make use of the Collections class
-        if (asc) {
-            // if asc is true
-            Collections.sort(this.selection, theComp);
+        this.settle(false);
+        this.history.record(this.selection);
+        this.selection.order(theComp, asc);
+    }
+
+    /**
+     * Gets the first tracks of the selection in a given order, without sorting the selection.
+     * The result is the same as the first k tracks of the selection after sort(theComp, asc), but the selection
+     * itself remains unchanged and is neither sorted nor copied as a whole. This takes O(n log k) comparisons for a
+     * selection of n tracks, compared to O(n log n) for sorting.
+     *
+     * @param theComp - the comparator defining the sorting order
+     * @param asc     - the sorting scheme. true stands for ascending (from smallest to highest element) false for descending.
+     * @param k       - the number of tracks to get, not negative.
+     * @return the first k tracks in the given order, fewer if less tracks are selected.
+     */
+    public Track[] top(java.util.Comparator<Track> theComp, boolean asc, int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("expected non-negative k");
+        }
+        return this.selection.top(asc ? theComp : Collections.reverseOrder(theComp), k);
+    }
+
+    /**
+     * Gets the selected tracks matching a fuzzy matcher, the most similar first.
+     * The selection itself remains unchanged. The matching tracks are found through the trigram index of the field
+     * the matcher compares, so that the distance is computed only for titles or names sharing enough trigrams with
+     * the pattern rather than for every selected track.
+     *
+     * @param matcher - the fuzzy matcher.
+     * @return the matching selected tracks by increasing distance; tracks at the same distance in the order they
+     * were added.
+     */
+    public Track[] closest(FuzzyMatcher matcher) {
+        if (matcher == null) {
+            throw new IllegalArgumentException("expected non-null FuzzyMatcher");
+        }
+        TrackBitmap matches = new TrackBitmap(this.selection.members());
+        this.planner.narrow(matcher, matches);
+        int n = matches.cardinality();
+        int[] ordinals = new int[n];
+        int[] distances = new int[n];
+        int i = 0;
+        for (int o = matches.nextSetBit(0); o >= 0; o = matches.nextSetBit(o + 1), i++) {
+            ordinals[i] = o;
+            distances[i] = QueryPlanner.distance(matcher, this.tracks, o);
         }
-        if (!asc) {
-            //if asc is false
-            Collections.sort(this.selection, Collections.reverseOrder(theComp));
+        OrdinalSort.sortByKey(ordinals, distances, n);
+        Track[] closest = new Track[n];
+        for (i = 0; i < n; i++) {
+            closest[i] = this.tracks.get(ordinals[i]);
         }
+        return closest;
     }
 
     /**
@@ -107,74 +278,408 @@ public class MyTrackContainer {
      * Applies the filter defined by the argument to the selection, keeping only those elements that match. The filter
      * is applied to the selection and the selection only, i.e. the selection cannot grow in size during this operation.
      * If all elements of a selection match the specified filter, the selection remains unchanged.
+     * <p>
+     * Prefix filters on title, writer, performer or artist, also ignoring case and accents (InsensitiveMatcher), range
+     * filters on duration or year, term filters on the title (TitleTermMatcher), fuzzy filters (FuzzyMatcher) and
+     * regular expressions requiring some literal text (RegexMatcher) can be answered by an index, which is used when
+     * it is expected to be cheaper than testing the selected tracks. Filters combined by AndMatcher, OrMatcher and
+     * NotMatcher are applied in a single operation: indexed and more selective parts are evaluated first, and the
+     * remaining parts only for the tracks still in question.
      *
      * @param matcher - the filter defining which of the tracks of the selection to keep.
      * @return the number of elements removed from the selection during this operation.
      */
     public int filter(MyMatcher<Track> matcher) {
-        // Hint: use an iterator to remove elements from the selection
-        int counter = 0;
-//        gives ConcurrentModificationException
-//        for (Track track : this.selection) {
-//            if (!matcher.matches(track)) {
-//                this.selection.remove(track);
-//                counter++;
-//            }
-//        }
-//        Solution:
-        Iterator<Track> iter = this.selection.iterator();
-        while (iter.hasNext()) {
-            Track track = iter.next();
-            if (!matcher.matches(track)) {
-                iter.remove();
-                counter++;
-            }
+        this.settle(false);
+        this.history.record(this.selection);
+        return this.planner.filter(this.selection, matcher);
+    }
+
+    /**
+     * Undoes the latest filter, sort or reset which has not been undone yet.
+     * The selection is restored to the tracks and order it had before, without filtering or sorting again. This takes
+     * time in the number of tracks in this container divided by 64, plus the size of the selection if it was sorted.
+     * The history of the selection is lost when tracks are removed, and its oldest states are dropped when it exceeds
+     * its capacity.
+     *
+     * @return whether there was anything to undo.
+     */
+    public boolean undo() {
+        return this.history.undo(this.selection);
+    }
+
+    /**
+     * Redoes the latest undone filter, sort or reset.
+     * Undone operations can be redone until the selection is filtered, sorted or reset again.
+     *
+     * @return whether there was anything to redo.
+     */
+    public boolean redo() {
+        return this.history.redo(this.selection);
+    }
+
+    /**
+     * Saves the selection under a name.
+     * The selected tracks and their order are kept as a bitmap (plus the order if the selection is sorted) and can be
+     * restored at any time by restoreSelection(name) without filtering or sorting again. A saved selection is a set
+     * of tracks, not a filter: tracks removed from the container drop out of it, tracks added or updated later are
+     * not considered.
+     *
+     * @param name - the name, not empty. A selection saved before under the same name is replaced.
+     */
+    public void saveSelection(String name) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("expected non-empty name");
         }
-        return counter;
+        this.saved.save(name, this.selection);
     }
 
     /**
-     * Resets the selection, thereby selecting ALL tracks in this container.
+     * Restores a saved selection.
+     * This takes time in the number of tracks in this container divided by 64, plus the size of the selection if it
+     * was sorted, and can be undone like a filter.
+     *
+     * @param name - the name the selection was saved under.
+     * @return whether a selection was saved under that name.
      */
-    public void reset() {
-        //Todo after edding the for loop the test got skipped, ignored.
-        if (this.tracks.size() != 0 && this.selection.containsAll(this.tracks)) {
-            return;
+    public boolean restoreSelection(String name) {
+        Selection.State state = this.saved.get(name);
+        if (state == null) {
+            return false;
         }
-        if (this.tracks.size() == 0) {
-            this.selection.clear();
-            return;
+        this.history.record(this.selection);
+        this.selection.restore(state);
+        if (this.buriedCount > 0) {
+            // the state may still hold tracks removed since
+            this.selection.discard(this.buried);
         }
+        return true;
+    }
 
-        this.selection.clear();
-        for (Track track : this.tracks) {
-            if (!this.selection.contains(track)) {
-                this.selection.add(track);
-            }
+    /**
+     * Deletes a saved selection.
+     *
+     * @param name - the name the selection was saved under.
+     * @return whether a selection was saved under that name.
+     */
+    public boolean deleteSelection(String name) {
+        return this.saved.delete(name);
+    }
+
+    /**
+     * Gets the names of the saved selections.
+     *
+     * @return the names, in alphabetical order. The set cannot be modified.
+     */
+    public Set<String> savedSelections() {
+        return this.saved.names();
+    }
+
+    /**
+     * Writes all saved selections to a stream, which is not closed.
+     * The selections are written in a compact binary form together with a fingerprint of the tracks of this
+     * container, so that they can be read back into a container holding the same tracks in the same order, e.g.
+     * after loading the tracks from the same file again.
+     *
+     * @param out - the stream to write to.
+     * @throws IOException if writing fails.
+     */
+    public void writeSavedSelections(OutputStream out) throws IOException {
+        // the fingerprint must only cover the tracks still in this container
+        this.compact();
+        DataOutputStream data = new DataOutputStream(out);
+        this.saved.write(data);
+        data.flush();
+    }
+
+    /**
+     * Reads saved selections written by writeSavedSelections.
+     * The selections read are added to the saved selections of this container, replacing those of the same name.
+     * Reading them does not filter or even look at any track, besides checking the fingerprint.
+     *
+     * @param in - the stream to read from.
+     * @return the number of selections read.
+     * @throws IOException if reading fails, or if the selections were written by a container holding other tracks or
+     *                     the same tracks in a different order; no selection is read then.
+     */
+    public int readSavedSelections(InputStream in) throws IOException {
+        this.compact();
+        return this.saved.read(new DataInputStream(in));
+    }
+
+    /**
+     * Gets the history capacity of this container.
+     *
+     * @return the maximum number of bytes the saved states of the selection occupy
+     */
+    public long getHistoryCapacity() {
+        return this.history.getCapacity();
+    }
+
+    /**
+     * Sets the history capacity of this container.
+     * The saved states of the selection, which undo and redo return to, occupy at most this many bytes; the oldest
+     * states are dropped to make room for new ones. A state takes about one bit per track in this container, plus
+     * four bytes per selected track if the selection was sorted. The default is 16 MiB.
+     *
+     * @param capacity - the maximum number of bytes, not negative. 0 disables undo and redo.
+     */
+    public void setHistoryCapacity(long capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("expected non-negative capacity");
         }
+        this.history.setCapacity(capacity);
+    }
+
+    /**
+     * Summarizes the durations of the selected tracks per group.
+     * The selected tracks are grouped by the given criterion; for every group the number of tracks and their total,
+     * shortest, longest and average duration are computed, all in a single pass over the selection. Selections of at
+     * least getParallelThreshold() tracks are split into chunks aggregated in parallel, whose results are merged.
+     * The aggregates can be displayed with an AggregateFormatter.
+     *
+     * @param by - the grouping criterion.
+     * @return one aggregate per group, ordered by group (names alphabetically, years ascending); empty if the
+     * selection is empty.
+     */
+    public List<Aggregate> aggregate(GroupBy by) {
+        if (by == null) {
+            throw new IllegalArgumentException("expected non-null GroupBy");
+        }
+        return Aggregation.of(this.tracks, by, this.selection.members(), this.getParallelThreshold()).result();
+    }
+
+    /**
+     * Estimates the number of distinct performers, writers or years among the selected tracks.
+     * The selection is summarized by a HyperLogLog sketch in a single pass, in parallel like aggregate() for large
+     * selections. The sketch takes a fixed amount of memory, a few kilobytes for an error of 1%, however many tracks
+     * and distinct values there are.
+     *
+     * @param by    - what to count distinct values of.
+     * @param error - the relative standard error the estimate may have, between 0 and 1, e.g. 0.01 for 1%.
+     * @return the sketch of the selection, whose estimate() is the estimated number. It can be merged with sketches
+     * of other selections, of this or another container, made with the same error.
+     */
+    public DistinctSketch distinct(GroupBy by, double error) {
+        if (by == null) {
+            throw new IllegalArgumentException("expected non-null GroupBy");
+        }
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("expected error between 0 and 1");
+        }
+        return Sketches.distinct(this.tracks, by, this.selection.members(), error, this.getParallelThreshold());
+    }
+
+    /**
+     * Estimates quantiles of the durations of the selected tracks, such as the median or the 95th percentile.
+     * The selection is summarized by a KLL sketch in a single pass, in parallel like aggregate() for large
+     * selections. The sketch holds a few hundred durations for an error of 1%, however many tracks there are.
+     *
+     * @param error - the rank error the quantiles may have, between 0 and 1, e.g. 0.01 for 1%: the median returned
+     *              is then the duration of a track ranked between 49% and 51%, with 99% confidence.
+     * @return the sketch of the selection. It can be merged with sketches of other selections, of this or another
+     * container, made with the same error.
+     */
+    public QuantileSketch durationQuantiles(double error) {
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("expected error between 0 and 1");
+        }
+        return Sketches.durations(this.tracks, this.selection.members(), error, this.getParallelThreshold());
+    }
+
+    /**
+     * Draws a uniform random sample of the selected tracks.
+     * The selection is sampled in a single pass by reservoir sampling, holding only the n sampled tracks; every
+     * selected track is equally likely to be sampled. Filters and aggregates applied to the sample estimate the
+     * results they would give on the whole selection, with their standard error.
+     *
+     * @param n    - the number of tracks to sample, at least 1.
+     * @param seed - the seed of the random generator; the same seed samples the same tracks of the same selection.
+     * @return the sample, holding all selected tracks if fewer than n are selected.
+     */
+    public TrackSample sample(int n, long seed) {
+        if (n < 1) {
+            throw new IllegalArgumentException("expected positive sample size");
+        }
+        return Sampler.uniform(this.tracks, this.selection.members(), n, seed);
+    }
+
+    /**
+     * Draws a stratified random sample of the selected tracks.
+     * The selected tracks are grouped by the given criterion and every group is sampled separately, in a single pass
+     * holding n tracks per group. Small groups are thus represented as well as large ones, and estimates from the
+     * sample account for the size of every group.
+     *
+     * @param by   - the grouping criterion.
+     * @param n    - the number of tracks to sample per group, at least 1.
+     * @param seed - the seed of the random generator; the same seed samples the same tracks of the same selection.
+     * @return the sample, holding all selected tracks of the groups having fewer than n.
+     */
+    public TrackSample sample(GroupBy by, int n, long seed) {
+        if (by == null) {
+            throw new IllegalArgumentException("expected non-null GroupBy");
+        }
+        if (n < 1) {
+            throw new IllegalArgumentException("expected positive sample size");
+        }
+        return Sampler.stratified(this.tracks, by, this.selection.members(), n, seed);
+    }
+
+    /**
+     * Registers a materialized aggregate of all tracks in this container.
+     * The durations of all tracks, not only the selected ones, are summarized per group once. From then on the
+     * aggregate is updated along with every add, addAll, remove and update, so that materialized(by) is answered
+     * from the maintained groups without looking at any track. Keeping the aggregate up to date costs O(1) per added
+     * track; removing the shortest or longest track of a group additionally rescans the remaining tracks once per
+     * removal. Registering an aggregate which is already registered has no effect.
+     *
+     * @param by - the grouping criterion.
+     */
+    public void materialize(GroupBy by) {
+        if (by == null) {
+            throw new IllegalArgumentException("expected non-null GroupBy");
+        }
+        if (!this.materialized.containsKey(by)) {
+            TrackBitmap all = new TrackBitmap();
+            all.fill(this.tracks.size());
+            all.andNot(this.buried);
+            this.materialized.put(by, Aggregation.of(this.tracks, by, all, this.getParallelThreshold()));
+        }
+    }
+
+    /**
+     * Stops maintaining a materialized aggregate.
+     *
+     * @param by - the grouping criterion.
+     * @return whether the aggregate was registered.
+     */
+    public boolean dematerialize(GroupBy by) {
+        return this.materialized.remove(by) != null;
+    }
+
+    /**
+     * Gets a materialized aggregate of all tracks in this container.
+     * This takes time in the number of groups, independent of the number of tracks.
+     *
+     * @param by - the grouping criterion, registered through materialize(by).
+     * @return one aggregate per group, ordered by group (names alphabetically, years ascending); empty if the
+     * container is empty.
+     */
+    public List<Aggregate> materialized(GroupBy by) {
+        Aggregation aggregation = this.materialized.get(by);
+        if (aggregation == null) {
+            throw new IllegalArgumentException("expected materialized GroupBy");
+        }
+        return aggregation.result();
+    }
+
+    /**
+     * Gets the parallel threshold of this container.
+     *
+     * @return the number of tracks from which on filters test tracks on several threads
+     */
+    public int getParallelThreshold() {
+        return this.planner.getParallelThreshold();
+    }
+
+    /**
+     * Sets the parallel threshold of this container.
+     * Whenever a filter needs to test at least this many tracks, the tracks are split into chunks which are tested
+     * in parallel on the common fork/join pool. The same applies to aggregating the selection.
+     * Matchers used with this container must then be safe to call from several threads at once; all matchers of this
+     * application are. Integer.MAX_VALUE disables parallel filtering.
+     * The result of filter, the order of the selection included, does not depend on this setting.
+     *
+     * @param threshold - the number of tracks from which on filters test tracks in parallel, at least 1.
+     */
+    public void setParallelThreshold(int threshold) {
+        if (threshold < 1) {
+            throw new IllegalArgumentException("expected positive threshold");
+        }
+        this.planner.setParallelThreshold(threshold);
+    }
+
+    /**
+     * Gets the compaction threshold of this container.
+     *
+     * @return the fraction of removed tracks among all stored tracks from which on the storage is compacted
+     */
+    public double getCompactionThreshold() {
+        return this.compactionThreshold;
+    }
+
+    /**
+     * Sets the compaction threshold of this container.
+     * Removing tracks only marks them as removed. Once more than this fraction of the stored tracks are removed ones,
+     * a compaction is started in the background, which rewrites the storage without them. Until then removed tracks
+     * still take up their memory. The default is 0.25.
+     *
+     * @param threshold - the fraction, between 0 and 1. 0 starts a compaction after every removal, 1 never starts one.
+     */
+    public void setCompactionThreshold(double threshold) {
+        if (!(threshold >= 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("expected threshold between 0 and 1");
+        }
+        this.compactionThreshold = threshold;
+    }
+
+    /**
+     * Compacts the storage of this container now.
+     * All removed tracks are physically removed from storage before this method returns, waiting for a compaction in
+     * progress if there is one. Nothing observable changes besides the memory used.
+     */
+    public void compact() {
+        this.settle(true);
+        if (this.buriedCount > 0) {
+            this.compaction = new Compaction(this.tracks, this.buried);
+            this.settle(true);
+        }
+    }
+
+    /**
+     * Resets the selection, thereby selecting ALL tracks in this container.
+     */
+    public void reset() {
+        this.settle(false);
+        this.history.record(this.selection);
+        this.selectAll();
     }
 
     /**
      * Removes the selected tracks from this container.
      * All currently selected tracks are removed from this container. After this operation all remaining tracks are
-     * selected (the selection is reset).
+     * selected (the selection is reset). Filters, sorts and resets done before can no longer be undone.
+     * <p>
+     * The tracks are only marked as removed, which takes time in the number of removed tracks; no other track is
+     * moved or renumbered. See setCompactionThreshold(threshold) for when they are removed from storage.
      *
      * @return the number of removed tracks
      */
     public int remove() {
-        int counter = 0;
-
         if (this.selection.isEmpty()) {
-            return counter;
+            return 0;
         }
+        this.settle(true);
 
-        for (Track track : this.selection) {
-            if (this.tracks.remove(track)) {
-                counter++;
+        TrackBitmap dead = this.selection.members();
+        for (int o = dead.nextSetBit(0); o >= 0; o = dead.nextSetBit(o + 1)) {
+            for (Aggregation aggregation : this.materialized.values()) {
+                aggregation.remove(o);
             }
+            this.tracks.bury(o);
+        }
+        this.buried.or(dead);
+        int counter = this.selection.size();
+        this.buriedCount += counter;
+        for (Aggregation aggregation : this.materialized.values()) {
+            aggregation.refresh(this.buried);
         }
-        this.reset();
+        this.history.clear();
+        this.selectAll();
 
+        if (this.buriedCount > this.compactionThreshold * this.tracks.size()) {
+            this.compaction = new Compaction(this.tracks, this.buried);
+        }
         return counter;
     }
 
@@ -194,10 +699,8 @@ public class MyTrackContainer {
         }
 
         for (Track track : t) {
-            if (track != null) {
-                if (this.tracks.add(track)) {
-                    counter++;
-                }
+            if (this.add(track)) {
+                counter++;
             }
         }
 
@@ -211,7 +714,7 @@ public class MyTrackContainer {
      * @return the number of tracks
      */
     public int size() {
-        return this.tracks.size();
+        return this.tracks.size() - this.buriedCount;
     }
 
     /**
@@ -222,11 +725,54 @@ public class MyTrackContainer {
      * @return the selected tracks.
      */
     public Track[] selection() {
-        //hint: use List's toArray
-        if (this.selection.isEmpty()) {
+        return this.selection.toArray(new Track[0]);
+    }
+
+    /**
+     * Gets one page of the selected tracks.
+     * The selection, in its current order, is divided into pages of pageSize tracks each, the last page possibly
+     * holding fewer. Only the tracks of the requested page are retrieved, so the cost of a page depends on the page
+     * size, not on the size of the selection.
+     *
+     * @param pageSize   - the number of tracks per page, at least 1.
+     * @param pageNumber - the number of the page, the first page being page 0.
+     * @return the tracks of the page, an array of size 0 if the page lies beyond the selection.
+     */
+    public Track[] page(int pageSize, int pageNumber) {
+        if (pageSize < 1 || pageNumber < 0) {
+            throw new IllegalArgumentException("expected positive page size and non-negative page number");
+        }
+        long from = (long) pageSize * pageNumber;
+        if (from >= this.selection.size()) {
             return new Track[0];
         }
-        return this.selection.toArray(new Track[0]);
+        return this.selection.range((int) from, (int) Math.min(from + pageSize, this.selection.size()));
+    }
+
+    /**
+     * The number of pages the selection is divided into by page().
+     *
+     * @param pageSize - the number of tracks per page, at least 1.
+     * @return the number of pages, 0 if the selection is empty.
+     */
+    public int pages(int pageSize) {
+        if (pageSize < 1) {
+            throw new IllegalArgumentException("expected positive page size");
+        }
+        return (int) (((long) this.selection.size() + pageSize - 1) / pageSize);
+    }
+
+    /**
+     * Gets a read-only view of the selected tracks.
+     * Unlike selection(), this does not copy anything: the view reads the selection of this container as it is at the
+     * time of access, in its current order, and always reflects the latest filter, sort, reset and remove. Its size,
+     * positional access and iteration cost no more than reading the selection itself. The view cannot be modified;
+     * it must not be iterated while this container is being modified.
+     *
+     * @return the view of the selection.
+     */
+    public List<Track> selectionView() {
+        return this.selectionView;
     }
 
     /**
@@ -238,9 +784,101 @@ public class MyTrackContainer {
      * @return whether the argument could be added
      */
     public boolean add(Track t) {
-        if (t == null || this.tracks.contains(t)) {
+        if (t == null) {
+            return false;
+        }
+        this.settle(true);
+        return this.append(t) >= 0;
+    }
+
+    /**
+     * Updates a selected track.
+     * The values of the track at the given position of the selection are replaced by those of the argument. This is
+     * the way to modify a track held by this container: the indexes of the container only notice modifications made
+     * through this method.
+     * The update is refused if the argument is null or equal to another track of this container.
+     *
+     * @param index - the position of the track in the selection
+     * @param t     - the track holding the new values
+     * @return whether the track was updated
+     */
+    public boolean update(int index, Track t) {
+        if (t == null || index < 0 || index >= this.selection.size()) {
             return false;
         }
-        return this.tracks.add(t);
+        this.settle(true);
+        int ordinal = this.selection.ordinalAt(index);
+        for (Aggregation aggregation : this.materialized.values()) {
+            aggregation.remove(ordinal);
+        }
+        // a refused update leaves the old values in place, which are then added back
+        boolean updated = this.tracks.update(ordinal, t);
+        for (Aggregation aggregation : this.materialized.values()) {
+            aggregation.add(ordinal);
+            aggregation.refresh(this.buried);
+        }
+        return updated;
+    }
+
+    /**
+     * Selects all tracks which have not been removed, in ordinal order.
+     */
+    private void selectAll() {
+        this.selection.selectAll();
+        if (this.buriedCount > 0) {
+            this.selection.discard(this.buried);
+        }
+    }
+
+    /**
+     * Installs the compaction in progress, if there is one, carrying everything that refers to ordinals over to the
+     * compacted storage.
+     *
+     * @param wait - whether to wait for the compaction to finish; if false, a compaction which is not yet finished
+     *             is left running.
+     */
+    private void settle(boolean wait) {
+        if (this.compaction == null || !wait && !this.compaction.isDone()) {
+            return;
+        }
+        Compaction compaction = this.compaction;
+        this.compaction = null;
+        int[] remap = compaction.install();
+        this.selection.remap(remap);
+        this.history.remap(remap);
+        this.saved.remap(remap);
+        this.buried.clear();
+        this.buriedCount = 0;
+    }
+
+    /**
+     * Adds a single track and selects it if it could be added.
+     *
+     * @param t - the track to add
+     */
+    private void addSelected(Track t) {
+        if (t == null) {
+            return;
+        }
+        int ordinal = this.append(t);
+        if (ordinal >= 0) {
+            this.selection.select(ordinal);
+        }
+    }
+
+    /**
+     * Stores a track and adds it to the materialized aggregates.
+     *
+     * @param t - the track to store, not null
+     * @return the ordinal of the track, -1 if an equal track is stored already
+     */
+    private int append(Track t) {
+        int ordinal = this.tracks.append(t);
+        if (ordinal >= 0) {
+            for (Aggregation aggregation : this.materialized.values()) {
+                aggregation.add(ordinal);
+            }
+        }
+        return ordinal;
     }
 }
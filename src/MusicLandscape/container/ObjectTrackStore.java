@@ -0,0 +1,228 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+
+import java.util.Arrays;
+
+/**
+ * Stores tracks as the track objects handed to the container.
+ * The tracks returned by get() are the stored objects themselves, so modifying them modifies the content of the store.
+ */
+class ObjectTrackStore extends TrackStore {
+
+    /**
+     * the stored tracks, indexed by ordinal.
+     */
+    private Track[] tracks;
+
+    /**
+     * the folded keys of the titles, writer names and performer names, indexed by ordinal. They are computed when a
+     * track is stored or updated through set(), like the identity index.
+     */
+    private String[] titleKeys;
+
+    private String[] writerKeys;
+
+    private String[] performerKeys;
+
+    /**
+     * the number of stored tracks.
+     */
+    private int count;
+
+    /**
+     * finds the ordinal of a stored track equal to a given track.
+     */
+    private TrackHashIndex identities;
+
+    /**
+     * Creates an empty store.
+     */
+    ObjectTrackStore() {
+        this.tracks = new Track[16];
+        this.titleKeys = new String[16];
+        this.writerKeys = new String[16];
+        this.performerKeys = new String[16];
+        this.identities = new TrackHashIndex();
+    }
+
+    /**
+     * Creates a copy of a store. The copy shares the track objects with the original.
+     *
+     * @param other the store to copy
+     */
+    private ObjectTrackStore(ObjectTrackStore other) {
+        super(other);
+        this.tracks = other.tracks.clone();
+        this.titleKeys = other.titleKeys.clone();
+        this.writerKeys = other.writerKeys.clone();
+        this.performerKeys = other.performerKeys.clone();
+        this.count = other.count;
+        this.identities = new TrackHashIndex(other.identities);
+    }
+
+    /**
+     * Creates a view of a store, sharing its arrays.
+     *
+     * @param other the store to view
+     * @param view  distinguishes this constructor from the copy constructor
+     */
+    private ObjectTrackStore(ObjectTrackStore other, boolean view) {
+        super(other);
+        this.tracks = other.tracks;
+        this.titleKeys = other.titleKeys;
+        this.writerKeys = other.writerKeys;
+        this.performerKeys = other.performerKeys;
+        this.count = other.count;
+        this.identities = other.identities.view();
+    }
+
+    @Override
+    TrackStore copy() {
+        return new ObjectTrackStore(this);
+    }
+
+    @Override
+    TrackStore view() {
+        return new ObjectTrackStore(this, true);
+    }
+
+    @Override
+    int append(Track t) {
+        if (this.ordinalOf(t) >= 0) {
+            return -1;
+        }
+        if (this.count == this.tracks.length) {
+            this.tracks = Arrays.copyOf(this.tracks, this.count * 2);
+            this.titleKeys = Arrays.copyOf(this.titleKeys, this.count * 2);
+            this.writerKeys = Arrays.copyOf(this.writerKeys, this.count * 2);
+            this.performerKeys = Arrays.copyOf(this.performerKeys, this.count * 2);
+        }
+        this.tracks[this.count] = t;
+        this.foldKeys(this.count);
+        this.identities.add(this.count, t.hashCode());
+        return this.count++;
+    }
+
+    @Override
+    int ordinalOf(Track t) {
+        return this.identities.find(t, (ordinal, other) -> this.tracks[ordinal].equals(other));
+    }
+
+    @Override
+    int hash(int ordinal) {
+        return this.identities.hash(ordinal);
+    }
+
+    @Override
+    Track get(int ordinal) {
+        return this.tracks[ordinal];
+    }
+
+    @Override
+    int duration(int ordinal) {
+        return this.tracks[ordinal].getDuration();
+    }
+
+    @Override
+    int year(int ordinal) {
+        return this.tracks[ordinal].getYear();
+    }
+
+    @Override
+    String title(int ordinal) {
+        return this.tracks[ordinal].getTitle();
+    }
+
+    @Override
+    String writer(int ordinal) {
+        return this.tracks[ordinal].getWriter().getName();
+    }
+
+    @Override
+    String performer(int ordinal) {
+        return this.tracks[ordinal].getPerformer().getName();
+    }
+
+    @Override
+    String titleKey(int ordinal) {
+        return this.titleKeys[ordinal];
+    }
+
+    @Override
+    String writerKey(int ordinal) {
+        return this.writerKeys[ordinal];
+    }
+
+    @Override
+    String performerKey(int ordinal) {
+        return this.performerKeys[ordinal];
+    }
+
+    @Override
+    boolean set(int ordinal, Track t) {
+        int holder = this.ordinalOf(t);
+        if (holder >= 0 && holder != ordinal) {
+            return false;
+        }
+        this.identities.remove(ordinal);
+        this.tracks[ordinal] = t;
+        this.foldKeys(ordinal);
+        this.identities.add(ordinal, t.hashCode());
+        return true;
+    }
+
+    @Override
+    void bury(int ordinal) {
+        this.identities.bury(ordinal);
+    }
+
+    @Override
+    void assign(TrackStore other) {
+        ObjectTrackStore compacted = (ObjectTrackStore) other;
+        this.tracks = compacted.tracks;
+        this.titleKeys = compacted.titleKeys;
+        this.writerKeys = compacted.writerKeys;
+        this.performerKeys = compacted.performerKeys;
+        this.count = compacted.count;
+        this.identities = compacted.identities;
+    }
+
+    @Override
+    void compact(TrackBitmap dead) {
+        int kept = 0;
+        this.identities.compact(dead, this.count);
+        for (int ordinal = 0; ordinal < this.count; ordinal++) {
+            if (!dead.get(ordinal)) {
+                this.tracks[kept] = this.tracks[ordinal];
+                this.titleKeys[kept] = this.titleKeys[ordinal];
+                this.writerKeys[kept] = this.writerKeys[ordinal];
+                this.performerKeys[kept] = this.performerKeys[ordinal];
+                kept++;
+            }
+        }
+        // release the references to removed tracks
+        Arrays.fill(this.tracks, kept, this.count, null);
+        Arrays.fill(this.titleKeys, kept, this.count, null);
+        Arrays.fill(this.writerKeys, kept, this.count, null);
+        Arrays.fill(this.performerKeys, kept, this.count, null);
+        this.count = kept;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Computes the folded keys of the track with a certain ordinal.
+     *
+     * @param ordinal the ordinal of the track
+     */
+    private void foldKeys(int ordinal) {
+        this.titleKeys[ordinal] = Folding.fold(this.title(ordinal));
+        this.writerKeys[ordinal] = Folding.fold(this.writer(ordinal));
+        this.performerKeys[ordinal] = Folding.fold(this.performer(ordinal));
+    }
+}
@@ -0,0 +1,202 @@
+package MusicLandscape.container;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+/**
+ * A growable block of memory outside the Java heap, addressed by byte offsets.
+ * The memory is made of direct byte buffers in native byte order. A small block is a single buffer which doubles in
+ * size as needed; from CHUNK_SIZE bytes on, further buffers of CHUNK_SIZE bytes each are added, so the block can grow
+ * beyond the 2 GiB a single buffer can hold and never copies more than one chunk. New memory reads as zero.
+ * <p>
+ * Ints and longs are accessed at offsets which are multiples of their size, so they never span two buffers. Byte
+ * ranges may span buffers.
+ */
+class OffHeapMemory {
+
+    /**
+     * log2 of CHUNK_SIZE.
+     */
+    private static final int CHUNK_SHIFT = 24;
+
+    /**
+     * the size of every buffer of a block larger than one buffer, 16 MiB.
+     */
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    /**
+     * the buffers; all but a sole first one have CHUNK_SIZE bytes.
+     */
+    private ByteBuffer[] chunks;
+
+    /**
+     * the number of buffers in use.
+     */
+    private int count;
+
+    /**
+     * Creates a block.
+     *
+     * @param capacity the number of bytes to allocate initially, at least 8
+     */
+    OffHeapMemory(long capacity) {
+        this.chunks = new ByteBuffer[]{allocate((int) Math.min(capacity, CHUNK_SIZE))};
+        this.count = 1;
+        this.ensureCapacity(capacity);
+    }
+
+    /**
+     * Creates a copy of a block.
+     *
+     * @param other the block to copy
+     */
+    OffHeapMemory(OffHeapMemory other) {
+        this.chunks = new ByteBuffer[other.chunks.length];
+        this.count = other.count;
+        for (int i = 0; i < this.count; i++) {
+            ByteBuffer source = other.chunks[i].duplicate();
+            source.clear();
+            this.chunks[i] = allocate(source.capacity());
+            this.chunks[i].put(source);
+        }
+    }
+
+    /**
+     * Creates a view of a block.
+     *
+     * @param chunks the buffers of the block, copied
+     * @param count  the number of buffers in use
+     */
+    private OffHeapMemory(ByteBuffer[] chunks, int count) {
+        this.chunks = Arrays.copyOf(chunks, count);
+        this.count = count;
+    }
+
+    /**
+     * Creates a read-only view of the bytes of this block, for a view of a store (see TrackStore.view()).
+     * The view shares the buffers of this block but keeps its own list of them: a small buffer replaced when this
+     * block grows stays in the view unchanged. Writing beyond the bytes the view reads, and growing, therefore leave
+     * the view untouched. Nothing may be written to the view.
+     *
+     * @return the view
+     */
+    OffHeapMemory view() {
+        return new OffHeapMemory(this.chunks, this.count);
+    }
+
+    /**
+     * @return the number of bytes allocated
+     */
+    long capacity() {
+        return this.count == 1 ? this.chunks[0].capacity() : (long) this.count << CHUNK_SHIFT;
+    }
+
+    /**
+     * Makes sure the block holds at least a number of bytes, keeping its content.
+     *
+     * @param bytes the number of bytes needed
+     */
+    void ensureCapacity(long bytes) {
+        if (bytes <= this.capacity()) {
+            return;
+        }
+        if (this.count == 1 && this.chunks[0].capacity() < CHUNK_SIZE) {
+            // a single small buffer doubles, up to a full chunk
+            long size = Math.min(CHUNK_SIZE, Math.max(bytes, 2L * this.chunks[0].capacity()));
+            ByteBuffer grown = allocate((int) size);
+            ByteBuffer source = this.chunks[0].duplicate();
+            source.clear();
+            grown.put(source);
+            this.chunks[0] = grown;
+        }
+        while (bytes > this.capacity()) {
+            if (this.count == this.chunks.length) {
+                this.chunks = Arrays.copyOf(this.chunks, this.count * 2);
+            }
+            this.chunks[this.count++] = allocate(CHUNK_SIZE);
+        }
+    }
+
+    /**
+     * @param offset the offset
+     * @return the byte at the offset
+     */
+    byte getByte(long offset) {
+        return this.chunks[(int) (offset >>> CHUNK_SHIFT)].get((int) offset & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * @param offset the offset, a multiple of 4
+     * @return the int at the offset
+     */
+    int getInt(long offset) {
+        return this.chunks[(int) (offset >>> CHUNK_SHIFT)].getInt((int) offset & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * @param offset the offset, a multiple of 4
+     * @param value  the int to write at the offset
+     */
+    void putInt(long offset, int value) {
+        this.chunks[(int) (offset >>> CHUNK_SHIFT)].putInt((int) offset & (CHUNK_SIZE - 1), value);
+    }
+
+    /**
+     * @param offset the offset, a multiple of 8
+     * @return the long at the offset
+     */
+    long getLong(long offset) {
+        return this.chunks[(int) (offset >>> CHUNK_SHIFT)].getLong((int) offset & (CHUNK_SIZE - 1));
+    }
+
+    /**
+     * @param offset the offset, a multiple of 8
+     * @param value  the long to write at the offset
+     */
+    void putLong(long offset, long value) {
+        this.chunks[(int) (offset >>> CHUNK_SHIFT)].putLong((int) offset & (CHUNK_SIZE - 1), value);
+    }
+
+    /**
+     * Reads bytes.
+     *
+     * @param offset the offset of the first byte
+     * @param dst    the array to fill with the bytes
+     */
+    void get(long offset, byte[] dst) {
+        int done = 0;
+        while (done < dst.length) {
+            ByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_SHIFT)].duplicate();
+            int position = (int) offset & (CHUNK_SIZE - 1);
+            int length = Math.min(dst.length - done, chunk.capacity() - position);
+            chunk.position(position);
+            chunk.get(dst, done, length);
+            done += length;
+            offset += length;
+        }
+    }
+
+    /**
+     * Writes bytes.
+     *
+     * @param offset the offset of the first byte
+     * @param src    the bytes to write
+     */
+    void put(long offset, byte[] src) {
+        int done = 0;
+        while (done < src.length) {
+            ByteBuffer chunk = this.chunks[(int) (offset >>> CHUNK_SHIFT)].duplicate();
+            int position = (int) offset & (CHUNK_SIZE - 1);
+            int length = Math.min(src.length - done, chunk.capacity() - position);
+            chunk.position(position);
+            chunk.put(src, done, length);
+            done += length;
+            offset += length;
+        }
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+}
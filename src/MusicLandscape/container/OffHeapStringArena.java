@@ -0,0 +1,252 @@
+package MusicLandscape.container;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Encodes strings as dense integer ids and decodes them back, like StringDictionary, but keeps everything outside the
+ * Java heap.
+ * The strings are appended to an arena as UTF-8, each preceded by its hash and its length; the offset of every string
+ * in the arena is kept by id, and the hash table of ids is off-heap memory as well. Every distinct string (null
+ * included) is stored exactly once. Strings are never removed.
+ */
+class OffHeapStringArena {
+
+    /**
+     * the length recorded for null.
+     */
+    private static final int NULL_LENGTH = -1;
+
+    /**
+     * the entries: hash (int), length in bytes (int), UTF-8 bytes; every entry starts at a multiple of 4.
+     */
+    private final OffHeapMemory data;
+
+    /**
+     * the offset of the entry of every string in data (long), by id.
+     */
+    private final OffHeapMemory offsets;
+
+    /**
+     * open-addressing hash table of ids plus one (int), 0 marking an empty slot.
+     */
+    private OffHeapMemory table;
+
+    /**
+     * the number of slots of the table, a power of two.
+     */
+    private int slots;
+
+    /**
+     * the number of bytes of data in use.
+     */
+    private long end;
+
+    /**
+     * the number of strings in this arena.
+     */
+    private int count;
+
+    /**
+     * Creates an empty arena.
+     */
+    OffHeapStringArena() {
+        this.data = new OffHeapMemory(1024);
+        this.offsets = new OffHeapMemory(16 * 8);
+        this.slots = 32;
+        this.table = new OffHeapMemory(this.slots * 4L);
+    }
+
+    /**
+     * Creates a copy of an arena. The copy assigns the same ids as the original.
+     *
+     * @param other the arena to copy
+     */
+    OffHeapStringArena(OffHeapStringArena other) {
+        this.data = new OffHeapMemory(other.data);
+        this.offsets = new OffHeapMemory(other.offsets);
+        this.table = new OffHeapMemory(other.table);
+        this.slots = other.slots;
+        this.end = other.end;
+        this.count = other.count;
+    }
+
+    /**
+     * Creates a view of an arena.
+     *
+     * @param data    the view of the entries
+     * @param offsets the view of the offsets
+     * @param count   the number of strings
+     */
+    private OffHeapStringArena(OffHeapMemory data, OffHeapMemory offsets, int count) {
+        this.data = data;
+        this.offsets = offsets;
+        this.count = count;
+    }
+
+    /**
+     * Creates a read-only view of the strings encoded so far, for a view of a store (see TrackStore.view()).
+     * Encoding further strings only appends to the entries and offsets, which leaves the view untouched. Only
+     * decode() and size() may be called on the view, it has no hash table.
+     *
+     * @return the view
+     */
+    OffHeapStringArena view() {
+        return new OffHeapStringArena(this.data.view(), this.offsets.view(), this.count);
+    }
+
+    /**
+     * Gets the id of a string, adding the string to this arena if it is not yet contained.
+     *
+     * @param s the string to encode, may be null
+     * @return the id of the string
+     */
+    int encode(String s) {
+        int hash = StringDictionary.hash(s);
+        byte[] bytes = s == null ? null : s.getBytes(StandardCharsets.UTF_8);
+        int mask = this.slots - 1;
+        int slot = hash & mask;
+        for (int entry = this.table.getInt(slot * 4L); entry != 0; entry = this.table.getInt(slot * 4L)) {
+            if (this.holds(entry - 1, hash, bytes)) {
+                return entry - 1;
+            }
+            slot = (slot + 1) & mask;
+        }
+        int id = this.count++;
+        long offset = this.end;
+        int length = bytes == null ? 0 : bytes.length;
+        this.data.ensureCapacity(offset + 8 + length);
+        this.data.putInt(offset, hash);
+        this.data.putInt(offset + 4, bytes == null ? NULL_LENGTH : length);
+        if (bytes != null) {
+            this.data.put(offset + 8, bytes);
+        }
+        this.end = (offset + 8 + length + 3) & ~3L;
+        this.offsets.ensureCapacity((id + 1) * 8L);
+        this.offsets.putLong(id * 8L, offset);
+        this.table.putInt(slot * 4L, id + 1);
+        if (this.count * 2 > this.slots) {
+            this.rehash(this.slots * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the string with a certain id.
+     *
+     * @param id the id of the string, must have been returned by encode()
+     * @return the string, a new object on every call
+     */
+    String decode(int id) {
+        long offset = this.offsets.getLong(id * 8L);
+        int length = this.data.getInt(offset + 4);
+        if (length == NULL_LENGTH) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        this.data.get(offset + 8, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Tells whether the string with a certain id starts with a prefix, comparing its UTF-8 bytes in place instead of
+     * decoding the string.
+     *
+     * @param id     the id of the string, must have been returned by encode()
+     * @param prefix the UTF-8 bytes of the prefix
+     * @return whether the string starts with the prefix, false if it is null
+     */
+    boolean startsWith(int id, byte[] prefix) {
+        long offset = this.offsets.getLong(id * 8L);
+        int length = this.data.getInt(offset + 4);
+        return length >= prefix.length && this.holdsAt(offset + 8, prefix);
+    }
+
+    /**
+     * Tells whether the string with a certain id contains a literal, searching its UTF-8 bytes in place instead of
+     * decoding the string. Since UTF-8 is self-synchronizing, a byte match is always a match of whole characters.
+     *
+     * @param id      the id of the string, must have been returned by encode()
+     * @param literal the UTF-8 bytes of the literal
+     * @return whether the string contains the literal, false if it is null
+     */
+    boolean contains(int id, byte[] literal) {
+        long offset = this.offsets.getLong(id * 8L);
+        int length = this.data.getInt(offset + 4);
+        for (long from = offset + 8, last = from + length - literal.length; from <= last; from++) {
+            if (this.holdsAt(from, literal)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The number of distinct strings in this arena.
+     *
+     * @return the number of strings
+     */
+    int size() {
+        return this.count;
+    }
+
+    /**
+     * Tells whether the string with an id has a certain hash and encoding.
+     *
+     * @param id    the id
+     * @param hash  the spread hash code of the string looked for
+     * @param bytes the UTF-8 bytes of the string looked for, null for null
+     * @return whether the string with the id is the one looked for
+     */
+    private boolean holds(int id, int hash, byte[] bytes) {
+        long offset = this.offsets.getLong(id * 8L);
+        if (this.data.getInt(offset) != hash) {
+            return false;
+        }
+        int length = this.data.getInt(offset + 4);
+        if (bytes == null || length == NULL_LENGTH) {
+            return bytes == null && length == NULL_LENGTH;
+        }
+        if (length != bytes.length) {
+            return false;
+        }
+        byte[] stored = new byte[length];
+        this.data.get(offset + 8, stored);
+        return Arrays.equals(stored, bytes);
+    }
+
+    /**
+     * Tells whether the data holds certain bytes at an offset.
+     *
+     * @param offset the offset
+     * @param bytes  the bytes, which must not reach beyond the data in use
+     * @return whether the data holds the bytes there
+     */
+    private boolean holdsAt(long offset, byte[] bytes) {
+        for (int i = 0; i < bytes.length; i++) {
+            if (this.data.getByte(offset + i) != bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Rebuilds the hash table with a new number of slots, taking the hashes from the arena.
+     *
+     * @param slots the new number of slots, a power of two
+     */
+    private void rehash(int slots) {
+        OffHeapMemory table = new OffHeapMemory(slots * 4L);
+        int mask = slots - 1;
+        for (int id = 0; id < this.count; id++) {
+            int slot = this.data.getInt(this.offsets.getLong(id * 8L)) & mask;
+            while (table.getInt(slot * 4L) != 0) {
+                slot = (slot + 1) & mask;
+            }
+            table.putInt(slot * 4L, id + 1);
+        }
+        this.table = table;
+        this.slots = slots;
+    }
+}
@@ -0,0 +1,354 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.ArtistRegistry;
+import MusicLandscape.entities.Track;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Objects;
+
+/**
+ * Stores tracks outside the Java heap, so that even very large catalogs add next to nothing for the garbage collector
+ * to trace or copy.
+ * Every track is a fixed-width slot of SLOT_SIZE bytes in off-heap memory, holding its duration, its year and the ids
+ * of its title, writer and performer. The strings themselves are kept once each in off-heap string arenas. Only the
+ * identity index, as two int arrays without any objects, and the folded key of every distinct string, for
+ * insensitive filters, stay on the heap.
+ * <p>
+ * Track objects are only created by get(). They are copies; modifying them does not modify the content of the store.
+ * Durations and years are read from the slots directly, and so are strings when filters or comparators only need
+ * one of them. Prefix and literal tests compare UTF-8 bytes in the arenas, so filters only decode the strings of the
+ * tracks they need to look at further.
+ */
+class OffHeapTrackStore extends TrackStore {
+
+    /**
+     * the offset of the duration (int) within a slot.
+     */
+    private static final int DURATION = 0;
+
+    /**
+     * the offset of the year (int) within a slot.
+     */
+    private static final int YEAR = 4;
+
+    /**
+     * the offset of the title id (int) within a slot.
+     */
+    private static final int TITLE = 8;
+
+    /**
+     * the offset of the writer name id (int) within a slot.
+     */
+    private static final int WRITER = 12;
+
+    /**
+     * the offset of the performer name id (int) within a slot.
+     */
+    private static final int PERFORMER = 16;
+
+    /**
+     * the number of bytes of a slot.
+     */
+    static final int SLOT_SIZE = 20;
+
+    /**
+     * the slots, indexed by ordinal.
+     */
+    private OffHeapMemory slots;
+
+    /**
+     * finds the ordinal of a stored track equal to a given track.
+     */
+    private TrackHashIndex identities;
+
+    /**
+     * the arena of titles.
+     */
+    private OffHeapStringArena titles;
+
+    /**
+     * the arena of artist names, shared by writers and performers.
+     */
+    private OffHeapStringArena artists;
+
+    /**
+     * the folded keys of the titles, by title id.
+     */
+    private FoldedKeys titleKeys;
+
+    /**
+     * the folded keys of the artist names, by name id.
+     */
+    private FoldedKeys artistKeys;
+
+    /**
+     * the number of stored tracks.
+     */
+    private int count;
+
+    /**
+     * Creates an empty store.
+     */
+    OffHeapTrackStore() {
+        this.slots = new OffHeapMemory(16L * SLOT_SIZE);
+        this.identities = new TrackHashIndex();
+        this.titles = new OffHeapStringArena();
+        this.artists = new OffHeapStringArena();
+        this.titleKeys = new FoldedKeys();
+        this.artistKeys = new FoldedKeys();
+    }
+
+    /**
+     * Creates a copy of a store.
+     *
+     * @param other the store to copy
+     */
+    private OffHeapTrackStore(OffHeapTrackStore other) {
+        super(other);
+        this.slots = new OffHeapMemory(other.slots);
+        this.identities = new TrackHashIndex(other.identities);
+        this.titles = new OffHeapStringArena(other.titles);
+        this.artists = new OffHeapStringArena(other.artists);
+        this.titleKeys = new FoldedKeys(other.titleKeys);
+        this.artistKeys = new FoldedKeys(other.artistKeys);
+        this.count = other.count;
+    }
+
+    /**
+     * Creates a view of a store, sharing its memory.
+     *
+     * @param other the store to view
+     * @param view  distinguishes this constructor from the copy constructor
+     */
+    private OffHeapTrackStore(OffHeapTrackStore other, boolean view) {
+        super(other);
+        this.slots = other.slots.view();
+        this.identities = other.identities.view();
+        this.titles = other.titles.view();
+        this.artists = other.artists.view();
+        this.titleKeys = other.titleKeys.view();
+        this.artistKeys = other.artistKeys.view();
+        this.count = other.count;
+    }
+
+    @Override
+    TrackStore copy() {
+        return new OffHeapTrackStore(this);
+    }
+
+    @Override
+    TrackStore view() {
+        return new OffHeapTrackStore(this, true);
+    }
+
+    @Override
+    int append(Track t) {
+        if (this.ordinalOf(t) >= 0) {
+            return -1;
+        }
+        int ordinal = this.count++;
+        this.slots.ensureCapacity((long) this.count * SLOT_SIZE);
+        this.write(ordinal, t);
+        this.identities.add(ordinal, t.hashCode());
+        return ordinal;
+    }
+
+    @Override
+    boolean set(int ordinal, Track t) {
+        int holder = this.ordinalOf(t);
+        if (holder >= 0 && holder != ordinal) {
+            return false;
+        }
+        this.identities.remove(ordinal);
+        this.write(ordinal, t);
+        this.identities.add(ordinal, t.hashCode());
+        return true;
+    }
+
+    @Override
+    int ordinalOf(Track t) {
+        return this.identities.find(t, this::holds);
+    }
+
+    @Override
+    int hash(int ordinal) {
+        return this.identities.hash(ordinal);
+    }
+
+    @Override
+    Track get(int ordinal) {
+        // a default track has year 0, which setYear would refuse; starting from it keeps that value intact
+        Track track = new Track();
+        track.setTitle(this.title(ordinal));
+        track.setWriter(ArtistRegistry.of(this.writer(ordinal)));
+        track.setPerformer(ArtistRegistry.of(this.performer(ordinal)));
+        track.setDuration(this.duration(ordinal));
+        track.setYear(this.year(ordinal));
+        return track;
+    }
+
+    @Override
+    int duration(int ordinal) {
+        return this.slots.getInt((long) ordinal * SLOT_SIZE + DURATION);
+    }
+
+    @Override
+    int year(int ordinal) {
+        return this.slots.getInt((long) ordinal * SLOT_SIZE + YEAR);
+    }
+
+    @Override
+    String title(int ordinal) {
+        return this.titles.decode(this.slots.getInt((long) ordinal * SLOT_SIZE + TITLE));
+    }
+
+    @Override
+    String writer(int ordinal) {
+        return this.artists.decode(this.slots.getInt((long) ordinal * SLOT_SIZE + WRITER));
+    }
+
+    @Override
+    String performer(int ordinal) {
+        return this.artists.decode(this.slots.getInt((long) ordinal * SLOT_SIZE + PERFORMER));
+    }
+
+    @Override
+    String titleKey(int ordinal) {
+        return this.titleKeys.get(this.slots.getInt((long) ordinal * SLOT_SIZE + TITLE));
+    }
+
+    @Override
+    String writerKey(int ordinal) {
+        return this.artistKeys.get(this.slots.getInt((long) ordinal * SLOT_SIZE + WRITER));
+    }
+
+    @Override
+    String performerKey(int ordinal) {
+        return this.artistKeys.get(this.slots.getInt((long) ordinal * SLOT_SIZE + PERFORMER));
+    }
+
+    @Override
+    OrdinalPredicate startsWith(Text field, String prefix) {
+        byte[] bytes = utf8(prefix);
+        if (bytes == null) {
+            return super.startsWith(field, prefix);
+        }
+        OffHeapStringArena arena = field == Text.TITLE ? this.titles : this.artists;
+        int offset = offsetOf(field);
+        return ordinal -> arena.startsWith(this.slots.getInt((long) ordinal * SLOT_SIZE + offset), bytes);
+    }
+
+    @Override
+    OrdinalPredicate contains(Text field, String literal) {
+        byte[] bytes = utf8(literal);
+        if (bytes == null) {
+            return super.contains(field, literal);
+        }
+        OffHeapStringArena arena = field == Text.TITLE ? this.titles : this.artists;
+        int offset = offsetOf(field);
+        return ordinal -> arena.contains(this.slots.getInt((long) ordinal * SLOT_SIZE + offset), bytes);
+    }
+
+    @Override
+    void bury(int ordinal) {
+        this.identities.bury(ordinal);
+    }
+
+    @Override
+    void assign(TrackStore other) {
+        OffHeapTrackStore compacted = (OffHeapTrackStore) other;
+        this.slots = compacted.slots;
+        this.identities = compacted.identities;
+        this.titles = compacted.titles;
+        this.artists = compacted.artists;
+        this.titleKeys = compacted.titleKeys;
+        this.artistKeys = compacted.artistKeys;
+        this.count = compacted.count;
+    }
+
+    @Override
+    void compact(TrackBitmap dead) {
+        int kept = 0;
+        this.identities.compact(dead, this.count);
+        for (int ordinal = 0; ordinal < this.count; ordinal++) {
+            if (dead.get(ordinal)) {
+                continue;
+            }
+            if (kept != ordinal) {
+                long from = (long) ordinal * SLOT_SIZE;
+                long to = (long) kept * SLOT_SIZE;
+                for (int field = 0; field < SLOT_SIZE; field += 4) {
+                    this.slots.putInt(to + field, this.slots.getInt(from + field));
+                }
+            }
+            kept++;
+        }
+        this.count = kept;
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Tells whether the stored track with a certain ordinal equals a track, comparing the slot directly.
+     *
+     * @param ordinal the ordinal of the stored track
+     * @param t       the track
+     * @return whether the stored track has the values of t
+     */
+    private boolean holds(int ordinal, Track t) {
+        return this.duration(ordinal) == t.getDuration() && this.year(ordinal) == t.getYear()
+                && this.title(ordinal).equals(t.getTitle())
+                && Objects.equals(this.writer(ordinal), t.getWriter().getName())
+                && Objects.equals(this.performer(ordinal), t.getPerformer().getName());
+    }
+
+    /**
+     * @param field a string field
+     * @return the offset of the id of the field within a slot
+     */
+    private static int offsetOf(Text field) {
+        switch (field) {
+            case TITLE:
+                return TITLE;
+            case WRITER:
+                return WRITER;
+            default:
+                return PERFORMER;
+        }
+    }
+
+    /**
+     * Encodes a string to compare in the arenas.
+     *
+     * @param s the string
+     * @return its UTF-8 bytes, null if s holds unpaired surrogates, for which byte and char comparisons may differ
+     */
+    private static byte[] utf8(String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        return new String(bytes, StandardCharsets.UTF_8).equals(s) ? bytes : null;
+    }
+
+    /**
+     * Writes the values of a track into a slot.
+     *
+     * @param ordinal the ordinal of the slot
+     * @param t       the track
+     */
+    private void write(int ordinal, Track t) {
+        long slot = (long) ordinal * SLOT_SIZE;
+        this.slots.putInt(slot + DURATION, t.getDuration());
+        this.slots.putInt(slot + YEAR, t.getYear());
+        int title = this.titles.encode(t.getTitle());
+        int writer = this.artists.encode(t.getWriter().getName());
+        int performer = this.artists.encode(t.getPerformer().getName());
+        this.slots.putInt(slot + TITLE, title);
+        this.slots.putInt(slot + WRITER, writer);
+        this.slots.putInt(slot + PERFORMER, performer);
+        this.titleKeys.note(title, t.getTitle());
+        this.artistKeys.note(writer, t.getWriter().getName());
+        this.artistKeys.note(performer, t.getPerformer().getName());
+    }
+}
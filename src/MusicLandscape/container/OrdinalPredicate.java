@@ -0,0 +1,17 @@
+package MusicLandscape.container;
+
+/**
+ * A predicate over the tracks of a store, addressed by ordinal.
+ * This is the form in which the container evaluates matchers, so that matchers over a single field can be answered
+ * from the store's columns without materializing tracks.
+ */
+interface OrdinalPredicate {
+
+    /**
+     * Tests the track with a certain ordinal.
+     *
+     * @param ordinal the ordinal of the track
+     * @return whether the track satisfies this predicate
+     */
+    boolean test(int ordinal);
+}
@@ -0,0 +1,142 @@
+package MusicLandscape.container;
+
+/**
+ * Sorting of int arrays by a comparator over their values, or by int keys.
+ * Used to sort ordinals (or positions) without boxing them.
+ */
+final class OrdinalSort {
+
+    /**
+     * Compares two int values, usually ordinals of tracks.
+     */
+    interface IntComparator {
+
+        /**
+         * @param a the first value
+         * @param b the second value
+         * @return negative, zero or positive as a is less than, equal to or greater than b
+         */
+        int compare(int a, int b);
+    }
+
+    /**
+     * below this length ranges are sorted by insertion sort.
+     */
+    private static final int INSERTION_THRESHOLD = 16;
+
+    /**
+     * the number of buckets of a counting sort pass, one per 16-bit digit.
+     */
+    private static final int MAX_BUCKETS = 1 << 16;
+
+    private OrdinalSort() {
+    }
+
+    /**
+     * Sorts the first count values of an array.
+     * The sort is stable: equal values keep their relative order, just like with Collections.sort.
+     *
+     * @param values the values to sort
+     * @param count  the number of values to sort
+     * @param c      the comparator defining the order
+     */
+    static void sort(int[] values, int count, IntComparator c) {
+        int[] buffer = new int[count];
+        mergeSort(values, buffer, 0, count, c);
+    }
+
+    /**
+     * Sorts the first count values of an array by int keys, without any comparisons.
+     * Keys spanning fewer than MAX_BUCKETS distinct values are sorted by a single counting sort, all others by an LSD
+     * radix sort over two 16-bit digits. Either way the sort is stable and takes O(count + buckets).
+     *
+     * @param values the values to sort
+     * @param keys   the key of each value, i.e. keys[i] is the key of values[i]; sorted along with the values
+     * @param count  the number of values to sort
+     */
+    static void sortByKey(int[] values, int[] keys, int count) {
+        if (count < 2) {
+            return;
+        }
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            min = Math.min(min, keys[i]);
+            max = Math.max(max, keys[i]);
+        }
+        int[] valueBuffer = new int[count];
+        int[] keyBuffer = new int[count];
+        if ((long) max - min < MAX_BUCKETS) {
+            countingPass(values, keys, valueBuffer, keyBuffer, count, min, 0, (int) ((long) max - min + 1));
+            System.arraycopy(valueBuffer, 0, values, 0, count);
+            System.arraycopy(keyBuffer, 0, keys, 0, count);
+            return;
+        }
+        // keys offset by min are non-negative as unsigned ints, sort by low then high 16 bits
+        countingPass(values, keys, valueBuffer, keyBuffer, count, min, 0, MAX_BUCKETS);
+        countingPass(valueBuffer, keyBuffer, values, keys, count, min, 16, MAX_BUCKETS);
+    }
+
+    /**
+     * One stable counting sort pass over a 16-bit digit of (key - min), copying from one pair of arrays to another.
+     *
+     * @param values   the values to read
+     * @param keys     the keys to read
+     * @param toValues the array to write the sorted values to
+     * @param toKeys   the array to write the sorted keys to
+     * @param count    the number of values
+     * @param min      the minimum key
+     * @param shift    the position of the digit, 0 or 16
+     * @param buckets  the number of distinct digits
+     */
+    private static void countingPass(int[] values, int[] keys, int[] toValues, int[] toKeys, int count, int min,
+                                     int shift, int buckets) {
+        int[] starts = new int[buckets + 1];
+        for (int i = 0; i < count; i++) {
+            starts[(((keys[i] - min) >>> shift) & 0xFFFF) + 1]++;
+        }
+        for (int bucket = 1; bucket <= buckets; bucket++) {
+            starts[bucket] += starts[bucket - 1];
+        }
+        for (int i = 0; i < count; i++) {
+            int to = starts[((keys[i] - min) >>> shift) & 0xFFFF]++;
+            toValues[to] = values[i];
+            toKeys[to] = keys[i];
+        }
+    }
+
+    /**
+     * Stable merge sort of values[from, to), using buffer as scratch space.
+     */
+    private static void mergeSort(int[] values, int[] buffer, int from, int to, IntComparator c) {
+        if (to - from <= INSERTION_THRESHOLD) {
+            for (int i = from + 1; i < to; i++) {
+                int v = values[i];
+                int j = i - 1;
+                while (j >= from && c.compare(values[j], v) > 0) {
+                    values[j + 1] = values[j];
+                    j--;
+                }
+                values[j + 1] = v;
+            }
+            return;
+        }
+        int mid = (from + to) >>> 1;
+        mergeSort(values, buffer, from, mid, c);
+        mergeSort(values, buffer, mid, to, c);
+        if (c.compare(values[mid - 1], values[mid]) <= 0) {
+            // halves are already in order
+            return;
+        }
+        System.arraycopy(values, from, buffer, from, to - from);
+        int left = from;
+        int right = mid;
+        for (int i = from; i < to; i++) {
+            if (right >= to || (left < mid && c.compare(buffer[left], buffer[right]) <= 0)) {
+                values[i] = buffer[left++];
+            } else {
+                values[i] = buffer[right++];
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package MusicLandscape.container;
+
+/**
+ * An index answering "which tracks have a string field starting with a given prefix".
+ * The index is an array of ordinals sorted by the field, so all tracks whose field starts with a prefix form one
+ * contiguous range, found by a binary search for its start. A lookup therefore costs O(log n + matches).
+ */
+class PrefixIndex extends StoreIndex {
+
+    /**
+     * Reads the indexed field of a track.
+     */
+    interface Field {
+
+        /**
+         * @param ordinal the ordinal of the track
+         * @return the value of the field, may be null
+         */
+        String of(int ordinal);
+    }
+
+    /**
+     * the indexed field.
+     */
+    private final Field field;
+
+    /**
+     * the indexed ordinals, sorted by field value (nulls first).
+     */
+    private int[] sorted;
+
+    /**
+     * Creates an index over a field of a store. The index is built on first use.
+     *
+     * @param store the store holding the tracks
+     * @param field the field to index
+     */
+    PrefixIndex(TrackStore store, Field field) {
+        super(store);
+        this.field = field;
+        this.sorted = new int[0];
+    }
+
+    /**
+     * Finds the tracks whose field starts with a prefix. Tracks with a null field never match.
+     *
+     * @param prefix the prefix, not null
+     * @return the ordinals of all matching tracks
+     */
+    TrackBitmap lookup(String prefix) {
+        this.ensureCurrent();
+        TrackBitmap matches = new TrackBitmap();
+        for (int i = this.lowerBound(prefix); i < this.indexed; i++) {
+            String value = this.field.of(this.sorted[i]);
+            if (!value.startsWith(prefix)) {
+                break;
+            }
+            matches.set(this.sorted[i]);
+        }
+        int size = this.store.size();
+        for (int ordinal = this.indexed; ordinal < size; ordinal++) {
+            String value = this.field.of(ordinal);
+            if (value != null && value.startsWith(prefix)) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimates the number of tracks whose field starts with a prefix, without collecting them.
+     * The matches among the indexed tracks are counted exactly in O(log n), the unindexed tail is extrapolated.
+     *
+     * @param prefix the prefix, not null
+     * @return the estimated number of matching tracks
+     */
+    int count(String prefix) {
+        this.ensureCurrent();
+        int from = this.lowerBound(prefix);
+        // values starting with the prefix come first among those not less than the prefix
+        int low = from;
+        int high = this.indexed;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.field.of(this.sorted[mid]).startsWith(prefix)) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return this.extrapolate(low - from);
+    }
+
+    @Override
+    protected void build(int size) {
+        int[] ordinals = new int[size];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            ordinals[ordinal] = ordinal;
+        }
+        OrdinalSort.sort(ordinals, size, (a, b) -> compare(this.field.of(a), this.field.of(b)));
+        this.sorted = ordinals;
+    }
+
+    @Override
+    protected void inheritContent(StoreIndex previous) {
+        // the array is replaced, never modified, by a build, so it can be shared
+        this.sorted = ((PrefixIndex) previous).sorted;
+    }
+
+    /**
+     * Finds the first position in the index whose value is not less than the prefix.
+     *
+     * @param prefix the prefix
+     * @return the position, indexed if all values are less
+     */
+    private int lowerBound(String prefix) {
+        int low = 0;
+        int high = this.indexed;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (compare(this.field.of(this.sorted[mid]), prefix) < 0) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Compares two field values, null being less than any string.
+     */
+    private static int compare(String a, String b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        return a.compareTo(b);
+    }
+}
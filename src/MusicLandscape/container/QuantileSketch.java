@@ -0,0 +1,319 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+
+/**
+ * Estimates quantiles (median, 95th percentile, ...) of a stream of int values, using the KLL algorithm.
+ * Values are kept in a hierarchy of compactors. A value on level h stands for 2^h values of the stream. Whenever a
+ * level is full it is sorted and every other value, starting at a random one of the first two, is promoted to the next
+ * level while the rest are dropped. The capacity of the levels shrinks geometrically from the top level down, so the
+ * sketch holds O(k) values however many are added, and the smallest and largest value are kept exactly.
+ * <p>
+ * The rank of the value returned for a quantile is within about error() of the quantile, with 99% confidence.
+ * Sketches with the same parameter k can be merged, so that values can be added to separate sketches, e.g. on several
+ * threads, and the sketches be combined into the sketch of all values.
+ */
+public class QuantileSketch {
+
+    /**
+     * the smallest supported k.
+     */
+    private static final int MIN_K = 8;
+
+    /**
+     * the largest supported k.
+     */
+    private static final int MAX_K = 65535;
+
+    /**
+     * the factor by which the capacity of a level shrinks from one level to the level below.
+     */
+    private static final double SHRINK = 2.0 / 3.0;
+
+    /**
+     * the capacity of the top level, which determines the accuracy.
+     */
+    private final int k;
+
+    /**
+     * the values of each level; the values of level h have weight 2^h.
+     */
+    private int[][] levels;
+
+    /**
+     * the number of values on each level.
+     */
+    private int[] sizes;
+
+    /**
+     * the number of levels in use.
+     */
+    private int height;
+
+    /**
+     * the number of values added.
+     */
+    private long count;
+
+    /**
+     * the smallest value added.
+     */
+    private int min;
+
+    /**
+     * the largest value added.
+     */
+    private int max;
+
+    /**
+     * the state of the generator deciding which values are promoted.
+     */
+    private long random;
+
+    /**
+     * Creates an empty sketch with a given error.
+     *
+     * @param error the rank error the quantiles should have at most, between 0 and 1. The smallest error supported is
+     *              about 0.005%, the largest about 30%.
+     */
+    public QuantileSketch(double error) {
+        if (!(error > 0 && error < 1)) {
+            throw new IllegalArgumentException("expected error between 0 and 1");
+        }
+        this.k = (int) Math.max(MIN_K, Math.min(MAX_K, Math.ceil(Math.pow(2.296 / error, 1 / 0.9723))));
+        this.levels = new int[][]{new int[this.k]};
+        this.sizes = new int[1];
+        this.height = 1;
+        this.min = Integer.MAX_VALUE;
+        this.max = Integer.MIN_VALUE;
+        this.random = 0x2545F4914F6CDD1DL;
+    }
+
+    /**
+     * Creates a copy of a sketch.
+     *
+     * @param other the sketch to copy
+     */
+    public QuantileSketch(QuantileSketch other) {
+        this.k = other.k;
+        this.levels = new int[other.levels.length][];
+        for (int h = 0; h < other.height; h++) {
+            this.levels[h] = other.levels[h].clone();
+        }
+        this.sizes = other.sizes.clone();
+        this.height = other.height;
+        this.count = other.count;
+        this.min = other.min;
+        this.max = other.max;
+        this.random = other.random;
+    }
+
+    /**
+     * Adds a value.
+     *
+     * @param value the value
+     */
+    public void add(int value) {
+        this.append(0, value);
+        this.count++;
+        this.min = Math.min(this.min, value);
+        this.max = Math.max(this.max, value);
+        if (this.sizes[0] >= this.capacity(0)) {
+            this.compress();
+        }
+    }
+
+    /**
+     * Adds the values added to another sketch to this sketch. The other sketch is not modified.
+     *
+     * @param other the sketch to merge, with the same k as this sketch
+     */
+    public void merge(QuantileSketch other) {
+        if (other.k != this.k) {
+            throw new IllegalArgumentException("expected sketch of the same k");
+        }
+        for (int h = 0; h < other.height; h++) {
+            for (int i = 0; i < other.sizes[h]; i++) {
+                this.append(h, other.levels[h][i]);
+            }
+        }
+        this.count += other.count;
+        this.min = Math.min(this.min, other.min);
+        this.max = Math.max(this.max, other.max);
+        this.compress();
+    }
+
+    /**
+     * Estimates a quantile of the values added.
+     *
+     * @param q the quantile, between 0 (the smallest value) and 1 (the largest value); 0.5 for the median
+     * @return a value whose rank among the values added is within about error() of q
+     */
+    public int quantile(double q) {
+        if (!(q >= 0 && q <= 1)) {
+            throw new IllegalArgumentException("expected quantile between 0 and 1");
+        }
+        if (this.count == 0) {
+            throw new IllegalArgumentException("expected non-empty sketch");
+        }
+        if (q == 0) {
+            return this.min;
+        }
+        if (q == 1) {
+            return this.max;
+        }
+        int retained = this.retained();
+        int[] values = new int[retained];
+        long[] weights = new long[retained];
+        int[] order = new int[retained];
+        int n = 0;
+        for (int h = 0; h < this.height; h++) {
+            for (int i = 0; i < this.sizes[h]; i++) {
+                values[n] = this.levels[h][i];
+                weights[n] = 1L << h;
+                order[n] = n;
+                n++;
+            }
+        }
+        OrdinalSort.sortByKey(order, values.clone(), retained);
+        double target = q * this.count;
+        long weight = 0;
+        for (int i = 0; i < retained; i++) {
+            weight += weights[order[i]];
+            if (weight >= target) {
+                return values[order[i]];
+            }
+        }
+        return this.max;
+    }
+
+    /**
+     * Estimates the rank of a value among the values added.
+     *
+     * @param value the value
+     * @return the estimated fraction of values added which are less than or equal to value, 0 if none were added
+     */
+    public double rank(int value) {
+        if (this.count == 0) {
+            return 0;
+        }
+        long weight = 0;
+        for (int h = 0; h < this.height; h++) {
+            for (int i = 0; i < this.sizes[h]; i++) {
+                if (this.levels[h][i] <= value) {
+                    weight += 1L << h;
+                }
+            }
+        }
+        return (double) weight / this.count;
+    }
+
+    /**
+     * @return the number of values added
+     */
+    public long count() {
+        return this.count;
+    }
+
+    /**
+     * @return the rank error of the quantiles, with 99% confidence
+     */
+    public double error() {
+        return 2.296 / Math.pow(this.k, 0.9723);
+    }
+
+    /**
+     * @return the parameter k, the capacity of the top level
+     */
+    public int k() {
+        return this.k;
+    }
+
+    /**
+     * @return the number of values the sketch currently holds
+     */
+    int retained() {
+        int retained = 0;
+        for (int h = 0; h < this.height; h++) {
+            retained += this.sizes[h];
+        }
+        return retained;
+    }
+
+    @Override
+    public String toString() {
+        if (this.count == 0) {
+            return "no values";
+        }
+        return String.format("median %d, p95 %d (%d values, rank \u00b1%.1f%%)", this.quantile(0.5),
+                this.quantile(0.95), this.count, 100 * this.error());
+    }
+
+    /**
+     * @param h a level in use
+     * @return the number of values level h holds before it is compacted
+     */
+    private int capacity(int h) {
+        return Math.max(2, (int) Math.ceil(this.k * Math.pow(SHRINK, this.height - h - 1)));
+    }
+
+    /**
+     * Puts a value on a level, creating the level if necessary.
+     */
+    private void append(int h, int value) {
+        if (h >= this.height) {
+            if (h >= this.levels.length) {
+                this.levels = Arrays.copyOf(this.levels, h + 1);
+                this.sizes = Arrays.copyOf(this.sizes, h + 1);
+            }
+            for (int level = this.height; level <= h; level++) {
+                this.levels[level] = new int[this.k];
+            }
+            this.height = h + 1;
+        }
+        if (this.sizes[h] == this.levels[h].length) {
+            this.levels[h] = Arrays.copyOf(this.levels[h], this.sizes[h] * 2);
+        }
+        this.levels[h][this.sizes[h]++] = value;
+    }
+
+    /**
+     * Compacts every level holding at least its capacity, from the bottom up.
+     */
+    private void compress() {
+        for (int h = 0; h < this.height; h++) {
+            if (this.sizes[h] >= this.capacity(h)) {
+                this.compact(h);
+            }
+        }
+    }
+
+    /**
+     * Sorts a level and promotes every other value to the next level. With an odd number of values, the largest
+     * stays behind.
+     *
+     * @param h the level
+     */
+    private void compact(int h) {
+        int[] level = this.levels[h];
+        int size = this.sizes[h];
+        Arrays.sort(level, 0, size);
+        int pairs = size / 2;
+        // xorshift, the lowest bit choosing between the values at even and at odd positions
+        this.random ^= this.random << 13;
+        this.random ^= this.random >>> 7;
+        this.random ^= this.random << 17;
+        int offset = (int) (this.random & 1);
+        int[] promoted = new int[pairs];
+        for (int i = 0; i < pairs; i++) {
+            promoted[i] = level[2 * i + offset];
+        }
+        if ((size & 1) != 0) {
+            level[0] = level[size - 1];
+        }
+        this.sizes[h] = size & 1;
+        for (int value : promoted) {
+            this.append(h + 1, value);
+        }
+    }
+}
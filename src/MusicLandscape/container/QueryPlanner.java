@@ -0,0 +1,457 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.AndMatcher;
+import MusicLandscape.util.matcher.ArtistMatcher;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.FuzzyMatcher;
+import MusicLandscape.util.matcher.InsensitiveArtistMatcher;
+import MusicLandscape.util.matcher.InsensitiveMatcher;
+import MusicLandscape.util.matcher.InsensitivePerformerMatcher;
+import MusicLandscape.util.matcher.InsensitiveTitleMatcher;
+import MusicLandscape.util.matcher.InsensitiveWriterMatcher;
+import MusicLandscape.util.matcher.NotMatcher;
+import MusicLandscape.util.matcher.OrMatcher;
+import MusicLandscape.util.matcher.PerformerMatcher;
+import MusicLandscape.util.matcher.RegexMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+import MusicLandscape.util.matcher.TitleTermMatcher;
+import MusicLandscape.util.matcher.WriterMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Decides how a filter is evaluated against the selection of a container.
+ * <p>
+ * A matcher is evaluated on a bitmap of candidate ordinals which it narrows down. Leaf matchers an index can answer
+ * are looked up in the index if the index result is expected to be smaller than the candidates, otherwise they are
+ * tested on the candidates directly. The operands of an AndMatcher are evaluated indexed ones first, each in order of
+ * estimated selectivity, so that every operand only sees the candidates that survived the previous ones. The
+ * operands of an OrMatcher are evaluated broadest first, each only on the candidates no previous operand matched.
+ * <p>
+ * Selectivity, the fraction of all tracks a matcher matches, is estimated from index counts for indexed leaves and
+ * assumed to be UNKNOWN_SELECTIVITY for all other leaves.
+ * <p>
+ * Leaves tested on at least parallelThreshold candidates are tested in parallel on the common fork/join pool.
+ * <p>
+ * Only the matcher classes of this library are looked up, translated or taken apart, and only by their exact class:
+ * a subclass may override matches(), so it is applied to the track obtained from the store, as any other matcher is.
+ */
+class QueryPlanner {
+
+    /**
+     * the selectivity assumed for matchers no index can estimate.
+     */
+    private static final double UNKNOWN_SELECTIVITY = 0.5;
+
+    /**
+     * the default for parallelThreshold.
+     */
+    static final int DEFAULT_PARALLEL_THRESHOLD = 1 << 16;
+
+    /**
+     * the matcher classes whose matches() the planner and the indexes know.
+     */
+    private static final Set<Class<?>> KNOWN = new HashSet<Class<?>>(Arrays.asList(AndMatcher.class,
+            OrMatcher.class, NotMatcher.class, DurationMatcher.class, YearMatcher.class, TitleMatcher.class,
+            WriterMatcher.class, PerformerMatcher.class, ArtistMatcher.class, InsensitiveTitleMatcher.class,
+            InsensitiveWriterMatcher.class, InsensitivePerformerMatcher.class, InsensitiveArtistMatcher.class,
+            TitleTermMatcher.class, FuzzyMatcher.class, RegexMatcher.class));
+
+    /**
+     * the number of tracks from which on a predicate is tested on several threads.
+     */
+    private int parallelThreshold;
+
+    /**
+     * the pool that runs parallel tests.
+     */
+    private final ForkJoinPool pool;
+
+    /**
+     * the store holding the tracks.
+     */
+    private final TrackStore store;
+
+    /**
+     * the indexes over the store.
+     */
+    private final TrackIndexes indexes;
+
+    /**
+     * Creates a planner.
+     *
+     * @param store   the store holding the tracks
+     * @param indexes the indexes over the store
+     */
+    QueryPlanner(TrackStore store, TrackIndexes indexes) {
+        this.store = store;
+        this.indexes = indexes;
+        this.parallelThreshold = DEFAULT_PARALLEL_THRESHOLD;
+        this.pool = ForkJoinPool.commonPool();
+    }
+
+    /**
+     * @return the number of tracks from which on a predicate is tested on several threads
+     */
+    int getParallelThreshold() {
+        return this.parallelThreshold;
+    }
+
+    /**
+     * @param parallelThreshold the number of tracks from which on a predicate is tested on several threads
+     */
+    void setParallelThreshold(int parallelThreshold) {
+        this.parallelThreshold = parallelThreshold;
+    }
+
+    /**
+     * Filters a selection.
+     *
+     * @param selection the selection to filter
+     * @param matcher   the matcher selected tracks must match
+     * @return the number of tracks removed from the selection
+     */
+    int filter(Selection selection, MyMatcher<Track> matcher) {
+        if (!isComposite(matcher) && !this.indexes.supports(matcher) && selection.size() < this.parallelThreshold) {
+            // nothing to plan, test every selected track
+            return selection.retain(this.predicateFor(matcher));
+        }
+        TrackBitmap candidates = new TrackBitmap(selection.members());
+        this.narrow(matcher, candidates);
+        return selection.retain(candidates);
+    }
+
+    /**
+     * Removes the ordinals not matching a matcher from a bitmap of candidates.
+     *
+     * @param matcher    the matcher
+     * @param candidates the candidates, narrowed in place
+     */
+    void narrow(MyMatcher<Track> matcher, TrackBitmap candidates) {
+        if (!isKnown(matcher)) {
+            this.test(matcher, candidates);
+        } else if (matcher instanceof AndMatcher) {
+            List<MyMatcher<Track>> operands = this.plan(((AndMatcher<Track>) matcher).getOperands(), true);
+            for (MyMatcher<Track> operand : operands) {
+                if (candidates.isEmpty()) {
+                    return;
+                }
+                this.narrow(operand, candidates);
+            }
+        } else if (matcher instanceof OrMatcher) {
+            List<MyMatcher<Track>> operands = this.plan(((OrMatcher<Track>) matcher).getOperands(), false);
+            TrackBitmap matches = new TrackBitmap();
+            for (MyMatcher<Track> operand : operands) {
+                if (candidates.isEmpty()) {
+                    break;
+                }
+                TrackBitmap part = new TrackBitmap(candidates);
+                this.narrow(operand, part);
+                matches.or(part);
+                candidates.andNot(part);
+            }
+            candidates.clear();
+            candidates.or(matches);
+        } else if (matcher instanceof NotMatcher) {
+            TrackBitmap part = new TrackBitmap(candidates);
+            this.narrow(((NotMatcher<Track>) matcher).getOperand(), part);
+            candidates.andNot(part);
+        } else if (this.indexes.supports(matcher) && this.indexes.count(matcher) <= candidates.cardinality()) {
+            candidates.and(this.indexes.lookup(matcher));
+        } else {
+            this.test(matcher, candidates);
+        }
+    }
+
+    /**
+     * Tests a leaf matcher on every candidate, on several threads if there are enough candidates.
+     *
+     * @param matcher    the matcher
+     * @param candidates the candidates, narrowed in place
+     */
+    private void test(MyMatcher<Track> matcher, TrackBitmap candidates) {
+        if (candidates.cardinality() >= this.parallelThreshold) {
+            candidates.retain(this.predicateFor(matcher), this.pool);
+        } else {
+            candidates.retain(this.predicateFor(matcher));
+        }
+    }
+
+    /**
+     * Orders the operands of a combined matcher for evaluation.
+     *
+     * @param operands    the operands
+     * @param conjunctive true to order for an AndMatcher (indexed first, most selective first), false to order for an
+     *                    OrMatcher (least selective first)
+     * @return the operands in evaluation order
+     */
+    private List<MyMatcher<Track>> plan(List<MyMatcher<Track>> operands, boolean conjunctive) {
+        List<MyMatcher<Track>> ordered = new ArrayList<MyMatcher<Track>>(operands);
+        Map<MyMatcher<Track>, Double> selectivities = new IdentityHashMap<MyMatcher<Track>, Double>();
+        for (MyMatcher<Track> operand : ordered) {
+            selectivities.put(operand, this.selectivity(operand));
+        }
+        Comparator<MyMatcher<Track>> bySelectivity = Comparator.comparingDouble(selectivities::get);
+        if (conjunctive) {
+            ordered.sort(Comparator.comparing((MyMatcher<Track> m) -> !this.isIndexed(m)).thenComparing(bySelectivity));
+        } else {
+            ordered.sort(bySelectivity.reversed());
+        }
+        return ordered;
+    }
+
+    /**
+     * Estimates the fraction of all tracks a matcher matches.
+     *
+     * @param matcher the matcher
+     * @return the estimated selectivity, between 0 and 1
+     */
+    double selectivity(MyMatcher<Track> matcher) {
+        if (!isKnown(matcher)) {
+            return UNKNOWN_SELECTIVITY;
+        }
+        if (matcher instanceof AndMatcher) {
+            double selectivity = 1.0;
+            for (MyMatcher<Track> operand : ((AndMatcher<Track>) matcher).getOperands()) {
+                selectivity *= this.selectivity(operand);
+            }
+            return selectivity;
+        }
+        if (matcher instanceof OrMatcher) {
+            double miss = 1.0;
+            for (MyMatcher<Track> operand : ((OrMatcher<Track>) matcher).getOperands()) {
+                miss *= 1.0 - this.selectivity(operand);
+            }
+            return 1.0 - miss;
+        }
+        if (matcher instanceof NotMatcher) {
+            return 1.0 - this.selectivity(((NotMatcher<Track>) matcher).getOperand());
+        }
+        if (this.indexes.supports(matcher) && this.store.size() > 0) {
+            return Math.min(1.0, (double) this.indexes.count(matcher) / this.store.size());
+        }
+        return UNKNOWN_SELECTIVITY;
+    }
+
+    /**
+     * Tells whether a matcher can be evaluated from the indexes alone.
+     *
+     * @param matcher the matcher
+     * @return true for supported leaves and for combinations of supported leaves only
+     */
+    private boolean isIndexed(MyMatcher<Track> matcher) {
+        if (!isKnown(matcher)) {
+            return false;
+        }
+        if (matcher instanceof AndMatcher || matcher instanceof OrMatcher) {
+            List<MyMatcher<Track>> operands = matcher instanceof AndMatcher
+                    ? ((AndMatcher<Track>) matcher).getOperands() : ((OrMatcher<Track>) matcher).getOperands();
+            for (MyMatcher<Track> operand : operands) {
+                if (!this.isIndexed(operand)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        if (matcher instanceof NotMatcher) {
+            return this.isIndexed(((NotMatcher<Track>) matcher).getOperand());
+        }
+        return this.indexes.supports(matcher);
+    }
+
+    /**
+     * Translates a leaf matcher into a predicate over ordinals.
+     * Matchers over a single primitive field are answered from the store's column for that field, prefix matchers
+     * over names, term, fuzzy and regular expression matchers from the stored strings alone, insensitive prefix
+     * matchers from the stored folded keys, all other matchers, subclasses of these included, are applied to the
+     * track obtained from the store.
+     *
+     * @param matcher the matcher to translate
+     * @return the predicate
+     */
+    OrdinalPredicate predicateFor(MyMatcher<Track> matcher) {
+        if (!isKnown(matcher)) {
+            return ordinal -> matcher.matches(this.store.get(ordinal));
+        }
+        if (matcher instanceof DurationMatcher) {
+            DurationMatcher durationMatcher = (DurationMatcher) matcher;
+            return ordinal -> durationMatcher.matches(this.store.duration(ordinal));
+        }
+        if (matcher instanceof YearMatcher) {
+            YearMatcher yearMatcher = (YearMatcher) matcher;
+            return ordinal -> yearMatcher.matches(this.store.year(ordinal));
+        }
+        if (matcher instanceof TitleTermMatcher) {
+            TitleTermMatcher termMatcher = (TitleTermMatcher) matcher;
+            return ordinal -> termMatcher.matches(this.store.title(ordinal));
+        }
+        if (matcher instanceof FuzzyMatcher) {
+            FuzzyMatcher fuzzyMatcher = (FuzzyMatcher) matcher;
+            return ordinal -> distance(fuzzyMatcher, this.store, ordinal) <= fuzzyMatcher.getDistance();
+        }
+        if (matcher instanceof RegexMatcher) {
+            return this.predicateFor((RegexMatcher) matcher);
+        }
+        if (matcher instanceof InsensitiveMatcher) {
+            // the keys were folded when the tracks were stored, so nothing is folded or allocated per track
+            InsensitiveMatcher insensitive = (InsensitiveMatcher) matcher;
+            if (matcher instanceof TitleMatcher) {
+                return ordinal -> insensitive.matchesKey(this.store.titleKey(ordinal));
+            }
+            if (matcher instanceof WriterMatcher) {
+                return ordinal -> insensitive.matchesKey(this.store.writerKey(ordinal));
+            }
+            if (matcher instanceof PerformerMatcher) {
+                return ordinal -> insensitive.matchesKey(this.store.performerKey(ordinal));
+            }
+            if (matcher instanceof ArtistMatcher) {
+                return ordinal -> insensitive.matchesKey(this.store.writerKey(ordinal))
+                        || insensitive.matchesKey(this.store.performerKey(ordinal));
+            }
+        }
+        if (matcher instanceof TitleMatcher || matcher instanceof WriterMatcher || matcher instanceof PerformerMatcher
+                || matcher instanceof ArtistMatcher) {
+            // same tests as the matches(Track) of these matchers, on the stored strings
+            String prefix = matcher.getPattern();
+            if (matcher instanceof TitleMatcher) {
+                return this.store.startsWith(TrackStore.Text.TITLE, prefix);
+            }
+            if (matcher instanceof WriterMatcher) {
+                return this.store.startsWith(TrackStore.Text.WRITER, prefix);
+            }
+            if (matcher instanceof PerformerMatcher) {
+                return this.store.startsWith(TrackStore.Text.PERFORMER, prefix);
+            }
+            OrdinalPredicate writer = this.store.startsWith(TrackStore.Text.WRITER, prefix);
+            OrdinalPredicate performer = this.store.startsWith(TrackStore.Text.PERFORMER, prefix);
+            return ordinal -> writer.test(ordinal) || performer.test(ordinal);
+        }
+        return ordinal -> matcher.matches(this.store.get(ordinal));
+    }
+
+    /**
+     * Translates a regular expression matcher into a predicate which only runs the expression on the tracks whose
+     * field holds the literal text of the expression (see RegexMatcher.getLiterals()).
+     *
+     * @param matcher the matcher to translate
+     * @return the predicate
+     */
+    private OrdinalPredicate predicateFor(RegexMatcher matcher) {
+        switch (matcher.getField()) {
+            case TITLE:
+                return this.predicateFor(matcher, TrackStore.Text.TITLE);
+            case WRITER:
+                return this.predicateFor(matcher, TrackStore.Text.WRITER);
+            case PERFORMER:
+                return this.predicateFor(matcher, TrackStore.Text.PERFORMER);
+            default:
+                OrdinalPredicate writer = this.predicateFor(matcher, TrackStore.Text.WRITER);
+                OrdinalPredicate performer = this.predicateFor(matcher, TrackStore.Text.PERFORMER);
+                return ordinal -> writer.test(ordinal) || performer.test(ordinal);
+        }
+    }
+
+    /**
+     * Translates a regular expression matcher into a predicate over one field.
+     *
+     * @param matcher the matcher to translate
+     * @param field   the field to search
+     * @return the predicate
+     */
+    private OrdinalPredicate predicateFor(RegexMatcher matcher, TrackStore.Text field) {
+        String prefix = matcher.getPrefix();
+        List<OrdinalPredicate> required = new ArrayList<OrdinalPredicate>();
+        if (!prefix.isEmpty()) {
+            required.add(this.store.startsWith(field, prefix));
+        }
+        for (String literal : matcher.getLiterals()) {
+            // a field starting with the prefix contains it
+            if (!literal.equals(prefix)) {
+                required.add(this.store.contains(field, literal));
+            }
+        }
+        return ordinal -> {
+            for (OrdinalPredicate predicate : required) {
+                if (!predicate.test(ordinal)) {
+                    return false;
+                }
+            }
+            return matcher.matches(this.store.text(field, ordinal));
+        };
+    }
+
+    /**
+     * Computes the distance between the pattern of a fuzzy matcher and the field of a stored track, like
+     * FuzzyMatcher.distanceTo(Track) does.
+     *
+     * @param matcher the matcher
+     * @param store   the store holding the track
+     * @param ordinal the ordinal of the track
+     * @return the distance, or matcher.getDistance()+1 if it is larger
+     */
+    static int distance(FuzzyMatcher matcher, TrackStore store, int ordinal) {
+        switch (matcher.getField()) {
+            case TITLE:
+                return matcher.distanceTo(store.title(ordinal));
+            case WRITER:
+                return matcher.distanceTo(store.writer(ordinal));
+            case PERFORMER:
+                return matcher.distanceTo(store.performer(ordinal));
+            default:
+                return Math.min(matcher.distanceTo(store.writer(ordinal)),
+                        matcher.distanceTo(store.performer(ordinal)));
+        }
+    }
+
+    /**
+     * Tells whether the field of a stored track matches a regular expression, like RegexMatcher.matches(Track) does.
+     *
+     * @param matcher the matcher
+     * @param store   the store holding the track
+     * @param ordinal the ordinal of the track
+     * @return whether the track matches
+     */
+    static boolean matches(RegexMatcher matcher, TrackStore store, int ordinal) {
+        switch (matcher.getField()) {
+            case TITLE:
+                return matcher.matches(store.title(ordinal));
+            case WRITER:
+                return matcher.matches(store.writer(ordinal));
+            case PERFORMER:
+                return matcher.matches(store.performer(ordinal));
+            default:
+                return matcher.matches(store.writer(ordinal)) || matcher.matches(store.performer(ordinal));
+        }
+    }
+
+    /**
+     * @param matcher the matcher
+     * @return whether the matcher combines other matchers
+     */
+    private static boolean isComposite(MyMatcher<Track> matcher) {
+        return isKnown(matcher)
+                && (matcher instanceof AndMatcher || matcher instanceof OrMatcher || matcher instanceof NotMatcher);
+    }
+
+    /**
+     * Tells whether a matcher is of one of the matcher classes of this library, not of a subclass, whose matches()
+     * may differ.
+     *
+     * @param matcher the matcher
+     * @return whether the matcher may be looked up, translated or taken apart
+     */
+    static boolean isKnown(MyMatcher<?> matcher) {
+        return KNOWN.contains(matcher.getClass());
+    }
+}
@@ -0,0 +1,129 @@
+package MusicLandscape.container;
+
+/**
+ * An index answering "which tracks have an int field within a closed range".
+ * The index holds the ordinals sorted by the field together with the sorted field values, so the tracks within a
+ * range form one contiguous run, found by two binary searches. Counting the tracks of a range therefore costs
+ * O(log n), collecting them O(log n + matches).
+ * <p>
+ * The index is built by sorting on the primitive field values, without comparisons; see OrdinalSort.sortByKey.
+ */
+class RangeIndex extends StoreIndex {
+
+    /**
+     * Reads the indexed field of a track.
+     */
+    interface Field {
+
+        /**
+         * @param ordinal the ordinal of the track
+         * @return the value of the field
+         */
+        int of(int ordinal);
+    }
+
+    /**
+     * the indexed field.
+     */
+    private final Field field;
+
+    /**
+     * the indexed ordinals, sorted by field value.
+     */
+    private int[] sorted;
+
+    /**
+     * the field value of each entry of sorted, i.e. keys[i] is the value of ordinal sorted[i].
+     */
+    private int[] keys;
+
+    /**
+     * Creates an index over a field of a store. The index is built on first use.
+     *
+     * @param store the store holding the tracks
+     * @param field the field to index
+     */
+    RangeIndex(TrackStore store, Field field) {
+        super(store);
+        this.field = field;
+        this.sorted = new int[0];
+        this.keys = new int[0];
+    }
+
+    /**
+     * Finds the tracks whose field lies within a range. A range whose lower bound exceeds its upper bound is empty.
+     *
+     * @param lower the lower bound (inclusive)
+     * @param upper the upper bound (inclusive)
+     * @return the ordinals of all matching tracks
+     */
+    TrackBitmap lookup(int lower, int upper) {
+        this.ensureCurrent();
+        TrackBitmap matches = new TrackBitmap();
+        int to = this.firstAbove(upper);
+        for (int i = this.firstAbove(lower - 1L); i < to; i++) {
+            matches.set(this.sorted[i]);
+        }
+        int size = this.store.size();
+        for (int ordinal = this.indexed; ordinal < size; ordinal++) {
+            int value = this.field.of(ordinal);
+            if (lower <= value && value <= upper) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimates the number of tracks whose field lies within a range, without collecting them.
+     * The matches among the indexed tracks are counted exactly in O(log n), the unindexed tail is extrapolated.
+     *
+     * @param lower the lower bound (inclusive)
+     * @param upper the upper bound (inclusive)
+     * @return the estimated number of matching tracks
+     */
+    int count(int lower, int upper) {
+        this.ensureCurrent();
+        return this.extrapolate(Math.max(0, this.firstAbove(upper) - this.firstAbove(lower - 1L)));
+    }
+
+    @Override
+    protected void build(int size) {
+        int[] ordinals = new int[size];
+        int[] keys = new int[size];
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            ordinals[ordinal] = ordinal;
+            keys[ordinal] = this.field.of(ordinal);
+        }
+        OrdinalSort.sortByKey(ordinals, keys, size);
+        this.sorted = ordinals;
+        this.keys = keys;
+    }
+
+    @Override
+    protected void inheritContent(StoreIndex previous) {
+        // the arrays are replaced, never modified, by a build, so they can be shared
+        this.sorted = ((RangeIndex) previous).sorted;
+        this.keys = ((RangeIndex) previous).keys;
+    }
+
+    /**
+     * Finds the first position in the index whose value is greater than a bound.
+     *
+     * @param bound the bound, a long so that bounds just below Integer.MIN_VALUE can be expressed
+     * @return the position, indexed if no value is greater
+     */
+    private int firstAbove(long bound) {
+        int low = 0;
+        int high = this.indexed;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (this.keys[mid] <= bound) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,171 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Draws random samples of a set of tracks of a store in a single pass.
+ * A uniform sample is drawn by reservoir sampling with Algorithm L: after the reservoir is filled, the number of
+ * tracks to skip until the next one entering the reservoir is drawn directly, so the tracks skipped are neither drawn
+ * nor read from the store, only counted in the bitmap. A stratified sample keeps a reservoir per group (Algorithm R),
+ * the groups being given dense ids like when aggregating.
+ */
+final class Sampler {
+
+    private Sampler() {
+    }
+
+    /**
+     * Draws a uniform sample without replacement.
+     *
+     * @param store   the store holding the tracks
+     * @param members the ordinals of the tracks
+     * @param n       the number of tracks to draw, positive
+     * @param seed    the seed of the random generator
+     * @return n tracks, or all of them if there are fewer
+     */
+    static TrackSample uniform(TrackStore store, TrackBitmap members, int n, long seed) {
+        Random random = new Random(seed);
+        int population = members.cardinality();
+        int[] reservoir = new int[Math.min(n, population)];
+        int o = members.nextSetBit(0);
+        for (int i = 0; i < reservoir.length; i++, o = members.nextSetBit(o + 1)) {
+            reservoir[i] = o;
+        }
+        if (population > n) {
+            double w = Math.exp(Math.log(uniform(random)) / n);
+            // o is the first track not in the reservoir yet
+            o = advance(members, o, skip(random, w));
+            while (o >= 0) {
+                reservoir[random.nextInt(n)] = o;
+                w *= Math.exp(Math.log(uniform(random)) / n);
+                o = advance(members, o + 1, skip(random, w));
+            }
+        }
+        // keeping the store order makes the sample independent of the replacements
+        Arrays.sort(reservoir);
+        Track[] tracks = new Track[reservoir.length];
+        for (int i = 0; i < reservoir.length; i++) {
+            tracks[i] = store.get(reservoir[i]);
+        }
+        return new TrackSample(tracks, new int[tracks.length], new long[]{population});
+    }
+
+    /**
+     * Draws a stratified sample: a uniform sample without replacement of every group.
+     *
+     * @param store   the store holding the tracks
+     * @param by      the grouping criterion
+     * @param members the ordinals of the tracks
+     * @param n       the number of tracks to draw per group, positive
+     * @param seed    the seed of the random generator
+     * @return n tracks of every group, or all tracks of the groups having fewer
+     */
+    static TrackSample stratified(TrackStore store, MyTrackContainer.GroupBy by, TrackBitmap members, int n,
+                                  long seed) {
+        Random random = new Random(seed);
+        StringDictionary names = by == MyTrackContainer.GroupBy.YEAR ? null : new StringDictionary();
+        IntDictionary years = by == MyTrackContainer.GroupBy.YEAR ? new IntDictionary() : null;
+        int[][] reservoirs = new int[16][];
+        long[] populations = new long[16];
+        int groups = 0;
+        for (int o = members.nextSetBit(0); o >= 0; o = members.nextSetBit(o + 1)) {
+            int group;
+            switch (by) {
+                case WRITER:
+                    group = names.encode(store.writer(o));
+                    break;
+                case PERFORMER:
+                    group = names.encode(store.performer(o));
+                    break;
+                default:
+                    group = years.encode(store.year(o));
+            }
+            if (group == groups) {
+                if (groups == reservoirs.length) {
+                    reservoirs = Arrays.copyOf(reservoirs, groups * 2);
+                    populations = Arrays.copyOf(populations, groups * 2);
+                }
+                reservoirs[groups++] = new int[Math.min(n, 16)];
+            }
+            long seen = populations[group]++;
+            int[] reservoir = reservoirs[group];
+            if (seen < n) {
+                if (seen == reservoir.length) {
+                    reservoir = reservoirs[group] = Arrays.copyOf(reservoir, (int) Math.min(n, seen * 2));
+                }
+                reservoir[(int) seen] = o;
+            } else {
+                long slot = (long) (random.nextDouble() * (seen + 1));
+                if (slot < n) {
+                    reservoir[(int) slot] = o;
+                }
+            }
+        }
+        int size = 0;
+        for (int h = 0; h < groups; h++) {
+            size += (int) Math.min(n, populations[h]);
+        }
+        Track[] tracks = new Track[size];
+        int[] strata = new int[size];
+        int i = 0;
+        for (int h = 0; h < groups; h++) {
+            int[] reservoir = Arrays.copyOf(reservoirs[h], (int) Math.min(n, populations[h]));
+            Arrays.sort(reservoir);
+            for (int ordinal : reservoir) {
+                tracks[i] = store.get(ordinal);
+                strata[i++] = h;
+            }
+        }
+        return new TrackSample(tracks, strata, Arrays.copyOf(populations, groups));
+    }
+
+    /**
+     * @return a uniformly distributed random number greater than 0 and at most 1, so that its logarithm is finite
+     */
+    private static double uniform(Random random) {
+        return 1 - random.nextDouble();
+    }
+
+    /**
+     * Draws the number of tracks Algorithm L skips before the next one enters the reservoir.
+     *
+     * @param w the current threshold of Algorithm L
+     * @return the number of tracks to skip, capped to the largest int
+     */
+    private static int skip(Random random, double w) {
+        double skip = Math.floor(Math.log(uniform(random)) / Math.log(1 - w));
+        return skip < Integer.MAX_VALUE ? (int) skip : Integer.MAX_VALUE;
+    }
+
+    /**
+     * Finds the ordinal a number of contained ordinals after another, skipping whole words by counting their bits.
+     *
+     * @param members the bitmap
+     * @param from    the ordinal to start at
+     * @param skip    the number of contained ordinals from from on to skip
+     * @return the first contained ordinal after the skipped ones, -1 if there is none
+     */
+    private static int advance(TrackBitmap members, int from, int skip) {
+        int i = from >>> 6;
+        if (i >= members.wordCount()) {
+            return -1;
+        }
+        long word = members.word(i) & (-1L << (from & 63));
+        int bits = Long.bitCount(word);
+        while (bits <= skip) {
+            skip -= bits;
+            if (++i >= members.wordCount()) {
+                return -1;
+            }
+            word = members.word(i);
+            bits = Long.bitCount(word);
+        }
+        for (; skip > 0; skip--) {
+            word &= word - 1;
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+}
@@ -0,0 +1,147 @@
+package MusicLandscape.container;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Selections saved under a name, each held as a Selection.State.
+ * A saved selection is a set of tracks, not a filter: it is kept in step with removals from the store by renumbering,
+ * and it never gains tracks.
+ * <p>
+ * Saved selections are written together with a fingerprint of the store, the hash codes of its tracks in ordinal
+ * order. They are only read back into a store with the same fingerprint, i.e. holding the same tracks under the same
+ * ordinals, which is the case when the store was filled from the same file again.
+ */
+class SavedSelections {
+
+    /**
+     * marks the start of written saved selections.
+     */
+    private static final int MAGIC = 0x4D4C5353;
+
+    /**
+     * the store the saved selections refer to.
+     */
+    private final TrackStore store;
+
+    /**
+     * the saved selections by name.
+     */
+    private final Map<String, Selection.State> states;
+
+    /**
+     * Creates an empty set of saved selections.
+     *
+     * @param store the store the selections refer to
+     */
+    SavedSelections(TrackStore store) {
+        this.store = store;
+        this.states = new TreeMap<String, Selection.State>();
+    }
+
+    /**
+     * @param name      the name to save the selection under, replacing a selection saved under that name before
+     * @param selection the selection to save
+     */
+    void save(String name, Selection selection) {
+        this.states.put(name, selection.save());
+    }
+
+    /**
+     * @param name the name of a saved selection
+     * @return the saved selection, null if there is none of that name
+     */
+    Selection.State get(String name) {
+        return this.states.get(name);
+    }
+
+    /**
+     * @param name the name of a saved selection
+     * @return whether there was a selection of that name
+     */
+    boolean delete(String name) {
+        return this.states.remove(name) != null;
+    }
+
+    /**
+     * @return the names of the saved selections, in alphabetical order
+     */
+    Set<String> names() {
+        return Collections.unmodifiableSet(this.states.keySet());
+    }
+
+    /**
+     * @return whether no selection is saved
+     */
+    boolean isEmpty() {
+        return this.states.isEmpty();
+    }
+
+    /**
+     * Carries all saved selections over to the store resulting from removing tracks.
+     *
+     * @param remap the new ordinal of every ordinal, -1 for removed tracks
+     */
+    void remap(int[] remap) {
+        for (Map.Entry<String, Selection.State> entry : this.states.entrySet()) {
+            entry.setValue(entry.getValue().remap(remap));
+        }
+    }
+
+    /**
+     * Writes the fingerprint of the store and all saved selections.
+     *
+     * @param out the output to write to
+     * @throws IOException if writing fails
+     */
+    void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(this.store.size());
+        out.writeInt(this.fingerprint());
+        out.writeInt(this.states.size());
+        for (Map.Entry<String, Selection.State> entry : this.states.entrySet()) {
+            out.writeUTF(entry.getKey());
+            entry.getValue().write(out);
+        }
+    }
+
+    /**
+     * Reads saved selections written by write(out), adding them to these, replacing those of the same name.
+     * Nothing is added unless all of them could be read.
+     *
+     * @param in the input to read from
+     * @return the number of selections read
+     * @throws IOException if reading fails or the selections were written for a store with other tracks
+     */
+    int read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a file of saved selections");
+        }
+        if (in.readInt() != this.store.size() || in.readInt() != this.fingerprint()) {
+            throw new IOException("saved selections refer to other tracks");
+        }
+        int n = in.readInt();
+        Map<String, Selection.State> read = new TreeMap<String, Selection.State>();
+        for (int i = 0; i < n; i++) {
+            read.put(in.readUTF(), Selection.State.read(in, this.store.size()));
+        }
+        this.states.putAll(read);
+        return read.size();
+    }
+
+    /**
+     * @return a hash of the hash codes of the stored tracks in ordinal order
+     */
+    private int fingerprint() {
+        int fingerprint = 1;
+        for (int ordinal = 0; ordinal < this.store.size(); ordinal++) {
+            fingerprint = 31 * fingerprint + this.store.hash(ordinal);
+        }
+        return fingerprint;
+    }
+}
@@ -0,0 +1,663 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.comparators.PerformerComparator;
+import MusicLandscape.util.comparators.TitleComparator;
+import MusicLandscape.util.comparators.WriterComparator;
+import MusicLandscape.util.comparators.YearComparator;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The selected tracks of a container, held as a bitmap over the ordinals of the container's store.
+ * As long as the selection has not been sorted its order is ordinal order, which is the order the bitmap is read in.
+ * Sorting additionally records the sorted ordinals as a permutation, which later filters keep in step.
+ * <p>
+ * Seen from the outside the selection is a read-only list of tracks; each element is obtained from the store when
+ * accessed.
+ */
+class Selection extends AbstractList<Track> {
+
+    /**
+     * the store the ordinals refer to.
+     */
+    private final TrackStore store;
+
+    /**
+     * the selected ordinals.
+     */
+    private final TrackBitmap members;
+
+    /**
+     * the number of selected ordinals.
+     */
+    private int count;
+
+    /**
+     * the selected ordinals in sorted order, null as long as the selection has not been sorted.
+     * Only the first count entries are valid.
+     */
+    private int[] order;
+
+    /**
+     * the selected ordinals in ordinal order, for positional access to an unsorted selection.
+     * Created on demand, null whenever the selection has changed since.
+     */
+    private int[] positions;
+
+    /**
+     * Creates an empty selection.
+     *
+     * @param store the store the selection refers to
+     */
+    Selection(TrackStore store) {
+        this.store = store;
+        this.members = new TrackBitmap();
+    }
+
+    /**
+     * Creates a selection over a successor of the store of another selection, selecting the same tracks.
+     * The successor either holds the same tracks under the same ordinals plus possibly appended ones, or is the
+     * result of removing tracks, in which case remap tells the new ordinal of every old one.
+     *
+     * @param store    the successor store
+     * @param previous the selection to carry over
+     * @param remap    the new ordinal of every ordinal of the previous store, -1 for removed tracks; null if ordinals
+     *                 have not changed
+     */
+    Selection(TrackStore store, Selection previous, int[] remap) {
+        this.store = store;
+        if (remap == null) {
+            this.members = new TrackBitmap(previous.members);
+            this.count = previous.count;
+            this.order = previous.order == null ? null : Arrays.copyOf(previous.order, previous.count);
+            return;
+        }
+        this.members = new TrackBitmap();
+        for (int o = previous.members.nextSetBit(0); o >= 0; o = previous.members.nextSetBit(o + 1)) {
+            if (remap[o] >= 0) {
+                this.members.set(remap[o]);
+                this.count++;
+            }
+        }
+        if (previous.order != null) {
+            this.order = new int[this.count];
+            int kept = 0;
+            for (int i = 0; i < previous.count; i++) {
+                if (remap[previous.order[i]] >= 0) {
+                    this.order[kept++] = remap[previous.order[i]];
+                }
+            }
+        }
+    }
+
+    @Override
+    public Track get(int index) {
+        if (index < 0 || index >= this.count) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + this.count);
+        }
+        return this.store.get(this.ordinalAt(index));
+    }
+
+    @Override
+    public int size() {
+        return this.count;
+    }
+
+    /**
+     * Iterates over the selected tracks in selection order, reading the bitmap directly if unsorted.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Track> iterator() {
+        if (this.order != null) {
+            return super.iterator();
+        }
+        return new Iterator<Track>() {
+            private int next = Selection.this.members.nextSetBit(0);
+
+            @Override
+            public boolean hasNext() {
+                return this.next >= 0;
+            }
+
+            @Override
+            public Track next() {
+                if (this.next < 0) {
+                    throw new NoSuchElementException();
+                }
+                Track track = Selection.this.store.get(this.next);
+                this.next = Selection.this.members.nextSetBit(this.next + 1);
+                return track;
+            }
+        };
+    }
+
+    /**
+     * Gets the ordinal at a position of this selection.
+     *
+     * @param index the position, between 0 and size()-1
+     * @return the ordinal
+     */
+    int ordinalAt(int index) {
+        if (this.order != null) {
+            return this.order[index];
+        }
+        if (this.positions == null) {
+            this.positions = this.toOrdinals();
+        }
+        return this.positions[index];
+    }
+
+    /**
+     * Gets the tracks at a range of positions of this selection.
+     * Only the tracks of the range are obtained from the store. An unsorted selection finds the start of the range by
+     * counting bits a word at a time, without setting up positional access to the whole selection.
+     *
+     * @param from the first position (inclusive)
+     * @param to   the last position (exclusive), at most size()
+     * @return the tracks
+     */
+    Track[] range(int from, int to) {
+        Track[] tracks = new Track[to - from];
+        if (this.order != null || this.positions != null) {
+            for (int i = from; i < to; i++) {
+                tracks[i - from] = this.store.get(this.ordinalAt(i));
+            }
+            return tracks;
+        }
+        int ordinal = this.members.select(from);
+        for (int i = 0; i < tracks.length; i++) {
+            tracks[i] = this.store.get(ordinal);
+            ordinal = this.members.nextSetBit(ordinal + 1);
+        }
+        return tracks;
+    }
+
+    /**
+     * Adds an ordinal to the end of this selection.
+     * Unless the selection is sorted, the ordinal must be greater than all ordinals selected so far.
+     *
+     * @param ordinal the ordinal to select
+     */
+    void select(int ordinal) {
+        if (this.members.get(ordinal)) {
+            return;
+        }
+        this.members.set(ordinal);
+        if (this.order != null) {
+            if (this.count == this.order.length) {
+                this.order = Arrays.copyOf(this.order, this.count * 2 + 1);
+            }
+            this.order[this.count] = ordinal;
+        }
+        this.count++;
+        this.positions = null;
+    }
+
+    /**
+     * Selects all tracks of the store, in ordinal order.
+     */
+    void selectAll() {
+        this.members.fill(this.store.size());
+        this.count = this.store.size();
+        this.order = null;
+        this.positions = null;
+    }
+
+    /**
+     * Empties this selection.
+     */
+    @Override
+    public void clear() {
+        this.members.clear();
+        this.count = 0;
+        this.order = null;
+        this.positions = null;
+    }
+
+    /**
+     * Keeps only the ordinals satisfying a predicate, preserving their order.
+     * The predicate is tested on the bitmap word by word; a sorted order is then compacted to the survivors.
+     *
+     * @param predicate the predicate selected ordinals must satisfy
+     * @return the number of ordinals removed from the selection
+     */
+    int retain(OrdinalPredicate predicate) {
+        int removed = this.members.retain(predicate);
+        this.removed(removed);
+        return removed;
+    }
+
+    /**
+     * Keeps only the ordinals which are also contained in a bitmap, preserving their order.
+     *
+     * @param other the bitmap to intersect with
+     * @return the number of ordinals removed from the selection
+     */
+    int retain(TrackBitmap other) {
+        this.members.and(other);
+        int removed = this.count - this.members.cardinality();
+        this.removed(removed);
+        return removed;
+    }
+
+    /**
+     * Removes the ordinals which are contained in a bitmap, preserving the order of the others.
+     *
+     * @param other the bitmap to subtract
+     * @return the number of ordinals removed from the selection
+     */
+    int discard(TrackBitmap other) {
+        this.members.andNot(other);
+        int removed = this.count - this.members.cardinality();
+        this.removed(removed);
+        return removed;
+    }
+
+    /**
+     * Replaces a selected ordinal by another, which keeps its place in a sorted order. Nothing happens if the ordinal
+     * is not selected.
+     *
+     * @param ordinal     the ordinal to replace
+     * @param replacement the ordinal to select in its place, not selected yet
+     */
+    void replace(int ordinal, int replacement) {
+        if (!this.members.get(ordinal)) {
+            return;
+        }
+        this.members.clear(ordinal);
+        this.members.set(replacement);
+        this.positions = null;
+        if (this.order != null) {
+            for (int i = 0; i < this.count; i++) {
+                if (this.order[i] == ordinal) {
+                    this.order[i] = replacement;
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Carries this selection over to the content of its store after tracks have been removed from it.
+     *
+     * @param remap the new ordinal of every ordinal, -1 for removed tracks
+     */
+    void remap(int[] remap) {
+        this.restore(this.save().remap(remap));
+    }
+
+    /**
+     * Sorts this selection, stably, in ascending or descending order.
+     * DurationComparator and YearComparator only compare an int field, so a selection sorted by them is sorted by a
+     * counting or radix sort over the store's column for that field instead, without any comparator calls.
+     * TitleComparator, WriterComparator and PerformerComparator only compare a string, so only that string is
+     * obtained from the store for every selected track, not the whole track. Any other comparator is used for a
+     * comparison sort of the tracks.
+     *
+     * @param c   the comparator defining the order
+     * @param asc true for ascending, false for descending order
+     */
+    void order(Comparator<Track> c, boolean asc) {
+        Class<?> kind = c.getClass();
+        if (kind == TitleComparator.class || kind == WriterComparator.class || kind == PerformerComparator.class) {
+            this.orderByName(kind, asc);
+            return;
+        }
+        boolean byDuration = kind == DurationComparator.class;
+        if (!byDuration && kind != YearComparator.class) {
+            this.order(asc ? c : Collections.reverseOrder(c));
+            return;
+        }
+        int[] ordinals = this.order != null ? this.order : this.toOrdinals();
+        int[] keys = new int[this.count];
+        for (int i = 0; i < this.count; i++) {
+            int key = byDuration ? this.store.duration(ordinals[i]) : this.store.year(ordinals[i]);
+            // the complement reverses the order of keys, equal keys still keep their order
+            keys[i] = asc ? key : ~key;
+        }
+        OrdinalSort.sortByKey(ordinals, keys, this.count);
+        this.order = ordinals;
+        this.positions = null;
+    }
+
+    /**
+     * Sorts this selection, stably.
+     * Named order rather than sort, which List already defines with a different contract.
+     * Every selected track is obtained from the store exactly once, not once per comparison.
+     *
+     * @param c the comparator defining the order
+     */
+    void order(Comparator<Track> c) {
+        int[] ordinals = this.order != null ? this.order : this.toOrdinals();
+        Track[] tracks = new Track[this.count];
+        int[] sorted = new int[this.count];
+        for (int i = 0; i < this.count; i++) {
+            tracks[i] = this.store.get(ordinals[i]);
+            sorted[i] = i;
+        }
+        OrdinalSort.sort(sorted, this.count, (a, b) -> c.compare(tracks[a], tracks[b]));
+        for (int i = 0; i < this.count; i++) {
+            sorted[i] = ordinals[sorted[i]];
+        }
+        this.order = sorted;
+        this.positions = null;
+    }
+
+    /**
+     * Sorts this selection, stably, by title, writer name or performer name, comparing the strings the way
+     * TitleComparator, WriterComparator and PerformerComparator do.
+     *
+     * @param kind the class of the comparator, deciding which string to compare
+     * @param asc  true for ascending, false for descending order
+     */
+    private void orderByName(Class<?> kind, boolean asc) {
+        int[] ordinals = this.order != null ? this.order : this.toOrdinals();
+        String[] keys = new String[this.count];
+        int[] sorted = new int[this.count];
+        for (int i = 0; i < this.count; i++) {
+            int ordinal = ordinals[i];
+            keys[i] = kind == TitleComparator.class ? this.store.title(ordinal)
+                    : kind == WriterComparator.class ? this.store.writer(ordinal) : this.store.performer(ordinal);
+            sorted[i] = i;
+        }
+        OrdinalSort.sort(sorted, this.count, asc ? (a, b) -> keys[a].compareTo(keys[b])
+                : (a, b) -> keys[b].compareTo(keys[a]));
+        for (int i = 0; i < this.count; i++) {
+            sorted[i] = ordinals[sorted[i]];
+        }
+        this.order = sorted;
+        this.positions = null;
+    }
+
+    /**
+     * Finds the first k tracks this selection would have if it was sorted by a comparator, without sorting it.
+     * The tracks are kept in a heap of at most k entries whose root is the worst of them, so each selected track
+     * costs at most O(log k) comparisons and is obtained from the store exactly once. Ties are decided by position in
+     * the selection, hence the result is exactly what a stable sort would put first.
+     *
+     * @param c the comparator defining the order
+     * @param k the number of tracks to find, not negative
+     * @return the first min(k, size()) tracks, in order
+     */
+    Track[] top(Comparator<Track> c, int k) {
+        int capacity = Math.min(k, this.count);
+        Track[] heap = new Track[capacity];
+        int[] positions = new int[capacity];
+        int size = 0;
+        int position = 0;
+        for (Track track : this) {
+            if (size < capacity) {
+                // sift up
+                int i = size++;
+                while (i > 0 && worse(c, track, position, heap[(i - 1) / 2], positions[(i - 1) / 2])) {
+                    heap[i] = heap[(i - 1) / 2];
+                    positions[i] = positions[(i - 1) / 2];
+                    i = (i - 1) / 2;
+                }
+                heap[i] = track;
+                positions[i] = position;
+            } else if (capacity > 0 && worse(c, heap[0], positions[0], track, position)) {
+                siftDown(c, heap, positions, size, track, position);
+            }
+            position++;
+        }
+        // take the worst out repeatedly, filling the result from the back
+        Track[] result = new Track[size];
+        while (size > 0) {
+            result[size - 1] = heap[0];
+            size--;
+            siftDown(c, heap, positions, size, heap[size], positions[size]);
+        }
+        return result;
+    }
+
+    /**
+     * Saves the members and the order of this selection.
+     *
+     * @return the saved state, independent of later changes of this selection
+     */
+    State save() {
+        return new State(this.members, this.count,
+                this.order == null ? null : Arrays.copyOf(this.order, this.count));
+    }
+
+    /**
+     * Makes this selection select the tracks of a saved state again, in the saved order.
+     * The state must have been saved from a selection over the same store, and no tracks may have been removed from
+     * the store since. The state itself is not modified and can be restored again.
+     *
+     * @param state the state to restore
+     */
+    void restore(State state) {
+        this.members.clear();
+        this.members.or(state.members.toBitmap());
+        this.count = state.count;
+        this.order = state.order == null ? null : state.order.clone();
+        this.positions = null;
+    }
+
+    /**
+     * Gives direct access to the selected ordinals.
+     * The bitmap must not be modified.
+     *
+     * @return the bitmap of selected ordinals
+     */
+    TrackBitmap members() {
+        return this.members;
+    }
+
+    /**
+     * Brings count and order in line with the bitmap after ordinals have been removed from it.
+     *
+     * @param removed the number of ordinals removed from the bitmap
+     */
+    private void removed(int removed) {
+        if (removed == 0) {
+            return;
+        }
+        this.count -= removed;
+        this.positions = null;
+        if (this.order != null) {
+            int kept = 0;
+            for (int i = 0; kept < this.count; i++) {
+                if (this.members.get(this.order[i])) {
+                    this.order[kept++] = this.order[i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Places an entry at the root of a heap whose worst entry is at the root, moving it down to its place.
+     *
+     * @param c         the comparator defining the order
+     * @param heap      the tracks of the heap
+     * @param positions the selection positions of the tracks of the heap
+     * @param size      the number of entries of the heap
+     * @param track     the track to place
+     * @param position  the selection position of the track to place
+     */
+    private static void siftDown(Comparator<Track> c, Track[] heap, int[] positions, int size, Track track,
+                                 int position) {
+        int i = 0;
+        while (2 * i + 1 < size) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && worse(c, heap[child + 1], positions[child + 1], heap[child], positions[child])) {
+                child++;
+            }
+            if (!worse(c, heap[child], positions[child], track, position)) {
+                break;
+            }
+            heap[i] = heap[child];
+            positions[i] = positions[child];
+            i = child;
+        }
+        if (size > 0) {
+            heap[i] = track;
+            positions[i] = position;
+        }
+    }
+
+    /**
+     * Tells whether a track comes after another in sorted order, ties being decided by selection position.
+     */
+    private static boolean worse(Comparator<Track> c, Track a, int positionA, Track b, int positionB) {
+        int cmp = c.compare(a, b);
+        return cmp > 0 || (cmp == 0 && positionA > positionB);
+    }
+
+    /**
+     * @return the selected ordinals in ordinal order
+     */
+    private int[] toOrdinals() {
+        int[] ordinals = new int[this.count];
+        int ordinal = this.members.nextSetBit(0);
+        for (int i = 0; i < this.count; i++) {
+            ordinals[i] = ordinal;
+            ordinal = this.members.nextSetBit(ordinal + 1);
+        }
+        return ordinals;
+    }
+
+    /**
+     * The members and order of a selection at some point in time.
+     * A state is never modified. Its members are compressed, as states are kept around in numbers (by the undo
+     * history and by saved selections) rather than worked on, and mostly select few tracks or ranges of tracks.
+     */
+    static final class State {
+
+        /**
+         * the selected ordinals.
+         */
+        private final CompressedBitmap members;
+
+        /**
+         * the number of selected ordinals.
+         */
+        private final int count;
+
+        /**
+         * the selected ordinals in sorted order, null if the selection was not sorted.
+         */
+        private final int[] order;
+
+        /**
+         * @param members the selected ordinals, which are compressed, so that the bitmap may be modified afterwards
+         */
+        private State(TrackBitmap members, int count, int[] order) {
+            this.members = CompressedBitmap.of(members);
+            this.count = count;
+            this.order = order;
+        }
+
+        /**
+         * Carries this state over to the store resulting from removing tracks.
+         *
+         * @param remap the new ordinal of every ordinal, -1 for removed tracks
+         * @return the state selecting the remaining tracks of this state, in the same order
+         */
+        State remap(int[] remap) {
+            TrackBitmap previous = this.members.toBitmap();
+            TrackBitmap members = new TrackBitmap();
+            int count = 0;
+            for (int o = previous.nextSetBit(0); o >= 0; o = previous.nextSetBit(o + 1)) {
+                if (remap[o] >= 0) {
+                    members.set(remap[o]);
+                    count++;
+                }
+            }
+            int[] order = null;
+            if (this.order != null) {
+                order = new int[count];
+                int kept = 0;
+                for (int o : this.order) {
+                    if (remap[o] >= 0) {
+                        order[kept++] = remap[o];
+                    }
+                }
+            }
+            return new State(members, count, order);
+        }
+
+        /**
+         * Writes this state in the form read(in) reads.
+         *
+         * @param out the output to write to
+         * @throws IOException if writing fails
+         */
+        void write(DataOutput out) throws IOException {
+            out.writeInt(this.count);
+            // written uncompressed, as before states were compressed; trailing empty words are left out
+            TrackBitmap members = this.members.toBitmap();
+            int words = members.wordCount();
+            while (words > 0 && members.word(words - 1) == 0) {
+                words--;
+            }
+            out.writeInt(words);
+            for (int i = 0; i < words; i++) {
+                out.writeLong(members.word(i));
+            }
+            out.writeBoolean(this.order != null);
+            if (this.order != null) {
+                for (int o : this.order) {
+                    out.writeInt(o);
+                }
+            }
+        }
+
+        /**
+         * Reads a state written by write(out).
+         *
+         * @param in   the input to read from
+         * @param size the number of tracks of the store the state refers to
+         * @return the state
+         * @throws IOException if reading fails or the state does not fit a store of size tracks
+         */
+        static State read(DataInput in, int size) throws IOException {
+            int count = in.readInt();
+            int words = in.readInt();
+            if (count < 0 || count > size || words < 0 || words > (size >>> 6) + 1) {
+                throw new IOException("corrupt selection");
+            }
+            TrackBitmap members = new TrackBitmap();
+            for (int i = 0; i < words; i++) {
+                members.setWord(i, in.readLong());
+            }
+            if (members.cardinality() != count || members.nextSetBit(size) >= 0) {
+                throw new IOException("corrupt selection");
+            }
+            int[] order = null;
+            if (in.readBoolean()) {
+                order = new int[count];
+                TrackBitmap seen = new TrackBitmap();
+                for (int i = 0; i < count; i++) {
+                    order[i] = in.readInt();
+                    if (order[i] < 0 || order[i] >= size || !members.get(order[i]) || seen.get(order[i])) {
+                        throw new IOException("corrupt selection");
+                    }
+                    seen.set(order[i]);
+                }
+            }
+            return new State(members, count, order);
+        }
+
+        /**
+         * @return the approximate number of bytes this state occupies
+         */
+        long bytes() {
+            return this.members.bytes() + (this.order == null ? 0 : 4L * this.order.length) + 64;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+package MusicLandscape.container;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * The states a selection had before its recent changes, for undo, and the states undone, for redo.
+ * States are saved as bitmaps (plus the order of sorted selections), so saving and restoring a state takes time in
+ * the number of tracks divided by 64, plus the number of selected tracks if the selection is sorted.
+ * <p>
+ * The states held occupy at most capacity bytes; the oldest states are dropped when this is exceeded.
+ */
+class SelectionHistory {
+
+    /**
+     * the default for capacity, 16 MiB.
+     */
+    static final long DEFAULT_CAPACITY = 16L << 20;
+
+    /**
+     * the states before the recent changes, the latest first.
+     */
+    private final Deque<Selection.State> undo;
+
+    /**
+     * the undone states, the latest first.
+     */
+    private final Deque<Selection.State> redo;
+
+    /**
+     * the maximum number of bytes occupied by the states held.
+     */
+    private long capacity;
+
+    /**
+     * the number of bytes occupied by the states held.
+     */
+    private long bytes;
+
+    /**
+     * Creates an empty history with the default capacity.
+     */
+    SelectionHistory() {
+        this.undo = new ArrayDeque<Selection.State>();
+        this.redo = new ArrayDeque<Selection.State>();
+        this.capacity = DEFAULT_CAPACITY;
+    }
+
+    /**
+     * Saves the state of a selection which is about to change. The undone states can no longer be redone.
+     *
+     * @param selection the selection
+     */
+    void record(Selection selection) {
+        for (Selection.State state : this.redo) {
+            this.bytes -= state.bytes();
+        }
+        this.redo.clear();
+        this.push(this.undo, selection.save());
+        this.evict();
+    }
+
+    /**
+     * Restores the state a selection had before its latest recorded change, if there is one.
+     *
+     * @param selection the selection
+     * @return whether a state was restored
+     */
+    boolean undo(Selection selection) {
+        return this.move(this.undo, this.redo, selection);
+    }
+
+    /**
+     * Restores the state a selection had before its latest undo, if there is one.
+     *
+     * @param selection the selection
+     * @return whether a state was restored
+     */
+    boolean redo(Selection selection) {
+        return this.move(this.redo, this.undo, selection);
+    }
+
+    /**
+     * Drops all states.
+     */
+    void clear() {
+        this.undo.clear();
+        this.redo.clear();
+        this.bytes = 0;
+    }
+
+    /**
+     * Carries all states over to the store resulting from removing tracks.
+     *
+     * @param remap the new ordinal of every ordinal, -1 for removed tracks
+     */
+    void remap(int[] remap) {
+        this.bytes = 0;
+        for (Deque<Selection.State> stack : Arrays.asList(this.undo, this.redo)) {
+            List<Selection.State> states = new ArrayList<Selection.State>(stack.size());
+            for (Selection.State state : stack) {
+                states.add(state.remap(remap));
+            }
+            stack.clear();
+            for (Selection.State state : states) {
+                stack.addLast(state);
+                this.bytes += state.bytes();
+            }
+        }
+        this.evict();
+    }
+
+    /**
+     * @return the maximum number of bytes occupied by the states held
+     */
+    long getCapacity() {
+        return this.capacity;
+    }
+
+    /**
+     * Sets the maximum number of bytes occupied by the states held, dropping the oldest states if necessary.
+     *
+     * @param capacity the maximum number of bytes, 0 to hold no states at all
+     */
+    void setCapacity(long capacity) {
+        this.capacity = capacity;
+        this.evict();
+    }
+
+    /**
+     * Restores the latest state of one stack, saving the current state on the other.
+     */
+    private boolean move(Deque<Selection.State> from, Deque<Selection.State> to, Selection selection) {
+        if (from.isEmpty()) {
+            return false;
+        }
+        Selection.State state = from.pop();
+        this.bytes -= state.bytes();
+        this.push(to, selection.save());
+        selection.restore(state);
+        this.evict();
+        return true;
+    }
+
+    private void push(Deque<Selection.State> stack, Selection.State state) {
+        stack.push(state);
+        this.bytes += state.bytes();
+    }
+
+    /**
+     * Drops the oldest states until the states held fit into the capacity: undo states first, the states farthest
+     * from the current one first.
+     */
+    private void evict() {
+        while (this.bytes > this.capacity && !this.undo.isEmpty()) {
+            this.bytes -= this.undo.removeLast().bytes();
+        }
+        while (this.bytes > this.capacity && !this.redo.isEmpty()) {
+            this.bytes -= this.redo.removeLast().bytes();
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package MusicLandscape.container;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.BiConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Sketches a set of tracks of a store in a single pass.
+ * Like aggregating, sketching splits large sets of tracks into chunks which are sketched in parallel, and merges the
+ * sketches of the chunks.
+ */
+final class Sketches {
+
+    private Sketches() {
+    }
+
+    /**
+     * Sketches the distinct values of a grouping criterion among a set of tracks.
+     *
+     * @param store     the store holding the tracks
+     * @param by        the criterion whose values are counted
+     * @param members   the ordinals of the tracks
+     * @param error     the relative standard error of the sketch
+     * @param threshold the number of tracks from which on the tracks are sketched on several threads
+     * @return the sketch
+     */
+    static DistinctSketch distinct(TrackStore store, MyTrackContainer.GroupBy by, TrackBitmap members, double error,
+                                   int threshold) {
+        ObjIntConsumer<DistinctSketch> add;
+        switch (by) {
+            case WRITER:
+                add = (sketch, ordinal) -> sketch.add(store.writer(ordinal));
+                break;
+            case PERFORMER:
+                add = (sketch, ordinal) -> sketch.add(store.performer(ordinal));
+                break;
+            default:
+                add = (sketch, ordinal) -> sketch.add(store.year(ordinal));
+        }
+        return sketch(members, () -> new DistinctSketch(error), add, DistinctSketch::merge, threshold);
+    }
+
+    /**
+     * Sketches the durations of a set of tracks.
+     *
+     * @param store     the store holding the tracks
+     * @param members   the ordinals of the tracks
+     * @param error     the rank error of the sketch
+     * @param threshold the number of tracks from which on the tracks are sketched on several threads
+     * @return the sketch
+     */
+    static QuantileSketch durations(TrackStore store, TrackBitmap members, double error, int threshold) {
+        ObjIntConsumer<QuantileSketch> add = (sketch, ordinal) -> sketch.add(store.duration(ordinal));
+        return sketch(members, () -> new QuantileSketch(error), add, QuantileSketch::merge, threshold);
+    }
+
+    /**
+     * Sketches a set of tracks, in parallel if there are many of them.
+     */
+    private static <S> S sketch(TrackBitmap members, Supplier<S> create, ObjIntConsumer<S> add, BiConsumer<S, S> merge,
+                                int threshold) {
+        SketchTask<S> task = new SketchTask<S>(members, create, add, merge, 0, members.wordCount());
+        return members.cardinality() >= threshold ? ForkJoinPool.commonPool().invoke(task) : task.compute();
+    }
+
+    /**
+     * Sketches a range of words of a bitmap, splitting it in halves until the chunks are small enough and merging
+     * the sketches of the halves.
+     */
+    private static class SketchTask<S> extends RecursiveTask<S> {
+
+        /**
+         * tasks are never serialized, but RecursiveTask is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the number of words (64 ordinals each) below which a chunk is not split further.
+         */
+        private static final int CHUNK_WORDS = 256;
+
+        private final TrackBitmap members;
+
+        private final Supplier<S> create;
+
+        private final ObjIntConsumer<S> add;
+
+        private final BiConsumer<S, S> merge;
+
+        private final int from;
+
+        private final int to;
+
+        SketchTask(TrackBitmap members, Supplier<S> create, ObjIntConsumer<S> add, BiConsumer<S, S> merge, int from,
+                   int to) {
+            this.members = members;
+            this.create = create;
+            this.add = add;
+            this.merge = merge;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected S compute() {
+            if (this.to - this.from <= CHUNK_WORDS || !inForkJoinPool()) {
+                S sketch = this.create.get();
+                int end = this.to << 6;
+                int o = this.members.nextSetBit(this.from << 6);
+                for (; o >= 0 && o < end; o = this.members.nextSetBit(o + 1)) {
+                    this.add.accept(sketch, o);
+                }
+                return sketch;
+            }
+            int mid = (this.from + this.to) >>> 1;
+            SketchTask<S> left = new SketchTask<S>(this.members, this.create, this.add, this.merge, this.from, mid);
+            left.fork();
+            S sketch = new SketchTask<S>(this.members, this.create, this.add, this.merge, mid, this.to).compute();
+            S other = left.join();
+            this.merge.accept(other, sketch);
+            return other;
+        }
+    }
+}
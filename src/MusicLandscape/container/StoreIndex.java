@@ -0,0 +1,99 @@
+package MusicLandscape.container;
+
+/**
+ * Base class of the indexes a container keeps over its store.
+ * An index covers the ordinals the store held when it was last built. Tracks appended since then form an unindexed
+ * tail which lookups check by a linear scan. The index is rebuilt once the tail grows too long, or as soon as the
+ * store version changes, i.e. when stored tracks have been modified or renumbered.
+ * <p>
+ * Lookups may be run from several threads as long as the store is not modified meanwhile: building is synchronized,
+ * and an index over an unmodified store is built at most once.
+ */
+abstract class StoreIndex {
+
+    /**
+     * the minimum number of unindexed tracks that triggers a rebuild.
+     */
+    private static final int MIN_TAIL = 1024;
+
+    /**
+     * the store the ordinals refer to.
+     */
+    protected final TrackStore store;
+
+    /**
+     * the number of ordinals covered by the index, these are the ordinals 0 to indexed-1.
+     */
+    protected int indexed;
+
+    /**
+     * the store version the index was built for, -1 if it has never been built.
+     */
+    private int version;
+
+    /**
+     * Creates an index over a store. The index is built on first use.
+     *
+     * @param store the store holding the tracks
+     */
+    StoreIndex(TrackStore store) {
+        this.store = store;
+        this.version = -1;
+    }
+
+    /**
+     * Rebuilds the index if the store has been modified or too many tracks have been appended since the last build.
+     * Must be called at the start of every lookup.
+     */
+    protected synchronized void ensureCurrent() {
+        int size = this.store.size();
+        if (this.version == this.store.version() && size - this.indexed < Math.max(MIN_TAIL, this.indexed / 8)) {
+            return;
+        }
+        this.build(size);
+        this.indexed = size;
+        this.version = this.store.version();
+    }
+
+    /**
+     * Takes over the content of an index over another store.
+     * Meant for an index over a copy of that store, to which tracks may have been appended: the content remains
+     * valid for the ordinals it covers, and the appended tracks form the unindexed tail.
+     *
+     * @param previous the index to take over from
+     */
+    void inherit(StoreIndex previous) {
+        synchronized (previous) {
+            this.indexed = previous.indexed;
+            this.version = previous.version;
+            this.inheritContent(previous);
+        }
+    }
+
+    /**
+     * Takes over the index content of another index of the same kind, not the covered range or version.
+     *
+     * @param previous the index to take over from
+     */
+    protected abstract void inheritContent(StoreIndex previous);
+
+    /**
+     * Extrapolates a number of matches among the indexed ordinals to the whole store, unindexed tail included.
+     *
+     * @param indexedMatches the number of indexed ordinals matching
+     * @return the estimated number of matching tracks in the store
+     */
+    protected int extrapolate(int indexedMatches) {
+        if (this.indexed == 0) {
+            return this.store.size();
+        }
+        return (int) ((long) indexedMatches * this.store.size() / this.indexed);
+    }
+
+    /**
+     * Builds the index over the ordinals 0 to size-1, replacing the previous content.
+     *
+     * @param size the number of ordinals to cover
+     */
+    protected abstract void build(int size);
+}
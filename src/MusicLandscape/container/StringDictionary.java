@@ -0,0 +1,173 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+
+/**
+ * Encodes strings as dense integer ids and decodes them back.
+ * Every distinct string (null included) is stored exactly once, its id being the order in which it was first encoded.
+ * Lookups go through an open-addressing hash table of ids, so no entry or boxed objects are created per string.
+ */
+class StringDictionary {
+
+    /**
+     * the id returned by find() for strings which are not contained.
+     */
+    static final int NO_ID = -1;
+
+    /**
+     * the strings of this dictionary, indexed by id.
+     */
+    private String[] values;
+
+    /**
+     * open-addressing hash table holding ids, NO_ID marks an empty slot. Its length is always a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the number of strings in this dictionary.
+     */
+    private int count;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    StringDictionary() {
+        this.values = new String[16];
+        this.table = new int[32];
+        Arrays.fill(this.table, NO_ID);
+    }
+
+    /**
+     * Creates a copy of a dictionary. The copy assigns the same ids as the original.
+     *
+     * @param other the dictionary to copy
+     */
+    StringDictionary(StringDictionary other) {
+        this.values = other.values.clone();
+        this.table = other.table.clone();
+        this.count = other.count;
+    }
+
+    /**
+     * Creates a view of the strings of a dictionary.
+     *
+     * @param values the strings of the dictionary
+     * @param count  the number of strings
+     */
+    private StringDictionary(String[] values, int count) {
+        this.values = values;
+        this.count = count;
+    }
+
+    /**
+     * Creates a read-only view of the strings encoded so far, for a view of a store (see TrackStore.view()).
+     * The view shares the strings with this dictionary, which encoding further strings leaves untouched. Only
+     * decode() and size() may be called on the view.
+     *
+     * @return the view
+     */
+    StringDictionary view() {
+        return new StringDictionary(this.values, this.count);
+    }
+
+    /**
+     * Gets the id of a string, adding the string to this dictionary if it is not yet contained.
+     *
+     * @param s the string to encode, may be null
+     * @return the id of the string
+     */
+    int encode(String s) {
+        int slot = this.slotOf(s);
+        if (this.table[slot] != NO_ID) {
+            return this.table[slot];
+        }
+        if (this.count == this.values.length) {
+            this.values = Arrays.copyOf(this.values, this.count * 2);
+        }
+        int id = this.count++;
+        this.values[id] = s;
+        this.table[slot] = id;
+        if (this.count * 2 > this.table.length) {
+            this.rehash(this.table.length * 2);
+        }
+        return id;
+    }
+
+    /**
+     * Gets the id of a string without adding it.
+     *
+     * @param s the string to look up, may be null
+     * @return the id of the string, NO_ID if it is not contained
+     */
+    int find(String s) {
+        return this.table[this.slotOf(s)];
+    }
+
+    /**
+     * Gets the string with a certain id.
+     *
+     * @param id the id of the string, must have been returned by encode()
+     * @return the string
+     */
+    String decode(int id) {
+        return this.values[id];
+    }
+
+    /**
+     * The number of distinct strings in this dictionary.
+     *
+     * @return the number of strings
+     */
+    int size() {
+        return this.count;
+    }
+
+    /**
+     * Finds the slot that holds the id of a string, or the empty slot where it would be inserted.
+     *
+     * @param s the string to look for
+     * @return the slot index
+     */
+    private int slotOf(String s) {
+        int mask = this.table.length - 1;
+        int slot = hash(s) & mask;
+        while (this.table[slot] != NO_ID) {
+            String candidate = this.values[this.table[slot]];
+            if (candidate == null ? s == null : candidate.equals(s)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Rebuilds the hash table with a new length.
+     *
+     * @param length the new table length, a power of two
+     */
+    private void rehash(int length) {
+        this.table = new int[length];
+        Arrays.fill(this.table, NO_ID);
+        int mask = length - 1;
+        for (int id = 0; id < this.count; id++) {
+            int slot = hash(this.values[id]) & mask;
+            while (this.table[slot] != NO_ID) {
+                slot = (slot + 1) & mask;
+            }
+            this.table[slot] = id;
+        }
+    }
+
+    /**
+     * Spreads the hash code of a string so that linear probing does not cluster on the low bits.
+     *
+     * @param s the string, may be null
+     * @return the spread hash code
+     */
+    static int hash(String s) {
+        int h = (s == null ? 0 : s.hashCode()) * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,197 @@
+package MusicLandscape.container;
+
+import MusicLandscape.util.matcher.TitleTermMatcher;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An inverted index answering "which tracks have a string field containing given terms".
+ * The field of every track is split into terms as TitleTermMatcher does. Every term maps to its posting list, the
+ * sorted array of the ordinals whose field contains the term. A query is answered per alternative by intersecting the
+ * posting lists of its terms, shortest first, each further list being searched by galloping from the last match. The
+ * tracks of the intersection are then checked for the order of the terms within phrases. A lookup therefore costs
+ * time in proportion to the posting lists involved, not to the number of tracks.
+ */
+class TermIndex extends StoreIndex {
+
+    /**
+     * the posting list of terms no track contains.
+     */
+    private static final int[] NONE = new int[0];
+
+    /**
+     * the indexed field.
+     */
+    private final PrefixIndex.Field field;
+
+    /**
+     * the posting list of every term, sorted ascending.
+     */
+    private Map<String, int[]> postings;
+
+    /**
+     * Creates an index over a field of a store. The index is built on first use.
+     *
+     * @param store the store holding the tracks
+     * @param field the field to index
+     */
+    TermIndex(TrackStore store, PrefixIndex.Field field) {
+        super(store);
+        this.field = field;
+        this.postings = new HashMap<String, int[]>();
+    }
+
+    /**
+     * Finds the tracks whose field matches a query.
+     *
+     * @param matcher the matcher holding the query, with a pattern
+     * @return the ordinals of all matching tracks
+     */
+    TrackBitmap lookup(TitleTermMatcher matcher) {
+        this.ensureCurrent();
+        TrackBitmap matches = new TrackBitmap();
+        for (List<List<String>> alternative : matcher.getQuery()) {
+            if (alternative.isEmpty()) {
+                matches.fill(this.indexed);
+                break;
+            }
+            int[] candidates = this.intersect(alternative);
+            boolean phrases = false;
+            for (List<String> phrase : alternative) {
+                phrases |= phrase.size() > 1;
+            }
+            for (int i = 0; i < candidates.length; i++) {
+                // single terms need no check, the intersection holds exactly the tracks containing all of them
+                if (!phrases || matcher.matches(this.field.of(candidates[i]))) {
+                    matches.set(candidates[i]);
+                }
+            }
+        }
+        int size = this.store.size();
+        for (int ordinal = this.indexed; ordinal < size; ordinal++) {
+            if (matcher.matches(this.field.of(ordinal))) {
+                matches.set(ordinal);
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Estimates the number of tracks whose field matches a query, without collecting them.
+     * Every alternative is bounded by its shortest posting list; the unindexed tail is extrapolated.
+     *
+     * @param matcher the matcher holding the query, with a pattern
+     * @return the estimated number of matching tracks, an upper bound for the indexed tracks
+     */
+    int count(TitleTermMatcher matcher) {
+        this.ensureCurrent();
+        long count = 0;
+        for (List<List<String>> alternative : matcher.getQuery()) {
+            int shortest = this.indexed;
+            for (List<String> phrase : alternative) {
+                for (String term : phrase) {
+                    shortest = Math.min(shortest, this.postings.getOrDefault(term, NONE).length);
+                }
+            }
+            count += shortest;
+        }
+        return this.extrapolate((int) Math.min(count, this.indexed));
+    }
+
+    @Override
+    protected void build(int size) {
+        // while building, the first element of a list holds its length
+        Map<String, int[]> lists = new HashMap<String, int[]>();
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            for (String term : TitleTermMatcher.terms(this.field.of(ordinal))) {
+                int[] list = lists.get(term);
+                if (list == null) {
+                    list = new int[4];
+                } else if (list[list[0]] == ordinal) {
+                    // repeated within the same field
+                    continue;
+                } else if (list[0] + 1 == list.length) {
+                    list = Arrays.copyOf(list, list.length * 2);
+                }
+                list[++list[0]] = ordinal;
+                lists.put(term, list);
+            }
+        }
+        for (Map.Entry<String, int[]> e : lists.entrySet()) {
+            e.setValue(Arrays.copyOfRange(e.getValue(), 1, e.getValue()[0] + 1));
+        }
+        this.postings = lists;
+    }
+
+    @Override
+    protected void inheritContent(StoreIndex previous) {
+        // the map is replaced, never modified, by a build, so it can be shared
+        this.postings = ((TermIndex) previous).postings;
+    }
+
+    /**
+     * Intersects the posting lists of all terms of an alternative.
+     *
+     * @param alternative the phrases of the alternative, at least one
+     * @return the ordinals contained in all lists, ascending
+     */
+    private int[] intersect(List<List<String>> alternative) {
+        List<int[]> lists = new ArrayList<int[]>();
+        for (List<String> phrase : alternative) {
+            for (String term : phrase) {
+                lists.add(this.postings.getOrDefault(term, NONE));
+            }
+        }
+        lists.sort(Comparator.comparingInt(list -> list.length));
+        int[] result = lists.get(0).clone();
+        int n = result.length;
+        for (int l = 1; l < lists.size() && n > 0; l++) {
+            int[] list = lists.get(l);
+            int kept = 0;
+            int from = 0;
+            for (int i = 0; i < n && from < list.length; i++) {
+                from = gallop(list, from, result[i]);
+                if (from < list.length && list[from] == result[i]) {
+                    result[kept++] = result[i];
+                }
+            }
+            n = kept;
+        }
+        return Arrays.copyOf(result, n);
+    }
+
+    /**
+     * Finds the first position from a given one on holding a value not less than a key, probing positions at
+     * exponentially growing distances before searching binary.
+     *
+     * @param list the sorted list
+     * @param from the position to start at
+     * @param key  the key
+     * @return the position, list.length if all values from from on are less
+     */
+    private static int gallop(int[] list, int from, int key) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < list.length && list[high] < key) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        high = Math.min(high, list.length);
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (list[mid] < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,343 @@
+package MusicLandscape.container;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A set of ordinals, stored as one bit per ordinal in an array of 64-bit words.
+ * Bulk operations (fill, intersection, difference, counting) work a whole word at a time.
+ * <p>
+ * The bitmap is deliberately not compressed: selections are filtered, intersected and iterated all the time, and with
+ * 5 million stored tracks a bitmap takes about 625 KB, which is scanned word by word without branching on the form of
+ * a chunk. Selections which are kept around instead of worked on, such as undo states, are compressed into a
+ * CompressedBitmap.
+ */
+class TrackBitmap {
+
+    /**
+     * the bits of this bitmap, ordinal o being bit (o % 64) of word (o / 64).
+     */
+    private long[] words;
+
+    /**
+     * Creates an empty bitmap.
+     */
+    TrackBitmap() {
+        this.words = new long[1];
+    }
+
+    /**
+     * Creates a copy of a bitmap.
+     *
+     * @param other the bitmap to copy
+     */
+    TrackBitmap(TrackBitmap other) {
+        this.words = other.words.clone();
+    }
+
+    /**
+     * Creates a bitmap of given words.
+     *
+     * @param words the bits of the bitmap, at least one word, which are used without copying
+     */
+    TrackBitmap(long[] words) {
+        this.words = words;
+    }
+
+    /**
+     * @param ordinal the ordinal to test
+     * @return whether the ordinal is contained
+     */
+    boolean get(int ordinal) {
+        int word = ordinal >>> 6;
+        return word < this.words.length && (this.words[word] & (1L << ordinal)) != 0;
+    }
+
+    /**
+     * Adds an ordinal.
+     *
+     * @param ordinal the ordinal to add
+     */
+    void set(int ordinal) {
+        int word = ordinal >>> 6;
+        if (word >= this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(word + 1, this.words.length * 2));
+        }
+        this.words[word] |= 1L << ordinal;
+    }
+
+    /**
+     * Removes an ordinal.
+     *
+     * @param ordinal the ordinal to remove
+     */
+    void clear(int ordinal) {
+        int word = ordinal >>> 6;
+        if (word < this.words.length) {
+            this.words[word] &= ~(1L << ordinal);
+        }
+    }
+
+    /**
+     * Removes all ordinals.
+     */
+    void clear() {
+        Arrays.fill(this.words, 0L);
+    }
+
+    /**
+     * Makes this bitmap contain exactly the ordinals 0 to n-1.
+     *
+     * @param n the number of ordinals
+     */
+    void fill(int n) {
+        int full = n >>> 6;
+        if (this.words.length <= full) {
+            this.words = new long[full + 1];
+        }
+        Arrays.fill(this.words, 0, full, -1L);
+        Arrays.fill(this.words, full, this.words.length, 0L);
+        if ((n & 63) != 0) {
+            this.words[full] = (1L << n) - 1;
+        }
+    }
+
+    /**
+     * Keeps only the ordinals also contained in another bitmap.
+     *
+     * @param other the bitmap to intersect with
+     */
+    void and(TrackBitmap other) {
+        int common = Math.min(this.words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            this.words[i] &= other.words[i];
+        }
+        Arrays.fill(this.words, common, this.words.length, 0L);
+    }
+
+    /**
+     * Removes the ordinals contained in another bitmap.
+     *
+     * @param other the bitmap to subtract
+     */
+    void andNot(TrackBitmap other) {
+        int common = Math.min(this.words.length, other.words.length);
+        for (int i = 0; i < common; i++) {
+            this.words[i] &= ~other.words[i];
+        }
+    }
+
+    /**
+     * Adds the ordinals contained in another bitmap.
+     *
+     * @param other the bitmap to unite with
+     */
+    void or(TrackBitmap other) {
+        if (this.words.length < other.words.length) {
+            this.words = Arrays.copyOf(this.words, other.words.length);
+        }
+        for (int i = 0; i < other.words.length; i++) {
+            this.words[i] |= other.words[i];
+        }
+    }
+
+    /**
+     * Keeps only the ordinals satisfying a predicate.
+     * Words without any ordinal are skipped without testing.
+     *
+     * @param predicate the predicate ordinals must satisfy
+     * @return the number of removed ordinals
+     */
+    int retain(OrdinalPredicate predicate) {
+        return this.retain(predicate, 0, this.words.length);
+    }
+
+    /**
+     * Keeps only the ordinals satisfying a predicate, testing them on several threads.
+     * The words of the bitmap are split into chunks which are processed as fork/join tasks. Each task only writes the
+     * words of its own chunk, so the result is the same as that of retain(predicate). The predicate must be safe to
+     * call from several threads at once.
+     *
+     * @param predicate the predicate ordinals must satisfy
+     * @param pool      the pool to run the tasks in
+     * @return the number of removed ordinals
+     */
+    int retain(OrdinalPredicate predicate, ForkJoinPool pool) {
+        return pool.invoke(new RetainTask(predicate, 0, this.words.length));
+    }
+
+    /**
+     * Keeps only the ordinals of a range of words satisfying a predicate.
+     *
+     * @param predicate the predicate ordinals must satisfy
+     * @param from      the first word (inclusive)
+     * @param to        the last word (exclusive)
+     * @return the number of removed ordinals
+     */
+    private int retain(OrdinalPredicate predicate, int from, int to) {
+        int removed = 0;
+        for (int i = from; i < to; i++) {
+            long word = this.words[i];
+            long kept = word;
+            while (word != 0) {
+                long bit = word & -word;
+                if (!predicate.test((i << 6) + Long.numberOfTrailingZeros(bit))) {
+                    kept ^= bit;
+                    removed++;
+                }
+                word ^= bit;
+            }
+            this.words[i] = kept;
+        }
+        return removed;
+    }
+
+    /**
+     * @return the number of words of this bitmap, all contained ordinals are less than 64 times this number
+     */
+    int wordCount() {
+        return this.words.length;
+    }
+
+    /**
+     * @param i the index of a word, less than wordCount()
+     * @return the word, holding the ordinals 64*i to 64*i+63
+     */
+    long word(int i) {
+        return this.words[i];
+    }
+
+    /**
+     * Replaces a word, growing the bitmap if necessary.
+     *
+     * @param i    the index of the word
+     * @param word the new word, holding the ordinals 64*i to 64*i+63
+     */
+    void setWord(int i, long word) {
+        if (i >= this.words.length) {
+            this.words = Arrays.copyOf(this.words, Math.max(i + 1, this.words.length * 2));
+        }
+        this.words[i] = word;
+    }
+
+    /**
+     * Tells how ordinals are renumbered when the contained ones are removed, the way TrackStore.compact() does.
+     *
+     * @param size the number of ordinals before removal
+     * @return the new ordinal of every ordinal less than size, -1 for contained ones
+     */
+    int[] remap(int size) {
+        int[] remap = new int[size];
+        int kept = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            remap[ordinal] = this.get(ordinal) ? -1 : kept++;
+        }
+        return remap;
+    }
+
+    /**
+     * @return the number of contained ordinals
+     */
+    int cardinality() {
+        int cardinality = 0;
+        for (long word : this.words) {
+            cardinality += Long.bitCount(word);
+        }
+        return cardinality;
+    }
+
+    /**
+     * @return whether no ordinal is contained
+     */
+    boolean isEmpty() {
+        for (long word : this.words) {
+            if (word != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Finds the next contained ordinal.
+     *
+     * @param from the ordinal to start looking at (inclusive)
+     * @return the smallest contained ordinal not less than from, -1 if there is none
+     */
+    int nextSetBit(int from) {
+        int i = from >>> 6;
+        if (i >= this.words.length) {
+            return -1;
+        }
+        long word = this.words[i] & (-1L << from);
+        while (word == 0) {
+            if (++i == this.words.length) {
+                return -1;
+            }
+            word = this.words[i];
+        }
+        return (i << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    /**
+     * Finds the contained ordinal of a given rank, skipping whole words by counting their bits.
+     *
+     * @param rank the number of contained ordinals less than the one to find
+     * @return the ordinal, -1 if fewer than rank+1 ordinals are contained
+     */
+    int select(int rank) {
+        for (int i = 0; i < this.words.length; i++) {
+            int bits = Long.bitCount(this.words[i]);
+            if (rank < bits) {
+                long word = this.words[i];
+                for (; rank > 0; rank--) {
+                    word &= word - 1;
+                }
+                return (i << 6) + Long.numberOfTrailingZeros(word);
+            }
+            rank -= bits;
+        }
+        return -1;
+    }
+
+    /**
+     * Applies retain() to a range of words, splitting it in halves until the chunks are small enough.
+     */
+    private class RetainTask extends RecursiveTask<Integer> {
+
+        /**
+         * tasks are never serialized, but RecursiveTask is Serializable.
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * the number of words (64 ordinals each) below which a chunk is not split further.
+         */
+        private static final int CHUNK_WORDS = 256;
+
+        private final OrdinalPredicate predicate;
+
+        private final int from;
+
+        private final int to;
+
+        RetainTask(OrdinalPredicate predicate, int from, int to) {
+            this.predicate = predicate;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Integer compute() {
+            if (this.to - this.from <= CHUNK_WORDS) {
+                return TrackBitmap.this.retain(this.predicate, this.from, this.to);
+            }
+            int mid = (this.from + this.to) >>> 1;
+            RetainTask left = new RetainTask(this.predicate, this.from, mid);
+            left.fork();
+            int removed = new RetainTask(this.predicate, mid, this.to).compute();
+            return removed + left.join();
+        }
+    }
+}
@@ -0,0 +1,256 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+
+import java.util.Arrays;
+
+/**
+ * Finds the ordinal of a stored track equal to a given track in O(1).
+ * The index is an open-addressing hash table of ordinals with linear probing. The hash code of every stored track is
+ * kept by ordinal, so probing compares ints first and only calls back into the store for equal hash codes, and
+ * growing or compacting the table never recomputes a hash code.
+ * <p>
+ * Ordinals removed by bury() leave a hole in the ordinals: they are kept out of the table, also when it grows, until
+ * compact() renumbers the remaining ordinals.
+ */
+class TrackHashIndex {
+
+    /**
+     * Tells whether a stored track equals a given track.
+     */
+    interface Equality {
+
+        /**
+         * @param ordinal the ordinal of the stored track
+         * @param t       the track to compare to
+         * @return whether the stored track equals t
+         */
+        boolean test(int ordinal, Track t);
+    }
+
+    /**
+     * marks an empty slot of the table.
+     */
+    private static final int EMPTY = -1;
+
+    /**
+     * the hash code of each indexed track, by ordinal.
+     */
+    private int[] hashes;
+
+    /**
+     * the table of ordinals, EMPTY for empty slots. Its length is always a power of two.
+     */
+    private int[] table;
+
+    /**
+     * the number of ordinals in the table.
+     */
+    private int count;
+
+    /**
+     * the number of ordinals added, buried ones included; all ordinals in the table are less than this.
+     */
+    private int bound;
+
+    /**
+     * the ordinals removed by bury() since the last compaction.
+     */
+    private final TrackBitmap buried;
+
+    /**
+     * Creates an empty index.
+     */
+    TrackHashIndex() {
+        this.hashes = new int[16];
+        this.table = new int[32];
+        Arrays.fill(this.table, EMPTY);
+        this.buried = new TrackBitmap();
+    }
+
+    /**
+     * Creates a copy of an index.
+     *
+     * @param other the index to copy
+     */
+    TrackHashIndex(TrackHashIndex other) {
+        this.hashes = other.hashes.clone();
+        this.table = other.table.clone();
+        this.count = other.count;
+        this.bound = other.bound;
+        this.buried = new TrackBitmap(other.buried);
+    }
+
+    /**
+     * Creates a view of the hash codes of an index, for a view of its store (see TrackStore.view()).
+     * The view shares the hash codes of the ordinals added so far, which adding further ordinals or burying ordinals
+     * leaves untouched. It has no table, so it cannot find, add or remove anything.
+     *
+     * @param hashes the hash codes of the index
+     * @param bound  the number of ordinals added to the index
+     */
+    private TrackHashIndex(int[] hashes, int bound) {
+        this.hashes = hashes;
+        this.bound = bound;
+        this.buried = null;
+    }
+
+    /**
+     * Creates a read-only view of this index, which only gives the hash codes of the ordinals added so far.
+     *
+     * @return the view
+     */
+    TrackHashIndex view() {
+        return new TrackHashIndex(this.hashes, this.bound);
+    }
+
+    /**
+     * Finds the ordinal of a stored track equal to a track.
+     *
+     * @param t        the track to look for
+     * @param equality compares stored tracks to t
+     * @return the ordinal, -1 if no stored track equals t
+     */
+    int find(Track t, Equality equality) {
+        this.checkTable();
+        int hash = t.hashCode();
+        int mask = this.table.length - 1;
+        for (int slot = spread(hash) & mask; this.table[slot] != EMPTY; slot = (slot + 1) & mask) {
+            int ordinal = this.table[slot];
+            if (this.hashes[ordinal] == hash && equality.test(ordinal, t)) {
+                return ordinal;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param ordinal a contained ordinal
+     * @return the hash code the ordinal was added with
+     */
+    int hash(int ordinal) {
+        return this.hashes[ordinal];
+    }
+
+    /**
+     * Adds an ordinal, which must not be contained.
+     *
+     * @param ordinal the ordinal
+     * @param hash    the hash code of the track with that ordinal
+     */
+    void add(int ordinal, int hash) {
+        this.checkTable();
+        if (ordinal >= this.hashes.length) {
+            this.hashes = Arrays.copyOf(this.hashes, Math.max(ordinal + 1, this.hashes.length * 2));
+        }
+        this.hashes[ordinal] = hash;
+        this.bound = Math.max(this.bound, ordinal + 1);
+        if (++this.count * 2 > this.table.length) {
+            this.rehash(this.table.length * 2);
+        } else {
+            this.insert(ordinal);
+        }
+    }
+
+    /**
+     * Removes an ordinal, which must be contained.
+     * The entries following it in its probe sequence are shifted back, so no deleted markers are left behind.
+     *
+     * @param ordinal the ordinal
+     */
+    void remove(int ordinal) {
+        this.checkTable();
+        int mask = this.table.length - 1;
+        int slot = spread(this.hashes[ordinal]) & mask;
+        while (this.table[slot] != ordinal) {
+            slot = (slot + 1) & mask;
+        }
+        int next = (slot + 1) & mask;
+        while (this.table[next] != EMPTY) {
+            int home = spread(this.hashes[this.table[next]]) & mask;
+            // move the entry into the gap unless its home lies cyclically within (slot, next]
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                this.table[slot] = this.table[next];
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.table[slot] = EMPTY;
+        this.count--;
+    }
+
+    /**
+     * Removes an ordinal, which must be contained, for good: unlike remove(), the ordinal is not expected to be added
+     * again. It keeps its hash code until the next compaction.
+     *
+     * @param ordinal the ordinal
+     */
+    void bury(int ordinal) {
+        this.remove(ordinal);
+        this.buried.set(ordinal);
+    }
+
+    /**
+     * Removes ordinals and renumbers the remaining ones the way TrackStore.compact() does.
+     *
+     * @param dead the ordinals to remove, including all buried ones
+     * @param size the number of ordinals before compaction
+     */
+    void compact(TrackBitmap dead, int size) {
+        this.checkTable();
+        int kept = 0;
+        for (int ordinal = 0; ordinal < size; ordinal++) {
+            if (!dead.get(ordinal)) {
+                this.hashes[kept++] = this.hashes[ordinal];
+            }
+        }
+        this.count = kept;
+        this.bound = kept;
+        this.buried.clear();
+        this.rehash(this.table.length);
+    }
+
+    /**
+     * Rebuilds the table with a new length, holding the ordinals 0 to bound-1 which are not buried.
+     *
+     * @param length the new table length, a power of two
+     */
+    private void rehash(int length) {
+        this.table = new int[length];
+        Arrays.fill(this.table, EMPTY);
+        for (int ordinal = 0; ordinal < this.bound; ordinal++) {
+            if (!this.buried.get(ordinal)) {
+                this.insert(ordinal);
+            }
+        }
+    }
+
+    /**
+     * Puts an ordinal into the first empty slot of its probe sequence.
+     */
+    private void insert(int ordinal) {
+        int mask = this.table.length - 1;
+        int slot = spread(this.hashes[ordinal]) & mask;
+        while (this.table[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        this.table[slot] = ordinal;
+    }
+
+    /**
+     * Makes sure this is not a view, which has no table.
+     */
+    private void checkTable() {
+        if (this.table == null) {
+            throw new UnsupportedOperationException("a view of the tracks cannot look up or modify tracks");
+        }
+    }
+
+    /**
+     * Spreads a hash code so that linear probing does not cluster on the low bits.
+     */
+    private static int spread(int hash) {
+        int h = hash * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
@@ -0,0 +1,320 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.ArtistMatcher;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.FuzzyMatcher;
+import MusicLandscape.util.matcher.InsensitiveMatcher;
+import MusicLandscape.util.matcher.PerformerMatcher;
+import MusicLandscape.util.matcher.RegexMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+import MusicLandscape.util.matcher.TitleTermMatcher;
+import MusicLandscape.util.matcher.WriterMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * The indexes a container keeps over the tracks of its store.
+ * Matchers whose pattern an index can answer are resolved to the set of matching ordinals here, instead of being
+ * evaluated track by track.
+ */
+class TrackIndexes {
+
+    /**
+     * the indexed store.
+     */
+    private final TrackStore store;
+
+    /**
+     * prefix index over the titles.
+     */
+    private final PrefixIndex titles;
+
+    /**
+     * prefix indexes over the folded keys of the titles, writer names and performer names.
+     */
+    private final PrefixIndex titleKeys;
+
+    private final PrefixIndex writerKeys;
+
+    private final PrefixIndex performerKeys;
+
+    /**
+     * inverted index of the terms in the titles.
+     */
+    private final TermIndex titleTerms;
+
+    /**
+     * trigram indexes over the titles, the writer names and the performer names.
+     */
+    private final FuzzyIndex fuzzyTitles;
+
+    private final FuzzyIndex fuzzyWriters;
+
+    private final FuzzyIndex fuzzyPerformers;
+
+    /**
+     * prefix index over the writer names.
+     */
+    private final PrefixIndex writers;
+
+    /**
+     * prefix index over the performer names.
+     */
+    private final PrefixIndex performers;
+
+    /**
+     * range index over the durations.
+     */
+    private final RangeIndex durations;
+
+    /**
+     * range index over the years.
+     */
+    private final RangeIndex years;
+
+    /**
+     * Creates the indexes for a store. Each index is built when first used.
+     *
+     * @param store the store to index
+     */
+    TrackIndexes(TrackStore store) {
+        this.store = store;
+        this.titles = new PrefixIndex(store, store::title);
+        this.titleKeys = new PrefixIndex(store, store::titleKey);
+        this.writerKeys = new PrefixIndex(store, store::writerKey);
+        this.performerKeys = new PrefixIndex(store, store::performerKey);
+        this.titleTerms = new TermIndex(store, store::title);
+        this.fuzzyTitles = new FuzzyIndex(store, store::title);
+        this.fuzzyWriters = new FuzzyIndex(store, store::writer);
+        this.fuzzyPerformers = new FuzzyIndex(store, store::performer);
+        this.writers = new PrefixIndex(store, store::writer);
+        this.performers = new PrefixIndex(store, store::performer);
+        this.durations = new RangeIndex(store, store::duration);
+        this.years = new RangeIndex(store, store::year);
+    }
+
+    /**
+     * Creates the indexes for a copy of a store, taking over what has been built for the original.
+     * Tracks appended to the copy are covered as an unindexed tail; if the copy has been modified otherwise, each
+     * index is rebuilt on its next use.
+     *
+     * @param store    the copy to index
+     * @param previous the indexes of the original store
+     */
+    TrackIndexes(TrackStore store, TrackIndexes previous) {
+        this(store);
+        this.titles.inherit(previous.titles);
+        this.titleKeys.inherit(previous.titleKeys);
+        this.writerKeys.inherit(previous.writerKeys);
+        this.performerKeys.inherit(previous.performerKeys);
+        this.titleTerms.inherit(previous.titleTerms);
+        this.fuzzyTitles.inherit(previous.fuzzyTitles);
+        this.fuzzyWriters.inherit(previous.fuzzyWriters);
+        this.fuzzyPerformers.inherit(previous.fuzzyPerformers);
+        this.writers.inherit(previous.writers);
+        this.performers.inherit(previous.performers);
+        this.durations.inherit(previous.durations);
+        this.years.inherit(previous.years);
+    }
+
+    /**
+     * Tells whether a matcher can be resolved through the indexes. This does not build any index.
+     *
+     * @param matcher the matcher
+     * @return whether lookup() and count() can answer the matcher
+     */
+    boolean supports(MyMatcher<Track> matcher) {
+        if (!QueryPlanner.isKnown(matcher)) {
+            // a subclass may override matches(), which the indexes know nothing of
+            return false;
+        }
+        if (matcher instanceof DurationMatcher || matcher instanceof YearMatcher) {
+            return true;
+        }
+        if (matcher instanceof RegexMatcher) {
+            // only expressions requiring some literal text can be narrowed down
+            RegexMatcher regex = (RegexMatcher) matcher;
+            return !regex.getPrefix().isEmpty() || FuzzyIndex.canNarrow(regex.getLiterals());
+        }
+        boolean stringMatcher = matcher instanceof TitleMatcher || matcher instanceof WriterMatcher
+                || matcher instanceof PerformerMatcher || matcher instanceof ArtistMatcher
+                || matcher instanceof TitleTermMatcher || matcher instanceof FuzzyMatcher;
+        // a matcher without pattern is left to fail the way it does on its own
+        return stringMatcher && matcher.getPattern() != null;
+    }
+
+    /**
+     * Resolves a matcher through the indexes.
+     *
+     * @param matcher the matcher to resolve
+     * @return the ordinals of all tracks matching, null if no index can answer the matcher
+     */
+    TrackBitmap lookup(MyMatcher<Track> matcher) {
+        if (!this.supports(matcher)) {
+            return null;
+        }
+        if (matcher instanceof DurationMatcher) {
+            DurationMatcher range = (DurationMatcher) matcher;
+            return this.durations.lookup(range.getLower(), range.getUpper());
+        }
+        if (matcher instanceof YearMatcher) {
+            YearMatcher range = (YearMatcher) matcher;
+            return this.years.lookup(range.getLower(), range.getUpper());
+        }
+        if (matcher instanceof TitleTermMatcher) {
+            return this.titleTerms.lookup((TitleTermMatcher) matcher);
+        }
+        if (matcher instanceof FuzzyMatcher) {
+            FuzzyMatcher fuzzy = (FuzzyMatcher) matcher;
+            switch (fuzzy.getField()) {
+                case TITLE:
+                    return this.fuzzyTitles.lookup(fuzzy);
+                case WRITER:
+                    return this.fuzzyWriters.lookup(fuzzy);
+                case PERFORMER:
+                    return this.fuzzyPerformers.lookup(fuzzy);
+                default:
+                    TrackBitmap matches = this.fuzzyWriters.lookup(fuzzy);
+                    matches.or(this.fuzzyPerformers.lookup(fuzzy));
+                    return matches;
+            }
+        }
+        if (matcher instanceof RegexMatcher) {
+            // the candidates containing the literal text of the expression are verified with the expression itself
+            RegexMatcher regex = (RegexMatcher) matcher;
+            TrackBitmap candidates;
+            switch (regex.getField()) {
+                case TITLE:
+                    candidates = this.candidates(regex, this.titles, this.fuzzyTitles);
+                    break;
+                case WRITER:
+                    candidates = this.candidates(regex, this.writers, this.fuzzyWriters);
+                    break;
+                case PERFORMER:
+                    candidates = this.candidates(regex, this.performers, this.fuzzyPerformers);
+                    break;
+                default:
+                    candidates = this.candidates(regex, this.writers, this.fuzzyWriters);
+                    candidates.or(this.candidates(regex, this.performers, this.fuzzyPerformers));
+                    break;
+            }
+            candidates.retain(ordinal -> QueryPlanner.matches(regex, this.store, ordinal));
+            return candidates;
+        }
+        // insensitive matchers look up the key of their pattern among the keys of the stored strings
+        boolean folded = matcher instanceof InsensitiveMatcher;
+        String prefix = folded ? ((InsensitiveMatcher) matcher).getKey() : matcher.getPattern();
+        if (matcher instanceof TitleMatcher) {
+            return (folded ? this.titleKeys : this.titles).lookup(prefix);
+        }
+        if (matcher instanceof WriterMatcher) {
+            return (folded ? this.writerKeys : this.writers).lookup(prefix);
+        }
+        if (matcher instanceof PerformerMatcher) {
+            return (folded ? this.performerKeys : this.performers).lookup(prefix);
+        }
+        TrackBitmap matches = (folded ? this.writerKeys : this.writers).lookup(prefix);
+        matches.or((folded ? this.performerKeys : this.performers).lookup(prefix));
+        return matches;
+    }
+
+    /**
+     * Estimates the number of tracks a matcher matches, using the indexes.
+     *
+     * @param matcher the matcher
+     * @return the estimated number of matching tracks, -1 if no index can answer the matcher
+     */
+    int count(MyMatcher<Track> matcher) {
+        if (!this.supports(matcher)) {
+            return -1;
+        }
+        if (matcher instanceof DurationMatcher) {
+            DurationMatcher range = (DurationMatcher) matcher;
+            return this.durations.count(range.getLower(), range.getUpper());
+        }
+        if (matcher instanceof YearMatcher) {
+            YearMatcher range = (YearMatcher) matcher;
+            return this.years.count(range.getLower(), range.getUpper());
+        }
+        if (matcher instanceof TitleTermMatcher) {
+            return this.titleTerms.count((TitleTermMatcher) matcher);
+        }
+        if (matcher instanceof FuzzyMatcher) {
+            FuzzyMatcher fuzzy = (FuzzyMatcher) matcher;
+            switch (fuzzy.getField()) {
+                case TITLE:
+                    return this.fuzzyTitles.count(fuzzy);
+                case WRITER:
+                    return this.fuzzyWriters.count(fuzzy);
+                case PERFORMER:
+                    return this.fuzzyPerformers.count(fuzzy);
+                default:
+                    // an upper bound, like for prefixes of artist names
+                    return (int) Math.min((long) this.fuzzyWriters.count(fuzzy) + this.fuzzyPerformers.count(fuzzy),
+                            Integer.MAX_VALUE);
+            }
+        }
+        if (matcher instanceof RegexMatcher) {
+            RegexMatcher regex = (RegexMatcher) matcher;
+            switch (regex.getField()) {
+                case TITLE:
+                    return this.countCandidates(regex, this.titles, this.fuzzyTitles);
+                case WRITER:
+                    return this.countCandidates(regex, this.writers, this.fuzzyWriters);
+                case PERFORMER:
+                    return this.countCandidates(regex, this.performers, this.fuzzyPerformers);
+                default:
+                    return (int) Math.min((long) this.countCandidates(regex, this.writers, this.fuzzyWriters)
+                            + this.countCandidates(regex, this.performers, this.fuzzyPerformers), Integer.MAX_VALUE);
+            }
+        }
+        boolean folded = matcher instanceof InsensitiveMatcher;
+        String prefix = folded ? ((InsensitiveMatcher) matcher).getKey() : matcher.getPattern();
+        if (matcher instanceof TitleMatcher) {
+            return (folded ? this.titleKeys : this.titles).count(prefix);
+        }
+        if (matcher instanceof WriterMatcher) {
+            return (folded ? this.writerKeys : this.writers).count(prefix);
+        }
+        if (matcher instanceof PerformerMatcher) {
+            return (folded ? this.performerKeys : this.performers).count(prefix);
+        }
+        // tracks matching by writer and by performer may overlap, the sum is an upper bound
+        long count = (long) (folded ? this.writerKeys : this.writers).count(prefix)
+                + (folded ? this.performerKeys : this.performers).count(prefix);
+        return (int) Math.min(count, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Finds the tracks which may match a regular expression by the literal text it requires in a field: those whose
+     * field starts with the literal prefix of the expression if it has one, otherwise those whose field contains its
+     * literal runs.
+     *
+     * @param regex    the matcher, supported
+     * @param prefixes the prefix index over the field
+     * @param trigrams the trigram index over the field
+     * @return the ordinals of the candidate tracks
+     */
+    private TrackBitmap candidates(RegexMatcher regex, PrefixIndex prefixes, FuzzyIndex trigrams) {
+        if (!regex.getPrefix().isEmpty()) {
+            return prefixes.lookup(regex.getPrefix());
+        }
+        return trigrams.containing(regex.getLiterals());
+    }
+
+    /**
+     * Estimates the number of candidates(regex, prefixes, trigrams), without collecting them.
+     *
+     * @param regex    the matcher, supported
+     * @param prefixes the prefix index over the field
+     * @param trigrams the trigram index over the field
+     * @return the estimated number of candidate tracks
+     */
+    private int countCandidates(RegexMatcher regex, PrefixIndex prefixes, FuzzyIndex trigrams) {
+        if (!regex.getPrefix().isEmpty()) {
+            return prefixes.count(regex.getPrefix());
+        }
+        return trigrams.countContaining(regex.getLiterals());
+    }
+}
@@ -0,0 +1,234 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * A random sample of the selected tracks of a container, see MyTrackContainer.sample().
+ * The sample is drawn without replacement from the selection as a whole (a uniform sample) or separately from each
+ * group of the selection (a stratified sample), every track of a group being equally likely. Filters and aggregates
+ * applied to the sample estimate what they would give on the whole selection, together with a standard error which
+ * accounts for the stratification and for the part of the selection sampled. An estimate is exact, with a standard
+ * error of 0, when the whole selection is in the sample.
+ * <p>
+ * The sample is a snapshot: it is not affected by later changes of the container.
+ */
+public class TrackSample {
+
+    /**
+     * the sampled tracks, grouped by stratum.
+     */
+    private final Track[] tracks;
+
+    /**
+     * the stratum of each sampled track.
+     */
+    private final int[] strata;
+
+    /**
+     * the number of selected tracks in each stratum.
+     */
+    private final long[] populations;
+
+    /**
+     * the number of sampled tracks in each stratum.
+     */
+    private final int[] sizes;
+
+    /**
+     * Creates a sample.
+     *
+     * @param tracks      the sampled tracks
+     * @param strata      the stratum of each sampled track, between 0 and populations.length-1
+     * @param populations the number of selected tracks in each stratum
+     */
+    TrackSample(Track[] tracks, int[] strata, long[] populations) {
+        this.tracks = tracks;
+        this.strata = strata;
+        this.populations = populations;
+        this.sizes = new int[populations.length];
+        for (int stratum : strata) {
+            this.sizes[stratum]++;
+        }
+    }
+
+    /**
+     * @return the sampled tracks, grouped by stratum for a stratified sample
+     */
+    public Track[] tracks() {
+        return this.tracks.clone();
+    }
+
+    /**
+     * @return the number of sampled tracks
+     */
+    public int size() {
+        return this.tracks.length;
+    }
+
+    /**
+     * @return the number of tracks the sample was drawn from, i.e. the size of the selection
+     */
+    public long population() {
+        long population = 0;
+        for (long n : this.populations) {
+            population += n;
+        }
+        return population;
+    }
+
+    /**
+     * Estimates the number of selected tracks matching a matcher.
+     *
+     * @param matcher - the filter, applied to the sampled tracks only.
+     * @return the estimated number of matching tracks in the selection
+     */
+    public Estimate count(MyMatcher<Track> matcher) {
+        checkMatcher(matcher);
+        return this.total(t -> matcher.matches(t) ? 1 : 0);
+    }
+
+    /**
+     * Estimates the total duration of the selected tracks matching a matcher.
+     *
+     * @param matcher - the filter, applied to the sampled tracks only.
+     * @return the estimated total duration, in seconds
+     */
+    public Estimate totalDuration(MyMatcher<Track> matcher) {
+        checkMatcher(matcher);
+        return this.total(t -> matcher.matches(t) ? t.getDuration() : 0);
+    }
+
+    /**
+     * Estimates the average duration of the selected tracks matching a matcher.
+     *
+     * @param matcher - the filter, applied to the sampled tracks only.
+     * @return the estimated average duration, in seconds; NaN if no sampled track matches
+     */
+    public Estimate averageDuration(MyMatcher<Track> matcher) {
+        checkMatcher(matcher);
+        return this.ratio(t -> matcher.matches(t) ? t.getDuration() : 0, t -> matcher.matches(t) ? 1 : 0);
+    }
+
+    /**
+     * Estimates the number of selected tracks per group.
+     * Only groups having tracks in the sample are estimated; smaller groups may have been missed by the sample.
+     *
+     * @param by - the grouping criterion.
+     * @return the estimate of every group by group (names alphabetically, unnamed artists as "unknown", years
+     * ascending)
+     */
+    public Map<String, Estimate> countBy(MyTrackContainer.GroupBy by) {
+        return this.byGroup(by, false);
+    }
+
+    /**
+     * Estimates the total duration of the selected tracks per group.
+     * Only groups having tracks in the sample are estimated; smaller groups may have been missed by the sample.
+     *
+     * @param by - the grouping criterion.
+     * @return the estimate of every group by group (names alphabetically, unnamed artists as "unknown", years
+     * ascending)
+     */
+    public Map<String, Estimate> totalDurationBy(MyTrackContainer.GroupBy by) {
+        return this.byGroup(by, true);
+    }
+
+    /**
+     * Estimates a count or total duration for every group found in the sample.
+     */
+    private Map<String, Estimate> byGroup(MyTrackContainer.GroupBy by, boolean durations) {
+        if (by == null) {
+            throw new IllegalArgumentException("expected non-null GroupBy");
+        }
+        Function<Track, String> group;
+        switch (by) {
+            case WRITER:
+                group = t -> label(t.getWriter().getName());
+                break;
+            case PERFORMER:
+                group = t -> label(t.getPerformer().getName());
+                break;
+            default:
+                // years have four digits, so they sort like numbers
+                group = t -> Integer.toString(t.getYear());
+        }
+        Map<String, Estimate> result = new TreeMap<String, Estimate>();
+        for (Track track : this.tracks) {
+            String label = group.apply(track);
+            if (!result.containsKey(label)) {
+                result.put(label, this.total(t -> !label.equals(group.apply(t)) ? 0 : durations ? t.getDuration() : 1));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the total of a value over the selection by the stratified Horvitz-Thompson estimator.
+     * Every stratum contributes its population times the sample mean; its variance is the sample variance scaled by
+     * the finite population correction.
+     *
+     * @param y the value of a track
+     * @return the estimated total
+     */
+    private Estimate total(ToDoubleFunction<Track> y) {
+        double[] sums = new double[this.populations.length];
+        double[] squares = new double[this.populations.length];
+        for (int i = 0; i < this.tracks.length; i++) {
+            double value = y.applyAsDouble(this.tracks[i]);
+            sums[this.strata[i]] += value;
+            squares[this.strata[i]] += value * value;
+        }
+        double total = 0;
+        double variance = 0;
+        for (int h = 0; h < this.populations.length; h++) {
+            if (this.sizes[h] == 0) {
+                continue;
+            }
+            double n = this.sizes[h];
+            double population = this.populations[h];
+            total += population * sums[h] / n;
+            if (n > 1) {
+                double s2 = Math.max(0, (squares[h] - sums[h] * sums[h] / n) / (n - 1));
+                variance += population * population * (1 - n / population) * s2 / n;
+            }
+        }
+        return new Estimate(total, Math.sqrt(variance));
+    }
+
+    /**
+     * Estimates the ratio of the totals of two values over the selection, linearizing its variance.
+     *
+     * @param y the numerator value of a track
+     * @param x the denominator value of a track
+     * @return the estimated ratio, NaN if the denominator is 0 on all sampled tracks
+     */
+    private Estimate ratio(ToDoubleFunction<Track> y, ToDoubleFunction<Track> x) {
+        double denominator = this.total(x).value();
+        if (denominator == 0) {
+            return new Estimate(Double.NaN, Double.NaN);
+        }
+        double ratio = this.total(y).value() / denominator;
+        double residuals = this.total(t -> y.applyAsDouble(t) - ratio * x.applyAsDouble(t)).standardError();
+        return new Estimate(ratio, residuals / denominator);
+    }
+
+    /**
+     * @param name an artist name, may be null
+     * @return the name as shown for a group, unnamed artists being shown as "unknown" like Artist.toString() does
+     */
+    private static String label(String name) {
+        return name == null ? "unknown" : name;
+    }
+
+    private static void checkMatcher(MyMatcher<Track> matcher) {
+        if (matcher == null) {
+            throw new IllegalArgumentException("expected non-null matcher");
+        }
+    }
+}
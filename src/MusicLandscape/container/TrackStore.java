@@ -0,0 +1,331 @@
+package MusicLandscape.container;
+
+import MusicLandscape.entities.Track;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The storage engine behind a MyTrackContainer.
+ * A store holds unique tracks and addresses them by ordinal, the ordinals of a store with n tracks being 0 to n-1 in
+ * insertion order. Apart from materializing a whole track, the store gives access to the individual fields of a track
+ * by ordinal, which lets the container filter and sort without creating track objects.
+ * <p>
+ * Seen from the outside a store is a read-only set of tracks. Tracks are added, modified and removed through
+ * append(), update() and remove() only.
+ * <p>
+ * Alternatively, tracks can be buried one by one, which is cheap but leaves them in place, and later be removed all at
+ * once by adopting a compacted copy of the store (see Compaction).
+ */
+abstract class TrackStore extends AbstractSet<Track> {
+
+    /**
+     * The string fields of a track.
+     */
+    enum Text {
+        TITLE, WRITER, PERFORMER
+    }
+
+    /**
+     * counts the modifications which change or renumber stored tracks. Appending does not count.
+     */
+    private int version;
+
+    /**
+     * Creates an empty store.
+     */
+    TrackStore() {
+    }
+
+    /**
+     * Creates a store continuing the version of another store, for copies.
+     *
+     * @param other the store being copied
+     */
+    TrackStore(TrackStore other) {
+        this.version = other.version;
+    }
+
+    /**
+     * Creates an empty store of the kind a storage mode calls for.
+     *
+     * @param mode the storage mode
+     * @return the store
+     */
+    static TrackStore create(MyTrackContainer.StorageMode mode) {
+        switch (mode) {
+            case COLUMNAR:
+                return new ColumnarTrackStore();
+            case OFF_HEAP:
+                return new OffHeapTrackStore();
+            default:
+                return new ObjectTrackStore();
+        }
+    }
+
+    /**
+     * Creates an independent copy of this store.
+     * The copy holds the same tracks under the same ordinals and has the same version, so anything derived from this
+     * store is valid for the copy as well until the copy is modified.
+     *
+     * @return the copy
+     */
+    abstract TrackStore copy();
+
+    /**
+     * Creates a read-only view of the tracks currently in this store.
+     * The view shares the memory of this store instead of copying it, which takes time independent of the number of
+     * tracks. It holds the same tracks under the same ordinals and has the same version, and it stays unchanged as
+     * long as this store is only appended to and tracks are only buried: neither touches the values of existing
+     * ordinals, and memory this store replaces as it grows is left to the view as it was. Other threads may read the
+     * view while this store is appended to, provided the view was published to them safely.
+     * <p>
+     * A view cannot look up or modify tracks: ordinalOf(), and with it contains(), append() and update(), throw an
+     * UnsupportedOperationException.
+     *
+     * @return the view
+     */
+    abstract TrackStore view();
+
+    /**
+     * Adds a track to this store.
+     * Tracks are unique, a track equal (see Track.equals) to a stored track is not added.
+     *
+     * @param t the track to add, not null
+     * @return the ordinal of the added track, -1 if it was not added
+     */
+    abstract int append(Track t);
+
+    /**
+     * Looks up the ordinal of a track.
+     *
+     * @param t the track to look for, not null
+     * @return the ordinal of the stored track equal to the argument, -1 if there is none
+     */
+    abstract int ordinalOf(Track t);
+
+    /**
+     * Gets the track with a certain ordinal.
+     * Depending on the implementation the track is either the stored object itself or a newly materialized copy.
+     *
+     * @param ordinal the ordinal of the track
+     * @return the track
+     */
+    abstract Track get(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the duration of the track
+     */
+    abstract int duration(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the year of the track
+     */
+    abstract int year(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the title of the track, as returned by Track.getTitle()
+     */
+    abstract String title(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the name of the writer of the track
+     */
+    abstract String writer(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the name of the performer of the track
+     */
+    abstract String performer(int ordinal);
+
+    /**
+     * @param field   the field
+     * @param ordinal the ordinal of the track
+     * @return the title, the writer name or the performer name of the track
+     */
+    String text(Text field, int ordinal) {
+        switch (field) {
+            case TITLE:
+                return this.title(ordinal);
+            case WRITER:
+                return this.writer(ordinal);
+            default:
+                return this.performer(ordinal);
+        }
+    }
+
+    /**
+     * Makes a predicate telling whether a string field of a track starts with a prefix, as String.startsWith does.
+     * A null name starts with nothing. This implementation obtains the field as a String for every track tested.
+     *
+     * @param field  the field
+     * @param prefix the prefix
+     * @return the predicate
+     */
+    OrdinalPredicate startsWith(Text field, String prefix) {
+        return ordinal -> {
+            String text = this.text(field, ordinal);
+            return text != null && text.startsWith(prefix);
+        };
+    }
+
+    /**
+     * Makes a predicate telling whether a string field of a track contains a literal, as String.contains does.
+     * A null name contains nothing. This implementation obtains the field as a String for every track tested.
+     *
+     * @param field   the field
+     * @param literal the literal
+     * @return the predicate
+     */
+    OrdinalPredicate contains(Text field, String literal) {
+        return ordinal -> {
+            String text = this.text(field, ordinal);
+            return text != null && text.contains(literal);
+        };
+    }
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the folded key (see Folding) of the title, computed when the track was stored
+     */
+    abstract String titleKey(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the folded key of the writer name, computed when the track was stored; null if the name is null
+     */
+    abstract String writerKey(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the folded key of the performer name, computed when the track was stored; null if the name is null
+     */
+    abstract String performerKey(int ordinal);
+
+    /**
+     * @param ordinal the ordinal of the track
+     * @return the hash code of the track as of when it was stored or last updated
+     */
+    abstract int hash(int ordinal);
+
+    /**
+     * Replaces the values of a stored track with those of another track.
+     *
+     * @param ordinal the ordinal of the track to replace
+     * @param t       the track holding the new values, not null
+     * @return false if t is equal to a different stored track, in which case nothing is replaced
+     */
+    abstract boolean set(int ordinal, Track t);
+
+    /**
+     * Removes tracks from this store.
+     * The remaining tracks keep their relative order and are renumbered so that ordinals stay dense.
+     *
+     * @param dead the ordinals to remove, all less than size()
+     */
+    abstract void compact(TrackBitmap dead);
+
+    /**
+     * Removes a track from this store without renumbering any track.
+     * The track can no longer be found by ordinalOf(), so an equal track can be appended again. Its values remain
+     * readable under its ordinal, and it still counts towards size(), until it is removed by compaction. A buried
+     * track must not be updated.
+     *
+     * @param ordinal the ordinal of the track, not buried yet
+     */
+    abstract void bury(int ordinal);
+
+    /**
+     * Takes over the content of another store of the same kind.
+     *
+     * @param other the store, which must not be used any more
+     */
+    abstract void assign(TrackStore other);
+
+    /**
+     * Replaces the content of this store with a compacted copy of it.
+     *
+     * @param compacted a copy of this store with the buried tracks (and possibly others) removed
+     */
+    void adopt(TrackStore compacted) {
+        this.assign(compacted);
+        this.version++;
+    }
+
+    /**
+     * Removes the tracks with the given ordinals from this store.
+     *
+     * @param dead the ordinals to remove, all less than size(), including all buried ones
+     * @return the number of removed tracks
+     */
+    int remove(TrackBitmap dead) {
+        int removed = dead.cardinality();
+        if (removed > 0) {
+            this.compact(dead);
+            this.version++;
+        }
+        return removed;
+    }
+
+    /**
+     * Replaces the values of a stored track with those of another track.
+     *
+     * @param ordinal the ordinal of the track to replace
+     * @param t       the track holding the new values, not null
+     * @return false if t is equal to a different stored track, in which case nothing is replaced
+     */
+    boolean update(int ordinal, Track t) {
+        if (!this.set(ordinal, t)) {
+            return false;
+        }
+        this.version++;
+        return true;
+    }
+
+    /**
+     * The version of this store changes whenever stored tracks are changed or renumbered, but not when tracks are
+     * appended. Anything derived from the tracks of this store stays valid for the ordinals it covers as long as the
+     * version remains the same.
+     *
+     * @return the version
+     */
+    int version() {
+        return this.version;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof Track && this.ordinalOf((Track) o) >= 0;
+    }
+
+    /**
+     * Iterates over the stored tracks in ordinal order.
+     *
+     * @return the iterator
+     */
+    @Override
+    public Iterator<Track> iterator() {
+        return new Iterator<Track>() {
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return this.next < TrackStore.this.size();
+            }
+
+            @Override
+            public Track next() {
+                if (!this.hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return TrackStore.this.get(this.next++);
+            }
+        };
+    }
+}
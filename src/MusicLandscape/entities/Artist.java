@@ -2,6 +2,8 @@ package MusicLandscape.entities;
 
 /**
  * This class represents an artist of performing arts, like a band.
+ * Artists obtained from ArtistRegistry, which includes the writer and performer of every track, are shared by everyone
+ * using the same name and cannot be renamed.
  */
 public class Artist implements Comparable<Artist> {
 
@@ -10,11 +12,17 @@ public class Artist implements Comparable<Artist> {
      */
     private String name;
 
+    /**
+     * whether this artist is the shared artist of its name, see ArtistRegistry. Shared artists cannot be renamed.
+     */
+    private final boolean shared;
+
     /**
      * creates a default artist a default artists name is the String "unknown" (without quotes)
      */
     public Artist() {
         this.name = "unknown";
+        this.shared = false;
     }
 
     /**
@@ -24,6 +32,7 @@ public class Artist implements Comparable<Artist> {
      */
     public Artist(Artist a) {
         this.name = a.getName();
+        this.shared = false;
     }
 
     /**
@@ -33,6 +42,18 @@ public class Artist implements Comparable<Artist> {
      */
     public Artist(String name) {
         this.name = name;
+        this.shared = false;
+    }
+
+    /**
+     * creates the shared artist of a name, for ArtistRegistry
+     *
+     * @param name   the name of this artist
+     * @param shared must be true
+     */
+    Artist(String name, boolean shared) {
+        this.name = name;
+        this.shared = shared;
     }
 
     /**
@@ -46,12 +67,18 @@ public class Artist implements Comparable<Artist> {
 
     /**
      * sets the name of this artist. the name of an artist cannot be null or empty.
-     * if an invalid argument is passed to the method the state of the object remains unchanged
+     * if an invalid argument is passed to the method the state of the object remains unchanged.
+     * a shared artist (see ArtistRegistry) cannot be renamed; to change the writer or performer of a track, set a
+     * new artist on the track instead.
      *
      * @param name the new name of the artist
+     * @throws UnsupportedOperationException if this artist is shared
      */
     public void setName(String name) {
-        if (name == null) {
+        if (this.shared) {
+            throw new UnsupportedOperationException("cannot rename the shared artist " + this.name
+                    + ", set a new artist on the track instead");
+        } else if (name == null) {
             return;
         } else if (name.isBlank()) {
             return;
@@ -70,9 +97,41 @@ public class Artist implements Comparable<Artist> {
      */
     @Override
     public int compareTo(Artist o) {
+        if (this == o) {
+            // shared artists of the same name are the same object
+            return 0;
+        }
         return this.name.compareTo(o.getName());
     }
 
+    /**
+     * Two artists are equal if they have the same name.
+     *
+     * @param o the object to compare to
+     * @return whether o is an artist with the same name as this artist
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Artist)) {
+            return false;
+        }
+        String other = ((Artist) o).name;
+        return (this.name == null ? other == null : this.name.equals(other));
+    }
+
+    /**
+     * The hash code of an artist is that of its name.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        return (this.name == null ? 0 : this.name.hashCode());
+    }
+
     /**
      * returns a String representation of this Artist
      * This should be either the name of the Artist, or "unknown" if the name is not available
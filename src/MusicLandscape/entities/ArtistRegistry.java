@@ -0,0 +1,110 @@
+package MusicLandscape.entities;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out one shared artist per name.
+ * Catalogs have far fewer distinct writers and performers than tracks. Tracks and readers obtain their artists from
+ * here, so all tracks of an artist refer to the same Artist object and the same name String, instead of each holding
+ * a copy. Equal shared artists are the same object, which makes comparing them as cheap as comparing references.
+ * <p>
+ * Shared artists cannot be renamed (setName throws an UnsupportedOperationException), since renaming one would rename
+ * it for every track; a track gets a different artist through setWriter or setPerformer instead. Artists created
+ * through the constructors of Artist are not shared and can be renamed as before.
+ * <p>
+ * The registry is safe to use from several threads. It holds the shared artists weakly: once no track refers to the
+ * artist of a name any more, the artist can be collected and the name is dropped from the registry, so names of
+ * removed, edited or discarded tracks do not stay reachable. A name obtained again afterwards gets a new shared artist.
+ */
+public final class ArtistRegistry {
+
+    /**
+     * the shared artist without a name.
+     */
+    private static final Artist NAMELESS = new Artist(null, true);
+
+    /**
+     * the shared artists by name.
+     */
+    private static final ConcurrentHashMap<String, Entry> ARTISTS = new ConcurrentHashMap<String, Entry>();
+
+    /**
+     * the entries whose artist has been collected.
+     */
+    private static final ReferenceQueue<Artist> COLLECTED = new ReferenceQueue<Artist>();
+
+    private ArtistRegistry() {
+    }
+
+    /**
+     * gets the shared artist of a name
+     *
+     * @param name the name, may be null
+     * @return the shared artist of that name
+     */
+    public static Artist of(String name) {
+        if (name == null) {
+            return NAMELESS;
+        }
+        expunge();
+        while (true) {
+            Entry entry = ARTISTS.get(name);
+            Artist artist = entry == null ? null : entry.get();
+            if (artist != null) {
+                return artist;
+            }
+            // no artist of that name, or one which has been collected; another thread may be registering one too
+            artist = new Artist(name, true);
+            Entry fresh = new Entry(name, artist);
+            if (entry == null ? ARTISTS.putIfAbsent(name, fresh) == null : ARTISTS.replace(name, entry, fresh)) {
+                return artist;
+            }
+        }
+    }
+
+    /**
+     * gets the shared artist of the name of an artist
+     *
+     * @param artist the artist, not null
+     * @return the shared artist with the name of artist, artist itself if it is shared already
+     */
+    public static Artist of(Artist artist) {
+        return of(artist.getName());
+    }
+
+    /**
+     * gets the number of names which have a shared artist
+     *
+     * @return the number of names, including those whose artist has been collected but not yet dropped
+     */
+    public static int size() {
+        expunge();
+        return ARTISTS.size();
+    }
+
+    /**
+     * Drops the names whose artist has been collected.
+     */
+    private static void expunge() {
+        Entry entry;
+        while ((entry = (Entry) COLLECTED.poll()) != null) {
+            // the name may have been given a new artist meanwhile, which is kept
+            ARTISTS.remove(entry.name, entry);
+        }
+    }
+
+    /**
+     * A weak reference to a shared artist, remembering the name it is registered under.
+     */
+    private static final class Entry extends WeakReference<Artist> {
+
+        final String name;
+
+        Entry(String name, Artist artist) {
+            super(artist, COLLECTED);
+            this.name = name;
+        }
+    }
+}
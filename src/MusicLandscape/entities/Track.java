@@ -3,6 +3,7 @@ package MusicLandscape.entities;
 import MusicLandscape.application.Main;
 import MusicLandscape.util.ConsoleScanable;
 
+import java.util.Objects;
 import java.util.Scanner;
 
 /**
@@ -10,6 +11,11 @@ import java.util.Scanner;
  */
 public class Track implements ConsoleScanable, Comparable<Track> {
 
+    /**
+     * the name of the default writer and performer
+     */
+    private static final String DEFAULT_ARTIST = "unknown";
+
     /**
      * the duration of this track in seconds the duration is a non-negative number,
      * duration 0 (zero) represents unknown duration
@@ -47,20 +53,21 @@ public class Track implements ConsoleScanable, Comparable<Track> {
     public Track() {
         this.title = "unknown title";
         this.duration = 0;
-        this.writer = new Artist();
-        this.performer = new Artist();
+        this.writer = ArtistRegistry.of(DEFAULT_ARTIST);
+        this.performer = ArtistRegistry.of(DEFAULT_ARTIST);
     }
 
     /**
-     * creates a deep copy of a Track
+     * creates a copy of a Track
+     * the copy has its own values but refers to the same shared artists (see ArtistRegistry), which cannot be renamed
      *
      * @param t the track to copy
      */
     public Track(Track t) {
         this.duration = t.getDuration();
-        this.performer = new Artist(t.getPerformer());
+        this.performer = ArtistRegistry.of(t.getPerformer());
         this.title = t.getTitle();
-        this.writer = new Artist(t.getWriter());
+        this.writer = ArtistRegistry.of(t.getWriter());
         this.year = t.getYear();
     }
 
@@ -72,8 +79,8 @@ public class Track implements ConsoleScanable, Comparable<Track> {
     public Track(String title) {
         this.title = title;
         this.duration = 0;
-        this.performer = new Artist();
-        this.writer = new Artist();
+        this.performer = ArtistRegistry.of(DEFAULT_ARTIST);
+        this.writer = ArtistRegistry.of(DEFAULT_ARTIST);
         this.year = 1900; //default year value
     }
 
@@ -146,6 +153,7 @@ public class Track implements ConsoleScanable, Comparable<Track> {
 
     /**
      * returns the writer of this track
+     * the writer is a shared artist (see ArtistRegistry), which cannot be renamed
      *
      * @return the writer
      */
@@ -155,6 +163,8 @@ public class Track implements ConsoleScanable, Comparable<Track> {
 
     /**
      * sets the the writer of this track null arguments are ignored
+     * the track refers to the shared artist of the name of the argument (see ArtistRegistry), not to the argument,
+     * so renaming the argument later does not affect the track, and the artist returned by getWriter cannot be renamed
      *
      * @param writer the writer to set
      */
@@ -162,11 +172,12 @@ public class Track implements ConsoleScanable, Comparable<Track> {
         if (writer == null) {
             return;
         }
-        this.writer = writer;
+        this.writer = ArtistRegistry.of(writer);
     }
 
     /**
      * returns the performer of this track
+     * the performer is a shared artist (see ArtistRegistry), which cannot be renamed
      *
      * @return the performer
      */
@@ -176,6 +187,8 @@ public class Track implements ConsoleScanable, Comparable<Track> {
 
     /**
      * sets the performer of this track null arguments are ignored
+     * the track refers to the shared artist of the name of the argument (see ArtistRegistry), not to the argument,
+     * so renaming the argument later does not affect the track, and the artist returned by getPerformer cannot be renamed
      *
      * @param performer the performer to set
      */
@@ -183,7 +196,7 @@ public class Track implements ConsoleScanable, Comparable<Track> {
         if (performer == null) {
             return;
         }
-        this.performer = performer;
+        this.performer = ArtistRegistry.of(performer);
     }
 
     /**
@@ -358,6 +371,44 @@ public class Track implements ConsoleScanable, Comparable<Track> {
         return this.title.compareTo(o.getTitle());
     }
 
+    /**
+     * Two tracks are equal if they agree in title, writer, performer, duration and year.
+     * Note that the natural ordering of tracks (by title only) is not consistent with equals: different tracks may
+     * share a title.
+     *
+     * @param o the object to compare to
+     * @return whether o is a track with the same values as this track
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Track)) {
+            return false;
+        }
+        Track other = (Track) o;
+        return this.duration == other.duration && this.year == other.year
+                && this.getTitle().equals(other.getTitle())
+                && Objects.equals(this.writer, other.writer)
+                && Objects.equals(this.performer, other.performer);
+    }
+
+    /**
+     * The hash code of a track combines all values equals() compares.
+     * It is cheap to compute: the string hash codes it is made of are cached by the strings.
+     *
+     * @return the hash code
+     */
+    @Override
+    public int hashCode() {
+        int h = this.getTitle().hashCode();
+        h = 31 * h + Objects.hashCode(this.writer);
+        h = 31 * h + Objects.hashCode(this.performer);
+        h = 31 * h + this.duration;
+        return 31 * h + this.year;
+    }
+
     /**
      * Validates an int as a year.
      *
@@ -0,0 +1,172 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.Aggregate;
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.formatters.AggregateFormatter;
+import MusicLandscape.util.matcher.DurationMatcher;
+
+/**
+ * Checks the aggregation of the selection against aggregating the selected tracks by hand.
+ */
+public class AggregationTest {
+
+	private List<Track> given;
+
+	@BeforeMethod
+	private void init() {
+		String[] names = { "Metallica", "Megadeth", "Slayer", "Anthrax", "Exodus", "Testament", "Kreator" };
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 20000; i++) {
+			Track t = new Track("Song " + i);
+			t.setWriter(new Artist(names[i % 7]));
+			t.setPerformer(new Artist(names[(i / 7) % 5]));
+			t.setDuration((i * 131) % 700);
+			t.setYear(1960 + (i * 17) % 61);
+			given.add(t);
+		}
+	}
+
+	@DataProvider(name = "cases")
+	private static Object[][] cases() {
+		List<Object[]> cases = new ArrayList<Object[]>();
+		for (MyTrackContainer.StorageMode mode : MyTrackContainer.StorageMode.values()) {
+			for (MyTrackContainer.GroupBy by : MyTrackContainer.GroupBy.values()) {
+				cases.add(new Object[] { mode, by, Integer.MAX_VALUE });
+				cases.add(new Object[] { mode, by, 1 });
+			}
+		}
+		return cases.toArray(new Object[0][]);
+	}
+
+	private static String groupOf(Track t, MyTrackContainer.GroupBy by) {
+		switch (by) {
+		case WRITER:
+			return t.getWriter().getName();
+		case PERFORMER:
+			return t.getPerformer().getName();
+		default:
+			return Integer.toString(t.getYear());
+		}
+	}
+
+	@Test(dataProvider = "cases", description = "aggregates equal those computed by hand, sequentially and in parallel")
+	public void aggregate(MyTrackContainer.StorageMode mode, MyTrackContainer.GroupBy by, int threshold) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.toArray(new Track[0]));
+		container.reset();
+		container.setParallelThreshold(threshold);
+		container.filter(new DurationMatcher("100 600"));
+
+		Map<String, long[]> expected = new TreeMap<String, long[]>();
+		for (Track t : given) {
+			if (t.getDuration() < 100 || t.getDuration() > 600) {
+				continue;
+			}
+			long[] e = expected.computeIfAbsent(groupOf(t, by), g -> new long[] { 0, 0, Long.MAX_VALUE, 0 });
+			e[0]++;
+			e[1] += t.getDuration();
+			e[2] = Math.min(e[2], t.getDuration());
+			e[3] = Math.max(e[3], t.getDuration());
+		}
+
+		List<Aggregate> aggregates = container.aggregate(by);
+		assertEquals(aggregates.size(), expected.size());
+		int i = 0;
+		for (Map.Entry<String, long[]> e : expected.entrySet()) {
+			Aggregate a = aggregates.get(i++);
+			assertEquals(a.getGroup(), e.getKey(), "groups should be ordered");
+			assertEquals((long) a.getCount(), e.getValue()[0]);
+			assertEquals(a.getSum(), e.getValue()[1]);
+			assertEquals((long) a.getMin(), e.getValue()[2]);
+			assertEquals((long) a.getMax(), e.getValue()[3]);
+			assertEquals(a.getAverage(), (double) e.getValue()[1] / e.getValue()[0], 1e-9);
+		}
+	}
+
+	@DataProvider(name = "modes")
+	private static Object[][] modes() {
+		List<Object[]> cases = new ArrayList<Object[]>();
+		for (MyTrackContainer.StorageMode mode : MyTrackContainer.StorageMode.values()) {
+			for (MyTrackContainer.GroupBy by : MyTrackContainer.GroupBy.values()) {
+				cases.add(new Object[] { mode, by });
+			}
+		}
+		return cases.toArray(new Object[0][]);
+	}
+
+	private static void assertMaterialized(MyTrackContainer container, MyTrackContainer.GroupBy by) {
+		container.reset();
+		assertEquals(container.materialized(by).toString(), container.aggregate(by).toString());
+	}
+
+	@Test(dataProvider = "modes", description = "materialized aggregates follow add, remove and update")
+	public void materialized(MyTrackContainer.StorageMode mode, MyTrackContainer.GroupBy by) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.subList(0, 5000).toArray(new Track[0]));
+		container.materialize(by);
+		assertMaterialized(container, by);
+
+		container.addAll(given.subList(5000, given.size()).toArray(new Track[0]));
+		assertMaterialized(container, by);
+
+		// removes the shortest and longest tracks, among others
+		container.filter(new DurationMatcher("0 50"));
+		assertTrue(container.remove() > 0);
+		assertMaterialized(container, by);
+		container.filter(new DurationMatcher("650 700"));
+		assertTrue(container.remove() > 0);
+		assertMaterialized(container, by);
+
+		container.filter(new DurationMatcher("100 110"));
+		Track t = new Track(container.selection()[0]);
+		t.setDuration(5);
+		t.setYear(1900);
+		t.setPerformer(new Artist("Sodom"));
+		t.setWriter(new Artist("Sodom"));
+		assertTrue(container.update(0, t));
+		assertMaterialized(container, by);
+
+		container.filter(new DurationMatcher("0 1000"));
+		container.remove();
+		assertTrue(container.materialized(by).isEmpty());
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "only registered aggregates are materialized")
+	public void dematerialize() {
+		MyTrackContainer container = new MyTrackContainer(given);
+		container.materialize(MyTrackContainer.GroupBy.YEAR);
+		assertTrue(container.dematerialize(MyTrackContainer.GroupBy.YEAR));
+		assertFalse(container.dematerialize(MyTrackContainer.GroupBy.YEAR));
+		container.materialized(MyTrackContainer.GroupBy.YEAR);
+	}
+
+	@Test(description = "an empty selection has no groups")
+	public void empty() {
+		MyTrackContainer container = new MyTrackContainer(given);
+		container.filter(new DurationMatcher("1000 2000"));
+		assertTrue(container.aggregate(MyTrackContainer.GroupBy.YEAR).isEmpty());
+	}
+
+	@Test(description = "aggregates are formatted in the columns of the header")
+	public void format() {
+		AggregateFormatter format = new AggregateFormatter();
+		String line = format.format(new Aggregate("Metallica", 3, 1000, 200, 500));
+		assertEquals(line.length(), format.header().length());
+		assertEquals(format.topSeparator().length(), format.header().length());
+		assertTrue(line.startsWith("Metallica "));
+		assertTrue(line.endsWith("16:40    3:20    8:20    5:33"), line);
+	}
+}
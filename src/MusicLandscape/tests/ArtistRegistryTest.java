@@ -0,0 +1,114 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.io.BufferedReader;
+import java.io.FileNotFoundException;
+import java.io.FileReader;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.ArtistRegistry;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.io.MyTrackCSVReader;
+
+/**
+ * Checks that tracks share one artist object per name.
+ */
+public class ArtistRegistryTest {
+
+	@Test(description = "artists of the same name are the same object")
+	public void shared() {
+		assertSame(ArtistRegistry.of("Metallica"), ArtistRegistry.of(new String("Metallica")));
+		assertSame(ArtistRegistry.of(new Artist("Metallica")), ArtistRegistry.of("Metallica"));
+		assertSame(ArtistRegistry.of((String) null), ArtistRegistry.of(new Artist((String) null)));
+		assertNull(ArtistRegistry.of((String) null).getName());
+		assertNotSame(ArtistRegistry.of("Metallica"), ArtistRegistry.of("Megadeth"));
+	}
+
+	@Test(description = "tracks refer to the shared artists, whatever artist objects they are given")
+	public void setters() {
+		Track a = new Track("One");
+		a.setWriter(new Artist("Hetfield Ulrich"));
+		a.setPerformer(new Artist("Metallica"));
+		Track b = new Track("Two");
+		b.setWriter(new Artist("Hetfield Ulrich"));
+		b.setPerformer(new Artist("Metallica"));
+		assertSame(a.getWriter(), b.getWriter());
+		assertSame(a.getPerformer(), b.getPerformer());
+		assertSame(a.getPerformer().getName(), b.getPerformer().getName(), "the name should be shared as well");
+		assertSame(new Track(a).getWriter(), a.getWriter());
+		assertSame(new Track().getWriter(), new Track("x").getPerformer());
+		assertEquals(new Track().getWriter().getName(), "unknown");
+	}
+
+	@Test(description = "artists not obtained from the registry can be renamed, without affecting tracks")
+	public void rename() {
+		Track t = new Track("One");
+		Artist own = new Artist("Metallica");
+		t.setPerformer(own);
+		own.setName("Megadeth");
+		assertEquals(own.getName(), "Megadeth");
+		assertEquals(t.getPerformer().getName(), "Metallica");
+	}
+
+	@Test(expectedExceptions = { UnsupportedOperationException.class }, description = "shared artists cannot be renamed")
+	public void renameShared() {
+		Track t = new Track("One");
+		t.setPerformer(new Artist("Metallica"));
+		try {
+			t.getPerformer().setName("Megadeth");
+		} finally {
+			assertEquals(ArtistRegistry.of("Metallica").getName(), "Metallica");
+		}
+	}
+
+	@Test(description = "an artist no track refers to any more is collected and its name dropped")
+	public void collected() throws InterruptedException {
+		String name = "Collected " + System.nanoTime();
+		Track dropped = new Track("One");
+		dropped.setWriter(new Artist(name));
+		Track kept = new Track("Two");
+		kept.setWriter(new Artist("Kept " + name));
+		WeakReference<Artist> artist = new WeakReference<Artist>(dropped.getWriter());
+		int size = ArtistRegistry.size();
+		dropped = null;
+		for (int i = 0; i < 200 && (artist.get() != null || ArtistRegistry.size() >= size); i++) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		assertNull(artist.get(), "the registry should not keep the artist reachable");
+		assertTrue(ArtistRegistry.size() < size, "the name should have been dropped");
+		assertSame(ArtistRegistry.of("Kept " + name), kept.getWriter(), "an artist referred to should be kept");
+		assertEquals(ArtistRegistry.of(name).getName(), name);
+	}
+
+	@Test(description = "tracks read from a file and retrieved from columnar storage share their artists")
+	public void ingest() throws FileNotFoundException {
+		MyTrackCSVReader reader = new MyTrackCSVReader(new BufferedReader(new FileReader("metallica_tracks.csv")));
+		List<Track> tracks = new ArrayList<Track>();
+		Track t;
+		while ((t = reader.get()) != null) {
+			tracks.add(t);
+		}
+		assertTrue(tracks.size() > 1);
+		for (Track track : tracks) {
+			assertSame(track.getWriter(), ArtistRegistry.of(track.getWriter().getName()));
+			assertSame(track.getPerformer(), ArtistRegistry.of(track.getPerformer().getName()));
+		}
+
+		MyTrackContainer container = new MyTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		container.addAll(tracks.toArray(new Track[0]));
+		container.reset();
+		Track[] selection = container.selection();
+		for (int i = 0; i < selection.length; i++) {
+			assertSame(selection[i].getWriter(), tracks.get(i).getWriter());
+			assertSame(selection[i].getPerformer(), tracks.get(i).getPerformer());
+		}
+	}
+}
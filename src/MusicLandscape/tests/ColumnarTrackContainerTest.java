@@ -0,0 +1,103 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks that a container in COLUMNAR storage mode behaves like a default container.
+ */
+public class ColumnarTrackContainerTest {
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		container = new MyTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		container.addAll(getTracks().toArray(new Track[0]));
+		container.reset();
+	}
+
+	@Test(description = "tracks are unique by all their values and null tracks are refused")
+	public void add() {
+		assertFalse(container.add(new Track(container.selection()[1])), "a track equal to a stored one should not be added");
+		assertFalse(container.add(null), "null should not be added");
+		assertTrue(container.add(new Track("Time")), "a track sharing only the title with a stored one should be added");
+		assertEquals(container.size(), 4, "container should hold 4 tracks");
+		assertEquals(container.selection().length, 3, "an added track should not be selected");
+	}
+
+	@Test(description = "materialized tracks carry all stored values")
+	public void selection() {
+		Track first = container.selection()[0];
+		assertEquals(first.getTitle(), "Speak To Me");
+		assertEquals(first.getWriter().getName(), "X Writer");
+		assertEquals(first.getPerformer().getName(), "unknown");
+		assertEquals(first.getDuration(), 73);
+		assertEquals(first.getYear(), 1995);
+
+		container.add(new Track());
+		container.reset();
+		assertEquals(container.selection()[3].getYear(), 0, "the year of a default track should be kept");
+	}
+
+	@Test(description = "column filters give the same result as the matchers")
+	public void filter() {
+		assertEquals(container.filter(new DurationMatcher("100 2000")), 1, "one track is shorter than 100 seconds");
+		assertEquals(container.filter(new YearMatcher("2000 2999")), 1, "one remaining track is older than 2000");
+		assertEquals(container.selection()[0].getTitle(), "Time");
+		assertEquals(container.filter(new TitleMatcher("T")), 0, "the remaining track starts with T");
+	}
+
+	@Test(description = "sorting orders the materialized selection")
+	public void sort() {
+		container.sort(new DurationComparator(), false);
+		Track[] sorted = container.selection();
+		assertEquals(sorted[0].getTitle(), "Time");
+		assertEquals(sorted[1].getTitle(), "The great Gig In The Sky");
+		assertEquals(sorted[2].getTitle(), "Speak To Me");
+	}
+
+	@Test(description = "removing the selection keeps the remaining tracks intact")
+	public void remove() {
+		container.filter(new TitleMatcher("T"));
+		assertEquals(container.remove(), 2, "two tracks start with T");
+		assertEquals(container.size(), 1);
+		assertEquals(container.selection()[0].getTitle(), "Speak To Me");
+		assertTrue(container.add(new Track("Time")), "a removed title can be added again");
+	}
+
+	private List<Track> getTracks() {
+		List<Track> tracks = new ArrayList<Track>();
+		Track t = new Track("Speak To Me");
+		t.setDuration(73);
+		t.setWriter(new Artist("X Writer"));
+		t.setYear(1995);
+		tracks.add(t);
+
+		t = new Track("Time");
+		t.setDuration(1624);
+		t.setWriter(new Artist("Another Writer"));
+		t.setYear(2013);
+		tracks.add(t);
+
+		t = new Track("The great Gig In The Sky");
+		t.setDuration(288);
+		t.setWriter(new Artist("Pink Floyd"));
+		t.setYear(1973);
+		tracks.add(t);
+		return tracks;
+	}
+}
@@ -0,0 +1,116 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.*;
+
+/**
+ * Checks AndMatcher, OrMatcher and NotMatcher on their own and as filters planned by the container.
+ */
+public class CombinedMatcherTest {
+
+	private List<Track> given;
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		String[] names = { "Metallica", "Megadeth", "Slayer" };
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 2000; i++) {
+			Track t = new Track((i % 7 == 0 ? "Death " : "Life ") + i);
+			t.setWriter(new Artist(names[i % 3]));
+			t.setPerformer(new Artist(names[(i / 3) % 3]));
+			t.setDuration(i % 500);
+			t.setYear(1960 + i % 60);
+			given.add(t);
+		}
+		container = new MyTrackContainer(given);
+	}
+
+	/**
+	 * a matcher no index can answer: even durations.
+	 */
+	private static MyMatcher<Track> even() {
+		return new MyMatcher<Track>("") {
+			@Override
+			public boolean matches(Track t) {
+				return t.getDuration() % 2 == 0;
+			}
+
+			@Override
+			public void setPattern(String pat) {
+			}
+
+			@Override
+			public String getPattern() {
+				return "";
+			}
+		};
+	}
+
+	@DataProvider(name = "combinations")
+	private static Object[][] combinations() {
+		return new Object[][] {
+				{ new AndMatcher<Track>(new TitleMatcher("Death"), new YearMatcher("1980 1991")) },
+				{ new AndMatcher<Track>(even(), new DurationMatcher("300 320"), new PerformerMatcher("Meta")) },
+				{ new OrMatcher<Track>(new WriterMatcher("Slayer"), new DurationMatcher("0 10"), even()) },
+				{ new NotMatcher<Track>(new ArtistMatcher("Meg")) },
+				{ new AndMatcher<Track>(new OrMatcher<Track>(new TitleMatcher("D"), even()),
+						new NotMatcher<Track>(new YearMatcher("1990 2019"))) },
+				{ new AndMatcher<Track>(new TitleMatcher("Nothing"), even()) },
+				{ new AndMatcher<Track>() },
+				{ new OrMatcher<Track>() },
+		};
+	}
+
+	@Test(dataProvider = "combinations", description = "a planned filter keeps exactly the tracks the matcher matches")
+	public void filter(MyMatcher<Track> matcher) {
+		int expected = 0;
+		for (Track t : given) {
+			if (matcher.matches(t)) {
+				expected++;
+			}
+		}
+		assertEquals(container.filter(matcher), given.size() - expected, "wrong number of tracks removed by " + matcher);
+		for (Track t : container.selection()) {
+			assertTrue(matcher.matches(t), t + " should not be selected by " + matcher);
+		}
+	}
+
+	@Test(description = "the combinators evaluate as boolean operators")
+	public void matches() {
+		Track t = new Track("Death Magnetic");
+		t.setYear(2008);
+		MyMatcher<Track> title = new TitleMatcher("Death");
+		MyMatcher<Track> year = new YearMatcher("1980 1991");
+		assertFalse(new AndMatcher<Track>(title, year).matches(t));
+		assertTrue(new OrMatcher<Track>(title, year).matches(t));
+		assertTrue(new NotMatcher<Track>(year).matches(t));
+		assertTrue(new AndMatcher<Track>().matches(t), "an empty conjunction should match everything");
+		assertFalse(new OrMatcher<Track>().matches(t), "an empty disjunction should match nothing");
+	}
+
+	@Test(description = "the string representation shows the combined matchers")
+	public void testtoString() {
+		MyMatcher<Track> m = new AndMatcher<Track>(new TitleMatcher("D"),
+				new NotMatcher<Track>(new YearMatcher("1980 1991")));
+		assertEquals(m.toString(), "(title starts with (D)) and (not (year in range (1980 1991)))");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "null operands are refused")
+	public void nullOperand() {
+		new OrMatcher<Track>(new TitleMatcher("D"), null);
+	}
+}
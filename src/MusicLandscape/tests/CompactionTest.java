@@ -0,0 +1,190 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.comparators.TitleComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks that removed tracks are gone at once, before as well as after the storage has been compacted.
+ */
+public class CompactionTest {
+
+	private Track[] given;
+
+	@BeforeMethod
+	private void init() {
+		given = new Track[3000];
+		for (int i = 0; i < given.length; i++) {
+			given[i] = new Track("Track " + i);
+			given[i].setWriter(new Artist("Writer " + i % 7));
+			given[i].setDuration((i * 37) % 600);
+			given[i].setYear(1950 + i % 70);
+		}
+	}
+
+	@DataProvider(name = "modes")
+	private static Object[][] modes() {
+		MyTrackContainer.StorageMode[] modes = MyTrackContainer.StorageMode.values();
+		Object[][] cases = new Object[modes.length][];
+		for (int i = 0; i < modes.length; i++) {
+			cases[i] = new Object[] { modes[i] };
+		}
+		return cases;
+	}
+
+	private MyTrackContainer create(MyTrackContainer.StorageMode mode) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given);
+		container.reset();
+		return container;
+	}
+
+	/**
+	 * @return a container holding the given tracks with durations from 200 on, as after removing the others
+	 */
+	private MyTrackContainer remaining() {
+		List<Track> kept = new ArrayList<Track>();
+		for (Track t : given) {
+			if (t.getDuration() >= 200) {
+				kept.add(t);
+			}
+		}
+		return new MyTrackContainer(kept);
+	}
+
+	@Test(dataProvider = "modes", description = "removed tracks are gone before the storage is compacted")
+	public void removeWithoutCompaction(MyTrackContainer.StorageMode mode) {
+		MyTrackContainer container = create(mode);
+		container.setCompactionThreshold(1);
+		container.materialize(MyTrackContainer.GroupBy.WRITER);
+		MyTrackContainer expected = remaining();
+
+		container.filter(new DurationMatcher("0 199"));
+		assertEquals(container.remove(), given.length - expected.size());
+		assertEquals(container.size(), expected.size());
+		assertEquals(container.selection(), expected.selection());
+		assertEquals(container.materialized(MyTrackContainer.GroupBy.WRITER).toString(),
+				expected.aggregate(MyTrackContainer.GroupBy.WRITER).toString());
+
+		container.filter(new YearMatcher("1960 1969"));
+		expected.filter(new YearMatcher("1960 1969"));
+		container.sort(new TitleComparator(), false);
+		expected.sort(new TitleComparator(), false);
+		assertEquals(container.selection(), expected.selection());
+
+		assertTrue(container.add(new Track(given[0])), "a track equal to a removed one should be added again");
+		assertTrue(expected.add(new Track(given[0])));
+		container.reset();
+		expected.reset();
+		assertEquals(container.selection(), expected.selection());
+
+		container.compact();
+		assertEquals(container.size(), expected.size());
+		assertEquals(container.selection(), expected.selection());
+		assertEquals(container.materialized(MyTrackContainer.GroupBy.WRITER).toString(),
+				expected.aggregate(MyTrackContainer.GroupBy.WRITER).toString());
+	}
+
+	@Test(dataProvider = "modes", description = "selections, history and saved selections survive a compaction")
+	public void keepSelections(MyTrackContainer.StorageMode mode) {
+		MyTrackContainer container = create(mode);
+		container.setCompactionThreshold(1);
+		container.saveSelection("all");
+		container.filter(new DurationMatcher("0 199"));
+		container.remove();
+
+		container.filter(new TitleMatcher("Track 1"));
+		Track[] filtered = container.selection();
+		container.sort(new DurationComparator(), true);
+		Track[] sorted = container.selection();
+		container.saveSelection("sorted");
+
+		container.compact();
+		assertEquals(container.selection(), sorted);
+		assertTrue(container.undo());
+		assertEquals(container.selection(), filtered);
+		assertTrue(container.redo());
+		assertEquals(container.selection(), sorted);
+
+		container.reset();
+		assertTrue(container.restoreSelection("sorted"));
+		assertEquals(container.selection(), sorted);
+		assertTrue(container.restoreSelection("all"));
+		assertEquals(container.selection(), remaining().selection());
+	}
+
+	@Test(description = "a saved selection restored before compaction leaves out the removed tracks")
+	public void restoreRemoved() {
+		MyTrackContainer container = create(MyTrackContainer.StorageMode.OBJECT);
+		container.setCompactionThreshold(1);
+		container.saveSelection("all");
+		container.filter(new DurationMatcher("0 199"));
+		container.remove();
+		assertTrue(container.restoreSelection("all"));
+		assertEquals(container.selection(), remaining().selection());
+	}
+
+	@Test(dataProvider = "modes", description = "queries give the same results while the storage is compacted in the background")
+	public void background(MyTrackContainer.StorageMode mode) {
+		MyTrackContainer container = create(mode);
+		container.setCompactionThreshold(0);
+		MyTrackContainer expected = remaining();
+		container.filter(new DurationMatcher("0 199"));
+		container.remove();
+		for (int i = 0; i < 20; i++) {
+			container.reset();
+			expected.reset();
+			container.filter(new YearMatcher((1950 + i) + " " + (1980 + i)));
+			expected.filter(new YearMatcher((1950 + i) + " " + (1980 + i)));
+			container.sort(new DurationComparator(), i % 2 == 0);
+			expected.sort(new DurationComparator(), i % 2 == 0);
+			assertEquals(container.selection(), expected.selection());
+		}
+		container.compact();
+		assertEquals(container.selection(), expected.selection());
+	}
+
+	@Test(description = "saved selections written after removal can be read by a container of the remaining tracks")
+	public void persist() throws IOException {
+		MyTrackContainer container = create(MyTrackContainer.StorageMode.COLUMNAR);
+		container.setCompactionThreshold(1);
+		container.filter(new DurationMatcher("0 199"));
+		container.remove();
+		container.filter(new TitleMatcher("Track 2"));
+		container.saveSelection("two");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		container.writeSavedSelections(out);
+
+		MyTrackContainer expected = remaining();
+		assertEquals(expected.readSavedSelections(new ByteArrayInputStream(out.toByteArray())), 1);
+		assertTrue(expected.restoreSelection("two"));
+		assertEquals(expected.selection(), container.selection());
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void invalidThreshold() {
+		new MyTrackContainer().setCompactionThreshold(1.5);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nanThreshold() {
+		new MyTrackContainer().setCompactionThreshold(Double.NaN);
+	}
+}
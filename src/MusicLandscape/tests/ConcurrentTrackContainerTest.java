@@ -0,0 +1,159 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.ConcurrentTrackContainer;
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+
+/**
+ * Checks sessions of a ConcurrentTrackContainer, alone and with writers running concurrently.
+ */
+public class ConcurrentTrackContainerTest {
+
+	private ConcurrentTrackContainer container;
+
+	/**
+	 * creates a batch of tracks, all of them having the batch number as duration.
+	 */
+	private static Track[] batch(int number, int size) {
+		Track[] tracks = new Track[size];
+		for (int i = 0; i < size; i++) {
+			tracks[i] = new Track("Batch " + number + " track " + i);
+			tracks[i].setWriter(new Artist("Slayer"));
+			tracks[i].setPerformer(new Artist("Metallica"));
+			tracks[i].setDuration(number);
+			tracks[i].setYear(1980 + i % 20);
+		}
+		return tracks;
+	}
+
+	@BeforeMethod
+	private void init() {
+		container = new ConcurrentTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		container.addAll(batch(0, 500));
+	}
+
+	@Test(description = "sessions select independently of each other")
+	public void sessions() {
+		ConcurrentTrackContainer.Session first = container.openSession();
+		ConcurrentTrackContainer.Session second = container.openSession();
+		assertEquals(first.filter(new TitleMatcher("Batch 0 track 1")), 500 - 111);
+		assertEquals(first.selection().length, 111);
+		assertEquals(second.selection().length, 500, "filtering one session should not affect another");
+	}
+
+	@Test(description = "added tracks are not selected, removed tracks drop out of other selections")
+	public void writes() {
+		ConcurrentTrackContainer.Session reader = container.openSession();
+		reader.sort(new DurationComparator(), true);
+		assertEquals(container.addAll(batch(1, 100)), 100);
+		assertFalse(container.add(batch(1, 1)[0]), "a track must not be added twice");
+		assertEquals(container.size(), 600);
+		assertEquals(reader.selection().length, 500);
+
+		ConcurrentTrackContainer.Session writer = container.openSession();
+		writer.filter(new TitleMatcher("Batch 0 track 4"));
+		assertEquals(writer.remove(), 111);
+		assertEquals(writer.selection().length, 489, "the session removing tracks should select all remaining ones");
+		Track[] selected = reader.selection();
+		assertEquals(selected.length, 389);
+		for (Track t : selected) {
+			assertFalse(t.getTitle().startsWith("Batch 0 track 4"), t + " should have been removed");
+		}
+		reader.reset();
+		assertEquals(reader.filter(new DurationMatcher("1 1")), 389);
+	}
+
+	@Test(description = "an update is seen by every session")
+	public void update() {
+		ConcurrentTrackContainer.Session editor = container.openSession();
+		ConcurrentTrackContainer.Session reader = container.openSession();
+		editor.filter(new TitleMatcher("Batch 0 track 7"));
+		Track changed = new Track(editor.selection()[0]);
+		changed.setTitle("Changed");
+		assertTrue(editor.update(0, changed));
+		changed.setTitle("Modified after the update");
+		assertEquals(reader.filter(new TitleMatcher("Changed")), 499);
+		assertEquals(reader.selection()[0].getTitle(), "Changed");
+		assertEquals(editor.selection().length, 11);
+		assertFalse(editor.update(11, changed), "position 11 of the selection should not exist");
+	}
+
+	@Test(description = "updated tracks keep their place in sorted selections, also once the storage is compacted")
+	public void repeatedUpdates() {
+		ConcurrentTrackContainer.Session editor = container.openSession();
+		ConcurrentTrackContainer.Session reader = container.openSession();
+		reader.sort(new DurationComparator(), false);
+		Track first = reader.selection()[0];
+		editor.filter(new TitleMatcher(first.getTitle()));
+		// enough updates of one track to trigger several compactions
+		for (int i = 1; i <= 400; i++) {
+			Track changed = new Track(first);
+			changed.setDuration(i);
+			assertTrue(editor.update(0, changed));
+			assertEquals(editor.selection()[0].getDuration(), i);
+		}
+		assertEquals(container.size(), 500);
+		Track[] selected = reader.selection();
+		assertEquals(selected.length, 500);
+		assertEquals(selected[0].getTitle(), first.getTitle());
+		assertEquals(selected[0].getDuration(), 400);
+		reader.reset();
+		assertEquals(reader.filter(new DurationMatcher("400 400")), 499);
+
+		ConcurrentTrackContainer.Session remover = container.openSession();
+		remover.filter(new TitleMatcher("Batch 0 track 1"));
+		assertEquals(remover.remove(), 111);
+		assertFalse(editor.update(0, batch(0, 3)[2]), "the values of another track should be refused");
+		assertTrue(editor.update(0, batch(0, 2)[1]), "the values of a removed track may be taken");
+		assertEquals(container.size(), 389);
+	}
+
+	@Test(description = "readers always see whole batches while a writer adds them")
+	public void snapshots() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (int b = 1; b <= 40; b++) {
+					container.addAll(batch(b, 250));
+				}
+			});
+			List<Future<?>> readers = new ArrayList<Future<?>>();
+			for (int r = 0; r < 3; r++) {
+				readers.add(executor.submit(() -> {
+					ConcurrentTrackContainer.Session session = container.openSession();
+					while (!writer.isDone()) {
+						session.reset();
+						int size = session.selection().length;
+						assertEquals((size - 500) % 250, 0, "a batch was seen partially");
+						session.filter(new DurationMatcher("1 40"));
+						assertEquals(session.selection().length, size - 500);
+					}
+					return null;
+				}));
+			}
+			writer.get(30, TimeUnit.SECONDS);
+			for (Future<?> reader : readers) {
+				reader.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertEquals(container.size(), 500 + 40 * 250);
+	}
+}
@@ -0,0 +1,172 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.matcher.FuzzyMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks the edit distance of FuzzyMatcher and fuzzy filtering and ranking through the trigram index of a container.
+ */
+public class FuzzyMatcherTest {
+
+	private static final String[] NAMES = { "Metallica", "Megadeth", "Motorhead", "Slayer", "Anthrax", "Sepultura",
+			"Pantera", "Testament", "Exodus", "Overkill" };
+
+	private static final String[] TITLES = { "Enter Sandman", "Master of Puppets", "One", "Battery", "Fade to Black",
+			"Symphony of Destruction", "Ace of Spades", "Raining Blood", "Caught in a Mosh", "Roots Bloody Roots" };
+
+	private List<Track> given;
+
+	@BeforeMethod
+	private void init() {
+		Random random = new Random(5);
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 5000; i++) {
+			Track t = new Track(typo(TITLES[i % TITLES.length], random) + " " + i);
+			t.setWriter(new Artist(typo(NAMES[random.nextInt(NAMES.length)], random)));
+			t.setPerformer(new Artist(typo(NAMES[random.nextInt(NAMES.length)], random)));
+			t.setYear(1980 + i % 30);
+			given.add(t);
+		}
+	}
+
+	@Test(description = "the bounded distance agrees with the full Levenshtein distance")
+	public void distance() {
+		assertEquals(FuzzyMatcher.distance("metalica", "metallica", 2), 1);
+		assertEquals(FuzzyMatcher.distance("enter sandmen", "enter sandman", 2), 1);
+		assertEquals(FuzzyMatcher.distance("kitten", "sitting", 5), 3);
+		assertEquals(FuzzyMatcher.distance("kitten", "sitting", 2), 3);
+		assertEquals(FuzzyMatcher.distance("", "abc", 3), 3);
+		Random random = new Random(1);
+		for (int n = 0; n < 2000; n++) {
+			String a = randomString(random);
+			String b = randomString(random);
+			int max = random.nextInt(4);
+			assertEquals(FuzzyMatcher.distance(a, b, max), Math.min(levenshtein(a, b), max + 1), a + " / " + b);
+		}
+	}
+
+	@Test(description = "typos are matched ignoring case")
+	public void matches() {
+		Track t = new Track("Enter Sandman");
+		t.setWriter(new Artist("Metallica"));
+		t.setPerformer(new Artist("Metallica"));
+		assertTrue(new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "enter sandmen").matches(t));
+		assertTrue(new FuzzyMatcher(FuzzyMatcher.Field.WRITER, "Metalica", 1).matches(t));
+		assertTrue(new FuzzyMatcher(FuzzyMatcher.Field.ARTIST, "METALICA").matches(t));
+		assertFalse(new FuzzyMatcher(FuzzyMatcher.Field.PERFORMER, "Megadeth").matches(t));
+		assertFalse(new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "Enter Sandmen", 0).matches(t));
+		assertEquals(new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "Entr Sandmen").distanceTo(t), 2);
+		assertEquals(new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "Enter").toString(), "title within 2 of (Enter)");
+	}
+
+	@Test(description = "an indexed fuzzy filter selects exactly the tracks the matcher accepts")
+	public void filter() {
+		for (FuzzyMatcher.Field field : FuzzyMatcher.Field.values()) {
+			for (String pattern : new String[] { "Metalica", "Enter Sandmen", "Slayr", "One 72", "", "Blood 70" }) {
+				for (int distance = 0; distance <= 3; distance++) {
+					FuzzyMatcher matcher = new FuzzyMatcher(field, pattern, distance);
+					List<Track> expected = new ArrayList<Track>();
+					for (Track t : given) {
+						if (matcher.matches(t)) {
+							expected.add(t);
+						}
+					}
+					MyTrackContainer container = new MyTrackContainer(given);
+					container.filter(matcher);
+					assertEquals(Arrays.asList(container.selection()), expected, matcher.toString());
+				}
+			}
+		}
+	}
+
+	@Test(description = "the closest tracks come first")
+	public void closest() {
+		FuzzyMatcher matcher = new FuzzyMatcher(FuzzyMatcher.Field.PERFORMER, "Megadet", 2);
+		MyTrackContainer container = new MyTrackContainer(given);
+		container.filter(new YearMatcher("1990 1999"));
+		List<Track> selected = Arrays.asList(container.selection());
+		Track[] closest = container.closest(matcher);
+		assertTrue(closest.length > 0);
+		int previous = 0;
+		int matching = 0;
+		for (Track t : closest) {
+			assertTrue(selected.contains(t));
+			int distance = matcher.distanceTo(t);
+			assertTrue(distance >= previous && distance <= 2, t.toString());
+			previous = distance;
+		}
+		for (Track t : selected) {
+			matching += matcher.matches(t) ? 1 : 0;
+		}
+		assertEquals(closest.length, matching);
+		assertEquals(Arrays.asList(container.selection()), selected);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void negativeDistance() {
+		new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "One", -1);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nullField() {
+		new FuzzyMatcher(null, "One");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nullMatcher() {
+		new MyTrackContainer(given).closest(null);
+	}
+
+	/**
+	 * @return the text with a random character replaced, inserted or deleted in about half the cases
+	 */
+	private static String typo(String text, Random random) {
+		int at = random.nextInt(text.length());
+		switch (random.nextInt(6)) {
+		case 0:
+			return text.substring(0, at) + (char) ('a' + random.nextInt(26)) + text.substring(at + 1);
+		case 1:
+			return text.substring(0, at) + (char) ('a' + random.nextInt(26)) + text.substring(at);
+		case 2:
+			return text.substring(0, at) + text.substring(at + 1);
+		default:
+			return text;
+		}
+	}
+
+	private static String randomString(Random random) {
+		char[] chars = new char[random.nextInt(8)];
+		for (int i = 0; i < chars.length; i++) {
+			chars[i] = (char) ('a' + random.nextInt(3));
+		}
+		return new String(chars);
+	}
+
+	private static int levenshtein(String a, String b) {
+		int[][] d = new int[a.length() + 1][b.length() + 1];
+		for (int i = 0; i <= a.length(); i++) {
+			for (int j = 0; j <= b.length(); j++) {
+				if (i == 0 || j == 0) {
+					d[i][j] = i + j;
+				} else {
+					d[i][j] = Math.min(d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+							Math.min(d[i - 1][j], d[i][j - 1]) + 1);
+				}
+			}
+		}
+		return d[a.length()][b.length()];
+	}
+}
@@ -0,0 +1,148 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.*;
+
+/**
+ * Checks folding and the case- and accent-insensitive prefix matchers, alone and answered from the folded keys of a
+ * container in every storage mode.
+ */
+public class InsensitiveMatcherTest {
+
+	private static final String[] NAMES = { "Mot\u00f6rhead", "MOTORHEAD", "Bj\u00f6rk", "Sigur R\u00f3s",
+			"Die \u00c4rzte", "Stra\u00dfenjungs", "Beyonc\u00e9", "bjork" };
+
+	private List<Track> given;
+
+	@BeforeMethod
+	private void init() {
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 2000; i++) {
+			Track t = new Track(NAMES[i % NAMES.length] + " Caf\u00e9 " + i);
+			t.setWriter(new Artist(NAMES[(i / 3) % NAMES.length]));
+			t.setPerformer(new Artist(NAMES[(i / 7) % NAMES.length]));
+			t.setYear(1970 + i % 50);
+			given.add(t);
+		}
+	}
+
+	@DataProvider(name = "matchers")
+	private static Object[][] matchers() {
+		List<Object[]> matchers = new ArrayList<Object[]>();
+		for (MyTrackContainer.StorageMode mode : MyTrackContainer.StorageMode.values()) {
+			for (MyMatcher<Track> matcher : Arrays.<MyMatcher<Track>> asList(
+					new InsensitiveTitleMatcher("motorhead"),
+					new InsensitiveTitleMatcher("BJ\u00d6RK CAFE 1"),
+					new InsensitiveWriterMatcher("bjo"),
+					new InsensitiveWriterMatcher("strasse"),
+					new InsensitivePerformerMatcher("die arzte"),
+					new InsensitiveArtistMatcher("BEYONCE"),
+					new InsensitiveArtistMatcher(""),
+					new InsensitiveTitleMatcher("nothing"))) {
+				matchers.add(new Object[] { mode, matcher });
+			}
+		}
+		return matchers.toArray(new Object[0][]);
+	}
+
+	@Test(description = "keys ignore case and accents")
+	public void fold() {
+		assertEquals(Folding.fold("Mot\u00f6rhead"), "motorhead");
+		assertEquals(Folding.fold("MOTORHEAD"), "motorhead");
+		assertEquals(Folding.fold("Stra\u00dfe"), "strasse");
+		assertEquals(Folding.fold("Sigur R\u00f3s"), "sigur ros");
+		assertEquals(Folding.fold("e\u0301"), "e");
+		assertNull(Folding.fold(null));
+		String folded = "already folded 42";
+		assertSame(Folding.fold(folded), folded);
+	}
+
+	@Test(description = "the matchers compare prefixes ignoring case and accents")
+	public void matches() {
+		Track t = new Track("Caf\u00e9 del Mar");
+		t.setWriter(new Artist("Bj\u00f6rk"));
+		t.setPerformer(new Artist("Mot\u00f6rhead"));
+		assertTrue(new InsensitiveTitleMatcher("CAFE").matches(t));
+		assertTrue(new InsensitiveTitleMatcher("caf\u00c9 DEL").matches(t));
+		assertFalse(new InsensitiveTitleMatcher("del").matches(t));
+		assertTrue(new InsensitiveWriterMatcher("bjork").matches(t));
+		assertFalse(new InsensitiveWriterMatcher("motor").matches(t));
+		assertTrue(new InsensitivePerformerMatcher("MOTORHEAD").matches(t));
+		assertTrue(new InsensitiveArtistMatcher("motor").matches(t));
+		assertTrue(new InsensitiveArtistMatcher("BJ").matches(t));
+		assertFalse(new TitleMatcher("cafe").matches(t), "the sensitive matcher should still compare exactly");
+		assertEquals(new InsensitiveWriterMatcher("Bj").toString(),
+				new WriterMatcher("Bj").toString() + " ignoring case");
+	}
+
+	@Test(description = "the key follows the pattern")
+	public void setPattern() {
+		InsensitiveTitleMatcher matcher = new InsensitiveTitleMatcher("Caf\u00e9");
+		assertEquals(matcher.getKey(), "cafe");
+		matcher.setPattern("\u00c4RZTE");
+		assertEquals(matcher.getPattern(), "\u00c4RZTE");
+		assertEquals(matcher.getKey(), "arzte");
+	}
+
+	@Test(dataProvider = "matchers", description = "a filter answered from folded keys selects exactly the matches")
+	public void filter(MyTrackContainer.StorageMode mode, MyMatcher<Track> matcher) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.toArray(new Track[0]));
+		container.reset();
+		container.filter(matcher);
+		assertEquals(titles(container.selection(), null), titles(given.toArray(new Track[0]), matcher),
+				matcher.toString());
+	}
+
+	@Test(dataProvider = "matchers", description = "keys of added and updated tracks are folded too")
+	public void filterAfterModification(MyTrackContainer.StorageMode mode, MyMatcher<Track> matcher) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.toArray(new Track[0]));
+		container.reset();
+		container.filter(matcher);
+
+		Track added = new Track("MOT\u00d6RHEAD Caf\u00c9 added");
+		added.setWriter(new Artist("STRA\u00dfE"));
+		added.setPerformer(new Artist("beyonce"));
+		container.add(added);
+		container.reset();
+		container.filter(new InsensitiveTitleMatcher("sigur ros cafe 3"));
+		Track edited = new Track(container.selection()[0]);
+		edited.setTitle("Die \u00e4rzte Caf\u00e9 edited");
+		edited.setWriter(new Artist("Bj\u00f6rk"));
+		assertTrue(container.update(0, edited));
+
+		container.reset();
+		List<String> expected = titles(container.selection(), matcher);
+		container.filter(matcher);
+		assertEquals(titles(container.selection(), null), expected, matcher.toString());
+	}
+
+	/**
+	 * @return the sorted titles of the tracks the matcher accepts, of all tracks if it is null
+	 */
+	private static List<String> titles(Track[] tracks, MyMatcher<Track> matcher) {
+		List<String> titles = new ArrayList<String>();
+		for (Track t : tracks) {
+			if (matcher == null || matcher.matches(t)) {
+				titles.add(t.getTitle());
+			}
+		}
+		titles.sort(null);
+		return titles;
+	}
+}
@@ -0,0 +1,209 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.*;
+
+/**
+ * Checks that filters answered by the container's prefix, folded key, range, term and trigram indexes select exactly
+ * the tracks the matchers accept, and that the literal text of regular expressions narrows them down correctly.
+ */
+public class MyTrackContainerIndexTest {
+
+	private static final String[] NAMES = { "Metallica", "Megadeth", "Motorhead", "Slayer", "Anthrax" };
+
+	private List<Track> given;
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 3000; i++) {
+			Track t = new Track(NAMES[i % 5].substring(0, 1 + i % 4) + " song " + i);
+			t.setWriter(new Artist(NAMES[(i / 5) % 5]));
+			t.setPerformer(new Artist(NAMES[(i / 25) % 5]));
+			t.setDuration(i % 600);
+			t.setYear(1900 + i % 120);
+			given.add(t);
+		}
+		container = new MyTrackContainer(given);
+	}
+
+	@DataProvider(name = "matchers")
+	private static Object[][] matchers() {
+		return new Object[][] {
+				{ new TitleMatcher("M") },
+				{ new TitleMatcher("Me s") },
+				{ new TitleMatcher("") },
+				{ new TitleMatcher("x") },
+				{ new WriterMatcher("Me") },
+				{ new PerformerMatcher("Slayer") },
+				{ new ArtistMatcher("Meg") },
+				{ new DurationMatcher() },
+				{ new DurationMatcher("100 200") },
+				{ new DurationMatcher("300") },
+				{ new DurationMatcher("599 599") },
+				{ new YearMatcher("1980 1991") },
+				{ new YearMatcher("1950") },
+				{ new TitleTermMatcher("song") },
+				{ new TitleTermMatcher("SONG 7") },
+				{ new TitleTermMatcher("\"me song\"") },
+				{ new TitleTermMatcher("met OR 12 OR \"s song\"") },
+				{ new TitleTermMatcher("") },
+				{ new TitleTermMatcher("nothing") },
+				{ new FuzzyMatcher(FuzzyMatcher.Field.WRITER, "Metalica") },
+				{ new FuzzyMatcher(FuzzyMatcher.Field.ARTIST, "slayr", 1) },
+				{ new FuzzyMatcher(FuzzyMatcher.Field.TITLE, "Me song 100", 1) },
+				{ new InsensitiveTitleMatcher("me S") },
+				{ new InsensitiveWriterMatcher("mE") },
+				{ new InsensitivePerformerMatcher("SLAYER") },
+				{ new InsensitiveArtistMatcher("meg") },
+				{ new RegexMatcher(RegexMatcher.Field.TITLE, "^Me? song 1[0-4]") },
+				{ new RegexMatcher(RegexMatcher.Field.TITLE, "song \\d*7$") },
+				{ new RegexMatcher(RegexMatcher.Field.ARTIST, "^Sla") },
+				{ new RegexMatcher(RegexMatcher.Field.WRITER, ".*adeth") },
+		};
+	}
+
+	@DataProvider(name = "subclasses")
+	private static Object[][] subclasses() {
+		// subclasses matching the opposite of what their superclass matches
+		List<MyMatcher<Track>> matchers = new ArrayList<MyMatcher<Track>>();
+		matchers.add(new TitleMatcher("M") {
+			@Override
+			public boolean matches(Track t) {
+				return !super.matches(t);
+			}
+		});
+		matchers.add(new ArtistMatcher("Meg") {
+			@Override
+			public boolean matches(Track t) {
+				return !super.matches(t);
+			}
+		});
+		matchers.add(new InsensitiveWriterMatcher("mE") {
+			@Override
+			public boolean matches(Track t) {
+				return !super.matches(t);
+			}
+		});
+		matchers.add(new DurationMatcher("100 200") {
+			@Override
+			public boolean matches(Track t) {
+				return !super.matches(t);
+			}
+		});
+		matchers.add(new RegexMatcher(RegexMatcher.Field.TITLE, "^Me? song 1[0-4]") {
+			@Override
+			public boolean matches(Track t) {
+				return !super.matches(t);
+			}
+		});
+		matchers.add(new NotBoth(new TitleMatcher("M"), new YearMatcher("1980 1991")));
+		List<Object[]> cases = new ArrayList<Object[]>();
+		for (MyTrackContainer.StorageMode mode : MyTrackContainer.StorageMode.values()) {
+			for (MyMatcher<Track> matcher : matchers) {
+				cases.add(new Object[] { mode, matcher });
+			}
+		}
+		return cases.toArray(new Object[0][]);
+	}
+
+	@Test(dataProvider = "matchers", description = "an indexed filter removes exactly the tracks not matching")
+	public void filter(MyMatcher<Track> matcher) {
+		assertEquals(container.filter(matcher), given.size() - count(given, matcher));
+		for (Track t : container.selection()) {
+			assertTrue(matcher.matches(t), t + " should not be selected by " + matcher);
+		}
+	}
+
+	@Test(dataProvider = "matchers", description = "tracks added or removed after the index was built are seen")
+	public void filterAfterModification(MyMatcher<Track> matcher) {
+		container.filter(new TitleMatcher("M"));
+		container.filter(new WriterMatcher("A"));
+		container.remove();
+
+		List<Track> remaining = new ArrayList<Track>(List.of(container.selection()));
+		Track added = new Track("Me song added");
+		added.setWriter(new Artist("Megadeth"));
+		added.setPerformer(new Artist("Slayer"));
+		container.add(added);
+		remaining.add(added);
+		container.reset();
+
+		assertEquals(container.filter(matcher), remaining.size() - count(remaining, matcher));
+	}
+
+	@Test(dataProvider = "subclasses", description = "subclasses of indexed matchers are filtered by their own matches()")
+	public void subclass(MyTrackContainer.StorageMode mode, MyMatcher<Track> matcher) {
+		MyTrackContainer stored = new MyTrackContainer(mode);
+		stored.addAll(given.toArray(new Track[0]));
+		stored.reset();
+		int matching = count(given, matcher);
+		assertTrue(matching > 0 && matching < given.size(), "the matcher should select some tracks");
+		assertEquals(stored.filter(matcher), given.size() - matching);
+		for (Track t : stored.selection()) {
+			assertTrue(matcher.matches(t), t + " should not be selected by " + matcher);
+		}
+	}
+
+	@Test(description = "an updated track is found under its new title only")
+	public void update() {
+		container.filter(new TitleMatcher("Slay song 3"));
+		Track edited = new Track(container.selection()[0]);
+		String old = edited.getTitle();
+		edited.setTitle("Zz edited");
+		assertTrue(container.update(0, edited));
+
+		container.reset();
+		assertEquals(container.filter(new TitleMatcher("Zz")), given.size() - 1);
+		container.reset();
+		container.filter(new TitleMatcher(old));
+		for (Track t : container.selection()) {
+			assertFalse(t.getTitle().equals(old), "the old title should not be found any more");
+		}
+		container.reset();
+		container.filter(new TitleMatcher("M song 0"));
+		Track other = new Track(container.selection()[0]);
+		container.reset();
+		container.filter(new TitleMatcher("Zz"));
+		assertFalse(container.update(0, other), "an update making the track equal to another track should be refused");
+	}
+
+	/**
+	 * A conjunction of two matchers matching the opposite of what the AndMatcher it extends matches.
+	 */
+	private static class NotBoth extends AndMatcher<Track> {
+
+		NotBoth(MyMatcher<Track> first, MyMatcher<Track> second) {
+			super(first, second);
+		}
+
+		@Override
+		public boolean matches(Track t) {
+			return !super.matches(t);
+		}
+	}
+
+	private static int count(List<Track> tracks, MyMatcher<Track> matcher) {
+		int count = 0;
+		for (Track t : tracks) {
+			if (matcher.matches(t)) {
+				count++;
+			}
+		}
+		return count;
+	}
+}
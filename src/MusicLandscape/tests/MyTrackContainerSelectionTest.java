@@ -0,0 +1,92 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.comparators.TitleComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+
+/**
+ * Checks the selection of a container holding more tracks than fit into a single bitmap word.
+ */
+public class MyTrackContainerSelectionTest {
+
+	private static final int TRACKS = 200;
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		container = new MyTrackContainer();
+		for (int i = 0; i < TRACKS; i++) {
+			Track t = new Track("Track " + i);
+			// durations 0..199 in a scrambled order
+			t.setDuration((i * 37) % TRACKS);
+			container.add(t);
+		}
+	}
+
+	@Test(description = "reset selects all tracks in insertion order")
+	public void reset() {
+		container.reset();
+		Track[] selected = container.selection();
+		assertEquals(selected.length, TRACKS);
+		for (int i = 0; i < TRACKS; i++) {
+			assertEquals(selected[i].getTitle(), "Track " + i, "unsorted selection should be in insertion order");
+		}
+	}
+
+	@Test(description = "filtering a sorted selection keeps the sort order")
+	public void filterSorted() {
+		container.reset();
+		container.sort(new DurationComparator(), false);
+		assertEquals(container.filter(new DurationMatcher("50 149")), 100, "100 durations are outside the range");
+		Track[] selected = container.selection();
+		assertEquals(selected.length, 100);
+		for (int i = 0; i < selected.length; i++) {
+			assertEquals(selected[i].getDuration(), 149 - i, "selection should stay sorted descending");
+		}
+	}
+
+	@Test(description = "removing a filtered selection removes exactly the selected tracks")
+	public void remove() {
+		container.reset();
+		container.filter(new DurationMatcher("0 99"));
+		assertEquals(container.remove(), 100);
+		assertEquals(container.size(), 100);
+		assertEquals(container.selection().length, 100, "selection should be reset after remove");
+		for (Track t : container.selection()) {
+			assertTrue(t.getDuration() >= 100, "only long tracks should remain");
+		}
+	}
+
+	@Test(description = "sorting by duration agrees with a comparison sort, also for a wide range of durations")
+	public void sortByKey() {
+		for (int i = 0; i < TRACKS; i++) {
+			Track t = new Track("Long track " + i);
+			t.setDuration((i * 7919 * 1013) % 1000000 + (i % 2) * 37);
+			container.add(t);
+		}
+		container.reset();
+		container.sort(new TitleComparator(), true);
+		for (boolean asc : new boolean[] { true, false }) {
+			DurationComparator byDuration = new DurationComparator();
+			container.sort(byDuration, asc);
+			Track[] radix = container.selection();
+			container.sort(new TitleComparator(), true);
+			// a lambda is not recognized as a duration comparator and therefore compared
+			container.sort((a, b) -> byDuration.compare(a, b), asc);
+			Track[] compared = container.selection();
+			assertEquals(radix.length, 2 * TRACKS);
+			for (int i = 0; i < radix.length; i++) {
+				assertSame(radix[i], compared[i], "wrong track at position " + i + (asc ? " ascending" : " descending"));
+			}
+			container.sort(new TitleComparator(), true);
+		}
+	}
+}
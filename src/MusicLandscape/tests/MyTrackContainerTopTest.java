@@ -0,0 +1,76 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.Comparator;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.*;
+import MusicLandscape.util.matcher.DurationMatcher;
+
+/**
+ * Checks that top() finds what sort() puts first, for all comparators and both directions.
+ */
+public class MyTrackContainerTopTest {
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		String[] names = { "Metallica", "Megadeth", "Slayer", "Anthrax", "Exodus" };
+		container = new MyTrackContainer();
+		for (int i = 0; i < 1000; i++) {
+			Track t = new Track("Track " + (i * 7919) % 1000);
+			t.setWriter(new Artist(names[i % 5]));
+			t.setPerformer(new Artist(names[(i / 5) % 5]));
+			// many equal durations and years, so ties have to be decided by position
+			t.setDuration((i * 31) % 97);
+			t.setYear(1970 + i % 13);
+			container.add(t);
+		}
+		container.reset();
+	}
+
+	@DataProvider(name = "orders")
+	private static Object[][] orders() {
+		Comparator<?>[] comparators = { new TitleComparator(), new DurationComparator(), new WriterComparator(),
+				new PerformerComparator(), new YearComparator() };
+		int[] ks = { 0, 1, 10, 999, 1000, 5000 };
+		Object[][] orders = new Object[comparators.length * ks.length * 2][];
+		int i = 0;
+		for (Comparator<?> comparator : comparators) {
+			for (int k : ks) {
+				orders[i++] = new Object[] { comparator, true, k };
+				orders[i++] = new Object[] { comparator, false, k };
+			}
+		}
+		return orders;
+	}
+
+	@Test(dataProvider = "orders", description = "top returns the first k tracks of the sorted selection")
+	public void top(Comparator<Track> comparator, boolean asc, int k) {
+		// filter and sort first, top must respect the current order for ties
+		container.filter(new DurationMatcher("10 80"));
+		container.sort(new TitleComparator(), false);
+		Track[] before = container.selection();
+		Track[] top = container.top(comparator, asc, k);
+		assertEquals(container.selection(), before, "top should not change the selection");
+		container.sort(comparator, asc);
+		Track[] sorted = container.selection();
+		assertEquals(top.length, Math.min(k, sorted.length));
+		for (int i = 0; i < top.length; i++) {
+			assertSame(top[i], sorted[i], "wrong track at position " + i);
+		}
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "negative k is refused")
+	public void negative() {
+		container.top(new TitleComparator(), true, -1);
+	}
+}
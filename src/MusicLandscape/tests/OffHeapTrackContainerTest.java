@@ -0,0 +1,165 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.ConcurrentTrackContainer;
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.comparators.PerformerComparator;
+import MusicLandscape.util.comparators.TitleComparator;
+import MusicLandscape.util.comparators.WriterComparator;
+import MusicLandscape.util.comparators.YearComparator;
+import MusicLandscape.util.matcher.ArtistMatcher;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.PerformerMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+import MusicLandscape.util.matcher.WriterMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks that a container in OFF_HEAP storage mode behaves like a default container.
+ */
+public class OffHeapTrackContainerTest {
+
+	private Track[] given;
+
+	private MyTrackContainer offHeap;
+
+	private MyTrackContainer objects;
+
+	@BeforeMethod
+	private void init() {
+		String[] names = { "Bj\u00f6rk", "Sigur R\u00f3s", "Mot\u00f6rhead", "AC/DC", "\u5742\u672c\u9f8d\u4e00", "Ace of Base" };
+		given = new Track[5000];
+		for (int i = 0; i < given.length; i++) {
+			given[i] = new Track((i % 3 == 0 ? "\u00dcnder " : "Song ") + i);
+			given[i].setWriter(new Artist(names[i % names.length]));
+			given[i].setPerformer(new Artist(names[(i / 7) % names.length]));
+			given[i].setDuration((i * 131) % 700);
+			given[i].setYear(1960 + (i * 17) % 61);
+		}
+		offHeap = new MyTrackContainer(MyTrackContainer.StorageMode.OFF_HEAP);
+		offHeap.addAll(given);
+		offHeap.reset();
+		objects = new MyTrackContainer(given);
+	}
+
+	@DataProvider(name = "matchers")
+	private static Object[][] matchers() {
+		return new Object[][] { { new DurationMatcher("100 300") }, { new YearMatcher("1970 1990") },
+				{ new TitleMatcher("\u00dcnder 1") }, { new WriterMatcher("Sigur") }, { new PerformerMatcher("\u5742\u672c") },
+				{ new ArtistMatcher("Ac") } };
+	}
+
+	@DataProvider(name = "comparators")
+	private static Object[][] comparators() {
+		List<Object[]> cases = new ArrayList<Object[]>();
+		for (Comparator<Track> c : Arrays.<Comparator<Track>>asList(new DurationComparator(), new YearComparator(),
+				new TitleComparator(), new WriterComparator(), new PerformerComparator())) {
+			cases.add(new Object[] { c, true });
+			cases.add(new Object[] { c, false });
+		}
+		return cases.toArray(new Object[0][]);
+	}
+
+	@Test(description = "stored tracks come back with all their values")
+	public void roundTrip() {
+		assertEquals(offHeap.size(), given.length);
+		assertEquals(offHeap.selection(), given);
+		assertFalse(offHeap.add(new Track(given[42])), "a track equal to a stored one should not be added");
+		assertTrue(offHeap.add(new Track()), "a default track should be added");
+		offHeap.reset();
+		Track last = offHeap.selection()[given.length];
+		assertEquals(last.getYear(), 0, "the year of a default track should be kept");
+		assertEquals(last, new Track());
+	}
+
+	@Test(dataProvider = "matchers", description = "filters give the same result as on track objects")
+	public void filter(MyMatcher<Track> matcher) {
+		int removed = objects.filter(matcher);
+		assertTrue(removed > 0 && removed < given.length, "the matcher should select some tracks");
+		assertEquals(offHeap.filter(matcher), removed);
+		assertEquals(offHeap.selection(), objects.selection());
+	}
+
+	@Test(description = "prefixes tested on few tracks are compared in the arenas like strings are")
+	public void prefixBytes() {
+		Track surrogates = new Track("\ud83c\udfb8 Guitar");
+		surrogates.setWriter(new Artist("\u5742"));
+		surrogates.setDuration(42);
+		objects.add(surrogates);
+		offHeap.add(surrogates);
+		for (MyMatcher<Track> matcher : Arrays.<MyMatcher<Track>>asList(new TitleMatcher(""),
+				new TitleMatcher("\u00dcnder 4"), new TitleMatcher("\u00dc"), new TitleMatcher("\ud83c\udfb8"),
+				new TitleMatcher("\ud83c"), new WriterMatcher("\u5742\u672c"), new WriterMatcher("\u5742"),
+				new PerformerMatcher("Sigur R\u00f3s"), new ArtistMatcher("Bj\u00f6rk!"), new ArtistMatcher("A"))) {
+			objects.reset();
+			offHeap.reset();
+			// a selective filter first, so that the prefix is tested track by track instead of looked up
+			MyMatcher<Track> few = new DurationMatcher("40 60");
+			objects.filter(few);
+			offHeap.filter(few);
+			assertEquals(offHeap.filter(matcher), objects.filter(matcher), matcher.toString());
+			assertEquals(offHeap.selection(), objects.selection(), matcher.toString());
+		}
+	}
+
+	@Test(dataProvider = "comparators", description = "sorts give the same order as on track objects")
+	public void sort(Comparator<Track> c, boolean asc) {
+		objects.sort(c, asc);
+		offHeap.sort(c, asc);
+		assertEquals(offHeap.selection(), objects.selection());
+	}
+
+	@Test(description = "removing and updating keep the remaining tracks intact")
+	public void modify() {
+		MyMatcher<Track> matcher = new DurationMatcher("0 349");
+		objects.filter(matcher);
+		offHeap.filter(matcher);
+		assertEquals(offHeap.remove(), objects.remove());
+
+		Track t = new Track("Neu");
+		t.setWriter(new Artist("Kraftwerk"));
+		assertTrue(objects.update(10, new Track(t)));
+		assertTrue(offHeap.update(10, t));
+		assertFalse(offHeap.update(11, t), "an equal track exists already");
+		assertEquals(offHeap.selection(), objects.selection());
+	}
+
+	@Test(description = "the strings of many tracks span several chunks of off-heap memory")
+	public void largeArena() {
+		char[] filler = new char[10000];
+		Arrays.fill(filler, '\u00e9');
+		MyTrackContainer large = new MyTrackContainer(MyTrackContainer.StorageMode.OFF_HEAP);
+		for (int i = 0; i < 1000; i++) {
+			large.add(new Track(i + new String(filler)));
+		}
+		large.reset();
+		Track[] selection = large.selection();
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(selection[i].getTitle(), i + new String(filler));
+		}
+	}
+
+	@Test(description = "a concurrent container can store its tracks off heap")
+	public void concurrent() {
+		ConcurrentTrackContainer container = new ConcurrentTrackContainer(MyTrackContainer.StorageMode.OFF_HEAP);
+		container.addAll(Arrays.copyOf(given, 100));
+		ConcurrentTrackContainer.Session session = container.openSession();
+		container.addAll(Arrays.copyOfRange(given, 100, 200));
+		session.reset();
+		assertEquals(session.selection(), Arrays.copyOf(given, 200));
+	}
+}
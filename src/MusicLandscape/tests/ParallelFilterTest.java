@@ -0,0 +1,100 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.matcher.*;
+
+/**
+ * Checks that filtering in parallel gives the same result as filtering sequentially.
+ */
+public class ParallelFilterTest {
+
+	private MyTrackContainer sequential;
+
+	private MyTrackContainer parallel;
+
+	@BeforeMethod
+	private void init() {
+		String[] names = { "Metallica", "Megadeth", "Slayer", "Anthrax" };
+		List<Track> given = new ArrayList<Track>();
+		for (int i = 0; i < 40000; i++) {
+			Track t = new Track("Song " + i);
+			t.setWriter(new Artist(names[i % 4]));
+			t.setPerformer(new Artist(names[(i / 4) % 4]));
+			t.setDuration((i * 37) % 600);
+			t.setYear(1950 + i % 70);
+			given.add(t);
+		}
+		sequential = new MyTrackContainer(given);
+		sequential.setParallelThreshold(Integer.MAX_VALUE);
+		parallel = new MyTrackContainer(given);
+		parallel.setParallelThreshold(1);
+	}
+
+	/**
+	 * a matcher no index can answer: titles ending in 7.
+	 */
+	private static MyMatcher<Track> endsIn7() {
+		return new MyMatcher<Track>("") {
+			@Override
+			public boolean matches(Track t) {
+				return t.getTitle().endsWith("7");
+			}
+
+			@Override
+			public void setPattern(String pat) {
+			}
+
+			@Override
+			public String getPattern() {
+				return "";
+			}
+		};
+	}
+
+	@DataProvider(name = "matchers")
+	private static Object[][] matchers() {
+		return new Object[][] {
+				{ endsIn7() },
+				{ new DurationMatcher("100 250") },
+				{ new AndMatcher<Track>(endsIn7(), new NotMatcher<Track>(new YearMatcher("1960 1980"))) },
+				{ new OrMatcher<Track>(endsIn7(), new PerformerMatcher("Slay")) },
+		};
+	}
+
+	@Test(dataProvider = "matchers", description = "parallel and sequential filters select the same tracks in the same order")
+	public void filter(MyMatcher<Track> matcher) {
+		sequential.sort(new DurationComparator(), false);
+		parallel.sort(new DurationComparator(), false);
+		assertEquals(parallel.filter(matcher), sequential.filter(matcher), "wrong number of tracks removed");
+		Track[] expected = sequential.selection();
+		Track[] actual = parallel.selection();
+		assertEquals(actual.length, expected.length);
+		for (int i = 0; i < expected.length; i++) {
+			assertSame(actual[i], expected[i], "wrong track at position " + i);
+		}
+	}
+
+	@Test(description = "the threshold is kept and must be positive")
+	public void threshold() {
+		assertEquals(parallel.getParallelThreshold(), 1);
+		try {
+			parallel.setParallelThreshold(0);
+			fail("a threshold of 0 should be refused");
+		} catch (IllegalArgumentException e) {
+			assertEquals(parallel.getParallelThreshold(), 1);
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.matcher.RegexMatcher;
+
+/**
+ * Checks the literal text RegexMatcher extracts from expressions and regular expression filtering through the
+ * prefix and trigram indexes of a container.
+ */
+public class RegexMatcherTest {
+
+	private static final String[] NAMES = { "Metallica", "Megadeth", "Mot\u00f6rhead", "Slayer", "Anthrax",
+			"Sepultura" };
+
+	private static final String[] TITLES = { "Enter Sandman", "Master of Puppets", "One", "Battery", "Fade to Black",
+			"Symphony of Destruction", "Ace of Spades", "Raining Blood", "Caf\u00e9 Sandwoman", "enter the void" };
+
+	private List<Track> given;
+
+	@BeforeMethod
+	private void init() {
+		given = new ArrayList<Track>();
+		for (int i = 0; i < 3000; i++) {
+			Track t = new Track(TITLES[i % TITLES.length] + " " + i);
+			t.setWriter(new Artist(NAMES[(i / 3) % NAMES.length]));
+			t.setPerformer(new Artist(NAMES[(i / 7) % NAMES.length]));
+			t.setYear(1980 + i % 30);
+			given.add(t);
+		}
+	}
+
+	@DataProvider(name = "expressions")
+	private static Object[][] expressions() {
+		String[][] expressions = {
+				{ "TITLE", "^Enter S(a|e)ndman" },
+				{ "TITLE", "Sand(wo)?man 1\\d" },
+				{ "TITLE", "of (Puppets|Spades) 2.*7$" },
+				{ "TITLE", "^[EF]" },
+				{ "TITLE", "(?i)enter" },
+				{ "TITLE", "Blood|Black" },
+				{ "TITLE", "nothing like this" },
+				{ "TITLE", "Caf\u00e9 Sand" },
+				{ "WRITER", "^Meta" },
+				{ "WRITER", "deth$" },
+				{ "PERFORMER", "layer" },
+				{ "ARTIST", "^M[eo]" },
+				{ "ARTIST", "thrax" },
+				{ "ARTIST", "rhead" },
+		};
+		List<Object[]> cases = new ArrayList<Object[]>();
+		for (MyTrackContainer.StorageMode mode : MyTrackContainer.StorageMode.values()) {
+			for (String[] e : expressions) {
+				cases.add(new Object[] { mode, new RegexMatcher(RegexMatcher.Field.valueOf(e[0]), e[1]) });
+			}
+		}
+		return cases.toArray(new Object[0][]);
+	}
+
+	@Test(description = "the literal prefix and runs are extracted where the expression requires them")
+	public void literals() {
+		assertLiterals("^Enter S(a|e)ndman", "Enter S", "Enter S", "ndman");
+		assertLiterals("Sand(wo)?man", "", "Sand", "man");
+		assertLiterals("^ab*c", "a", "a", "c");
+		assertLiterals("^ab+c", "ab", "ab", "c");
+		assertLiterals("^a{2}bc", "", "bc");
+		assertLiterals("^AC\\/DC", "AC/DC", "AC/DC");
+		assertLiterals("x\\d+y", "", "x", "y");
+		assertLiterals("^[]a]bc.d$", "", "bc", "d");
+		assertLiterals("Blood|Black", "");
+		assertLiterals("(?i)enter", "");
+		assertLiterals("\\Qa.b\\E", "");
+		assertLiterals("(a)\\1b", "");
+		assertLiterals("", "");
+	}
+
+	@Test(description = "expressions are searched anywhere in the field")
+	public void matches() {
+		Track t = new Track("Enter Sandman");
+		t.setWriter(new Artist("Metallica"));
+		t.setPerformer(new Artist("Apocalyptica"));
+		assertTrue(new RegexMatcher(RegexMatcher.Field.TITLE, "Sand").matches(t));
+		assertTrue(new RegexMatcher(RegexMatcher.Field.TITLE, "^Enter.*man$").matches(t));
+		assertFalse(new RegexMatcher(RegexMatcher.Field.TITLE, "^Sand").matches(t));
+		assertTrue(new RegexMatcher(RegexMatcher.Field.WRITER, "tall").matches(t));
+		assertFalse(new RegexMatcher(RegexMatcher.Field.PERFORMER, "tall").matches(t));
+		assertTrue(new RegexMatcher(RegexMatcher.Field.ARTIST, "^Apo").matches(t));
+		assertEquals(new RegexMatcher(RegexMatcher.Field.TITLE, "^E").toString(), "title matches (^E)");
+	}
+
+	@Test(description = "matchers with the same expression share the compiled expression")
+	public void cache() {
+		RegexMatcher a = new RegexMatcher(RegexMatcher.Field.TITLE, "^Enter S(a|e)ndman");
+		RegexMatcher b = new RegexMatcher(RegexMatcher.Field.WRITER, "^Enter S(a|e)ndman");
+		assertSame(a.getLiterals(), b.getLiterals());
+	}
+
+	@Test(description = "an invalid expression leaves the pattern unchanged")
+	public void setPattern() {
+		RegexMatcher matcher = new RegexMatcher(RegexMatcher.Field.TITLE, "^One");
+		matcher.setPattern("(unclosed");
+		assertEquals(matcher.getPattern(), "^One");
+		assertEquals(matcher.getPrefix(), "One");
+		matcher.setPattern("Two");
+		assertEquals(matcher.getPattern(), "Two");
+		assertEquals(matcher.getPrefix(), "");
+	}
+
+	@Test(dataProvider = "expressions", description = "an indexed regular expression filter selects exactly the matches")
+	public void filter(MyTrackContainer.StorageMode mode, RegexMatcher matcher) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.toArray(new Track[0]));
+		container.reset();
+		container.filter(matcher);
+		assertEquals(titles(container.selection(), null), titles(given.toArray(new Track[0]), matcher),
+				matcher.toString());
+	}
+
+	@Test(dataProvider = "expressions", description = "tracks added or updated after the index was built are seen")
+	public void filterAfterModification(MyTrackContainer.StorageMode mode, RegexMatcher matcher) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		container.addAll(given.toArray(new Track[0]));
+		container.reset();
+		container.filter(matcher);
+
+		Track added = new Track("Enter Sandman added");
+		added.setWriter(new Artist("Megadeth"));
+		added.setPerformer(new Artist("Slayer"));
+		container.add(added);
+		container.reset();
+		container.filter(new RegexMatcher(RegexMatcher.Field.TITLE, "^One 2\\b"));
+		Track edited = new Track(container.selection()[0]);
+		edited.setTitle("Caf\u00e9 Sandwoman edited");
+		edited.setWriter(new Artist("Anthrax"));
+		assertTrue(container.update(0, edited));
+
+		container.reset();
+		List<String> expected = titles(container.selection(), matcher);
+		container.filter(matcher);
+		assertEquals(titles(container.selection(), null), expected, matcher.toString());
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void invalidExpression() {
+		new RegexMatcher(RegexMatcher.Field.TITLE, "[unclosed");
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nullField() {
+		new RegexMatcher(null, "One");
+	}
+
+	private static void assertLiterals(String regex, String prefix, String... literals) {
+		RegexMatcher matcher = new RegexMatcher(RegexMatcher.Field.TITLE, regex);
+		assertEquals(matcher.getPrefix(), prefix, regex);
+		assertEquals(matcher.getLiterals(), Arrays.asList(literals), regex);
+	}
+
+	/**
+	 * @return the sorted titles of the tracks the matcher accepts, of all tracks if it is null
+	 */
+	private static List<String> titles(Track[] tracks, RegexMatcher matcher) {
+		List<String> titles = new ArrayList<String>();
+		for (Track t : tracks) {
+			if (matcher == null || matcher.matches(t)) {
+				titles.add(t.getTitle());
+			}
+		}
+		titles.sort(null);
+		return titles;
+	}
+}
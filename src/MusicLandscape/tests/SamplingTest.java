@@ -0,0 +1,191 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.Estimate;
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.container.TrackSample;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks uniform and stratified sampling of the selection and the estimates computed from samples.
+ */
+public class SamplingTest {
+
+	private Track[] given;
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		Random random = new Random(3);
+		given = new Track[20000];
+		for (int i = 0; i < given.length; i++) {
+			given[i] = new Track("Track " + i);
+			given[i].setPerformer(new Artist("Performer " + i % 50));
+			given[i].setWriter(new Artist("Writer " + random.nextInt(500)));
+			given[i].setDuration(random.nextInt(600));
+			given[i].setYear(1960 + random.nextInt(40));
+		}
+		container = new MyTrackContainer(given);
+		container.filter(new YearMatcher("1970 1989"));
+	}
+
+	@Test(description = "a uniform sample holds distinct selected tracks and depends only on the seed")
+	public void uniform() {
+		Set<Track> selected = new HashSet<Track>(Arrays.asList(container.selection()));
+		TrackSample sample = container.sample(500, 42);
+		assertEquals(sample.size(), 500);
+		assertEquals(sample.population(), selected.size());
+		Set<Track> sampled = new HashSet<Track>(Arrays.asList(sample.tracks()));
+		assertEquals(sampled.size(), 500);
+		assertTrue(selected.containsAll(sampled));
+		assertEquals(Arrays.asList(container.sample(500, 42).tracks()), Arrays.asList(sample.tracks()));
+		assertNotEquals(Arrays.asList(container.sample(500, 43).tracks()), Arrays.asList(sample.tracks()));
+	}
+
+	@Test(description = "every selected track is about equally likely to be sampled")
+	public void unbiased() {
+		container.reset();
+		container.filter(new YearMatcher("1960 1961"));
+		int population = container.selection().length;
+		assertTrue(population > 0);
+		Map<Track, Integer> hits = new HashMap<Track, Integer>();
+		int runs = 400;
+		for (int seed = 0; seed < runs; seed++) {
+			for (Track t : container.sample(10, seed).tracks()) {
+				hits.merge(t, 1, Integer::sum);
+			}
+		}
+		// tracks late in the selection are reached by skipping, early ones fill the reservoir first
+		double expected = runs * 10.0 / population;
+		Track[] selection = container.selection();
+		int early = 0;
+		int late = 0;
+		for (int i = 0; i < population / 2; i++) {
+			early += hits.getOrDefault(selection[i], 0);
+			late += hits.getOrDefault(selection[population - 1 - i], 0);
+		}
+		assertEquals(early, expected * (population / 2), 4 * Math.sqrt(expected * (population / 2)));
+		assertEquals(late, expected * (population / 2), 4 * Math.sqrt(expected * (population / 2)));
+	}
+
+	@Test(description = "a sample of the whole selection gives exact results")
+	public void exact() {
+		MyMatcher<Track> longTracks = new DurationMatcher("300 600");
+		int count = 0;
+		long total = 0;
+		for (Track t : container.selection()) {
+			if (longTracks.matches(t)) {
+				count++;
+				total += t.getDuration();
+			}
+		}
+		TrackSample sample = container.sample(given.length, 1);
+		assertEquals(sample.size(), container.selection().length);
+		assertEquals(sample.count(longTracks).value(), count, 1e-6);
+		assertEquals(sample.count(longTracks).standardError(), 0, 1e-6);
+		assertEquals(sample.totalDuration(longTracks).value(), total, 1e-6);
+		assertEquals(sample.averageDuration(longTracks).value(), (double) total / count, 1e-6);
+		assertEquals(sample.averageDuration(longTracks).standardError(), 0, 1e-6);
+	}
+
+	@Test(description = "estimates from a sample are within their error bounds")
+	public void estimates() {
+		MyMatcher<Track> longTracks = new DurationMatcher("300 600");
+		int count = 0;
+		long total = 0;
+		for (Track t : container.selection()) {
+			if (longTracks.matches(t)) {
+				count++;
+				total += t.getDuration();
+			}
+		}
+		TrackSample sample = container.sample(1000, 7);
+		Estimate estimate = sample.count(longTracks);
+		assertTrue(estimate.standardError() > 0);
+		assertEquals(estimate.value(), count, 4 * estimate.standardError());
+		assertTrue(estimate.lower() < estimate.value() && estimate.value() < estimate.upper());
+		estimate = sample.totalDuration(longTracks);
+		assertEquals(estimate.value(), total, 4 * estimate.standardError());
+		estimate = sample.averageDuration(longTracks);
+		assertEquals(estimate.value(), (double) total / count, 4 * estimate.standardError());
+	}
+
+	@Test(description = "a stratified sample draws up to n tracks of every group")
+	public void stratified() {
+		Map<String, Integer> years = new HashMap<String, Integer>();
+		for (Track t : container.selection()) {
+			years.merge(Integer.toString(t.getYear()), 1, Integer::sum);
+		}
+		TrackSample sample = container.sample(MyTrackContainer.GroupBy.YEAR, 30, 5);
+		assertEquals(sample.size(), 30 * years.size());
+		assertEquals(sample.population(), container.selection().length);
+		Map<String, Estimate> counts = sample.countBy(MyTrackContainer.GroupBy.YEAR);
+		assertEquals(counts.keySet(), years.keySet());
+		for (Map.Entry<String, Estimate> e : counts.entrySet()) {
+			// the size of every stratum is known
+			assertEquals(e.getValue().value(), years.get(e.getKey()), 1e-6);
+			assertEquals(e.getValue().standardError(), 0, 1e-6);
+		}
+
+		Map<String, Long> durations = new HashMap<String, Long>();
+		for (Track t : container.selection()) {
+			durations.merge(t.getPerformer().getName(), (long) t.getDuration(), Long::sum);
+		}
+		sample = container.sample(MyTrackContainer.GroupBy.PERFORMER, 100, 5);
+		assertEquals(sample.size(), 50 * 100);
+		for (Map.Entry<String, Estimate> e : sample.totalDurationBy(MyTrackContainer.GroupBy.PERFORMER).entrySet()) {
+			Estimate estimate = e.getValue();
+			assertEquals(estimate.value(), durations.get(e.getKey()), 4 * estimate.standardError(), e.getKey());
+		}
+	}
+
+	@Test(description = "small groups are sampled completely")
+	public void smallGroups() {
+		container.reset();
+		container.filter(new YearMatcher("1960 1961"));
+		int population = container.selection().length;
+		assertTrue(population > 0);
+		TrackSample sample = container.sample(MyTrackContainer.GroupBy.YEAR, population + 10, 5);
+		assertEquals(sample.size(), population);
+		assertEquals(sample.count(new YearMatcher()).value(), population, 1e-6);
+	}
+
+	@Test(description = "the sample is empty if the selection is")
+	public void emptySelection() {
+		container.filter(new YearMatcher("1900 1901"));
+		assertEquals(container.sample(10, 1).size(), 0);
+		assertEquals(container.sample(MyTrackContainer.GroupBy.WRITER, 10, 1).size(), 0);
+		assertTrue(Double.isNaN(container.sample(10, 1).averageDuration(new YearMatcher()).value()));
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void invalidSize() {
+		container.sample(0, 1);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nullGroupBy() {
+		container.sample(null, 10, 1);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void nullMatcher() {
+		container.sample(10, 1).count(null);
+	}
+}
@@ -0,0 +1,105 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+
+/**
+ * Checks saving, restoring and persisting named selections.
+ */
+public class SavedSelectionTest {
+
+	private Track[] given;
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		given = new Track[1000];
+		for (int i = 0; i < given.length; i++) {
+			given[i] = new Track("Track " + i);
+			given[i].setDuration((i * 53) % 1000);
+		}
+		container = new MyTrackContainer(given);
+	}
+
+	@Test(description = "a saved selection is restored with its tracks and order")
+	public void restore() {
+		container.filter(new DurationMatcher("0 299"));
+		container.sort(new DurationComparator(), false);
+		Track[] saved = container.selection();
+		container.saveSelection("short");
+		container.reset();
+		container.filter(new TitleMatcher("Track 9"));
+
+		assertTrue(container.restoreSelection("short"));
+		assertEquals(container.selection(), saved);
+		assertTrue(container.undo(), "restoring should be undoable");
+		assertEquals(container.selection().length, 111);
+		assertFalse(container.restoreSelection("long"));
+		assertEquals(container.savedSelections().toString(), "[short]");
+		assertTrue(container.deleteSelection("short"));
+		assertTrue(container.savedSelections().isEmpty());
+	}
+
+	@Test(description = "removed tracks drop out of saved selections")
+	public void remove() {
+		container.filter(new DurationMatcher("0 299"));
+		container.sort(new DurationComparator(), true);
+		container.saveSelection("short");
+		Track[] saved = container.selection();
+		container.reset();
+		container.filter(new DurationMatcher("100 499"));
+		container.remove();
+
+		assertTrue(container.restoreSelection("short"));
+		Track[] expected = Arrays.stream(saved).filter(t -> t.getDuration() < 100).toArray(Track[]::new);
+		assertEquals(container.selection(), expected);
+	}
+
+	@Test(description = "saved selections are read back into a container holding the same tracks")
+	public void persist() throws IOException {
+		container.filter(new DurationMatcher("0 299"));
+		container.saveSelection("short");
+		container.sort(new DurationComparator(), false);
+		container.saveSelection("sorted");
+		Track[] sorted = container.selection();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		container.writeSavedSelections(out);
+
+		MyTrackContainer restarted = new MyTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		restarted.addAll(given);
+		assertEquals(restarted.readSavedSelections(new ByteArrayInputStream(out.toByteArray())), 2);
+		assertTrue(restarted.restoreSelection("sorted"));
+		assertEquals(Arrays.toString(restarted.selection()), Arrays.toString(sorted));
+		assertTrue(restarted.restoreSelection("short"));
+		assertEquals(restarted.selection().length, 300);
+	}
+
+	@Test(expectedExceptions = { IOException.class }, description = "saved selections do not fit other tracks")
+	public void persistOther() throws IOException {
+		container.saveSelection("all");
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		container.writeSavedSelections(out);
+
+		MyTrackContainer other = new MyTrackContainer(Arrays.copyOf(given, 999));
+		other.readSavedSelections(new ByteArrayInputStream(out.toByteArray()));
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "selections need a name")
+	public void noName() {
+		container.saveSelection("");
+	}
+}
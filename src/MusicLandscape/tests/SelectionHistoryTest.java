@@ -0,0 +1,145 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.comparators.TitleComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+import MusicLandscape.util.matcher.TitleMatcher;
+
+/**
+ * Checks undo and redo of filter, sort and reset.
+ */
+public class SelectionHistoryTest {
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		container = new MyTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		for (int i = 0; i < 1000; i++) {
+			Track t = new Track("Track " + i);
+			t.setDuration((i * 53) % 1000);
+			container.add(t);
+		}
+		container.reset();
+	}
+
+	@Test(description = "undo walks back through filters and sorts, redo forward again")
+	public void undoRedo() {
+		Track[] all = container.selection();
+		container.filter(new DurationMatcher("0 499"));
+		Track[] filtered = container.selection();
+		container.sort(new DurationComparator(), false);
+		Track[] sorted = container.selection();
+		container.filter(new TitleMatcher("Track 1"));
+		Track[] refiltered = container.selection();
+
+		assertTrue(container.undo());
+		assertEquals(container.selection(), sorted);
+		assertTrue(container.undo());
+		assertEquals(container.selection(), filtered);
+		assertTrue(container.undo());
+		assertEquals(container.selection(), all);
+		assertTrue(container.undo(), "the reset of init() can be undone as well");
+		assertEquals(container.selection().length, 0);
+		assertFalse(container.undo(), "nothing left to undo");
+		assertEquals(container.selection().length, 0);
+
+		assertTrue(container.redo());
+		assertEquals(container.selection(), all);
+		assertTrue(container.redo());
+		assertEquals(container.selection(), filtered);
+		assertTrue(container.redo());
+		assertEquals(container.selection(), sorted);
+		assertTrue(container.redo());
+		assertEquals(container.selection(), refiltered);
+		assertFalse(container.redo(), "nothing left to redo");
+	}
+
+	@Test(description = "a new operation discards what was undone")
+	public void branch() {
+		container.filter(new DurationMatcher("0 499"));
+		container.undo();
+		container.sort(new TitleComparator(), true);
+		assertFalse(container.redo());
+		assertTrue(container.undo());
+		assertEquals(container.selection().length, 1000);
+	}
+
+	@Test(description = "reset can be undone, removing tracks clears the history")
+	public void resetAndRemove() {
+		container.filter(new DurationMatcher("0 99"));
+		Track[] filtered = container.selection();
+		container.reset();
+		assertTrue(container.undo());
+		assertEquals(container.selection(), filtered);
+		container.remove();
+		assertFalse(container.undo());
+		assertEquals(container.selection().length, 900);
+	}
+
+	@Test(description = "the capacity limits the number of states kept, the oldest being dropped")
+	public void capacity() {
+		container.setHistoryCapacity(0);
+		container.filter(new DurationMatcher("0 499"));
+		assertFalse(container.undo());
+
+		// an unsorted state of 600 to 900 scattered tracks takes about 350 bytes, two of them fit
+		container.setHistoryCapacity(700);
+		container.reset();
+		container.filter(new DurationMatcher("0 899"));
+		container.filter(new DurationMatcher("0 799"));
+		container.filter(new DurationMatcher("0 699"));
+		container.filter(new DurationMatcher("0 599"));
+		assertTrue(container.undo());
+		assertTrue(container.undo());
+		assertFalse(container.undo(), "older states should have been dropped");
+		assertEquals(container.selection().length, 800);
+		assertTrue(container.redo());
+		assertTrue(container.redo());
+		assertEquals(container.selection().length, 600);
+	}
+
+	@Test(description = "states of many tracks are kept compressed, ranges of tracks taking a few bytes")
+	public void compressedStates() {
+		MyTrackContainer large = new MyTrackContainer(MyTrackContainer.StorageMode.COLUMNAR);
+		Track[] tracks = new Track[200000];
+		for (int i = 0; i < tracks.length; i++) {
+			tracks[i] = new Track("Track " + i);
+			tracks[i].setDuration(i / 1000);
+		}
+		large.addAll(tracks);
+		// one bit per track would take 25 KB per state
+		large.setHistoryCapacity(4096);
+		large.reset();
+		large.filter(new DurationMatcher("0 149"));
+		large.filter(new DurationMatcher("0 99"));
+		large.filter(new TitleMatcher("Track 1"));
+		large.filter(new DurationMatcher("0 9"));
+		assertEquals(large.selection().length, 1111);
+		assertTrue(large.undo());
+		assertEquals(large.selection().length, 11111);
+		assertTrue(large.undo());
+		assertEquals(large.selection().length, 100000);
+		assertTrue(large.undo());
+		assertEquals(large.selection().length, 150000);
+		assertTrue(large.undo());
+		assertEquals(large.selection().length, 200000);
+		assertTrue(large.redo());
+		assertTrue(large.redo());
+		assertTrue(large.redo());
+		assertTrue(large.redo());
+		assertEquals(large.selection().length, 1111);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "the capacity cannot be negative")
+	public void negativeCapacity() {
+		container.setHistoryCapacity(-1);
+	}
+}
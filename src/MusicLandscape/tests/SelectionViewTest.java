@@ -0,0 +1,90 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.Iterator;
+import java.util.List;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.comparators.DurationComparator;
+import MusicLandscape.util.matcher.DurationMatcher;
+
+/**
+ * Checks the read-only view of the selection of a container.
+ */
+public class SelectionViewTest {
+
+	private MyTrackContainer container;
+
+	@BeforeMethod
+	private void init() {
+		container = new MyTrackContainer();
+		for (int i = 0; i < 300; i++) {
+			Track t = new Track("Track " + i);
+			t.setDuration((i * 53) % 300);
+			container.add(t);
+		}
+		container.reset();
+	}
+
+	@Test(description = "the view holds the same tracks as selection(), in the same order")
+	public void content() {
+		List<Track> view = container.selectionView();
+		container.filter(new DurationMatcher("0 149"));
+		container.sort(new DurationComparator(), false);
+		Track[] selected = container.selection();
+		assertEquals(view.size(), selected.length);
+		Iterator<Track> it = view.iterator();
+		for (int i = 0; i < selected.length; i++) {
+			assertSame(view.get(i), selected[i], "wrong track at position " + i);
+			assertSame(it.next(), selected[i], "iteration should follow the order of the selection");
+		}
+		assertFalse(it.hasNext());
+	}
+
+	@Test(description = "the view follows changes of the selection without being fetched again")
+	public void live() {
+		List<Track> view = container.selectionView();
+		assertSame(container.selectionView(), view, "the view should not be recreated");
+		assertEquals(view.size(), 300);
+		container.filter(new DurationMatcher("0 99"));
+		assertEquals(view.size(), 100);
+		container.remove();
+		assertEquals(view.size(), 200);
+	}
+
+	@Test(expectedExceptions = { UnsupportedOperationException.class }, description = "the view cannot be modified")
+	public void readOnly() {
+		container.selectionView().clear();
+	}
+
+	@Test(description = "pages divide the selection in its current order")
+	public void pages() {
+		container.filter(new DurationMatcher("0 249"));
+		for (int sorted = 0; sorted < 2; sorted++) {
+			Track[] selected = container.selection();
+			assertEquals(container.pages(30), 9, "250 tracks fill 9 pages of 30");
+			int position = 0;
+			for (int page = 0; page < 9; page++) {
+				Track[] tracks = container.page(30, page);
+				assertEquals(tracks.length, page < 8 ? 30 : 10);
+				for (Track t : tracks) {
+					assertSame(t, selected[position++], "wrong track on page " + page);
+				}
+			}
+			assertEquals(container.page(30, 9).length, 0, "a page beyond the selection should be empty");
+			container.sort(new DurationComparator(), true);
+		}
+		container.filter(new DurationMatcher("1000 2000"));
+		assertEquals(container.pages(30), 0);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class }, description = "page sizes must be positive")
+	public void pageSize() {
+		container.page(0, 0);
+	}
+}
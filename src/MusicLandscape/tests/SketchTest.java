@@ -0,0 +1,181 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.DistinctSketch;
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.container.QuantileSketch;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks the distinct count and quantile sketches, alone and over the selection of a container.
+ */
+public class SketchTest {
+
+	private Track[] given;
+
+	@BeforeMethod
+	private void init() {
+		Random random = new Random(7);
+		given = new Track[20000];
+		for (int i = 0; i < given.length; i++) {
+			given[i] = new Track("Track " + i);
+			given[i].setPerformer(new Artist("Performer " + random.nextInt(3000)));
+			given[i].setWriter(new Artist("Writer " + i % 40));
+			given[i].setDuration(random.nextInt(900));
+			given[i].setYear(1950 + random.nextInt(70));
+		}
+	}
+
+	@Test(description = "distinct counts are estimated within their error")
+	public void distinct() {
+		DistinctSketch sketch = new DistinctSketch(0.01);
+		assertTrue(sketch.error() <= 0.01);
+		for (int i = 0; i < 200000; i++) {
+			sketch.add("value " + i % 100000);
+		}
+		assertEquals(sketch.estimate(), 100000, 3 * sketch.error() * 100000);
+
+		DistinctSketch small = new DistinctSketch(0.05);
+		for (int i = 0; i < 1000; i++) {
+			small.add(i % 50);
+		}
+		small.add((String) null);
+		assertEquals(small.estimate(), 51, 1);
+		assertEquals(new DistinctSketch(0.05).estimate(), 0);
+	}
+
+	@Test(description = "merging the sketches of parts gives the sketch of the whole")
+	public void mergeDistinct() {
+		DistinctSketch whole = new DistinctSketch(0.02);
+		DistinctSketch[] parts = { new DistinctSketch(0.02), new DistinctSketch(0.02), new DistinctSketch(0.02) };
+		for (int i = 0; i < 30000; i++) {
+			whole.add("value " + i);
+			parts[i % 3].add("value " + i);
+		}
+		DistinctSketch merged = new DistinctSketch(parts[0]);
+		merged.merge(parts[1]);
+		merged.merge(parts[2]);
+		assertEquals(merged, whole);
+		assertEquals(merged.estimate(), whole.estimate());
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void mergeDifferentPrecision() {
+		new DistinctSketch(0.01).merge(new DistinctSketch(0.1));
+	}
+
+	@Test(description = "quantiles are estimated within their rank error")
+	public void quantiles() {
+		int n = 100000;
+		int[] values = new int[n];
+		Random random = new Random(11);
+		QuantileSketch sketch = new QuantileSketch(0.01);
+		for (int i = 0; i < n; i++) {
+			values[i] = random.nextInt(1000000);
+			sketch.add(values[i]);
+		}
+		Arrays.sort(values);
+		assertEquals(sketch.count(), n);
+		assertTrue(sketch.error() <= 0.01);
+		for (double q : new double[] { 0.01, 0.25, 0.5, 0.95, 0.99 }) {
+			int estimate = sketch.quantile(q);
+			double rank = (double) upperBound(values, estimate) / n;
+			assertEquals(rank, q, sketch.error(), "rank of quantile " + q);
+			assertEquals(sketch.rank(estimate), rank, sketch.error());
+		}
+		assertEquals(sketch.quantile(0), values[0]);
+		assertEquals(sketch.quantile(1), values[n - 1]);
+	}
+
+	@Test(description = "merged quantile sketches stay within their rank error")
+	public void mergeQuantiles() {
+		int n = 80000;
+		int[] values = new int[n];
+		QuantileSketch[] parts = new QuantileSketch[4];
+		for (int p = 0; p < parts.length; p++) {
+			parts[p] = new QuantileSketch(0.02);
+		}
+		for (int i = 0; i < n; i++) {
+			// the parts see very different values
+			values[i] = (i % 4) * 1000000 + i;
+			parts[i % 4].add(values[i]);
+		}
+		Arrays.sort(values);
+		QuantileSketch merged = new QuantileSketch(0.02);
+		for (QuantileSketch part : parts) {
+			merged.merge(part);
+		}
+		assertEquals(merged.count(), n);
+		for (double q : new double[] { 0.1, 0.5, 0.9 }) {
+			double rank = (double) upperBound(values, merged.quantile(q)) / n;
+			assertEquals(rank, q, merged.error(), "rank of quantile " + q);
+		}
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void emptyQuantile() {
+		new QuantileSketch(0.01).quantile(0.5);
+	}
+
+	@Test(expectedExceptions = { IllegalArgumentException.class })
+	public void invalidError() {
+		new QuantileSketch(0);
+	}
+
+	@Test(description = "the selection of a container is sketched the same way on one thread and on several")
+	public void selection() {
+		MyTrackContainer container = new MyTrackContainer(given);
+		container.filter(new YearMatcher("1960 1999"));
+		Set<String> performers = new HashSet<String>();
+		int[] durations = new int[container.selection().length];
+		int i = 0;
+		for (Track t : container.selection()) {
+			performers.add(t.getPerformer().getName());
+			durations[i++] = t.getDuration();
+		}
+		Arrays.sort(durations);
+
+		DistinctSketch distinct = container.distinct(MyTrackContainer.GroupBy.PERFORMER, 0.01);
+		assertEquals(distinct.estimate(), performers.size(), 3 * distinct.error() * performers.size());
+		assertEquals(container.distinct(MyTrackContainer.GroupBy.WRITER, 0.01).estimate(), 40, 1);
+		QuantileSketch quantiles = container.durationQuantiles(0.01);
+		assertEquals(quantiles.count(), durations.length);
+		double rank = (double) upperBound(durations, quantiles.quantile(0.5)) / durations.length;
+		assertTrue(Math.abs(rank - 0.5) <= quantiles.error() + 0.002, "rank of the median " + rank);
+
+		container.setParallelThreshold(1);
+		assertEquals(container.distinct(MyTrackContainer.GroupBy.PERFORMER, 0.01), distinct);
+		QuantileSketch parallel = container.durationQuantiles(0.01);
+		assertEquals(parallel.count(), durations.length);
+		rank = (double) upperBound(durations, parallel.quantile(0.5)) / durations.length;
+		assertTrue(Math.abs(rank - 0.5) <= parallel.error() + 0.002, "rank of the median " + rank);
+	}
+
+	/**
+	 * @return the number of sorted values less than or equal to value
+	 */
+	private static int upperBound(int[] sorted, int value) {
+		int low = 0;
+		int high = sorted.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (sorted[mid] <= value) {
+				low = mid + 1;
+			} else {
+				high = mid;
+			}
+		}
+		return low;
+	}
+}
@@ -0,0 +1,101 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.matcher.AndMatcher;
+import MusicLandscape.util.matcher.TitleTermMatcher;
+import MusicLandscape.util.matcher.YearMatcher;
+
+/**
+ * Checks term, phrase and AND/OR queries over titles, alone and resolved through the inverted index of a container.
+ */
+public class TitleTermMatcherTest {
+
+	@DataProvider(name = "queries")
+	private static Object[][] queries() {
+		return new Object[][] {
+				{ "death", "Death Magnetic", true },
+				{ "death", "Fade to Black (Death Mix)", true },
+				{ "death", "Deathless", false },
+				{ "DEATH", "death", true },
+				{ "magnetic death", "Death Magnetic", true },
+				{ "\"magnetic death\"", "Death Magnetic", false },
+				{ "\"master of puppets\"", "Master of Puppets (Live)", true },
+				{ "\"master of puppets\"", "Master of the Puppets", false },
+				{ "\"of puppets", "Master of Puppets", true },
+				{ "don't", "Don't Tread on Me", true },
+				{ "don't", "T. Don", false },
+				{ "death OR puppets", "Master of Puppets", true },
+				{ "death OR puppets", "Battery", false },
+				{ "death or puppets", "Master of Puppets", false },
+				{ "death OR \"master of\" live", "Master of Puppets (Live)", true },
+				{ "death OR \"master of\" live", "Master of Puppets", false },
+				{ "", "anything", true },
+				{ "OR", "anything", true },
+				{ "1984", "Live in 1984", true },
+		};
+	}
+
+	@Test(dataProvider = "queries")
+	public void matches(String query, String title, boolean expected) {
+		assertEquals(new TitleTermMatcher(query).matches(new Track(title)), expected, query + " on " + title);
+	}
+
+	@Test
+	public void query() {
+		TitleTermMatcher matcher = new TitleTermMatcher("a \"b c\" OR d");
+		assertEquals(matcher.getQuery(), Arrays.asList(
+				Arrays.asList(Arrays.asList("a"), Arrays.asList("b", "c")),
+				Arrays.asList(Arrays.asList("d"))));
+		assertEquals(matcher.getPattern(), "a \"b c\" OR d");
+		assertEquals(matcher.toString(), "title contains (a \"b c\" OR d)");
+		assertEquals(TitleTermMatcher.terms("Fade to Black (Live, 1984)"),
+				Arrays.asList("fade", "to", "black", "live", "1984"));
+	}
+
+	@Test(description = "a container resolving the matcher through its index selects what the matcher accepts")
+	public void filter() {
+		String[] words = { "death", "magnetic", "master", "of", "puppets", "live", "black", "fade", "to", "battery" };
+		List<Track> given = new ArrayList<Track>();
+		for (int i = 0; i < 20000; i++) {
+			StringBuilder title = new StringBuilder();
+			for (int w = 0; w < 1 + i % 5; w++) {
+				title.append(words[(i * 7 + w * (i % 3 + 1)) % words.length]).append(' ');
+			}
+			Track t = new Track(title.append(i).toString());
+			t.setYear(1980 + i % 30);
+			given.add(t);
+		}
+		for (String query : new String[] { "death", "master puppets", "\"master of\"", "death OR battery live",
+				"\"fade to\" OR \"of puppets\" black", "unknown" }) {
+			TitleTermMatcher matcher = new TitleTermMatcher(query);
+			MyTrackContainer container = new MyTrackContainer(given);
+			container.filter(new AndMatcher<Track>(new YearMatcher("1990 1999"), matcher));
+			List<Track> expected = new ArrayList<Track>();
+			for (Track t : given) {
+				if (t.getYear() >= 1990 && t.getYear() <= 1999 && matcher.matches(t)) {
+					expected.add(t);
+				}
+			}
+			assertEquals(container.size(), given.size(), query);
+			assertEquals(Arrays.asList(container.selection()), expected, query);
+
+			// tracks added after the index was built are found too
+			Track added = new Track("Death of the Master of Puppets");
+			added.setYear(1995);
+			container.add(added);
+			container.reset();
+			container.filter(matcher);
+			assertEquals(Arrays.asList(container.selection()).contains(added), matcher.matches(added), query);
+		}
+	}
+}
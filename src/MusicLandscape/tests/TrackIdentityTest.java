@@ -0,0 +1,83 @@
+package MusicLandscape.tests;
+
+import static org.testng.Assert.*;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import MusicLandscape.container.MyTrackContainer;
+import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.matcher.DurationMatcher;
+
+/**
+ * Checks equality of tracks and the uniqueness of tracks in containers of both storage modes.
+ */
+public class TrackIdentityTest {
+
+	private static Track track(String title, String writer, String performer, int duration, int year) {
+		Track t = new Track(title);
+		t.setWriter(new Artist(writer));
+		t.setPerformer(new Artist(performer));
+		t.setDuration(duration);
+		t.setYear(year);
+		return t;
+	}
+
+	@DataProvider(name = "modes")
+	private static Object[][] modes() {
+		return new Object[][] { { MyTrackContainer.StorageMode.OBJECT }, { MyTrackContainer.StorageMode.COLUMNAR } };
+	}
+
+	@Test(description = "tracks are equal if all their values are")
+	public void equality() {
+		Track t = track("One", "Metallica", "Metallica", 446, 1988);
+		assertEquals(new Track(t), t);
+		assertEquals(new Track(t).hashCode(), t.hashCode());
+		assertNotEquals(track("One", "Metallica", "Apocalyptica", 446, 1988), t);
+		assertNotEquals(track("One", "Metallica", "Metallica", 447, 1988), t);
+		assertNotEquals(track("One", "Metallica", "Metallica", 446, 1989), t);
+		assertNotEquals(track("Two", "Metallica", "Metallica", 446, 1988), t);
+		assertNotEquals(t, null);
+		assertEquals(new Artist("Slayer"), new Artist("Slayer"));
+		assertEquals(new Artist("Slayer").hashCode(), new Artist("Slayer").hashCode());
+	}
+
+	@Test(dataProvider = "modes", description = "tracks sharing a title are distinct, equal tracks are added once")
+	public void unique(MyTrackContainer.StorageMode mode) {
+		MyTrackContainer container = new MyTrackContainer(mode);
+		for (int i = 0; i < 5000; i++) {
+			// every title is shared by five recordings differing in duration
+			assertTrue(container.add(track("Song " + i / 5, "Writer " + i % 7, "Performer", i % 5, 1990)));
+		}
+		for (int i = 0; i < 5000; i += 3) {
+			assertFalse(container.add(track("Song " + i / 5, "Writer " + i % 7, "Performer", i % 5, 1990)),
+					"an equal track should not be added again");
+		}
+		assertEquals(container.size(), 5000);
+
+		container.reset();
+		container.filter(new DurationMatcher("0 1"));
+		assertEquals(container.remove(), 2000);
+		for (int i = 0; i < 5000; i++) {
+			boolean removed = i % 5 <= 1;
+			assertEquals(container.add(track("Song " + i / 5, "Writer " + i % 7, "Performer", i % 5, 1990)), removed,
+					"only removed tracks should be added again");
+		}
+		assertEquals(container.size(), 5000);
+
+		container.reset();
+		container.filter(new DurationMatcher("4 4"));
+		Track changed = new Track(container.selection()[0]);
+		// "Song 0" with duration 3 has been written by "Writer 3"
+		changed.setWriter(new Artist("Writer 3"));
+		changed.setDuration(3);
+		assertFalse(container.update(0, changed), "an update making two tracks equal should be refused");
+		changed.setDuration(5);
+		assertTrue(container.update(0, changed));
+		assertFalse(container.add(new Track(changed)), "the updated track should be found by its new values");
+		changed.setWriter(new Artist("Writer 4"));
+		changed.setDuration(4);
+		assertTrue(container.add(changed), "the old values of an updated track should be free again");
+	}
+}
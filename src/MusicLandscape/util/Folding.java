@@ -0,0 +1,57 @@
+package MusicLandscape.util;
+
+import java.text.Normalizer;
+import java.util.Locale;
+
+/**
+ * Folds strings into keys for case- and accent-insensitive comparison.
+ * The key of a string is its canonical decomposition (Unicode NFD) without combining marks, case-folded:
+ * "Mot\u00f6rhead", "MOTORHEAD" and "motorhead" all have the key "motorhead", and "Stra\u00dfe" has the key "strasse".
+ * Two strings compare equal ignoring case and accents if their keys are equal, and one starts with the other ignoring
+ * case and accents if its key starts with the key of the other.
+ */
+public final class Folding {
+
+    private Folding() {
+    }
+
+    /**
+     * Computes the key of a string.
+     * Strings which are their own key already, such as lower-case ASCII, are returned as they are, without creating
+     * any object.
+     *
+     * @param s the string, may be null
+     * @return the key of the string, null for null
+     */
+    public static String fold(String s) {
+        if (s == null || isFolded(s)) {
+            return s;
+        }
+        String decomposed = Normalizer.normalize(s, Normalizer.Form.NFD);
+        StringBuilder stripped = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            int type = Character.getType(c);
+            if (type != Character.NON_SPACING_MARK && type != Character.ENCLOSING_MARK
+                    && type != Character.COMBINING_SPACING_MARK) {
+                stripped.append(c);
+            }
+        }
+        // upper casing first folds special cases such as the German sharp s into their lower-case expansion
+        return stripped.toString().toUpperCase(Locale.ROOT).toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * @param s a string
+     * @return whether the string consists of ASCII characters other than upper-case letters only
+     */
+    private static boolean isFolded(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c >= 0x80 || (c >= 'A' && c <= 'Z')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package MusicLandscape.util.formatters;
+
+import MusicLandscape.container.Aggregate;
+import MusicLandscape.util.MyFormatter;
+
+/**
+ * This class represents the concept of tabular formatting of aggregates: the group, the number of tracks and the
+ * total, shortest, longest and average duration of the tracks of a group, durations in the format "(min:sec)".
+ */
+public class AggregateFormatter implements MyFormatter<Aggregate> {
+
+    /**
+     * Get the headers for the table as a single string.<br>
+     * <p>
+     * Contains the names for all columns separated by the correct number of
+     * blanks.
+     *
+     * @return the header string.
+     */
+    @Override
+    public String header() {
+        return String.format("%-20s %7s %10s %7s %7s %7s", "Group", "Tracks", "Total", "Min", "Max", "Avg");
+    }
+
+    /**
+     * Creates a String representation for an object.
+     * <p>
+     * The group is exactly 20 characters wide, cut off or padded with trailing blanks. The number of tracks and the
+     * durations are right justified in the columns of the header. Durations are in the format minutes:seconds,
+     * seconds at least two digits wide with leading zeros; the average is rounded to full seconds.
+     *
+     * @param aggregate the object to be formatted
+     * @return the formatted representing the object
+     */
+    @Override
+    public String format(Aggregate aggregate) {
+        String group = aggregate.getGroup();
+        return String.format("%-20s %7d %10s %7s %7s %7s", (group.length() > 20 ? group.substring(0, 20) : group),
+                aggregate.getCount(), duration(aggregate.getSum()), duration(aggregate.getMin()),
+                duration(aggregate.getMax()), duration(Math.round(aggregate.getAverage())));
+    }
+
+    /**
+     * A line of text to be used between header and data.
+     * top separator consists of dashes (-) only. It is exactly as wide as the header.
+     *
+     * @return the separator.
+     */
+    @Override
+    public String topSeparator() {
+        StringBuilder separator = new StringBuilder();
+        for (int i = 0; i < this.header().length(); i++) {
+            separator.append('-');
+        }
+        return separator.toString();
+    }
+
+    /**
+     * the string representation of this formatter is
+     * "aggregate format [Group Tracks Total Min Max Avg]" (without quotes)
+     *
+     * @return
+     */
+    @Override
+    public String toString() {
+        return "aggregate format [Group Tracks Total Min Max Avg]";
+    }
+
+    /**
+     * Formats a duration as min:sec.
+     *
+     * @param seconds the duration in seconds
+     * @return the formatted duration
+     */
+    private static String duration(long seconds) {
+        return String.format("%d:%02d", seconds / 60, seconds % 60);
+    }
+}
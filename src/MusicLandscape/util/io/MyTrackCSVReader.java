@@ -1,6 +1,6 @@
 package MusicLandscape.util.io;
 
-import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.ArtistRegistry;
 import MusicLandscape.entities.Track;
 
 import java.io.BufferedReader;
@@ -48,8 +48,8 @@ public class MyTrackCSVReader extends MyReader<Track> {
                 String[] tokens = line.split(",");
 
                 loadedTrack.setTitle(tokens[TITLE].strip());
-                loadedTrack.setWriter(new Artist(tokens[WRITER].strip()));
-                loadedTrack.setPerformer(new Artist(tokens[PERFORMER].strip()));
+                loadedTrack.setWriter(ArtistRegistry.of(tokens[WRITER].strip()));
+                loadedTrack.setPerformer(ArtistRegistry.of(tokens[PERFORMER].strip()));
                 loadedTrack.setDuration(Integer.parseInt(tokens[DURATION].strip()));
                 loadedTrack.setYear(Integer.parseInt(tokens[YEAR].strip()));
                 return loadedTrack;
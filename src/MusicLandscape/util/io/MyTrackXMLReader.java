@@ -1,6 +1,6 @@
 package MusicLandscape.util.io;
 
-import MusicLandscape.entities.Artist;
+import MusicLandscape.entities.ArtistRegistry;
 import MusicLandscape.entities.Track;
 import org.w3c.dom.Document;
 import org.w3c.dom.Element;
@@ -107,10 +107,10 @@ public class MyTrackXMLReader extends MyReader<Track> {
                     loadedTrack.setTitle(title);
 
                     String writer = tElement.getElementsByTagName("Writer").item(0).getTextContent();
-                    loadedTrack.setWriter(new Artist(writer));
+                    loadedTrack.setWriter(ArtistRegistry.of(writer));
 
                     String performer = tElement.getElementsByTagName("Performer").item(0).getTextContent();
-                    loadedTrack.setPerformer(new Artist(performer));
+                    loadedTrack.setPerformer(ArtistRegistry.of(performer));
 
                     String duration = tElement.getElementsByTagName("Duration").item(0).getTextContent();
                     loadedTrack.setDuration(Integer.parseInt(duration));
@@ -78,4 +78,20 @@ public class MyWriter<T> {
         }
     }
 
+    /**
+     * Writes several objects to the underlying file, one after the other, the way put() does.
+     *
+     * @param all the objects to be written to file
+     * @return the number of objects written to file successfully
+     */
+    public final int putAll(Iterable<? extends T> all) {
+        int counter = 0;
+        for (T t : all) {
+            if (this.put(t)) {
+                counter++;
+            }
+        }
+        return counter;
+    }
+
 }
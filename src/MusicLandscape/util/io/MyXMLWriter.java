@@ -14,6 +14,7 @@ import javax.xml.transform.stream.StreamResult;
 import java.io.BufferedWriter;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Properties;
 
 public class MyXMLWriter extends MyWriter<Track> {
@@ -34,6 +35,17 @@ public class MyXMLWriter extends MyWriter<Track> {
      * @return int number of tracks written
      */
     public int saveToXML(Track[] tracks) {
+        return this.saveToXML(Arrays.asList(tracks));
+    }
+
+    /**
+     * Writes tracks to the underlying file as an xml document, the way saveToXML(Track[]) does.
+     * The tracks are read one by one, so a view of a container's selection can be saved without copying it.
+     *
+     * @param tracks the tracks to write
+     * @return int number of tracks written
+     */
+    public int saveToXML(Iterable<Track> tracks) {
         Document dom;
         Element subRootEle = null;
 
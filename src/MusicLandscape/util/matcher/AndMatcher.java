@@ -0,0 +1,100 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.util.MyMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encapsulates the concept of matching an object against several matchers at once.
+ * An object matches if it matches all operands of this matcher. The operands are tried in order and matching stops
+ * at the first operand that does not match. An AndMatcher without operands matches everything.
+ * <p>
+ * The pattern of an AndMatcher is derived from its operands and cannot be set.
+ */
+public class AndMatcher<T> extends MyMatcher<T> {
+
+    /**
+     * the matchers all of which must match.
+     */
+    private final List<MyMatcher<T>> operands;
+
+    /**
+     * Creates a matcher that matches objects matching all of the arguments.
+     *
+     * @param operands the matchers to combine, none of them null
+     */
+    @SafeVarargs
+    public AndMatcher(MyMatcher<T>... operands) {
+        super("");
+        if (operands == null) {
+            throw new IllegalArgumentException("expected non-null MyMatcher");
+        }
+        // copied element by element: handing the generic array on as such is what could pollute the heap
+        List<MyMatcher<T>> list = new ArrayList<MyMatcher<T>>(operands.length);
+        for (MyMatcher<T> operand : operands) {
+            if (operand == null) {
+                throw new IllegalArgumentException("expected non-null MyMatcher");
+            }
+            list.add(operand);
+        }
+        this.operands = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the combined matchers.
+     *
+     * @return the operands of this matcher, in order
+     */
+    public List<MyMatcher<T>> getOperands() {
+        return this.operands;
+    }
+
+    /**
+     * An object matches if all operands match it.
+     *
+     * @param t the object to match
+     * @return whether t matches all operands.
+     */
+    @Override
+    public boolean matches(T t) {
+        for (MyMatcher<T> operand : this.operands) {
+            if (!operand.matches(t)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The pattern of this matcher is derived from its operands, the argument is ignored.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is the string representation of this matcher.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.toString();
+    }
+
+    /**
+     * the string representation is the string representations of the operands, each in parentheses, joined by "and".
+     *
+     * @return string representation of AndMatcher object
+     */
+    @Override
+    public String toString() {
+        return Combination.join(this.operands, " and ");
+    }
+}
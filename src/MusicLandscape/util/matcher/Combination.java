@@ -0,0 +1,32 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.util.MyMatcher;
+
+import java.util.List;
+
+/**
+ * Helpers shared by the matchers combining other matchers.
+ */
+final class Combination {
+
+    private Combination() {
+    }
+
+    /**
+     * Joins the string representations of matchers, each in parentheses.
+     *
+     * @param operands  the matchers
+     * @param separator the text between two operands
+     * @return the joined string
+     */
+    static <T> String join(List<MyMatcher<T>> operands, String separator) {
+        StringBuilder joined = new StringBuilder();
+        for (MyMatcher<T> operand : operands) {
+            if (joined.length() > 0) {
+                joined.append(separator);
+            }
+            joined.append('(').append(operand).append(')');
+        }
+        return joined.toString();
+    }
+}
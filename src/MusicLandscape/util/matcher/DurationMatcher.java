@@ -103,6 +103,26 @@ public class DurationMatcher extends MyMatcher<Track> {
         }
     }
 
+    /**
+     * Gets the lower bound of the accepted range.
+     * A duration matches if and only if it lies between getLower() and getUpper() (both inclusive); if the lower bound
+     * exceeds the upper bound no duration matches.
+     *
+     * @return the lower bound
+     */
+    public int getLower() {
+        return this.lower;
+    }
+
+    /**
+     * Gets the upper bound of the accepted range.
+     *
+     * @return the upper bound
+     */
+    public int getUpper() {
+        return this.upper;
+    }
+
     /**
      * Gets the pattern of this matcher.<br>
      * <p>
@@ -125,7 +145,17 @@ public class DurationMatcher extends MyMatcher<Track> {
      */
     @Override
     public boolean matches(Track track) {
-        int duration = track.getDuration();
+        return this.matches(track.getDuration());
+    }
+
+    /**
+     * A duration matches if it is in the range accepted by this matcher.
+     * This is the primitive form of matches(Track), used by containers which store durations without track objects.
+     *
+     * @param duration the duration (in seconds) to match
+     * @return whether the duration matches the pattern of this matcher.
+     */
+    public boolean matches(int duration) {
         boolean is_match = false;
 
         if (this.lower >= 0 && this.upper == Integer.MAX_VALUE) {
@@ -0,0 +1,244 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+import MusicLandscape.util.MyMatcher;
+
+/**
+ * Encapsulates the concept of matching a track whose title or artist name is similar to a given string.
+ * A track matches if the Levenshtein distance between the pattern and its title, writer name, performer name or
+ * either artist name, depending on the field of the matcher, is at most the maximum distance of the matcher. The
+ * distance is the number of characters to insert, delete or replace to turn one string into the other, ignoring
+ * case and accents: "Metalica" is at distance 1 from "Metallica", "Enter Sandmen" at distance 1 from "Enter Sandman".
+ * Unknown (null) names never match.
+ * <p>
+ * Containers resolve this matcher through a trigram index, comparing the pattern only with the titles or names that
+ * share enough three-character substrings with it, and can rank the matching tracks by distance.
+ */
+public class FuzzyMatcher extends MyMatcher<Track> {
+
+    /**
+     * The field of a track a FuzzyMatcher compares with its pattern.
+     */
+    public enum Field {
+        TITLE, WRITER, PERFORMER,
+        /**
+         * the writer or the performer name, whichever is closer
+         */
+        ARTIST
+    }
+
+    /**
+     * the maximum distance of a matcher created without one.
+     */
+    public static final int DEFAULT_DISTANCE = 2;
+
+    private String pattern;
+
+    /**
+     * the folded pattern, computed once per pattern rather than per compared value.
+     */
+    private String key;
+
+    /**
+     * the field compared with the pattern.
+     */
+    private final Field field;
+
+    /**
+     * the maximum distance of a matching field.
+     */
+    private final int distance;
+
+    /**
+     * Creates a matcher accepting fields within DEFAULT_DISTANCE of a pattern.
+     *
+     * @param field the field to compare
+     * @param pat   the pattern of this matcher
+     */
+    public FuzzyMatcher(Field field, String pat) {
+        this(field, pat, DEFAULT_DISTANCE);
+    }
+
+    /**
+     * Creates a matcher accepting fields within a given distance of a pattern.
+     *
+     * @param field    the field to compare
+     * @param pat      the pattern of this matcher
+     * @param distance the maximum distance, not negative
+     */
+    public FuzzyMatcher(Field field, String pat, int distance) {
+        super(pat);
+        if (field == null) {
+            throw new IllegalArgumentException("expected non-null Field");
+        }
+        if (distance < 0) {
+            throw new IllegalArgumentException("expected non-negative distance");
+        }
+        this.field = field;
+        this.distance = distance;
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        if (pat != null) {
+            this.pattern = pat;
+            this.key = fold(pat);
+        } else {
+            System.out.println("Null pattern provided in FuzzyMatcher.");
+        }
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is returned in a format that is considered valid in setPAttern.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * @return the field compared with the pattern
+     */
+    public Field getField() {
+        return this.field;
+    }
+
+    /**
+     * @return the maximum distance of a matching field
+     */
+    public int getDistance() {
+        return this.distance;
+    }
+
+    /**
+     * A track matches if its field is within the maximum distance of the pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.distanceTo(track) <= this.distance;
+    }
+
+    /**
+     * A value matches if it is within the maximum distance of the pattern.
+     * This is the primitive form of matches(Track), used by containers which store titles and names without track
+     * objects.
+     *
+     * @param value the title or name to match, null if unknown
+     * @return whether the value matches the pattern of this matcher.
+     */
+    public boolean matches(String value) {
+        return this.distanceTo(value) <= this.distance;
+    }
+
+    /**
+     * Computes the distance between the pattern and the field of a track.
+     *
+     * @param track the track
+     * @return the distance, or getDistance()+1 if it is larger than getDistance() or the field is unknown
+     */
+    public int distanceTo(Track track) {
+        switch (this.field) {
+            case TITLE:
+                return this.distanceTo(track.getTitle());
+            case WRITER:
+                return this.distanceTo(track.getWriter().getName());
+            case PERFORMER:
+                return this.distanceTo(track.getPerformer().getName());
+            default:
+                return Math.min(this.distanceTo(track.getWriter().getName()),
+                        this.distanceTo(track.getPerformer().getName()));
+        }
+    }
+
+    /**
+     * Computes the distance between the pattern and a value.
+     *
+     * @param value the title or name, null if unknown
+     * @return the distance, or getDistance()+1 if it is larger than getDistance() or the value is null
+     */
+    public int distanceTo(String value) {
+        if (value == null) {
+            return this.distance + 1;
+        }
+        return distance(this.key, fold(value), this.distance);
+    }
+
+    /**
+     * Brings a value into the form in which values are compared.
+     *
+     * @param value the value, not null
+     * @return the folded key of the value (see Folding)
+     */
+    public static String fold(String value) {
+        return Folding.fold(value);
+    }
+
+    /**
+     * Computes the Levenshtein distance between two strings, up to a maximum.
+     * Only the diagonal band of width 2*max+1 of the distance matrix is computed, in O((max+1) * length) time.
+     *
+     * @param a   a string
+     * @param b   another string
+     * @param max the maximum distance of interest, not negative
+     * @return the distance, or max+1 if it is larger than max
+     */
+    public static int distance(String a, String b, int max) {
+        if (Math.abs(a.length() - b.length()) > max) {
+            return max + 1;
+        }
+        int outside = max + 1;
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = Math.min(j, outside);
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            int from = Math.max(1, i - max);
+            int to = Math.min(b.length(), i + max);
+            current[0] = Math.min(i, outside);
+            if (from > 1) {
+                current[from - 1] = outside;
+            }
+            int best = current[0];
+            for (int j = from; j <= to; j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int d = Math.min(previous[j - 1] + cost, Math.min(previous[j], current[j - 1]) + 1);
+                current[j] = Math.min(d, outside);
+                best = Math.min(best, current[j]);
+            }
+            if (to < b.length()) {
+                current[to + 1] = outside;
+            }
+            if (best > max) {
+                return outside;
+            }
+            int[] swap = previous;
+            previous = current;
+            current = swap;
+        }
+        return previous[b.length()];
+    }
+
+    /**
+     * the string representation is FIELD within DISTANCE of (PATTERN)
+     *
+     * @return string representation of FuzzyMatcher object
+     */
+    @Override
+    public String toString() {
+        return this.field.toString().toLowerCase() + " within " + this.distance + " of (" + this.getPattern() + ")";
+    }
+}
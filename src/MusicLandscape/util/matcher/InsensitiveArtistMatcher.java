@@ -0,0 +1,72 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+
+/**
+ * Encapsulates the concept of matching a track based on the name of its writer or performer, ignoring case and accents.
+ * This class is the insensitive variant of ArtistMatcher: "mot" and "MOT" both match "Mot\u00f6rhead". Unknown (null)
+ * names never match.
+ */
+public class InsensitiveArtistMatcher extends ArtistMatcher implements InsensitiveMatcher {
+
+    /**
+     * the folded key of the pattern.
+     */
+    private String key;
+
+    /**
+     * Creates a default insensitive artist matcher, which matches any track with a named artist.
+     */
+    public InsensitiveArtistMatcher() {
+        super("");
+    }
+
+    /**
+     * Creates a Matcher object with a specified pattern.<br>
+     *
+     * @param pat the pattern of this matcher
+     */
+    public InsensitiveArtistMatcher(String pat) {
+        super(pat);
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern. Its folded key is computed once, here.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        super.setPattern(pat);
+        this.key = Folding.fold(this.getPattern());
+    }
+
+    @Override
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * A track matches if the folded key of the name of its writer or performer starts with the folded key of the
+     * pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.matchesKey(Folding.fold(track.getWriter().getName()))
+                || this.matchesKey(Folding.fold(track.getPerformer().getName()));
+    }
+
+    /**
+     * the string representation is that of ArtistMatcher, followed by "ignoring case"
+     *
+     * @return string representation of InsensitiveArtistMatcher object
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " ignoring case";
+    }
+}
@@ -0,0 +1,27 @@
+package MusicLandscape.util.matcher;
+
+/**
+ * Implemented by the case- and accent-insensitive variants of the prefix matchers.
+ * Such a matcher accepts a name or title whose folded key (see Folding) starts with the folded key of its pattern.
+ * Containers compare the key of the pattern with the keys they computed when the tracks were stored.
+ */
+public interface InsensitiveMatcher {
+
+    /**
+     * Gets the folded key of the pattern.
+     *
+     * @return the key, null if the matcher has no pattern
+     */
+    String getKey();
+
+    /**
+     * A folded key matches if it starts with the key of the pattern.
+     * This is the primitive form of matches(Track), used by containers which store folded keys.
+     *
+     * @param key the folded key of a name or title, null if unknown
+     * @return whether the key matches the pattern of this matcher.
+     */
+    default boolean matchesKey(String key) {
+        return key != null && key.startsWith(this.getKey());
+    }
+}
@@ -0,0 +1,70 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+
+/**
+ * Encapsulates the concept of matching a track based on the name of its performer, ignoring case and accents.
+ * This class is the insensitive variant of PerformerMatcher: "mot" and "MOT" both match "Mot\u00f6rhead". Tracks whose
+ * performer name is unknown (null) never match.
+ */
+public class InsensitivePerformerMatcher extends PerformerMatcher implements InsensitiveMatcher {
+
+    /**
+     * the folded key of the pattern.
+     */
+    private String key;
+
+    /**
+     * Creates a default insensitive performer matcher, which matches any track with a named performer.
+     */
+    public InsensitivePerformerMatcher() {
+        super("");
+    }
+
+    /**
+     * Creates a Matcher object with a specified pattern.<br>
+     *
+     * @param pat the pattern of this matcher
+     */
+    public InsensitivePerformerMatcher(String pat) {
+        super(pat);
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern. Its folded key is computed once, here.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        super.setPattern(pat);
+        this.key = Folding.fold(this.getPattern());
+    }
+
+    @Override
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * A track matches if the folded key of the name of its performer starts with the folded key of the pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.matchesKey(Folding.fold(track.getPerformer().getName()));
+    }
+
+    /**
+     * the string representation is that of PerformerMatcher, followed by "ignoring case"
+     *
+     * @return string representation of InsensitivePerformerMatcher object
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " ignoring case";
+    }
+}
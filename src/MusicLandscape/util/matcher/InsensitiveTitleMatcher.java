@@ -0,0 +1,70 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+
+/**
+ * Encapsulates the concept of matching a track based on its title, ignoring case and accents.
+ * This class is the insensitive variant of TitleMatcher: "mot" and "MOT" both match "Mot\u00f6rhead". A track of
+ * unknown title matches like a track titled "unknown title", as with TitleMatcher.
+ */
+public class InsensitiveTitleMatcher extends TitleMatcher implements InsensitiveMatcher {
+
+    /**
+     * the folded key of the pattern.
+     */
+    private String key;
+
+    /**
+     * Creates a default insensitive title matcher, which matches any title.
+     */
+    public InsensitiveTitleMatcher() {
+        super("");
+    }
+
+    /**
+     * Creates a Matcher object with a specified pattern.<br>
+     *
+     * @param pat the pattern of this matcher
+     */
+    public InsensitiveTitleMatcher(String pat) {
+        super(pat);
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern. Its folded key is computed once, here.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        super.setPattern(pat);
+        this.key = Folding.fold(this.getPattern());
+    }
+
+    @Override
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * A track matches if the folded key of its title starts with the folded key of the pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.matchesKey(Folding.fold(track.getTitle()));
+    }
+
+    /**
+     * the string representation is that of TitleMatcher, followed by "ignoring case"
+     *
+     * @return string representation of InsensitiveTitleMatcher object
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " ignoring case";
+    }
+}
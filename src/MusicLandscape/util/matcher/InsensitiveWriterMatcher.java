@@ -0,0 +1,70 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+
+/**
+ * Encapsulates the concept of matching a track based on the name of its writer, ignoring case and accents.
+ * This class is the insensitive variant of WriterMatcher: "mot" and "MOT" both match "Mot\u00f6rhead". Tracks whose
+ * writer name is unknown (null) never match.
+ */
+public class InsensitiveWriterMatcher extends WriterMatcher implements InsensitiveMatcher {
+
+    /**
+     * the folded key of the pattern.
+     */
+    private String key;
+
+    /**
+     * Creates a default insensitive writer matcher, which matches any track with a named writer.
+     */
+    public InsensitiveWriterMatcher() {
+        super("");
+    }
+
+    /**
+     * Creates a Matcher object with a specified pattern.<br>
+     *
+     * @param pat the pattern of this matcher
+     */
+    public InsensitiveWriterMatcher(String pat) {
+        super(pat);
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern. Its folded key is computed once, here.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        super.setPattern(pat);
+        this.key = Folding.fold(this.getPattern());
+    }
+
+    @Override
+    public String getKey() {
+        return this.key;
+    }
+
+    /**
+     * A track matches if the folded key of the name of its writer starts with the folded key of the pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.matchesKey(Folding.fold(track.getWriter().getName()));
+    }
+
+    /**
+     * the string representation is that of WriterMatcher, followed by "ignoring case"
+     *
+     * @return string representation of InsensitiveWriterMatcher object
+     */
+    @Override
+    public String toString() {
+        return super.toString() + " ignoring case";
+    }
+}
@@ -0,0 +1,80 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.util.MyMatcher;
+
+/**
+ * Encapsulates the concept of matching an object that another matcher does not match.
+ * <p>
+ * The pattern of a NotMatcher is derived from its operand and cannot be set.
+ */
+public class NotMatcher<T> extends MyMatcher<T> {
+
+    /**
+     * the matcher which must not match.
+     */
+    private final MyMatcher<T> operand;
+
+    /**
+     * Creates a matcher that matches objects the argument does not match.
+     *
+     * @param operand the matcher to negate, not null
+     */
+    public NotMatcher(MyMatcher<T> operand) {
+        super("");
+        if (operand == null) {
+            throw new IllegalArgumentException("expected non-null MyMatcher");
+        }
+        this.operand = operand;
+    }
+
+    /**
+     * Gets the negated matcher.
+     *
+     * @return the operand of this matcher
+     */
+    public MyMatcher<T> getOperand() {
+        return this.operand;
+    }
+
+    /**
+     * An object matches if the operand does not match it.
+     *
+     * @param t the object to match
+     * @return whether t does not match the operand.
+     */
+    @Override
+    public boolean matches(T t) {
+        return !this.operand.matches(t);
+    }
+
+    /**
+     * The pattern of this matcher is derived from its operand, the argument is ignored.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is the string representation of this matcher.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.toString();
+    }
+
+    /**
+     * the string representation is not (OPERAND)
+     *
+     * @return string representation of NotMatcher object
+     */
+    @Override
+    public String toString() {
+        return "not (" + this.operand + ")";
+    }
+}
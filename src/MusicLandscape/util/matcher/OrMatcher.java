@@ -0,0 +1,100 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.util.MyMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encapsulates the concept of matching an object against any of several matchers.
+ * An object matches if it matches at least one operand of this matcher. The operands are tried in order and matching
+ * stops at the first operand that matches. An OrMatcher without operands matches nothing.
+ * <p>
+ * The pattern of an OrMatcher is derived from its operands and cannot be set.
+ */
+public class OrMatcher<T> extends MyMatcher<T> {
+
+    /**
+     * the matchers at least one of which must match.
+     */
+    private final List<MyMatcher<T>> operands;
+
+    /**
+     * Creates a matcher that matches objects matching any of the arguments.
+     *
+     * @param operands the matchers to combine, none of them null
+     */
+    @SafeVarargs
+    public OrMatcher(MyMatcher<T>... operands) {
+        super("");
+        if (operands == null) {
+            throw new IllegalArgumentException("expected non-null MyMatcher");
+        }
+        // copied element by element: handing the generic array on as such is what could pollute the heap
+        List<MyMatcher<T>> list = new ArrayList<MyMatcher<T>>(operands.length);
+        for (MyMatcher<T> operand : operands) {
+            if (operand == null) {
+                throw new IllegalArgumentException("expected non-null MyMatcher");
+            }
+            list.add(operand);
+        }
+        this.operands = Collections.unmodifiableList(list);
+    }
+
+    /**
+     * Gets the combined matchers.
+     *
+     * @return the operands of this matcher, in order
+     */
+    public List<MyMatcher<T>> getOperands() {
+        return this.operands;
+    }
+
+    /**
+     * An object matches if any operand matches it.
+     *
+     * @param t the object to match
+     * @return whether t matches any operand.
+     */
+    @Override
+    public boolean matches(T t) {
+        for (MyMatcher<T> operand : this.operands) {
+            if (operand.matches(t)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The pattern of this matcher is derived from its operands, the argument is ignored.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is the string representation of this matcher.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.toString();
+    }
+
+    /**
+     * the string representation is the string representations of the operands, each in parentheses, joined by "or".
+     *
+     * @return string representation of OrMatcher object
+     */
+    @Override
+    public String toString() {
+        return Combination.join(this.operands, " or ");
+    }
+}
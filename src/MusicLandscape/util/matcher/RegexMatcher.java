@@ -0,0 +1,371 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.MyMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Encapsulates the concept of matching a track whose title or artist name contains a match of a regular expression.
+ * The pattern is a regular expression in the syntax of java.util.regex.Pattern; a track matches if the expression
+ * is found anywhere in its title, writer name, performer name or either artist name, depending on the field of the
+ * matcher. Use ^ and $ to match the whole field: <code>^Master.*Puppets$</code>. Unknown (null) names never match.
+ * <p>
+ * Compiled expressions are cached, so matchers created with the same expression share one compiled Pattern. When an
+ * expression is compiled, the literal text any match must contain is extracted from it: the prefix of an expression
+ * anchored with ^, such as "Enter S" for <code>^Enter S(a|e)ndman</code>, and the literal runs outside of groups,
+ * such as "Sand" and "man" for <code>.*Sand(wo)?man</code>. Containers narrow the tracks to those containing this
+ * text through their prefix and trigram indexes and run the expression on these tracks only.
+ */
+public class RegexMatcher extends MyMatcher<Track> {
+
+    /**
+     * The field of a track a RegexMatcher searches.
+     */
+    public enum Field {
+        TITLE, WRITER, PERFORMER,
+        /**
+         * the writer or the performer name, either of which may contain a match
+         */
+        ARTIST
+    }
+
+    /**
+     * the maximum number of compiled expressions kept in the cache.
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * the compiled expressions, least recently used first.
+     */
+    private static final Map<String, Compiled> CACHE = new LinkedHashMap<String, Compiled>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+            return this.size() > CACHE_SIZE;
+        }
+    };
+
+    private String pattern;
+
+    /**
+     * the compiled pattern and the literal text extracted from it.
+     */
+    private Compiled compiled;
+
+    /**
+     * the field searched for the pattern.
+     */
+    private final Field field;
+
+    /**
+     * Creates a matcher searching a field for a regular expression.
+     *
+     * @param field the field to search
+     * @param pat   the regular expression, valid in the syntax of java.util.regex.Pattern
+     */
+    public RegexMatcher(Field field, String pat) {
+        super(pat);
+        if (field == null) {
+            throw new IllegalArgumentException("expected non-null Field");
+        }
+        if (this.compiled == null) {
+            throw new IllegalArgumentException("expected valid regular expression");
+        }
+        this.field = field;
+    }
+
+    /**
+     * Any valid regular expression is an acceptable pattern. An invalid pattern is refused, leaving the pattern
+     * unchanged.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        if (pat == null) {
+            System.out.println("Null pattern provided in RegexMatcher.");
+            return;
+        }
+        try {
+            this.compiled = compile(pat);
+            this.pattern = pat;
+        } catch (PatternSyntaxException e) {
+            System.out.println("Invalid pattern provided in RegexMatcher: " + e.getDescription());
+        }
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is returned in a format that is considered valid in setPAttern.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * @return the field searched for the pattern
+     */
+    public Field getField() {
+        return this.field;
+    }
+
+    /**
+     * Gets the text every matching field starts with.
+     *
+     * @return the literal prefix of the pattern, empty if the pattern is not anchored or does not start with text
+     */
+    public String getPrefix() {
+        return this.compiled.prefix;
+    }
+
+    /**
+     * Gets texts every matching field contains.
+     *
+     * @return the literal runs of the pattern outside of groups, empty if none can be told
+     */
+    public List<String> getLiterals() {
+        return this.compiled.literals;
+    }
+
+    /**
+     * A track matches if its field contains a match of the pattern.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        switch (this.field) {
+            case TITLE:
+                return this.matches(track.getTitle());
+            case WRITER:
+                return this.matches(track.getWriter().getName());
+            case PERFORMER:
+                return this.matches(track.getPerformer().getName());
+            default:
+                return this.matches(track.getWriter().getName()) || this.matches(track.getPerformer().getName());
+        }
+    }
+
+    /**
+     * A value matches if it contains a match of the pattern.
+     * This is the primitive form of matches(Track), used by containers which store titles and names without track
+     * objects.
+     *
+     * @param value the title or name to match, null if unknown
+     * @return whether the value matches the pattern of this matcher.
+     */
+    public boolean matches(String value) {
+        return value != null && this.compiled.pattern.matcher(value).find();
+    }
+
+    /**
+     * the string representation is FIELD matches (PATTERN)
+     *
+     * @return string representation of RegexMatcher object
+     */
+    @Override
+    public String toString() {
+        return this.field.toString().toLowerCase() + " matches (" + this.getPattern() + ")";
+    }
+
+    /**
+     * Compiles a regular expression, or takes it from the cache if it has been compiled recently.
+     *
+     * @param regex the regular expression
+     * @return the compiled expression
+     * @throws PatternSyntaxException if the expression is invalid
+     */
+    private static Compiled compile(String regex) {
+        synchronized (CACHE) {
+            Compiled compiled = CACHE.get(regex);
+            if (compiled != null) {
+                return compiled;
+            }
+        }
+        // compiled outside the lock; two threads compiling the same expression at once both get a correct result
+        Compiled compiled = new Compiled(regex);
+        synchronized (CACHE) {
+            CACHE.put(regex, compiled);
+        }
+        return compiled;
+    }
+
+    /**
+     * A compiled regular expression along with the literal text its matches contain.
+     */
+    private static final class Compiled {
+
+        final Pattern pattern;
+
+        final String prefix;
+
+        final List<String> literals;
+
+        /**
+         * Compiles an expression and extracts its literal text.
+         * The expression is scanned once, taking the characters outside of groups and character classes which are
+         * not metacharacters and not made optional by a quantifier. Expressions using constructs the scan does not
+         * follow, such as alternatives at the top level, inline flags, quoting or back references, yield no literal
+         * text, which is always correct.
+         *
+         * @param regex the regular expression
+         */
+        Compiled(String regex) {
+            this.pattern = Pattern.compile(regex);
+            List<String> literals = new ArrayList<String>();
+            String prefix = "";
+            if (!scan(regex, literals)) {
+                literals.clear();
+            } else if (regex.startsWith("^")) {
+                prefix = literals.get(0);
+            }
+            literals.removeIf(String::isEmpty);
+            this.prefix = prefix;
+            this.literals = Collections.unmodifiableList(literals);
+        }
+
+        /**
+         * Collects the literal runs of an expression. The run at the start of the expression, after its anchor if
+         * any, comes first, even if it is empty.
+         *
+         * @param regex    a valid regular expression
+         * @param literals the list to add the runs to
+         * @return false if the expression uses a construct the scan does not follow
+         */
+        private static boolean scan(String regex, List<String> literals) {
+            StringBuilder run = new StringBuilder();
+            int depth = 0;
+            int i = regex.startsWith("^") ? 1 : 0;
+            while (i < regex.length()) {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    if (i + 1 == regex.length()) {
+                        return false;
+                    }
+                    char escaped = regex.charAt(i + 1);
+                    i += 2;
+                    if (Character.isLetterOrDigit(escaped)) {
+                        if ("dDsSwWbBAGZzRXhHvVtnrfae".indexOf(escaped) < 0) {
+                            // quoting, back references, code points and properties
+                            return false;
+                        }
+                        end(run, literals);
+                    } else if (depth == 0) {
+                        run.append(escaped);
+                        i = quantified(regex, i, run, literals);
+                    }
+                } else if (c == '[') {
+                    i = skipClass(regex, i);
+                    end(run, literals);
+                } else if (c == '(') {
+                    if (regex.startsWith("(?", i) && ":=!<>".indexOf(regex.charAt(i + 2)) < 0) {
+                        // inline flags change how the literals match
+                        return false;
+                    }
+                    depth++;
+                    i++;
+                    end(run, literals);
+                } else if (c == ')') {
+                    depth--;
+                    i++;
+                    end(run, literals);
+                } else if (c == '|') {
+                    if (depth == 0) {
+                        return false;
+                    }
+                    i++;
+                } else if (".^$?*+{".indexOf(c) >= 0) {
+                    // metacharacters and quantifiers of something other than a literal character
+                    i = c == '{' ? regex.indexOf('}', i) + 1 : i + 1;
+                    if (i == 0) {
+                        return false;
+                    }
+                    end(run, literals);
+                } else {
+                    i++;
+                    if (depth == 0) {
+                        run.append(c);
+                        i = quantified(regex, i, run, literals);
+                    }
+                }
+            }
+            end(run, literals);
+            return true;
+        }
+
+        /**
+         * Applies the quantifier, if any, following the last character of a run.
+         * A character which may be absent is taken off the run, and any quantifier ends the run.
+         *
+         * @return the position after the quantifier
+         */
+        private static int quantified(String regex, int i, StringBuilder run, List<String> literals) {
+            if (i == regex.length() || "?*+{".indexOf(regex.charAt(i)) < 0) {
+                return i;
+            }
+            char quantifier = regex.charAt(i);
+            if (quantifier != '+') {
+                run.setLength(run.length() - 1);
+            }
+            end(run, literals);
+            i = quantifier == '{' ? regex.indexOf('}', i) + 1 : i + 1;
+            if (i == 0) {
+                return regex.length();
+            }
+            // lazy and possessive forms
+            if (i < regex.length() && (regex.charAt(i) == '?' || regex.charAt(i) == '+')) {
+                i++;
+            }
+            return i;
+        }
+
+        /**
+         * Skips a character class.
+         *
+         * @param i the position of its opening bracket
+         * @return the position after its closing bracket
+         */
+        private static int skipClass(String regex, int i) {
+            int nesting = 0;
+            do {
+                char c = regex.charAt(i);
+                if (c == '\\') {
+                    i++;
+                } else if (c == '[') {
+                    nesting++;
+                    // a closing bracket right after the opening one, or after its negation, is a member
+                    if (regex.startsWith("^]", i + 1)) {
+                        i += 2;
+                    } else if (regex.startsWith("]", i + 1)) {
+                        i++;
+                    }
+                } else if (c == ']') {
+                    nesting--;
+                }
+                i++;
+            } while (nesting > 0 && i < regex.length());
+            return i;
+        }
+
+        /**
+         * Ends a run, adding it to the literals. An empty run is added too, to keep track of the end of the prefix.
+         */
+        private static void end(StringBuilder run, List<String> literals) {
+            if (run.length() > 0 || literals.isEmpty()) {
+                literals.add(run.toString());
+                run.setLength(0);
+            }
+        }
+    }
+}
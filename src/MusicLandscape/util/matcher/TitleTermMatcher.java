@@ -0,0 +1,221 @@
+package MusicLandscape.util.matcher;
+
+import MusicLandscape.entities.Track;
+import MusicLandscape.util.Folding;
+import MusicLandscape.util.MyMatcher;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Encapsulates the concept of matching a track based on the words anywhere in its title.
+ * Titles and patterns are split into terms, the maximal runs of letters and digits, compared ignoring case and
+ * accents. The pattern is a query made of:
+ * <ul>
+ * <li>terms: <code>death</code> matches every title containing the word "death", e.g. "Death Magnetic" but not
+ * "Deathless"</li>
+ * <li>phrases: <code>"master of puppets"</code> matches titles containing these terms one right after the other. A
+ * word splitting into several terms, such as <code>don't</code>, is a phrase too.</li>
+ * <li>AND: terms and phrases separated by spaces must all be contained, in any order</li>
+ * <li>OR: <code>OR</code>, in capitals, separates alternatives at least one of which must match</li>
+ * </ul>
+ * For example <code>death OR "master of puppets" live</code> matches titles containing "death", and titles containing
+ * both the phrase "master of puppets" and "live". A pattern without any term matches every track.
+ * <p>
+ * Containers resolve this matcher through an inverted index of the title terms, so that filtering costs time in
+ * proportion to the number of tracks containing the terms rather than to the number of tracks.
+ */
+public class TitleTermMatcher extends MyMatcher<Track> {
+
+    /**
+     * the keyword separating alternatives.
+     */
+    private static final String OR = "OR";
+
+    private String pattern;
+
+    /**
+     * the parsed pattern: alternatives, each a list of phrases, each a list of terms.
+     */
+    private List<List<List<String>>> query;
+
+    /**
+     * Creates a Matcher object with a specified pattern.<br>
+     *
+     * @param pat the pattern of this matcher
+     */
+    public TitleTermMatcher(String pat) {
+        super(pat);
+    }
+
+    /**
+     * Any non-null String is an acceptable pattern, it is interpreted as described in the class documentation.
+     * An unbalanced quote extends the phrase to the end of the pattern.
+     *
+     * @param pat the pattern to set
+     */
+    @Override
+    public void setPattern(String pat) {
+        if (pat != null) {
+            this.pattern = pat;
+            this.query = parse(pat);
+        } else {
+            System.out.println("Null pattern provided in TitleTermMatcher.");
+        }
+    }
+
+    /**
+     * Gets the pattern of this matcher.<br>
+     * <p>
+     * The pattern is returned in a format that is considered valid in setPAttern.
+     *
+     * @return the pattern
+     */
+    @Override
+    public String getPattern() {
+        return this.pattern;
+    }
+
+    /**
+     * Gets the parsed pattern.
+     *
+     * @return the alternatives of the query, each a list of phrases all of which must be contained, each phrase a list
+     * of terms; a single alternative without phrases if the pattern has no terms
+     */
+    public List<List<List<String>>> getQuery() {
+        return this.query;
+    }
+
+    /**
+     * A track matches if its title matches the query of this matcher.
+     *
+     * @param track the object to match
+     * @return whether t matches the pattern of this matcher.
+     */
+    @Override
+    public boolean matches(Track track) {
+        return this.matches(track.getTitle());
+    }
+
+    /**
+     * A title matches if it contains all phrases of at least one alternative of the query.
+     * This is the primitive form of matches(Track), used by containers which store titles without track objects.
+     *
+     * @param title the title to match, null for no title
+     * @return whether the title matches the pattern of this matcher.
+     */
+    public boolean matches(String title) {
+        List<String> terms = terms(title);
+        for (List<List<String>> alternative : this.query) {
+            boolean all = true;
+            for (List<String> phrase : alternative) {
+                if (!contains(terms, phrase)) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Splits a text into terms, the maximal runs of letters and digits, folded (see Folding).
+     *
+     * @param text the text, null for no text
+     * @return the terms in order of appearance, repetitions included
+     */
+    public static List<String> terms(String text) {
+        List<String> terms = new ArrayList<String>();
+        if (text == null) {
+            return terms;
+        }
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean inTerm = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (inTerm && start < 0) {
+                start = i;
+            } else if (!inTerm && start >= 0) {
+                terms.add(Folding.fold(text.substring(start, i)));
+                start = -1;
+            }
+        }
+        return terms;
+    }
+
+    /**
+     * the string representation is title contains (PATTERN)
+     *
+     * @return string representation of TitleTermMatcher object
+     */
+    @Override
+    public String toString() {
+        return "title contains (" + this.getPattern() + ")";
+    }
+
+    /**
+     * Parses a pattern into alternatives of phrases of terms.
+     */
+    private static List<List<List<String>>> parse(String pat) {
+        List<List<List<String>>> alternatives = new ArrayList<List<List<String>>>();
+        List<List<String>> alternative = new ArrayList<List<String>>();
+        int i = 0;
+        while (i < pat.length()) {
+            char c = pat.charAt(i);
+            if (Character.isWhitespace(c)) {
+                i++;
+                continue;
+            }
+            int end;
+            String text;
+            if (c == '"') {
+                end = pat.indexOf('"', i + 1);
+                end = end < 0 ? pat.length() : end;
+                text = pat.substring(i + 1, end);
+                end++;
+            } else {
+                end = i;
+                while (end < pat.length() && !Character.isWhitespace(pat.charAt(end)) && pat.charAt(end) != '"') {
+                    end++;
+                }
+                text = pat.substring(i, end);
+                if (text.equals(OR)) {
+                    if (!alternative.isEmpty()) {
+                        alternatives.add(Collections.unmodifiableList(alternative));
+                    }
+                    alternative = new ArrayList<List<String>>();
+                    i = end;
+                    continue;
+                }
+            }
+            List<String> phrase = terms(text);
+            if (!phrase.isEmpty()) {
+                alternative.add(Collections.unmodifiableList(phrase));
+            }
+            i = end;
+        }
+        if (!alternative.isEmpty() || alternatives.isEmpty()) {
+            alternatives.add(Collections.unmodifiableList(alternative));
+        }
+        return Collections.unmodifiableList(alternatives);
+    }
+
+    /**
+     * Tells whether a phrase occurs in a list of terms, its terms one right after the other.
+     */
+    private static boolean contains(List<String> terms, List<String> phrase) {
+        for (int start = 0; start + phrase.size() <= terms.size(); start++) {
+            int k = 0;
+            while (k < phrase.size() && terms.get(start + k).equals(phrase.get(k))) {
+                k++;
+            }
+            if (k == phrase.size()) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -48,7 +48,17 @@ public class YearMatcher extends MyMatcher<Track> {
      */
     @Override
     public boolean matches(Track track) {
-        int track_year = track.getYear();
+        return this.matches(track.getYear());
+    }
+
+    /**
+     * A year matches if it is in the range accepted by this matcher.
+     * This is the primitive form of matches(Track), used by containers which store years without track objects.
+     *
+     * @param track_year the year to match
+     * @return whether the year matches the pattern of this matcher.
+     */
+    public boolean matches(int track_year) {
         boolean is_match = false;
 
         if(this.lower <= track_year && track_year <= this.upper) {
@@ -102,6 +112,26 @@ public class YearMatcher extends MyMatcher<Track> {
         }
     }
 
+    /**
+     * Gets the lower bound of the accepted range.
+     * A year matches if and only if it lies between getLower() and getUpper() (both inclusive); if the lower bound
+     * exceeds the upper bound no year matches.
+     *
+     * @return the lower bound
+     */
+    public int getLower() {
+        return this.lower;
+    }
+
+    /**
+     * Gets the upper bound of the accepted range.
+     *
+     * @return the upper bound
+     */
+    public int getUpper() {
+        return this.upper;
+    }
+
     /**
      * Gets the pattern of this matcher.<br>
      * <p>